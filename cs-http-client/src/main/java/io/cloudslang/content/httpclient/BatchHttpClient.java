@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient;
+
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the same request for a list of URLs, 'parallelism' requests at a time. All the requests share the
+ * connection pool and the http client instances given on the inputs, the cookies are not shared between them.
+ */
+public class BatchHttpClient {
+    public static final String URL_TEMPLATE_PLACEHOLDER = "{value}";
+    public static final String DEFAULT_DELIMITER = ",";
+    public static final int DEFAULT_PARALLELISM = 10;
+
+    public static final String SUCCESS_COUNT = "successCount";
+    public static final String FAILURE_COUNT = "failureCount";
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    public BatchHttpClient setParallelism(String parallelism) {
+        if (!StringUtils.isEmpty(parallelism)) {
+            try {
+                this.parallelism = Integer.parseInt(parallelism);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("the '" + BatchHttpClientAction.PARALLELISM
+                        + "' input should be integer" + e.getMessage(), e);
+            }
+            if (this.parallelism <= 0) {
+                throw new IllegalArgumentException("the '" + BatchHttpClientAction.PARALLELISM
+                        + "' input should be greater than 0");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the results of the requests, in the order of the urls. A request that could not be executed has the
+     * 'returnCode' -1 and the error message in 'returnResult'.
+     */
+    public List<Map<String, String>> execute(final HttpClientInputs httpClientInputs, List<String> urls) {
+        if (httpClientInputs.getConnectionPoolSessionObject() == null) {
+            httpClientInputs.setConnectionPoolSessionObject(new GlobalSessionObject());
+        }
+        if (httpClientInputs.getHttpClientSessionObject() == null) {
+            httpClientInputs.setHttpClientSessionObject(new GlobalSessionObject());
+        }
+        //the connection pool must not make the requests wait for each other
+        if (StringUtils.isEmpty(httpClientInputs.getConnectionsMaxPerRoute())) {
+            httpClientInputs.setConnectionsMaxPerRoute(String.valueOf(parallelism));
+        }
+        if (StringUtils.isEmpty(httpClientInputs.getConnectionsMaxTotal())) {
+            httpClientInputs.setConnectionsMaxTotal(String.valueOf(parallelism));
+        }
+
+        List<Map<String, String>> results = new ArrayList<>();
+        if (urls.isEmpty()) {
+            return results;
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, urls.size()), new BatchThreadFactory());
+        try {
+            List<Future<Map<String, String>>> futures = new ArrayList<>();
+            for (final String url : urls) {
+                futures.add(executorService.submit(new Callable<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> call() {
+                        HttpClientInputs requestInputs = httpClientInputs.copy();
+                        requestInputs.setUrl(url);
+                        requestInputs.setCookieStoreSessionObject(null);
+                        return executeRequest(requestInputs);
+                    }
+                }));
+            }
+            for (Future<Map<String, String>> future : futures) {
+                results.add(getResult(future));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return results;
+    }
+
+    protected Map<String, String> executeRequest(HttpClientInputs httpClientInputs) {
+        try {
+            return new CSHttpClient().execute(httpClientInputs);
+        } catch (Exception e) {
+            return failureResult(e);
+        }
+    }
+
+    private Map<String, String> getResult(Future<Map<String, String>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("The batch execution was interrupted", e);
+        } catch (ExecutionException e) {
+            return failureResult(e.getCause());
+        }
+    }
+
+    private static Map<String, String> failureResult(Throwable e) {
+        Map<String, String> result = new HashMap<>();
+        result.put(CSHttpClient.RETURN_RESULT, e.getMessage());
+        result.put(CSHttpClient.RETURN_CODE, "-1");
+        return result;
+    }
+
+    /**
+     * Builds the urls from the 'urls' list or, when it is empty, by replacing the {value} placeholder of the
+     * 'urlTemplate' with each of the 'urlTemplateValues'.
+     */
+    public static List<String> buildUrls(String urls, String urlTemplate, String urlTemplateValues, String delimiter) {
+        if (StringUtils.isEmpty(delimiter)) {
+            delimiter = DEFAULT_DELIMITER;
+        }
+        List<String> result = new ArrayList<>();
+        if (!StringUtils.isEmpty(urls)) {
+            for (String url : StringUtils.splitByWholeSeparatorPreserveAllTokens(urls, delimiter)) {
+                if (!StringUtils.isBlank(url)) {
+                    result.add(url.trim());
+                }
+            }
+        } else if (!StringUtils.isEmpty(urlTemplate)) {
+            if (!urlTemplate.contains(URL_TEMPLATE_PLACEHOLDER)) {
+                throw new IllegalArgumentException("the '" + BatchHttpClientAction.URL_TEMPLATE + "' input should contain the '"
+                        + URL_TEMPLATE_PLACEHOLDER + "' placeholder");
+            }
+            if (!StringUtils.isEmpty(urlTemplateValues)) {
+                for (String value : StringUtils.splitByWholeSeparatorPreserveAllTokens(urlTemplateValues, delimiter)) {
+                    result.add(StringUtils.replace(urlTemplate, URL_TEMPLATE_PLACEHOLDER, value.trim()));
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Either the '" + BatchHttpClientAction.URLS + "' or the '"
+                    + BatchHttpClientAction.URL_TEMPLATE + "' input should be specified");
+        }
+        return result;
+    }
+
+    /**
+     * Writes the results as a JSON array with an object for each request, like:
+     * {"url":"http://host/1","returnCode":0,"statusCode":200,"returnResult":"..."}
+     */
+    public static String toJson(List<String> urls, List<Map<String, String>> results) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < results.size(); i++) {
+            Map<String, String> result = results.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"url\":");
+            appendJsonString(json, urls.get(i));
+            json.append(",\"returnCode\":").append(CSHttpClient.SUCCESS.equals(result.get(CSHttpClient.RETURN_CODE)) ? "0" : "-1");
+            String statusCode = result.get(CSHttpClient.STATUS_CODE);
+            if (!StringUtils.isEmpty(statusCode)) {
+                json.append(",\"statusCode\":").append(statusCode);
+            }
+            json.append(",\"returnResult\":");
+            appendJsonString(json, result.get(CSHttpClient.RETURN_RESULT));
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    public static int countSuccesses(List<Map<String, String>> results) {
+        int count = 0;
+        for (Map<String, String> result : results) {
+            if (CSHttpClient.SUCCESS.equals(result.get(CSHttpClient.RETURN_CODE))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+        } else {
+            json.append('"').append(StringEscapeUtils.escapeJson(value)).append('"');
+        }
+    }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "http-client-batch-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient;
+
+import com.hp.oo.sdk.content.annotations.Action;
+import com.hp.oo.sdk.content.annotations.Output;
+import com.hp.oo.sdk.content.annotations.Param;
+import com.hp.oo.sdk.content.annotations.Response;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.MatchType;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.ResponseType;
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchHttpClientAction {
+
+    public static final String URLS = "urls";
+    public static final String URL_TEMPLATE = "urlTemplate";
+    public static final String URL_TEMPLATE_VALUES = "urlTemplateValues";
+    public static final String DELIMITER = "delimiter";
+    public static final String PARALLELISM = "parallelism";
+
+    /**
+     * This operation does the same http request for a list of URLs, several requests at a time, and returns the
+     * status code and the response entity of each request as a JSON array. The requests share the connection pool and
+     * the http clients of the 'Http Client' operation, the cookies are not kept.
+     * <p/>
+     * <br><b>For more info about http client operations see the <i>org.cloudslang.content.httpclient</i> package description.</b>
+     *
+     * @param urls                               The list of web addresses to make the request to.
+     *                                           <br>Example: http://host/items/1,http://host/items/2
+     * @param urlTemplate                        A web address containing the {value} placeholder, used when 'urls' is empty.
+     *                                           A request is made for each of the 'urlTemplateValues', with the placeholder replaced
+     *                                           by the value. The values are not URL encoded. <br>Example: http://host/items/{value}
+     * @param urlTemplateValues                  The list of values for the 'urlTemplate'. <br>Example: 1,2,3
+     * @param delimiter                          The delimiter of the 'urls' and 'urlTemplateValues' lists. Default value: ,
+     * @param parallelism                        The maximum number of requests executed at the same time. Default value: 10
+     * @param connectionsMaxPerRoute             The maximum limit of connections on a per route basis, that is the maximum number of
+     *                                           requests made at the same time to a host. Default value: the 'parallelism'
+     * @param connectionsMaxTotal                The maximum limit of connections in total. Default value: the 'parallelism'
+     * @param authType                           The type of authentication used by this operation when trying to execute the request on the target server.
+     *                                           <br>Default value: basic. Valid values: basic, digest, ntlm, kerberos, any, anonymous, "" or a list of valid values separated by comma.
+     * @param preemptiveAuth                     If this field is 'true' authentication info will be sent in the first request. Default value: true. Valid values: true, false
+     * @param username                           The user name used for authentication.
+     * @param password                           The password used for authentication.
+     * @param proxyHost                          The proxy server used to access the web site.
+     * @param proxyPort                          The proxy server port. Default value: 8080. Valid values: -1 and integer values greater than 0.
+     * @param proxyUsername                      The user name used when connecting to the proxy.
+     * @param proxyPassword                      The proxy server password associated with the proxyUsername input value.
+     * @param trustAllRoots                      Specifies whether to enable weak security over SSL/TSL. Default value: false. Valid values: true, false
+     * @param x509HostnameVerifier               Specifies the way the server hostname must match a domain name in the subject's Common Name (CN)
+     *                                           or subjectAltName field of the X.509 certificate. Default value: strict. Valid values: strict, browser_compatible, allow_all
+     * @param trustKeystore                      The pathname of the Java TrustStore file. Format: Java KeyStore (JKS)
+     * @param trustPassword                      The password associated with the TrustStore file. Default value: changeit
+     * @param keystore                           The pathname of the Java KeyStore file. Format: Java KeyStore (JKS)
+     * @param keystorePassword                   The password associated with the KeyStore file. Default value: changeit
+     * @param connectTimeout                     The time to wait for a connection to be established, in seconds. Default value: 0
+     * @param socketTimeout                      The timeout for waiting for data, in seconds. Default value: 0
+     * @param keepAlive                          Specifies whether the connections are kept in the connection pool after the requests. Default value: true
+     * @param headers                            The list containing the headers to use for the requests separated by new line (CRLF).
+     * @param responseCharacterSet               The character encoding to be used for the HTTP responses. Default value: ISO-8859-1
+     * @param responseBodyMaxSize                The maximum size in bytes of each response entity. Empty or 0 means no limit. Default value: ""
+     * @param followRedirects                    Specifies whether the HTTP client follows redirects. Default value: true
+     * @param queryParams                        The list containing query parameters to append to each URL.
+     * @param body                               The string to include in the body of the requests.
+     * @param contentType                        The content type that should be set in the request header. Default value: text/plain
+     * @param requestCharacterSet                The character encoding to be used for the requests. Default value: ISO-8859-1
+     * @param method                             The HTTP method used. This is a required input.
+     * @param httpClientPoolingConnectionManager the GlobalSessionObject that holds the http client pooling connection manager.
+     * @param httpClientInstances                the GlobalSessionObject that holds the http clients built for each connection configuration.
+     * @return a map containing the output of the operation. Keys present in the map are:
+     * <br><br><b>returnResult</b> - A JSON array with an object for each URL, in the order of the URLs, like:
+     * <br>{"url":"http://host/items/1","returnCode":0,"statusCode":200,"returnResult":"the response entity"}
+     * <br>A request that could not be made has the returnCode -1, no statusCode and the error message in returnResult.
+     * In case of an error this output will contain the error message.
+     * <br><b>successCount</b> - The number of requests that got a response.
+     * <br><b>failureCount</b> - The number of requests that could not be made.
+     * <br><b>returnCode</b> - The returnCode of the operation: 0 for success, -1 for failure.
+     * <br><b>exception</b> - In case of success response, this result is empty. In case of failure response,
+     * this result contains the java stack trace of the runtime exception.
+     */
+    @Action(name = "Http Client Batch",
+            outputs = {
+                    @Output(CSHttpClient.EXCEPTION),
+                    @Output(BatchHttpClient.SUCCESS_COUNT),
+                    @Output(BatchHttpClient.FAILURE_COUNT),
+                    @Output(CSHttpClient.RETURN_CODE),
+                    @Output(CSHttpClient.RETURN_RESULT)
+            },
+            responses = {
+                    @Response(text = "success", field = CSHttpClient.RETURN_CODE, value = "0", matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.RESOLVED),
+                    @Response(text = "failure", field = CSHttpClient.RETURN_CODE, value = "-1", matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.ERROR)
+            }
+    )
+    public Map<String, String> execute(
+            @Param(URLS) String urls,
+            @Param(URL_TEMPLATE) String urlTemplate,
+            @Param(URL_TEMPLATE_VALUES) String urlTemplateValues,
+            @Param(DELIMITER) String delimiter,
+            @Param(PARALLELISM) String parallelism,
+            @Param(HttpClientInputs.CONNECTIONS_MAX_PER_ROUTE) String connectionsMaxPerRoute,
+            @Param(HttpClientInputs.CONNECTIONS_MAX_TOTAL) String connectionsMaxTotal,
+            @Param(HttpClientInputs.AUTH_TYPE) String authType,
+            @Param(HttpClientInputs.PREEMPTIVE_AUTH) String preemptiveAuth,
+            @Param(HttpClientInputs.USERNAME) String username,
+            @Param(HttpClientInputs.PASSWORD) String password,
+            @Param(HttpClientInputs.PROXY_HOST) String proxyHost,
+            @Param(HttpClientInputs.PROXY_PORT) String proxyPort,
+            @Param(HttpClientInputs.PROXY_USERNAME) String proxyUsername,
+            @Param(HttpClientInputs.PROXY_PASSWORD) String proxyPassword,
+            @Param(HttpClientInputs.TRUST_ALL_ROOTS) String trustAllRoots,
+            @Param(HttpClientInputs.X509_HOSTNAME_VERIFIER) String x509HostnameVerifier,
+            @Param(HttpClientInputs.TRUST_KEYSTORE) String trustKeystore,
+            @Param(HttpClientInputs.TRUST_PASSWORD) String trustPassword,
+            @Param(HttpClientInputs.KEYSTORE) String keystore,
+            @Param(HttpClientInputs.KEYSTORE_PASSWORD) String keystorePassword,
+            @Param(HttpClientInputs.CONNECT_TIMEOUT) String connectTimeout,
+            @Param(HttpClientInputs.SOCKET_TIMEOUT) String socketTimeout,
+            @Param(HttpClientInputs.KEEP_ALIVE) String keepAlive,
+            @Param(HttpClientInputs.HEADERS) String headers,
+            @Param(HttpClientInputs.RESPONSE_CHARACTER_SET) String responseCharacterSet,
+            @Param(HttpClientInputs.RESPONSE_BODY_MAX_SIZE) String responseBodyMaxSize,
+            @Param(HttpClientInputs.FOLLOW_REDIRECTS) String followRedirects,
+            @Param(HttpClientInputs.QUERY_PARAMS) String queryParams,
+            @Param(HttpClientInputs.BODY) String body,
+            @Param(HttpClientInputs.CONTENT_TYPE) String contentType,
+            @Param(HttpClientInputs.REQUEST_CHARACTER_SET) String requestCharacterSet,
+            @Param(value = HttpClientInputs.METHOD, required = true) String method,
+            @Param(HttpClientInputs.SESSION_CONNECTION_POOL) GlobalSessionObject httpClientPoolingConnectionManager,
+            @Param(HttpClientInputs.SESSION_HTTP_CLIENTS) GlobalSessionObject httpClientInstances) {
+
+        HttpClientInputs httpClientInputs = new HttpClientInputs();
+        httpClientInputs.setConnectionsMaxPerRoute(connectionsMaxPerRoute);
+        httpClientInputs.setConnectionsMaxTotal(connectionsMaxTotal);
+        httpClientInputs.setAuthType(authType);
+        httpClientInputs.setPreemptiveAuth(preemptiveAuth);
+        httpClientInputs.setUsername(username);
+        httpClientInputs.setPassword(password);
+        httpClientInputs.setProxyHost(proxyHost);
+        httpClientInputs.setProxyPort(proxyPort);
+        httpClientInputs.setProxyUsername(proxyUsername);
+        httpClientInputs.setProxyPassword(proxyPassword);
+        httpClientInputs.setTrustAllRoots(trustAllRoots);
+        httpClientInputs.setX509HostnameVerifier(x509HostnameVerifier);
+        httpClientInputs.setTrustKeystore(trustKeystore);
+        httpClientInputs.setTrustPassword(trustPassword);
+        httpClientInputs.setKeystore(keystore);
+        httpClientInputs.setKeystorePassword(keystorePassword);
+        httpClientInputs.setConnectTimeout(connectTimeout);
+        httpClientInputs.setSocketTimeout(socketTimeout);
+        httpClientInputs.setUseCookies(String.valueOf(false));
+        httpClientInputs.setKeepAlive(keepAlive);
+        httpClientInputs.setHeaders(headers);
+        httpClientInputs.setResponseCharacterSet(responseCharacterSet);
+        httpClientInputs.setResponseBodyMaxSize(responseBodyMaxSize);
+        httpClientInputs.setFollowRedirects(followRedirects);
+        httpClientInputs.setQueryParams(queryParams);
+        httpClientInputs.setBody(body);
+        httpClientInputs.setContentType(contentType);
+        httpClientInputs.setRequestCharacterSet(requestCharacterSet);
+        httpClientInputs.setMethod(method);
+        httpClientInputs.setConnectionPoolSessionObject(httpClientPoolingConnectionManager);
+        httpClientInputs.setHttpClientSessionObject(httpClientInstances);
+
+        try {
+            List<String> urlList = BatchHttpClient.buildUrls(urls, urlTemplate, urlTemplateValues, delimiter);
+            List<Map<String, String>> results = new BatchHttpClient()
+                    .setParallelism(parallelism)
+                    .execute(httpClientInputs, urlList);
+
+            int successCount = BatchHttpClient.countSuccesses(results);
+            Map<String, String> result = new HashMap<>();
+            result.put(CSHttpClient.RETURN_RESULT, BatchHttpClient.toJson(urlList, results));
+            result.put(BatchHttpClient.SUCCESS_COUNT, String.valueOf(successCount));
+            result.put(BatchHttpClient.FAILURE_COUNT, String.valueOf(results.size() - successCount));
+            result.put(CSHttpClient.RETURN_CODE, CSHttpClient.SUCCESS);
+            return result;
+        } catch (Exception e) {
+            return exceptionResult(e.getMessage(), e);
+        }
+    }
+
+    private Map<String, String> exceptionResult(String message, Exception e) {
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String eStr = writer.toString().replace("" + (char) 0x00, "");
+
+        Map<String, String> returnResult = new HashMap<>();
+        returnResult.put(CSHttpClient.RETURN_RESULT, message);
+        returnResult.put(CSHttpClient.RETURN_CODE, "-1");
+        returnResult.put(CSHttpClient.EXCEPTION, eStr);
+        return returnResult;
+    }
+}
@@ -16,6 +16,7 @@ import io.cloudslang.content.httpclient.build.*;
 import io.cloudslang.content.httpclient.build.auth.AuthSchemeProviderLookupBuilder;
 import io.cloudslang.content.httpclient.build.auth.AuthTypes;
 import io.cloudslang.content.httpclient.build.auth.CredentialsProviderBuilder;
+import io.cloudslang.content.httpclient.build.conn.CloseableHttpClientBuilder;
 import io.cloudslang.content.httpclient.build.conn.ConnectionManagerBuilder;
 import io.cloudslang.content.httpclient.build.conn.SSLConnectionSocketFactoryBuilder;
 import io.cloudslang.content.httpclient.consume.FinalLocationConsumer;
@@ -26,6 +27,7 @@ import io.cloudslang.content.httpclient.execute.HttpClientExecutor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
@@ -36,12 +38,11 @@ import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.Lookup;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.ContentType;
-import org.apache.http.impl.DefaultConnectionReuseStrategy;
-import org.apache.http.impl.NoConnectionReuseStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.HashMap;
@@ -64,6 +65,9 @@ public class CSHttpClient {
     public static final String RESPONSE_HEADERS = "responseHeaders";
     public static final String PROTOCOL_VERSION = "protocolVersion";
     public static final String REASON_PHRASE = "reasonPhrase";
+    public static final String CHECKSUM = "checksum";
+    public static final String RESPONSE_BODY_SIZE = "responseBodySize";
+    public static final String RESPONSE_BODY_FILE = "responseBodyFile";
 
     private CookieStoreBuilder cookieStoreBuilder;
     private AuthSchemeProviderLookupBuilder authSchemeProviderLookupBuilder;
@@ -76,6 +80,7 @@ public class CSHttpClient {
     private CredentialsProviderBuilder credentialsProviderBuilder;
     private SSLConnectionSocketFactoryBuilder sslConnectionSocketFactoryBuilder;
     private ConnectionManagerBuilder poolingHttpClientConnectionManagerBuilder;
+    private CloseableHttpClientBuilder closeableHttpClientBuilder;
     private ContextBuilder contextBuilder;
     private HttpClientExecutor httpClientExecutor;
     private HttpResponseConsumer httpResponseConsumer;
@@ -117,6 +122,11 @@ public class CSHttpClient {
         if (globalSessionObject == null) {
             httpClientInputs.setConnectionPoolSessionObject(new GlobalSessionObject());
         }
+
+        GlobalSessionObject httpClientSessionObject = httpClientInputs.getHttpClientSessionObject();
+        if (httpClientSessionObject == null) {
+            httpClientInputs.setHttpClientSessionObject(new GlobalSessionObject());
+        }
     }
 
     public HttpComponents buildHttpComponents(HttpClientInputs httpClientInputs) {
@@ -158,6 +168,7 @@ public class CSHttpClient {
                 .setContentType(theContentType)
                 .setEntityContentType(httpEntity != null ? httpEntity.getContentType() : null)
                 .buildHeaders();
+        addRangeHeaders(theHeaders, httpClientInputs);
 
         RequestConfig requestConfig = requestConfigBuilder
                 .setConnectionTimeout(httpClientInputs.getConnectTimeout())
@@ -168,8 +179,6 @@ public class CSHttpClient {
                 .buildRequestConfig();
         httpRequestBase.setConfig(requestConfig);
 
-        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
-
         AuthTypes authTypes = new AuthTypes(httpClientInputs.getAuthType());
 
         CredentialsProvider credentialsProvider = credentialsProviderBuilder
@@ -183,7 +192,6 @@ public class CSHttpClient {
                 .setProxyHost(httpClientInputs.getProxyHost())
                 .setProxyPort(httpClientInputs.getProxyPort())
                 .buildCredentialsProvider();
-        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
 
         Lookup<AuthSchemeProvider> authSchemeLookup = authSchemeProviderLookupBuilder
                 .setAuthTypes(authTypes)
@@ -195,7 +203,6 @@ public class CSHttpClient {
                 .setUsername(httpClientInputs.getUsername())
                 .setPassword(httpClientInputs.getPassword())
                 .buildAuthSchemeProviderLookup();
-        httpClientBuilder.setDefaultAuthSchemeRegistry(authSchemeLookup);
 
         httpRequestBase.setHeaders(theHeaders.toArray(new Header[theHeaders.size()]));
 
@@ -203,9 +210,6 @@ public class CSHttpClient {
                 .setUseCookies(httpClientInputs.getUseCookies())
                 .setCookieStoreSessionObject(httpClientInputs.getCookieStoreSessionObject())
                 .buildCookieStore();
-        if (cookieStore != null) {
-            httpClientBuilder.setDefaultCookieStore(cookieStore);
-        }
 
         SSLConnectionSocketFactory sslConnectionSocketFactory = sslConnectionSocketFactoryBuilder
                 .setTrustAllRoots(httpClientInputs.getTrustAllRoots())
@@ -226,25 +230,33 @@ public class CSHttpClient {
                 .setSslsf(sslConnectionSocketFactory)
                 .setDefaultMaxPerRoute(httpClientInputs.getConnectionsMaxPerRoute())
                 .setTotalMax(httpClientInputs.getConnectionsMaxTotal())
+                .setIdleTimeout(httpClientInputs.getConnectionsIdleTimeout())
+                .setEvictionInterval(httpClientInputs.getConnectionsEvictionInterval())
+                .setUnusedTimeout(httpClientInputs.getConnectionsPoolUnusedTimeout())
                 .buildConnectionManager();
 
-        httpClientBuilder.setConnectionManager(connManager);
-
-        if (StringUtils.isEmpty(httpClientInputs.getKeepAlive()) || Boolean.parseBoolean(httpClientInputs.getKeepAlive())) {
-            httpClientBuilder.setConnectionReuseStrategy(DefaultConnectionReuseStrategy.INSTANCE);
-        } else {
-            httpClientBuilder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
-        }
-
-        CloseableHttpClient closeableHttpClient = httpClientBuilder.build();
+        CloseableHttpClient closeableHttpClient = closeableHttpClientBuilder
+                .setHttpClientMapKey(connectionKey)
+                .setHttpClientHolder(httpClientInputs.getHttpClientSessionObject())
+                .setConnectionManager(connManager)
+                .setKeepAlive(httpClientInputs.getKeepAlive())
+                .buildHttpClient();
 
         HttpClientContext context = contextBuilder
                 .setAuthSchemeLookup(authSchemeLookup)
                 .setAuthTypes(authTypes)
                 .setCredentialsProvider(credentialsProvider)
+                .setCookieStore(cookieStore)
                 .setUri(uri)
                 .setPreemptiveAuth(httpClientInputs.getPreemptiveAuth()).build();
 
+        httpResponseConsumer
+                .setBufferSize(httpClientInputs.getDestinationFileBufferSize())
+                .setResumeDownload(httpClientInputs.getResumeDownload())
+                .setChecksumAlgorithm(httpClientInputs.getChecksumAlgorithm())
+                .setMemoryThreshold(httpClientInputs.getResponseBodyMemoryThreshold())
+                .setMaxSize(httpClientInputs.getResponseBodyMaxSize());
+
         HttpComponents result = new HttpComponents();
         result.setCloseableHttpClient(closeableHttpClient);
         result.setHttpRequestBase(httpRequestBase);
@@ -252,11 +264,21 @@ public class CSHttpClient {
         result.setUri(uri);
         result.setConnManager(connManager);
         result.setCookieStore(cookieStore);
-        result.setHttpClientBuilder(httpClientBuilder);
         return result;
     }
 
 
+    private void addRangeHeaders(List<Header> headers, HttpClientInputs httpClientInputs) {
+        if (Boolean.parseBoolean(httpClientInputs.getResumeDownload()) && !StringUtils.isEmpty(httpClientInputs.getDestinationFile())) {
+            File destinationFile = new File(httpClientInputs.getDestinationFile());
+            if (destinationFile.length() > 0) {
+                headers.add(new BasicHeader(HttpHeaders.RANGE, "bytes=" + destinationFile.length() + "-"));
+                //the range is given in bytes of the file so the entity must not be compressed
+                headers.add(new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "identity"));
+            }
+        }
+    }
+
     public CloseableHttpResponse execute(CloseableHttpClient closeableHttpClient,
                                          HttpRequestBase httpRequestBase,
                                          HttpClientContext context) {
@@ -285,7 +307,11 @@ public class CSHttpClient {
                     .setDestinationFile(destinationFile)
                     .consume(result);
         } catch (IOException e) {
+            closeResponse(httpResponse);
             throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            closeResponse(httpResponse);
+            throw e;
         }
 
         finalLocationConsumer
@@ -298,8 +324,7 @@ public class CSHttpClient {
 
         if (cookieStore != null) {
             try {
-                cookieStoreSessionObject.setValue(
-                        CookieStoreBuilder.serialize(cookieStore));
+                CookieStoreBuilder.saveCookieStore(cookieStore, cookieStoreSessionObject);
             } catch (IOException e) {
                 throw new RuntimeException(e.getMessage(), e);
             }
@@ -309,6 +334,16 @@ public class CSHttpClient {
         return result;
     }
 
+    /**
+     * Closing the response before its entity is consumed aborts the connection instead of returning it to the pool.
+     */
+    private void closeResponse(CloseableHttpResponse httpResponse) {
+        try {
+            httpResponse.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     private void checkKeepAlive(HttpRequestBase httpRequestBase, PoolingHttpClientConnectionManager connManager,
                                 String keepAliveInput, CloseableHttpResponse httpResponse) {
         boolean keepAlive = StringUtils.isBlank(keepAliveInput) || Boolean.parseBoolean(keepAliveInput);
@@ -361,6 +396,10 @@ public class CSHttpClient {
         this.poolingHttpClientConnectionManagerBuilder = poolingHttpClientConnectionManagerBuilder;
     }
 
+    public void setCloseableHttpClientBuilder(CloseableHttpClientBuilder closeableHttpClientBuilder) {
+        this.closeableHttpClientBuilder = closeableHttpClientBuilder;
+    }
+
     private void buildDefaultServices() {
         if (uriBuilder == null) {
             uriBuilder = new URIBuilder();
@@ -395,6 +434,9 @@ public class CSHttpClient {
         if (poolingHttpClientConnectionManagerBuilder == null) {
             poolingHttpClientConnectionManagerBuilder = new ConnectionManagerBuilder();
         }
+        if (closeableHttpClientBuilder == null) {
+            closeableHttpClientBuilder = new CloseableHttpClientBuilder();
+        }
         if (contextBuilder == null) {
             contextBuilder = new ContextBuilder();
         }
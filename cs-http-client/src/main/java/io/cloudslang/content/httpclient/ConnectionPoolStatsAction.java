@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient;
+
+import com.hp.oo.sdk.content.annotations.Action;
+import com.hp.oo.sdk.content.annotations.Output;
+import com.hp.oo.sdk.content.annotations.Param;
+import com.hp.oo.sdk.content.annotations.Response;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.MatchType;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.ResponseType;
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import io.cloudslang.content.httpclient.build.conn.ConnectionPoolRegistry;
+import org.apache.http.pool.PoolStats;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConnectionPoolStatsAction {
+
+    public static final String LEASED = "leased";
+    public static final String PENDING = "pending";
+    public static final String AVAILABLE = "available";
+    public static final String MAX = "max";
+
+    /**
+     * This operation shows the state of the connection pools kept in the given connection pool session by the
+     * 'Http Client' operation. There is a connection pool for each combination of 'trustAllRoots', 'x509HostnameVerifier',
+     * 'keystore' and 'trustKeystore' inputs.
+     *
+     * @param httpClientPoolingConnectionManager the GlobalSessionObject that holds the http client pooling connection manager.
+     * @return a map containing the output of the operation. Keys present in the map are:
+     * <br><br><b>returnResult</b> - One line for each connection pool, like:
+     * <br>key - leased: 1, pending: 0, available: 2, max: 20
+     * <br>where 'leased' is the number of connections in use, 'pending' the number of requests waiting for a connection,
+     * 'available' the number of idle connections and 'max' the maximum number of connections of the pool.
+     * In case of an error this output will contain the error message.
+     * <br><b>leased</b> - The number of connections in use, for all the pools.
+     * <br><b>pending</b> - The number of requests waiting for a connection, for all the pools.
+     * <br><b>available</b> - The number of idle connections, for all the pools.
+     * <br><b>max</b> - The maximum number of connections, for all the pools.
+     * <br><b>returnCode</b> - the return code of the operation. 0 if the operation goes to success, -1 if the operation goes to failure.
+     * <br><b>exception</b> - In case of success response, this result is empty. In case of failure response,
+     * this result contains the java stack trace of the runtime exception.
+     */
+    @Action(name = "Http Client Connection Pool Statistics",
+            outputs = {
+                    @Output(CSHttpClient.EXCEPTION),
+                    @Output(LEASED),
+                    @Output(PENDING),
+                    @Output(AVAILABLE),
+                    @Output(MAX),
+                    @Output(CSHttpClient.RETURN_CODE),
+                    @Output(CSHttpClient.RETURN_RESULT)
+            },
+            responses = {
+                    @Response(text = "success", field = CSHttpClient.RETURN_CODE, value = "0", matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.RESOLVED),
+                    @Response(text = "failure", field = CSHttpClient.RETURN_CODE, value = "-1", matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.ERROR)
+            }
+    )
+    public Map<String, String> execute(
+            @Param(HttpClientInputs.SESSION_CONNECTION_POOL) GlobalSessionObject httpClientPoolingConnectionManager) {
+
+        try {
+            int leased = 0;
+            int pending = 0;
+            int available = 0;
+            int max = 0;
+            StringBuilder poolStatsBuilder = new StringBuilder();
+            if (httpClientPoolingConnectionManager != null && httpClientPoolingConnectionManager.get() instanceof ConnectionPoolRegistry) {
+                ConnectionPoolRegistry connectionPoolRegistry = (ConnectionPoolRegistry) httpClientPoolingConnectionManager.get();
+                for (Map.Entry<String, PoolStats> poolStats : connectionPoolRegistry.getPoolStats().entrySet()) {
+                    PoolStats stats = poolStats.getValue();
+                    poolStatsBuilder.append(poolStats.getKey())
+                            .append(" - ").append(LEASED).append(": ").append(stats.getLeased())
+                            .append(", ").append(PENDING).append(": ").append(stats.getPending())
+                            .append(", ").append(AVAILABLE).append(": ").append(stats.getAvailable())
+                            .append(", ").append(MAX).append(": ").append(stats.getMax())
+                            .append("\r\n");
+                    leased += stats.getLeased();
+                    pending += stats.getPending();
+                    available += stats.getAvailable();
+                    max += stats.getMax();
+                }
+            }
+            Map<String, String> result = new HashMap<>();
+            result.put(CSHttpClient.RETURN_RESULT, poolStatsBuilder.toString());
+            result.put(LEASED, String.valueOf(leased));
+            result.put(PENDING, String.valueOf(pending));
+            result.put(AVAILABLE, String.valueOf(available));
+            result.put(MAX, String.valueOf(max));
+            result.put(CSHttpClient.RETURN_CODE, CSHttpClient.SUCCESS);
+            return result;
+        } catch (Exception e) {
+            return exceptionResult(e.getMessage(), e);
+        }
+    }
+
+    private Map<String, String> exceptionResult(String message, Exception e) {
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String eStr = writer.toString().replace("" + (char) 0x00, "");
+
+        Map<String, String> returnResult = new HashMap<>();
+        returnResult.put(CSHttpClient.RETURN_RESULT, message);
+        returnResult.put(CSHttpClient.RETURN_CODE, "-1");
+        returnResult.put(CSHttpClient.EXCEPTION, eStr);
+        return returnResult;
+    }
+}
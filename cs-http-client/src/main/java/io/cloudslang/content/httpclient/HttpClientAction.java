@@ -108,6 +108,14 @@ public class HttpClientAction {
      *                                           The default will create no more than 2 concurrent connections per given route. Default value: 2
      * @param connectionsMaxTotal                The maximum limit of connections in total.
      *                                           The default will create no more than 2 concurrent connections in total. Default value: 20
+     * @param connectionsIdleTimeout             The time in seconds after which the idle connections of the pool are closed by the
+     *                                           background eviction. Expired connections are always closed. 0 keeps the idle connections open.
+     *                                           Default value: 60
+     * @param connectionsEvictionInterval        The time in seconds between two runs of the background eviction of the idle connections
+     *                                           and of the unused connection pools. The background eviction is rescheduled when a request
+     *                                           of the session gives a different interval. 0 disables the background eviction. Default value: 30
+     * @param connectionsPoolUnusedTimeout       The time in seconds after which a connection pool that was not used by any request is shut down.
+     *                                           0 keeps the connection pools until the session ends. Default value: 600
      * @param headers                            The list containing the headers to use for the request separated by new line (CRLF).
      *                                           The header name - value pair will be separated by ":". Format: According to HTTP standard for headers (RFC 2616).
      *                                           Examples: Accept:text/plain
@@ -115,9 +123,22 @@ public class HttpClientAction {
      *                                           If responseCharacterSet is empty, the charset from the 'Content-Type' HTTP response header will be used.
      *                                           If responseCharacterSet is empty and the charset from the HTTP response Content-Type header is empty,
      *                                           the default value will be used. You should not use this for method=HEAD or OPTIONS. Default value: ISO-8859-1
+     * @param responseBodyMemoryThreshold        The maximum size in bytes of a response entity kept in memory. A bigger entity is written to a temporary file,
+     *                                           given in the 'responseBodyFile' output, and 'returnResult' is left empty. The temporary file holds the bytes
+     *                                           of the entity and must be deleted by the flow. Empty or 0 keeps all entities in memory. Default value: ""
+     * @param responseBodyMaxSize                The maximum size in bytes of the response entity, also when it goes to the 'destinationFile'.
+     *                                           The operation fails, without reading the rest of the entity, as soon as this is exceeded.
+     *                                           Empty or 0 means no limit. Default value: ""
      * @param destinationFile                    The absolute path of a file on disk where to save the entity returned by the response.
      *                                           'returnResult' will no longer be populated with the entity if this is specified.
      *                                           You should not use this for method=HEAD or OPTIONS. Example: C:\temp\destinationFile.txt
+     * @param destinationFileBufferSize          The size in bytes of the buffer used to copy the response entity to the 'destinationFile'.
+     *                                           Larger values speed up the download of big files. Default value: 65536
+     * @param resumeDownload                     If this is 'true' and the 'destinationFile' already exists, only the missing part of the entity is requested,
+     *                                           using the HTTP Range header, and appended to the file. If the server does not support range requests
+     *                                           the file is downloaded again from the start. Valid values: true, false. Default value: false
+     * @param checksumAlgorithm                  The algorithm of the checksum computed, while downloading, for the content of the 'destinationFile'.
+     *                                           The checksum is put in the 'checksum' output. Valid values: SHA-256, MD5, "". Default value: ""
      * @param followRedirects                    Specifies whether the HTTP client automatically follows redirects.
      *                                           Redirects explicitly prohibited by the HTTP specification as requiring user intervention
      *                                           will not be followed (redirects on POST and PUT requests that are converted to GET requests).
@@ -203,6 +224,7 @@ public class HttpClientAction {
      * @param method                             The HTTP method used. This is a required input.
      * @param httpClientCookieSession            the session object that holds the cookies if the useCookies input is true.
      * @param httpClientPoolingConnectionManager the GlobalSessionObject that holds the http client pooling connection manager.
+     * @param httpClientInstances                the GlobalSessionObject that holds the http clients built for each connection configuration.
      * @return a map containing the output of the operation. Keys present in the map are:
      * <br><br><b>returnResult</b> - This will contain the response entity (unless 'destinationFile' is specified).
      * In case of an error this output will contain the error message.
@@ -227,6 +249,10 @@ public class HttpClientAction {
      * Multiple Choices, See Other, Use Proxy, Payment Required, Not Acceptable, Proxy Authentication Required,
      * Request Timeout, Switching Protocols, Non Authoritative Information, Reset Content, Partial Content,
      * Gateway Timeout, Http Version Not Supported, Gone, Length Required, Requested Range Not Satisfiable, Expectation Failed
+     * <br><b>checksum</b> - The checksum of the 'destinationFile' content, as a hexadecimal string, if 'checksumAlgorithm' is specified.
+     * <br><b>responseBodySize</b> - The number of bytes of the response entity that were read, when 'responseBodyMemoryThreshold'
+     * or 'responseBodyMaxSize' is specified or the entity goes to the 'destinationFile'.
+     * <br><b>responseBodyFile</b> - The temporary file that holds the response entity when it is bigger than the 'responseBodyMemoryThreshold'.
      * <p/>
      * <br><br><b>returnCode</b> - The returnCode of the operation: 0 for success, -1 for failure.
      * @see io.cloudslang.content.httpclient
@@ -239,6 +265,9 @@ public class HttpClientAction {
                     @Output(CSHttpClient.RESPONSE_HEADERS),
                     @Output(CSHttpClient.PROTOCOL_VERSION),
                     @Output(CSHttpClient.REASON_PHRASE),
+                    @Output(CSHttpClient.CHECKSUM),
+                    @Output(CSHttpClient.RESPONSE_BODY_SIZE),
+                    @Output(CSHttpClient.RESPONSE_BODY_FILE),
                     @Output("returnCode"),
                     @Output("returnResult")
             },
@@ -272,9 +301,17 @@ public class HttpClientAction {
             @Param(HttpClientInputs.KEEP_ALIVE) String keepAlive,
             @Param(HttpClientInputs.CONNECTIONS_MAX_PER_ROUTE) String connectionsMaxPerRoot,
             @Param(HttpClientInputs.CONNECTIONS_MAX_TOTAL) String connectionsMaxTotal,
+            @Param(HttpClientInputs.CONNECTIONS_IDLE_TIMEOUT) String connectionsIdleTimeout,
+            @Param(HttpClientInputs.CONNECTIONS_EVICTION_INTERVAL) String connectionsEvictionInterval,
+            @Param(HttpClientInputs.CONNECTIONS_POOL_UNUSED_TIMEOUT) String connectionsPoolUnusedTimeout,
             @Param(HttpClientInputs.HEADERS) String headers,
             @Param(HttpClientInputs.RESPONSE_CHARACTER_SET) String responseCharacterSet,
+            @Param(HttpClientInputs.RESPONSE_BODY_MEMORY_THRESHOLD) String responseBodyMemoryThreshold,
+            @Param(HttpClientInputs.RESPONSE_BODY_MAX_SIZE) String responseBodyMaxSize,
             @Param(HttpClientInputs.DESTINATION_FILE) String destinationFile,
+            @Param(HttpClientInputs.DESTINATION_FILE_BUFFER_SIZE) String destinationFileBufferSize,
+            @Param(HttpClientInputs.RESUME_DOWNLOAD) String resumeDownload,
+            @Param(HttpClientInputs.CHECKSUM_ALGORITHM) String checksumAlgorithm,
             @Param(HttpClientInputs.FOLLOW_REDIRECTS) String followRedirects,
             @Param(HttpClientInputs.QUERY_PARAMS) String queryParams,
             @Param(HttpClientInputs.QUERY_PARAMS_ARE_URLENCODED) String queryParamsAreURLEncoded,
@@ -293,7 +330,8 @@ public class HttpClientAction {
             @Param(HttpClientInputs.CHUNKED_REQUEST_ENTITY) String chunkedRequestEntity,
             @Param(value = HttpClientInputs.METHOD, required = true) String method,
             @Param(HttpClientInputs.SESSION_COOKIES) SerializableSessionObject httpClientCookieSession,
-            @Param(HttpClientInputs.SESSION_CONNECTION_POOL) GlobalSessionObject httpClientPoolingConnectionManager) {
+            @Param(HttpClientInputs.SESSION_CONNECTION_POOL) GlobalSessionObject httpClientPoolingConnectionManager,
+            @Param(HttpClientInputs.SESSION_HTTP_CLIENTS) GlobalSessionObject httpClientInstances) {
 
         HttpClientInputs httpClientInputs = new HttpClientInputs();
         httpClientInputs.setUrl(url);
@@ -322,9 +360,17 @@ public class HttpClientAction {
         httpClientInputs.setKeepAlive(keepAlive);
         httpClientInputs.setConnectionsMaxPerRoute(connectionsMaxPerRoot);
         httpClientInputs.setConnectionsMaxTotal(connectionsMaxTotal);
+        httpClientInputs.setConnectionsIdleTimeout(connectionsIdleTimeout);
+        httpClientInputs.setConnectionsEvictionInterval(connectionsEvictionInterval);
+        httpClientInputs.setConnectionsPoolUnusedTimeout(connectionsPoolUnusedTimeout);
         httpClientInputs.setHeaders(headers);
         httpClientInputs.setResponseCharacterSet(responseCharacterSet);
+        httpClientInputs.setResponseBodyMemoryThreshold(responseBodyMemoryThreshold);
+        httpClientInputs.setResponseBodyMaxSize(responseBodyMaxSize);
         httpClientInputs.setDestinationFile(destinationFile);
+        httpClientInputs.setDestinationFileBufferSize(destinationFileBufferSize);
+        httpClientInputs.setResumeDownload(resumeDownload);
+        httpClientInputs.setChecksumAlgorithm(checksumAlgorithm);
         httpClientInputs.setFollowRedirects(followRedirects);
         httpClientInputs.setQueryParams(queryParams);
         httpClientInputs.setQueryParamsAreURLEncoded(queryParamsAreURLEncoded);
@@ -344,6 +390,7 @@ public class HttpClientAction {
         httpClientInputs.setMethod(method);
         httpClientInputs.setCookieStoreSessionObject(httpClientCookieSession);
         httpClientInputs.setConnectionPoolSessionObject(httpClientPoolingConnectionManager);
+        httpClientInputs.setHttpClientSessionObject(httpClientInstances);
 
         try {
             return new CSHttpClient().execute(httpClientInputs);
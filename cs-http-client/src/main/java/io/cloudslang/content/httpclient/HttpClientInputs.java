@@ -17,7 +17,7 @@ import com.hp.oo.sdk.content.plugin.SerializableSessionObject;
  * User: davidmih
  * Date: 7/18/14
  */
-public class HttpClientInputs {
+public class HttpClientInputs implements Cloneable {
 
     public static final String URL = "url";
     public static final String METHOD = "method";
@@ -54,9 +54,17 @@ public class HttpClientInputs {
     public static final String KEEP_ALIVE = "keepAlive";
     public static final String CONNECTIONS_MAX_PER_ROUTE = "connectionsMaxPerRoute";
     public static final String CONNECTIONS_MAX_TOTAL = "connectionsMaxTotal";
+    public static final String CONNECTIONS_IDLE_TIMEOUT = "connectionsIdleTimeout";
+    public static final String CONNECTIONS_EVICTION_INTERVAL = "connectionsEvictionInterval";
+    public static final String CONNECTIONS_POOL_UNUSED_TIMEOUT = "connectionsPoolUnusedTimeout";
     public static final String HEADERS = "headers";
     public static final String RESPONSE_CHARACTER_SET = "responseCharacterSet";
+    public static final String RESPONSE_BODY_MEMORY_THRESHOLD = "responseBodyMemoryThreshold";
+    public static final String RESPONSE_BODY_MAX_SIZE = "responseBodyMaxSize";
     public static final String DESTINATION_FILE = "destinationFile";
+    public static final String DESTINATION_FILE_BUFFER_SIZE = "destinationFileBufferSize";
+    public static final String RESUME_DOWNLOAD = "resumeDownload";
+    public static final String CHECKSUM_ALGORITHM = "checksumAlgorithm";
     public static final String MULTIPART_BODIES = "multipartBodies";
     public static final String MULTIPART_BODIES_CONTENT_TYPE = "multipartBodiesContentType";
     public static final String MULTIPART_FILES = "multipartFiles";
@@ -66,6 +74,7 @@ public class HttpClientInputs {
 
     public final static String SESSION_CONNECTION_POOL = "httpClientPoolingConnectionManager";
     public final static String SESSION_COOKIES = "httpClientCookieSession";
+    public final static String SESSION_HTTP_CLIENTS = "httpClientInstances";
 
     private String url;
     private String authType;
@@ -91,9 +100,17 @@ public class HttpClientInputs {
     private String keepAlive;
     private String connectionsMaxPerRoute;
     private String connectionsMaxTotal;
+    private String connectionsIdleTimeout;
+    private String connectionsEvictionInterval;
+    private String connectionsPoolUnusedTimeout;
     private String headers;
     private String responseCharacterSet;
+    private String responseBodyMemoryThreshold;
+    private String responseBodyMaxSize;
     private String destinationFile;
+    private String destinationFileBufferSize;
+    private String resumeDownload;
+    private String checksumAlgorithm;
     private String followRedirects;
     private String queryParams;
     private String queryParamsAreURLEncoded;
@@ -113,6 +130,7 @@ public class HttpClientInputs {
 
     private SerializableSessionObject cookieStoreSessionObject;
     private GlobalSessionObject connectionPoolSessionObject;
+    private GlobalSessionObject httpClientSessionObject;
     private String queryParamsAreFormEncoded;
 
     public String getUrl() {
@@ -303,6 +321,30 @@ public class HttpClientInputs {
         this.connectionsMaxTotal = connectionsMaxTotal;
     }
 
+    public String getConnectionsIdleTimeout() {
+        return connectionsIdleTimeout;
+    }
+
+    public void setConnectionsIdleTimeout(String connectionsIdleTimeout) {
+        this.connectionsIdleTimeout = connectionsIdleTimeout;
+    }
+
+    public String getConnectionsEvictionInterval() {
+        return connectionsEvictionInterval;
+    }
+
+    public void setConnectionsEvictionInterval(String connectionsEvictionInterval) {
+        this.connectionsEvictionInterval = connectionsEvictionInterval;
+    }
+
+    public String getConnectionsPoolUnusedTimeout() {
+        return connectionsPoolUnusedTimeout;
+    }
+
+    public void setConnectionsPoolUnusedTimeout(String connectionsPoolUnusedTimeout) {
+        this.connectionsPoolUnusedTimeout = connectionsPoolUnusedTimeout;
+    }
+
     public void setKeepAlive(String keepAlive) {
         this.keepAlive = keepAlive;
     }
@@ -323,6 +365,22 @@ public class HttpClientInputs {
         this.responseCharacterSet = responseCharacterSet;
     }
 
+    public String getResponseBodyMemoryThreshold() {
+        return responseBodyMemoryThreshold;
+    }
+
+    public void setResponseBodyMemoryThreshold(String responseBodyMemoryThreshold) {
+        this.responseBodyMemoryThreshold = responseBodyMemoryThreshold;
+    }
+
+    public String getResponseBodyMaxSize() {
+        return responseBodyMaxSize;
+    }
+
+    public void setResponseBodyMaxSize(String responseBodyMaxSize) {
+        this.responseBodyMaxSize = responseBodyMaxSize;
+    }
+
     public String getDestinationFile() {
         return destinationFile;
     }
@@ -331,6 +389,30 @@ public class HttpClientInputs {
         this.destinationFile = destinationFile;
     }
 
+    public String getDestinationFileBufferSize() {
+        return destinationFileBufferSize;
+    }
+
+    public void setDestinationFileBufferSize(String destinationFileBufferSize) {
+        this.destinationFileBufferSize = destinationFileBufferSize;
+    }
+
+    public String getResumeDownload() {
+        return resumeDownload;
+    }
+
+    public void setResumeDownload(String resumeDownload) {
+        this.resumeDownload = resumeDownload;
+    }
+
+    public String getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    public void setChecksumAlgorithm(String checksumAlgorithm) {
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
     public String getFollowRedirects() {
         return followRedirects;
     }
@@ -475,6 +557,14 @@ public class HttpClientInputs {
         this.connectionPoolSessionObject = connectionPoolSessionObject;
     }
 
+    public GlobalSessionObject getHttpClientSessionObject() {
+        return httpClientSessionObject;
+    }
+
+    public void setHttpClientSessionObject(GlobalSessionObject httpClientSessionObject) {
+        this.httpClientSessionObject = httpClientSessionObject;
+    }
+
     public void setQueryParamsAreFormEncoded(String queryParamsAreFormEncoded) {
         this.queryParamsAreFormEncoded = queryParamsAreFormEncoded;
     }
@@ -482,4 +572,15 @@ public class HttpClientInputs {
     public String getQueryParamsAreFormEncoded() {
         return queryParamsAreFormEncoded;
     }
+
+    /**
+     * @return a shallow copy of these inputs, the session objects are shared with the copy.
+     */
+    public HttpClientInputs copy() {
+        try {
+            return (HttpClientInputs) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
 }
@@ -13,9 +13,11 @@ package io.cloudslang.content.httpclient.build;
 import com.hp.oo.sdk.content.plugin.SerializableSessionObject;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.CookieStore;
+import org.apache.http.cookie.Cookie;
 import org.apache.http.impl.client.BasicCookieStore;
 
 import java.io.*;
+import java.util.Date;
 
 public class CookieStoreBuilder {
     private String useCookies = "true";
@@ -35,21 +37,52 @@ public class CookieStoreBuilder {
 
     public CookieStore buildCookieStore() {
         if (Boolean.parseBoolean(useCookies) && cookieStoreSessionObject != null) {
-            BasicCookieStore cookieStore;
-            if (cookieStoreSessionObject.getValue() == null) {
-                cookieStore = new BasicCookieStore();
+            SessionCookieStore cookieStore;
+            Object value = cookieStoreSessionObject.getValue();
+            if (value == null) {
+                cookieStore = new SessionCookieStore();
             } else {
                 try {
-                    cookieStore = (BasicCookieStore) deserialize((byte[]) cookieStoreSessionObject.getValue());
+                    cookieStore = loadCookieStore((byte[]) value);
                 } catch (IOException | ClassNotFoundException e) {
                     throw new RuntimeException(e.getMessage(), e);
                 }
             }
+            cookieStore.clearExpired(new Date());
             return cookieStore;
         }
         return null;
     }
 
+    private SessionCookieStore loadCookieStore(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (SessionCookieStore.isEncoded(bytes)) {
+            return SessionCookieStore.decode(bytes);
+        }
+        //a cookie store saved with the java serialization is converted to the new format on the next save
+        BasicCookieStore basicCookieStore = (BasicCookieStore) deserialize(bytes);
+        SessionCookieStore cookieStore = new SessionCookieStore();
+        for (Cookie cookie : basicCookieStore.getCookies()) {
+            cookieStore.addCookie(cookie);
+        }
+        return cookieStore;
+    }
+
+    /**
+     * Saves the cookie store into the session object, only if its cookies changed since it was loaded.
+     */
+    public static void saveCookieStore(CookieStore cookieStore, SerializableSessionObject cookieStoreSessionObject) throws IOException {
+        if (cookieStore instanceof SessionCookieStore) {
+            SessionCookieStore sessionCookieStore = (SessionCookieStore) cookieStore;
+            sessionCookieStore.clearExpired(new Date());
+            if (sessionCookieStore.isDirty() || cookieStoreSessionObject.getValue() == null) {
+                cookieStoreSessionObject.setValue(sessionCookieStore.encode());
+                sessionCookieStore.setDirty(false);
+            }
+        } else {
+            cookieStoreSessionObject.setValue(serialize(cookieStore));
+        }
+    }
+
     public static byte[] serialize(Object obj) throws IOException {
         ByteArrayOutputStream b = new ByteArrayOutputStream();
         ObjectOutputStream o = new ObjectOutputStream(b);
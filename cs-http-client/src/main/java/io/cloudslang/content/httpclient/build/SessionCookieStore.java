@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build;
+
+import org.apache.http.cookie.ClientCookie;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.impl.cookie.BasicClientCookie2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A cookie store that knows whether its cookies changed since it was loaded from the session, so that it is written
+ * back only when needed. It is written in a compact binary format instead of the java serialization.
+ */
+public class SessionCookieStore extends BasicCookieStore {
+    private static final long serialVersionUID = 1L;
+
+    private static final int FORMAT_MAGIC = 0x43534353;
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_DATE = -1;
+    private static final String[] ATTRIBUTES = {ClientCookie.VERSION_ATTR, ClientCookie.PATH_ATTR, ClientCookie.DOMAIN_ATTR,
+            ClientCookie.MAX_AGE_ATTR, ClientCookie.SECURE_ATTR, ClientCookie.COMMENT_ATTR, ClientCookie.EXPIRES_ATTR,
+            ClientCookie.PORT_ATTR, ClientCookie.COMMENTURL_ATTR, ClientCookie.DISCARD_ATTR};
+
+    private boolean dirty;
+
+    @Override
+    public synchronized void addCookie(Cookie cookie) {
+        super.addCookie(cookie);
+        dirty = true;
+    }
+
+    @Override
+    public synchronized boolean clearExpired(Date date) {
+        boolean removed = super.clearExpired(date);
+        dirty |= removed;
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        dirty = true;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes.length >= 4 && ((bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF) == FORMAT_MAGIC;
+    }
+
+    public synchronized byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        List<Cookie> cookies = getCookies();
+        out.writeInt(cookies.size());
+        for (Cookie cookie : cookies) {
+            writeCookie(out, cookie);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static SessionCookieStore decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != FORMAT_MAGIC) {
+            throw new IOException("The cookie store has an unknown format");
+        }
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("The cookie store has an unknown format version: " + version);
+        }
+        SessionCookieStore cookieStore = new SessionCookieStore();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            cookieStore.addCookie(readCookie(in));
+        }
+        cookieStore.setDirty(false);
+        return cookieStore;
+    }
+
+    private static void writeCookie(DataOutputStream out, Cookie cookie) throws IOException {
+        boolean cookie2 = cookie instanceof BasicClientCookie2;
+        out.writeBoolean(cookie2);
+        out.writeUTF(cookie.getName());
+        writeString(out, cookie.getValue());
+        writeString(out, cookie.getDomain());
+        writeString(out, cookie.getPath());
+        writeString(out, cookie.getComment());
+        out.writeLong(cookie.getExpiryDate() != null ? cookie.getExpiryDate().getTime() : NO_DATE);
+        out.writeBoolean(cookie.isSecure());
+        out.writeInt(cookie.getVersion());
+        //the discarded cookies are never kept by the store so the discard flag is not written
+        if (cookie2) {
+            writeString(out, cookie.getCommentURL());
+            int[] ports = cookie.getPorts();
+            out.writeInt(ports != null ? ports.length : -1);
+            if (ports != null) {
+                for (int port : ports) {
+                    out.writeInt(port);
+                }
+            }
+        }
+        //the attributes tell the cookie spec which of the values were explicitly given by the server
+        ClientCookie clientCookie = cookie instanceof ClientCookie ? (ClientCookie) cookie : null;
+        for (String attribute : ATTRIBUTES) {
+            writeString(out, clientCookie != null ? clientCookie.getAttribute(attribute) : null);
+        }
+    }
+
+    private static Cookie readCookie(DataInputStream in) throws IOException {
+        boolean cookie2 = in.readBoolean();
+        String name = in.readUTF();
+        String value = readString(in);
+        BasicClientCookie cookie = cookie2 ? new BasicClientCookie2(name, value) : new BasicClientCookie(name, value);
+        cookie.setDomain(readString(in));
+        cookie.setPath(readString(in));
+        cookie.setComment(readString(in));
+        long expiryDate = in.readLong();
+        cookie.setExpiryDate(expiryDate != NO_DATE ? new Date(expiryDate) : null);
+        cookie.setSecure(in.readBoolean());
+        cookie.setVersion(in.readInt());
+        if (cookie2) {
+            BasicClientCookie2 basicClientCookie2 = (BasicClientCookie2) cookie;
+            basicClientCookie2.setCommentURL(readString(in));
+            int portCount = in.readInt();
+            if (portCount >= 0) {
+                int[] ports = new int[portCount];
+                for (int i = 0; i < portCount; i++) {
+                    ports[i] = in.readInt();
+                }
+                basicClientCookie2.setPorts(ports);
+            }
+        }
+        for (String attribute : ATTRIBUTES) {
+            String attributeValue = readString(in);
+            if (attributeValue != null) {
+                cookie.setAttribute(attribute, attributeValue);
+            }
+        }
+        return cookie;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build.conn;
+
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import com.hp.oo.sdk.content.plugin.SessionResource;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds the CloseableHttpClient for a connection configuration and keeps it in the 'httpClientHolder' so that
+ * the following requests with the same configuration reuse it. The clients only hold the connection manager and the
+ * connection reuse strategy, everything that is specific to a request (credentials, authentication schemes, cookies,
+ * request config, headers) must be given on the request or on its HttpClientContext.
+ */
+public class CloseableHttpClientBuilder {
+    private GlobalSessionObject<ConcurrentMap<String, HttpClientEntry>> httpClientHolder;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private String httpClientMapKey;
+    private String keepAlive;
+
+    public CloseableHttpClientBuilder setHttpClientHolder(GlobalSessionObject httpClientHolder) {
+        this.httpClientHolder = httpClientHolder;
+        return this;
+    }
+
+    public CloseableHttpClientBuilder setConnectionManager(PoolingHttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+        return this;
+    }
+
+    public CloseableHttpClientBuilder setHttpClientMapKey(String... httpClientMapKeys) {
+        this.httpClientMapKey = ConnectionManagerBuilder.buildConnectionManagerMapKey(httpClientMapKeys);
+        return this;
+    }
+
+    public CloseableHttpClientBuilder setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public CloseableHttpClient buildHttpClient() {
+        if (httpClientHolder == null) {
+            return createHttpClient();
+        }
+        ConcurrentMap<String, HttpClientEntry> httpClientMap = getHttpClientMap();
+        String key = ConnectionManagerBuilder.buildConnectionManagerMapKey(httpClientMapKey, String.valueOf(isKeepAlive()));
+
+        HttpClientEntry entry = httpClientMap.get(key);
+        if (entry != null && entry.connectionManager == connectionManager) {
+            return entry.httpClient;
+        }
+        HttpClientEntry newEntry = new HttpClientEntry(connectionManager, createHttpClient());
+        if (entry == null) {
+            HttpClientEntry existingEntry = httpClientMap.putIfAbsent(key, newEntry);
+            if (existingEntry != null && existingEntry.connectionManager == connectionManager) {
+                return existingEntry.httpClient;
+            }
+        } else {
+            //the connection manager of this key was replaced so the client that uses the old one is dropped
+            httpClientMap.replace(key, entry, newEntry);
+        }
+        return newEntry.httpClient;
+    }
+
+    private ConcurrentMap<String, HttpClientEntry> getHttpClientMap() {
+        synchronized (httpClientHolder) {
+            ConcurrentMap<String, HttpClientEntry> httpClientMap = httpClientHolder.get();
+            if (httpClientMap == null) {
+                final ConcurrentMap<String, HttpClientEntry> httpClientMapFinal = new ConcurrentHashMap<>();
+                httpClientHolder.setResource(new SessionResource<ConcurrentMap<String, HttpClientEntry>>() {
+                    @Override
+                    public ConcurrentMap<String, HttpClientEntry> get() {
+                        return httpClientMapFinal;
+                    }
+
+                    @Override
+                    public void release() {
+                    }
+                });
+                httpClientMap = httpClientHolder.get();
+            }
+            return httpClientMap;
+        }
+    }
+
+    protected CloseableHttpClient createHttpClient() {
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
+        httpClientBuilder.setConnectionManager(connectionManager);
+        if (isKeepAlive()) {
+            httpClientBuilder.setConnectionReuseStrategy(DefaultConnectionReuseStrategy.INSTANCE);
+        } else {
+            httpClientBuilder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+        return httpClientBuilder.build();
+    }
+
+    private boolean isKeepAlive() {
+        return StringUtils.isEmpty(keepAlive) || Boolean.parseBoolean(keepAlive);
+    }
+
+    public static class HttpClientEntry {
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+
+        public HttpClientEntry(PoolingHttpClientConnectionManager connectionManager, CloseableHttpClient httpClient) {
+            this.connectionManager = connectionManager;
+            this.httpClient = httpClient;
+        }
+
+        public PoolingHttpClientConnectionManager getConnectionManager() {
+            return connectionManager;
+        }
+
+        public CloseableHttpClient getHttpClient() {
+            return httpClient;
+        }
+    }
+}
@@ -14,22 +14,23 @@ import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
 import com.hp.oo.sdk.content.plugin.SessionResource;
 import io.cloudslang.content.httpclient.HttpClientInputs;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class ConnectionManagerBuilder {
-    private GlobalSessionObject<Map<String, PoolingHttpClientConnectionManager>> connectionPoolHolder;
+    public static final long DEFAULT_IDLE_TIMEOUT = 60;
+    public static final long DEFAULT_EVICTION_INTERVAL = 30;
+    public static final long DEFAULT_UNUSED_TIMEOUT = 600;
+    private GlobalSessionObject<ConnectionPoolRegistry> connectionPoolHolder;
     private SSLConnectionSocketFactory sslsf;
     private String connectionManagerMapKey;
     private String defaultMaxPerRoute;
     private String totalMax;
+    private String idleTimeout;
+    private String evictionInterval;
+    private String unusedTimeout;
 
     public ConnectionManagerBuilder setConnectionPoolHolder(GlobalSessionObject connectionPoolHolder) {
         this.connectionPoolHolder = connectionPoolHolder;
@@ -51,6 +52,21 @@ public class ConnectionManagerBuilder {
         return this;
     }
 
+    public ConnectionManagerBuilder setIdleTimeout(String idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public ConnectionManagerBuilder setEvictionInterval(String evictionInterval) {
+        this.evictionInterval = evictionInterval;
+        return this;
+    }
+
+    public ConnectionManagerBuilder setUnusedTimeout(String unusedTimeout) {
+        this.unusedTimeout = unusedTimeout;
+        return this;
+    }
+
     public ConnectionManagerBuilder setConnectionManagerMapKey(String... connectionManagerMapKeys) {
         this.connectionManagerMapKey = buildConnectionManagerMapKey(connectionManagerMapKeys);
         return this;
@@ -69,58 +85,73 @@ public class ConnectionManagerBuilder {
 
     public PoolingHttpClientConnectionManager buildConnectionManager() {
         if (connectionPoolHolder != null) {
-            PoolingHttpClientConnectionManager connManager = null;
-            synchronized (connectionPoolHolder) {
-                Map<String, PoolingHttpClientConnectionManager> connectionManagerMap
-                        = connectionPoolHolder.get();
+            ConnectionPoolRegistry connectionPoolRegistry = getConnectionPoolRegistry(connectionPoolHolder);
+            connectionPoolRegistry.setIdleTimeout(parseSeconds(idleTimeout, DEFAULT_IDLE_TIMEOUT, HttpClientInputs.CONNECTIONS_IDLE_TIMEOUT));
+            connectionPoolRegistry.setUnusedTimeout(parseSeconds(unusedTimeout, DEFAULT_UNUSED_TIMEOUT, HttpClientInputs.CONNECTIONS_POOL_UNUSED_TIMEOUT));
+            connectionPoolRegistry.scheduleEviction(parseSeconds(evictionInterval, DEFAULT_EVICTION_INTERVAL, HttpClientInputs.CONNECTIONS_EVICTION_INTERVAL));
 
-                if (connectionManagerMap == null) {
-                    final HashMap<String, PoolingHttpClientConnectionManager> connectionManagerMapFinal = new HashMap<>();
-                    connectionPoolHolder.setResource(new SessionResource<Map<String, PoolingHttpClientConnectionManager>>() {
-                        @Override
-                        public Map<String, PoolingHttpClientConnectionManager> get() {
-                            return connectionManagerMapFinal;
-                        }
-
-                        @Override
-                        public void release() {
-                        }
-                    });
-                    connectionManagerMap = connectionPoolHolder.get();
-                }
-
-                connManager = connectionManagerMap.get(connectionManagerMapKey);
-                if (connManager == null) {
-                    Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-                            .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                            .register("https", sslsf)
-                            .build();
-                    connManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
-
-                    connectionManagerMap.put(connectionManagerMapKey, connManager);
-                }
-            }
+            PoolingHttpClientConnectionManager connManager = connectionPoolRegistry.getConnectionManager(connectionManagerMapKey, sslsf);
 
             //the DefaultMaxPerRoute default is 2
             if (!StringUtils.isEmpty(defaultMaxPerRoute)) {
-                try {
-                    connManager.setDefaultMaxPerRoute(Integer.parseInt(defaultMaxPerRoute));
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("the '" + HttpClientInputs.CONNECTIONS_MAX_PER_ROUTE
-                            + "' input should be integer" + e.getMessage(), e);
+                int maxPerRoute = parseInt(defaultMaxPerRoute, HttpClientInputs.CONNECTIONS_MAX_PER_ROUTE);
+                if (connManager.getDefaultMaxPerRoute() != maxPerRoute) {
+                    connManager.setDefaultMaxPerRoute(maxPerRoute);
                 }
             }
             //the Default totalMax default is 20
             if (!StringUtils.isEmpty(totalMax)) {
-                try {
-                    connManager.setMaxTotal(Integer.parseInt(totalMax));
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("the '" + HttpClientInputs.CONNECTIONS_MAX_TOTAL
-                            + "' input should be integer" + e.getMessage(), e);
+                int maxTotal = parseInt(totalMax, HttpClientInputs.CONNECTIONS_MAX_TOTAL);
+                if (connManager.getMaxTotal() != maxTotal) {
+                    connManager.setMaxTotal(maxTotal);
                 }
             }
             return connManager;
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public static ConnectionPoolRegistry getConnectionPoolRegistry(GlobalSessionObject<ConnectionPoolRegistry> connectionPoolHolder) {
+        ConnectionPoolRegistry connectionPoolRegistry = connectionPoolHolder.get();
+        if (connectionPoolRegistry == null) {
+            synchronized (connectionPoolHolder) {
+                connectionPoolRegistry = connectionPoolHolder.get();
+                if (connectionPoolRegistry == null) {
+                    final ConnectionPoolRegistry connectionPoolRegistryFinal = new ConnectionPoolRegistry();
+                    connectionPoolHolder.setResource(new SessionResource<ConnectionPoolRegistry>() {
+                        @Override
+                        public ConnectionPoolRegistry get() {
+                            return connectionPoolRegistryFinal;
+                        }
+
+                        @Override
+                        public void release() {
+                            connectionPoolRegistryFinal.shutdown();
+                        }
+                    });
+                    connectionPoolRegistry = connectionPoolRegistryFinal;
+                }
+            }
+        }
+        return connectionPoolRegistry;
+    }
+
+    private static int parseInt(String value, String inputName) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the '" + inputName + "' input should be integer" + e.getMessage(), e);
+        }
+    }
+
+    private static long parseSeconds(String value, long defaultSeconds, String inputName) {
+        if (StringUtils.isEmpty(value)) {
+            return TimeUnit.SECONDS.toMillis(defaultSeconds);
+        }
+        int seconds = parseInt(value, inputName);
+        if (seconds < 0) {
+            throw new IllegalArgumentException("the '" + inputName + "' input should be greater than or equal to 0");
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build.conn;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the connection managers of a connection pool session, one for each connection manager key.
+ * A background task closes the expired and idle connections of the managers and shuts down the managers that
+ * have not been used for a while.
+ */
+public class ConnectionPoolRegistry {
+    private static final ScheduledExecutorService EVICTION_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "http-client-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final ConcurrentMap<String, ConnectionPoolEntry> connectionPools = new ConcurrentHashMap<>();
+    private volatile long idleTimeoutMillis;
+    private volatile long unusedTimeoutMillis;
+    private ScheduledFuture<?> evictionTask;
+    private long evictionIntervalMillis;
+
+    public PoolingHttpClientConnectionManager getConnectionManager(String key, SSLConnectionSocketFactory sslsf) {
+        while (true) {
+            ConnectionPoolEntry entry = connectionPools.get(key);
+            if (entry == null) {
+                ConnectionPoolEntry newEntry = new ConnectionPoolEntry();
+                entry = connectionPools.putIfAbsent(key, newEntry);
+                if (entry == null) {
+                    entry = newEntry;
+                }
+            }
+            PoolingHttpClientConnectionManager connManager = entry.acquire(sslsf);
+            if (connManager != null) {
+                return connManager;
+            }
+            //the entry was evicted in the meantime
+            connectionPools.remove(key, entry);
+        }
+    }
+
+    /**
+     * @param idleTimeoutMillis the connections idle for longer than this are closed. 0 keeps the idle connections open.
+     */
+    public void setIdleTimeout(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @param unusedTimeoutMillis the connection managers not used for longer than this are shut down. 0 keeps them.
+     */
+    public void setUnusedTimeout(long unusedTimeoutMillis) {
+        this.unusedTimeoutMillis = unusedTimeoutMillis;
+    }
+
+    /**
+     * Starts the background eviction, or reschedules it when the interval differs from the current one.
+     * 0 disables the background eviction.
+     */
+    public synchronized void scheduleEviction(long evictionIntervalMillis) {
+        if (evictionTask != null && this.evictionIntervalMillis == evictionIntervalMillis) {
+            return;
+        }
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+            evictionTask = null;
+        }
+        this.evictionIntervalMillis = evictionIntervalMillis;
+        if (evictionIntervalMillis > 0) {
+            EvictionTask task = new EvictionTask(this);
+            evictionTask = EVICTION_EXECUTOR.scheduleWithFixedDelay(task, evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+            task.future = evictionTask;
+        }
+    }
+
+    synchronized long getEvictionInterval() {
+        return evictionTask != null ? evictionIntervalMillis : 0;
+    }
+
+    public void evict() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, ConnectionPoolEntry> poolEntry : connectionPools.entrySet()) {
+            ConnectionPoolEntry entry = poolEntry.getValue();
+            if (unusedTimeoutMillis > 0 && entry.evictIfUnused(now - unusedTimeoutMillis)) {
+                connectionPools.remove(poolEntry.getKey(), entry);
+            } else {
+                entry.closeIdleConnections(idleTimeoutMillis);
+            }
+        }
+    }
+
+    public SortedMap<String, PoolStats> getPoolStats() {
+        SortedMap<String, PoolStats> poolStats = new TreeMap<>();
+        for (Map.Entry<String, ConnectionPoolEntry> poolEntry : connectionPools.entrySet()) {
+            PoolStats stats = poolEntry.getValue().getTotalStats();
+            if (stats != null) {
+                poolStats.put(poolEntry.getKey(), stats);
+            }
+        }
+        return poolStats;
+    }
+
+    public int size() {
+        return connectionPools.size();
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            if (evictionTask != null) {
+                evictionTask.cancel(false);
+                evictionTask = null;
+            }
+            evictionIntervalMillis = 0;
+        }
+        for (ConnectionPoolEntry entry : connectionPools.values()) {
+            entry.evict();
+        }
+        connectionPools.clear();
+    }
+
+    private static class ConnectionPoolEntry {
+        private PoolingHttpClientConnectionManager connManager;
+        private long lastUsed;
+        private boolean evicted;
+
+        synchronized PoolingHttpClientConnectionManager acquire(SSLConnectionSocketFactory sslsf) {
+            if (evicted) {
+                return null;
+            }
+            if (connManager == null) {
+                Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", sslsf)
+                        .build();
+                connManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            }
+            lastUsed = System.currentTimeMillis();
+            return connManager;
+        }
+
+        synchronized boolean evictIfUnused(long usedBefore) {
+            if (connManager == null || lastUsed >= usedBefore) {
+                return false;
+            }
+            PoolStats stats = connManager.getTotalStats();
+            if (stats.getLeased() > 0 || stats.getPending() > 0) {
+                return false;
+            }
+            evict();
+            return true;
+        }
+
+        synchronized void evict() {
+            evicted = true;
+            if (connManager != null) {
+                connManager.shutdown();
+            }
+        }
+
+        synchronized void closeIdleConnections(long idleTimeoutMillis) {
+            if (connManager != null && !evicted) {
+                connManager.closeExpiredConnections();
+                if (idleTimeoutMillis > 0) {
+                    connManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        synchronized PoolStats getTotalStats() {
+            return connManager != null && !evicted ? connManager.getTotalStats() : null;
+        }
+    }
+
+    /**
+     * Only weakly references the registry so that a registry whose session is gone stops its own eviction.
+     */
+    private static class EvictionTask implements Runnable {
+        private final WeakReference<ConnectionPoolRegistry> registryReference;
+        private volatile ScheduledFuture<?> future;
+
+        EvictionTask(ConnectionPoolRegistry registry) {
+            this.registryReference = new WeakReference<>(registry);
+        }
+
+        @Override
+        public void run() {
+            ConnectionPoolRegistry registry = registryReference.get();
+            if (registry == null) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                registry.evict();
+            } catch (RuntimeException e) {
+                //an exception would cancel the next executions
+            }
+        }
+    }
+}
@@ -16,7 +16,9 @@ import org.apache.http.conn.ssl.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
@@ -38,6 +40,11 @@ public class SSLConnectionSocketFactoryBuilder {
     public static final String TLSv11 = "TLSv1.1";
     public static final String TLSv12 = "TLSv1.2";
     public static final String[] SUPPORTED_PROTOCOLS = new String[]{SSLv3, TLSv10, TLSv11, TLSv12};
+    public static final int MAX_CACHED_ENTRIES = 64;
+    private static final String FILE_PREFIX = "file:";
+    //keystores and socket factories are shared by all the executions in the JVM; a changed keystore file gets a new key
+    private static final BoundedCache<String, KeyStore> KEYSTORE_CACHE = new BoundedCache<>(MAX_CACHED_ENTRIES);
+    private static final BoundedCache<String, SSLConnectionSocketFactory> SOCKET_FACTORY_CACHE = new BoundedCache<>(MAX_CACHED_ENTRIES);
     private String trustAllRootsStr = "false";
     private String keystore;
     private String keystorePassword;
@@ -61,44 +68,66 @@ public class SSLConnectionSocketFactoryBuilder {
         return keystore;
     }
 
+    protected KeyStore loadKeyStore(final URL url, final String password)
+            throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException {
+        String cacheKey = buildKeyStoreCacheKey(url.toString(), password);
+        KeyStore keyStore = KEYSTORE_CACHE.get(cacheKey);
+        if (keyStore == null) {
+            keyStore = createKeyStore(url, password);
+            KEYSTORE_CACHE.put(cacheKey, keyStore);
+        }
+        return keyStore;
+    }
+
     public SSLConnectionSocketFactory build() {
         if (!"true".equalsIgnoreCase(trustAllRootsStr) && !"false".equalsIgnoreCase(trustAllRootsStr)) {
             throw new IllegalArgumentException("'trustAllRoots' can only be 'true' or 'false'");
         }
         boolean trustAllRoots = Boolean.parseBoolean(trustAllRootsStr);
 
-        SSLContextBuilder sslContextBuilder = SSLContexts.custom();
         String changeit = "changeit";
         String javaKeystore = System.getProperty("java.home") + "/lib/security/cacerts";
+        boolean useClientCert = false;
+        boolean useTrustCert = false;
         if (!trustAllRoots) {
-            boolean useClientCert = StringUtils.isNotEmpty(keystore);
+            useClientCert = StringUtils.isNotEmpty(keystore);
             //validate SSL certificates sent by the server
-            boolean useTrustCert = StringUtils.isNotEmpty(trustKeystore);
+            useTrustCert = StringUtils.isNotEmpty(trustKeystore);
 
             boolean storeExists = new File(javaKeystore).exists();
 
             if (!useClientCert && storeExists) {
-                keystore = "file:" + javaKeystore;
+                keystore = FILE_PREFIX + javaKeystore;
                 keystorePassword = StringUtils.isNotEmpty(keystorePassword) ? keystorePassword : changeit;
                 useClientCert = true;
             } else if (useClientCert && !keystore.startsWith("http")) {
-                keystore = "file:" + keystore;
+                keystore = FILE_PREFIX + keystore;
             }
 
             if (!useTrustCert && storeExists) {
-                trustKeystore = "file:" + javaKeystore;
+                trustKeystore = FILE_PREFIX + javaKeystore;
                 trustPassword = StringUtils.isNotEmpty(trustPassword) ? trustPassword : changeit;
                 useTrustCert = true;
             } else if (useTrustCert && !trustKeystore.startsWith("http")) {
-                trustKeystore = "file:" + trustKeystore;
+                trustKeystore = FILE_PREFIX + trustKeystore;
             }
+        }
+
+        String cacheKey = buildSocketFactoryCacheKey(trustAllRoots, useClientCert, useTrustCert);
+        SSLConnectionSocketFactory sslsf = SOCKET_FACTORY_CACHE.get(cacheKey);
+        if (sslsf != null) {
+            return sslsf;
+        }
+
+        SSLContextBuilder sslContextBuilder = SSLContexts.custom();
+        if (!trustAllRoots) {
             createTrustKeystore(sslContextBuilder, useTrustCert);
             //todo client key authentication should not depend on 'trustAllRoots'
             createKeystore(sslContextBuilder, useClientCert);
         } else {
             try {
                 //need to override isTrusted() method to accept CA certs because the Apache HTTP Client ver.4.3 will only accepts self-signed certificates
-                KeyStore keyStore = createKeyStore(new URL("file:" + javaKeystore), changeit);
+                KeyStore keyStore = loadKeyStore(new URL(FILE_PREFIX + javaKeystore), changeit);
 
                 sslContextBuilder.loadTrustMaterial(keyStore, new TrustSelfSignedStrategy() {
                     @Override
@@ -115,7 +144,6 @@ public class SSLConnectionSocketFactoryBuilder {
         sslContextBuilder.useSSL();
         sslContextBuilder.useTLS();
 
-        SSLConnectionSocketFactory sslsf;
         try {
             String x509HostnameVerifierStr = x509HostnameVerifierInputValue.toLowerCase();
             X509HostnameVerifier x509HostnameVerifier;
@@ -140,14 +168,52 @@ public class SSLConnectionSocketFactoryBuilder {
             }
             throw new RuntimeException(e.getMessage() + ". " + SSL_CONNECTION_ERROR, e);
         }
+        SOCKET_FACTORY_CACHE.put(cacheKey, sslsf);
         return sslsf;
     }
 
+    public static void clearCache() {
+        KEYSTORE_CACHE.clear();
+        SOCKET_FACTORY_CACHE.clear();
+    }
+
+    private String buildSocketFactoryCacheKey(boolean trustAllRoots, boolean useClientCert, boolean useTrustCert) {
+        return ConnectionManagerBuilder.buildConnectionManagerMapKey(String.valueOf(trustAllRoots),
+                x509HostnameVerifierInputValue.toLowerCase(),
+                useClientCert ? buildKeyStoreCacheKey(keystore, keystorePassword) : null,
+                useTrustCert ? buildKeyStoreCacheKey(trustKeystore, trustPassword) : null);
+    }
+
+    private static String buildKeyStoreCacheKey(String keystoreUrl, String password) {
+        return ConnectionManagerBuilder.buildConnectionManagerMapKey(keystoreUrl,
+                fingerprint(password),
+                String.valueOf(lastModified(keystoreUrl)));
+    }
+
+    private static long lastModified(String keystoreUrl) {
+        if (keystoreUrl != null && keystoreUrl.startsWith(FILE_PREFIX)) {
+            return new File(keystoreUrl.substring(FILE_PREFIX.length())).lastModified();
+        }
+        return 0;
+    }
+
+    private static String fingerprint(String password) {
+        if (password == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
     protected void createKeystore(SSLContextBuilder sslContextBuilder, boolean useClientCert) {
         if (useClientCert) {
             KeyStore clientKeyStore;
             try {
-                clientKeyStore = createKeyStore(new URL(keystore), keystorePassword);
+                clientKeyStore = loadKeyStore(new URL(keystore), keystorePassword);
                 sslContextBuilder.loadKeyMaterial(clientKeyStore, keystorePassword.toCharArray());
             } catch (UnrecoverableKeyException | IOException ue) {
                 throw new IllegalArgumentException(ue.getMessage() + ". " + BAD_KEYSTORE_ERROR, ue);
@@ -161,8 +227,7 @@ public class SSLConnectionSocketFactoryBuilder {
         if (useTrustCert) {
             KeyStore trustKeyStore;
             try {
-                //todo should we do this 'create' in each and every step?
-                trustKeyStore = createKeyStore(new URL(trustKeystore), trustPassword);
+                trustKeyStore = loadKeyStore(new URL(trustKeystore), trustPassword);
                 sslContextBuilder.loadTrustMaterial(trustKeyStore);
             } catch (IOException ioe) {
                 throw new IllegalArgumentException(ioe.getMessage() + ". " + BAD_TRUST_KEYSTORE_ERROR, ioe);
@@ -10,19 +10,29 @@
 
 package io.cloudslang.content.httpclient.consume;
 
-import io.cloudslang.content.httpclient.HttpClientInputs;
 import io.cloudslang.content.httpclient.CSHttpClient;
+import io.cloudslang.content.httpclient.HttpClientInputs;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Consts;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.message.BasicHeaderValueParser;
 
 import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.UnsupportedCharsetException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Created with IntelliJ IDEA.
@@ -30,9 +40,21 @@ import java.util.Map;
  * Date: 7/28/14
  */
 public class HttpResponseConsumer {
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+    public static final String SHA_256 = "SHA-256";
+    public static final String MD5 = "MD5";
+    private static final int BOUNDED_BUFFER_SIZE = 8192;
+    private static final String SPILL_FILE_PREFIX = "httpClientResponse";
+    private static final String SPILL_FILE_SUFFIX = ".tmp";
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-\\d+/(\\d+|\\*)");
     private HttpResponse httpResponse;
     private String responseCharacterSet;
     private String destinationFile;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean resumeDownload;
+    private String checksumAlgorithm;
+    private long memoryThreshold;
+    private long maxSize;
 
     public HttpResponseConsumer setHttpResponse(HttpResponse httpResponse) {
         this.httpResponse = httpResponse;
@@ -49,6 +71,65 @@ public class HttpResponseConsumer {
         return this;
     }
 
+    public HttpResponseConsumer setBufferSize(String bufferSize) {
+        if (!StringUtils.isEmpty(bufferSize)) {
+            try {
+                this.bufferSize = Integer.parseInt(bufferSize);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("the '" + HttpClientInputs.DESTINATION_FILE_BUFFER_SIZE
+                        + "' input should be integer" + e.getMessage(), e);
+            }
+            if (this.bufferSize <= 0) {
+                throw new IllegalArgumentException("the '" + HttpClientInputs.DESTINATION_FILE_BUFFER_SIZE
+                        + "' input should be greater than 0");
+            }
+        }
+        return this;
+    }
+
+    public HttpResponseConsumer setMemoryThreshold(String memoryThreshold) {
+        this.memoryThreshold = parseSize(memoryThreshold, HttpClientInputs.RESPONSE_BODY_MEMORY_THRESHOLD);
+        return this;
+    }
+
+    public HttpResponseConsumer setMaxSize(String maxSize) {
+        this.maxSize = parseSize(maxSize, HttpClientInputs.RESPONSE_BODY_MAX_SIZE);
+        return this;
+    }
+
+    private static long parseSize(String size, String inputName) {
+        if (StringUtils.isEmpty(size)) {
+            return 0;
+        }
+        long value;
+        try {
+            value = Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the '" + inputName + "' input should be integer" + e.getMessage(), e);
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("the '" + inputName + "' input should be greater than or equal to 0");
+        }
+        return value;
+    }
+
+    public HttpResponseConsumer setResumeDownload(String resumeDownload) {
+        this.resumeDownload = Boolean.parseBoolean(resumeDownload);
+        return this;
+    }
+
+    public HttpResponseConsumer setChecksumAlgorithm(String checksumAlgorithm) {
+        if (StringUtils.isEmpty(checksumAlgorithm)) {
+            this.checksumAlgorithm = null;
+        } else if (SHA_256.equalsIgnoreCase(checksumAlgorithm) || MD5.equalsIgnoreCase(checksumAlgorithm)) {
+            this.checksumAlgorithm = checksumAlgorithm.toUpperCase();
+        } else {
+            throw new IllegalArgumentException("Invalid value '" + checksumAlgorithm + "' for input '"
+                    + HttpClientInputs.CHECKSUM_ALGORITHM + "'. Valid values: '" + SHA_256 + "','" + MD5 + "'.");
+        }
+        return this;
+    }
+
     public void consume(Map<String, String> result) throws IOException {
         if (httpResponse.getEntity() != null) {
             if (responseCharacterSet == null || responseCharacterSet.isEmpty()) {
@@ -72,7 +153,10 @@ public class HttpResponseConsumer {
     }
 
     protected void consumeResponseContent(Map<String, String> result) throws IOException {
-        if (StringUtils.isEmpty(destinationFile)) {
+        checkContentLength();
+        if ((StringUtils.isEmpty(destinationFile) || isFailedResume()) && (memoryThreshold > 0 || maxSize > 0)) {
+            consumeBoundedContent(result);
+        } else if (StringUtils.isEmpty(destinationFile) || isFailedResume()) {
             String document;
             try {
                 document = IOUtils.toString(httpResponse.getEntity().getContent(), responseCharacterSet);
@@ -81,36 +165,181 @@ public class HttpResponseConsumer {
             }
             result.put(CSHttpClient.RETURN_RESULT, document);
         } else {
-            consumeToDestinationFile();
+            consumeToDestinationFile(result);
         }
     }
 
-    private void consumeToDestinationFile() throws IOException {
-        BufferedReader reader;
-        BufferedWriter fileWriter = null;
-        FileOutputStream fos = null;
+    /**
+     * Keeps the entity in memory up to the 'memoryThreshold' and moves it to a temporary file when it gets bigger.
+     */
+    private void consumeBoundedContent(Map<String, String> result) throws IOException {
+        InputStream content = httpResponse.getEntity().getContent();
+        ByteArrayOutputStream memoryContent = new ByteArrayOutputStream();
+        OutputStream out = memoryContent;
+        File spillFile = null;
+        long size = 0;
         try {
+            byte[] buffer = new byte[BOUNDED_BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                checkSize(size);
+                if (spillFile == null && memoryThreshold > 0 && size > memoryThreshold) {
+                    spillFile = File.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+                    out = new BufferedOutputStream(new FileOutputStream(spillFile));
+                    memoryContent.writeTo(out);
+                    memoryContent = null;
+                }
+                out.write(buffer, 0, read);
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            safeClose(out);
+            if (spillFile != null) {
+                spillFile.delete();
+            }
+            throw e;
+        } finally {
+            safeClose(content);
+        }
+        safeClose(out);
+
+        if (spillFile == null) {
             try {
-                reader = new BufferedReader(new InputStreamReader(httpResponse.getEntity().getContent(), responseCharacterSet));
-                fos = new FileOutputStream(new File(destinationFile));
-                fileWriter = new BufferedWriter(new OutputStreamWriter(fos, responseCharacterSet));
+                result.put(CSHttpClient.RETURN_RESULT, new String(memoryContent.toByteArray(), responseCharacterSet));
             } catch (UnsupportedEncodingException e) {
-                throw new IllegalArgumentException("Could not parse '" + HttpClientInputs.RESPONSE_CHARACTER_SET
-                        + "'. " + e.getMessage(), e);
+                throw new IllegalArgumentException("Could not parse responseCharacterSet. " + e.getMessage(), e);
+            }
+        } else {
+            result.put(CSHttpClient.RETURN_RESULT, "");
+            result.put(CSHttpClient.RESPONSE_BODY_FILE, spillFile.getAbsolutePath());
+        }
+        result.put(CSHttpClient.RESPONSE_BODY_SIZE, String.valueOf(size));
+    }
+
+    private void checkContentLength() throws IOException {
+        long contentLength = httpResponse.getEntity().getContentLength();
+        if (maxSize > 0 && contentLength > maxSize && !isFailedResume()) {
+            throw new IOException("The response entity has " + contentLength + " bytes, more than the "
+                    + maxSize + " bytes allowed by the '" + HttpClientInputs.RESPONSE_BODY_MAX_SIZE + "' input.");
+        }
+    }
+
+    private void checkSize(long size) throws IOException {
+        if (maxSize > 0 && size > maxSize) {
+            throw new IOException("The response entity has more than the " + maxSize + " bytes allowed by the '"
+                    + HttpClientInputs.RESPONSE_BODY_MAX_SIZE + "' input.");
+        }
+    }
+
+    /**
+     * Copies the bytes of the entity as they are, the 'responseCharacterSet' is not used for the destination file.
+     */
+    private void consumeToDestinationFile(Map<String, String> result) throws IOException {
+        MessageDigest messageDigest = createMessageDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        ReadableByteChannel entityChannel = null;
+        RandomAccessFile file = null;
+        try {
+            entityChannel = Channels.newChannel(httpResponse.getEntity().getContent());
+            file = new RandomAccessFile(destinationFile, "rw");
+            FileChannel fileChannel = file.getChannel();
+
+            long position = 0;
+            boolean copyEntity = true;
+            if (resumeDownload) {
+                int statusCode = httpResponse.getStatusLine().getStatusCode();
+                if (statusCode == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                    //the file is already complete
+                    position = fileChannel.size();
+                    copyEntity = false;
+                } else if (statusCode == HttpStatus.SC_PARTIAL_CONTENT) {
+                    position = getContentRangeStart(fileChannel.size());
+                }
             }
-            char[] buffer = new char[1024];
-            int b;
-            while ((b = reader.read(buffer, 0, buffer.length)) != -1) {
-                fileWriter.write(buffer, 0, b);
+            fileChannel.truncate(position);
+            if (messageDigest != null) {
+                digestFileContent(fileChannel, position, buffer, messageDigest);
             }
-            fileWriter.flush();
+
+            fileChannel.position(position);
+            long size = 0;
+            while (copyEntity && entityChannel.read(buffer) != -1) {
+                size += buffer.position();
+                checkSize(size);
+                buffer.flip();
+                if (messageDigest != null) {
+                    messageDigest.update(buffer.array(), buffer.arrayOffset(), buffer.limit());
+                }
+                while (buffer.hasRemaining()) {
+                    fileChannel.write(buffer);
+                }
+                buffer.clear();
+            }
+            fileChannel.force(false);
+            result.put(CSHttpClient.RESPONSE_BODY_SIZE, String.valueOf(size));
         } finally {
-            if (fos != null) {
-                safeClose(fos);
+            safeClose(file);
+            safeClose(entityChannel);
+        }
+        if (messageDigest != null) {
+            result.put(CSHttpClient.CHECKSUM, String.format("%0" + messageDigest.getDigestLength() * 2 + "x",
+                    new BigInteger(1, messageDigest.digest())));
+        }
+    }
+
+    /**
+     * A resumed download that failed must not overwrite the part of the file that was already downloaded.
+     */
+    private boolean isFailedResume() {
+        if (!resumeDownload) {
+            return false;
+        }
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        return statusCode >= HttpStatus.SC_BAD_REQUEST && statusCode != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+    }
+
+    private long getContentRangeStart(long fileSize) throws IOException {
+        Header contentRange = httpResponse.getFirstHeader("Content-Range");
+        Matcher matcher = contentRange != null ? CONTENT_RANGE_PATTERN.matcher(contentRange.getValue().trim()) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new IOException("Could not resume the download of '" + destinationFile
+                    + "'. The response has no valid Content-Range header.");
+        }
+        long start = Long.parseLong(matcher.group(1));
+        if (start > fileSize) {
+            throw new IOException("Could not resume the download of '" + destinationFile + "'. The response starts at byte "
+                    + start + " but the file has only " + fileSize + " bytes.");
+        }
+        return start;
+    }
+
+    private void digestFileContent(FileChannel fileChannel, long size, ByteBuffer buffer, MessageDigest messageDigest) throws IOException {
+        fileChannel.position(0);
+        long remaining = size;
+        while (remaining > 0) {
+            buffer.clear();
+            if (remaining < buffer.capacity()) {
+                buffer.limit((int) remaining);
             }
-            if (fileWriter != null) {
-                safeClose(fileWriter);
+            int read = fileChannel.read(buffer);
+            if (read == -1) {
+                break;
             }
+            messageDigest.update(buffer.array(), buffer.arrayOffset(), read);
+            remaining -= read;
+        }
+        buffer.clear();
+    }
+
+    private MessageDigest createMessageDigest() {
+        if (checksumAlgorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(checksumAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
         }
     }
 
@@ -21,14 +21,17 @@
  *     <br>- the request configuration: This includes connectionTimeout, socketTimeout, followRedirects, proxyHost and proxyPort
  *     <br>- the credentials provider: This will build simple user-password credentials for basic and digest and domain-user-password credentials for ntlm. These will be asociated to the host and port in the url. The same thing will be done for proxyUsername, proxyPassword, proxyHost and  proxyPort.
  *     <br>- the autehntication scheme: The action will register the Apache HTTP Client autentication scheme coresponding to the given authType. This will know how to resopond tu http ww-autenticate challenges. For NTLM it will register not the default Apache scheme but the JCIFS one.
- *     <br>- the cookieStore: This is a memory object that holds all the cookies. It is taken from the session and deserialized (and created if not present). At the end of the execution it will be serialized back into the session. Because of the serializable behaviour it cannot be used in a multithreaded execution. If 'useCookies' is false the cookie store will be lost for each execution.
- *     <br>- the https connection: Apache Http Client uses Java Secure Socket Extension (JSEE) and this supports SSL versions 2.0 and 3.0 and Transport Layer Security (TLS) 1.0. The operation will take into account 'trustAllRoots' , 'keystore', 'keystorePassword', 'trustKeystore' and 'trustPassword'. With trustAllRoots=true you do not need to spcify anything else. Otherwise you may need to import the selfsigned certificates into your default keystore (<OO_Home>/java/lib/security/cacerts)  or the one specified by the 'keystore' input. 'trustKeystore' is for server side https autentication and is less used.
- *     <br>- the connection pool: This will take the connection pool from the 'Global Session' and build it if it does not exist. This will allow reuse of the existing connection. If 'keepAlive' is true the currrent connection will not be closed.
+ *     <br>- the cookieStore: This is a memory object that holds all the cookies. It is taken from the session and decoded (and created if not present). The expired cookies are removed and, at the end of the execution, it will be written back into the session in a compact binary format, only if its cookies changed. Because of the serializable behaviour it cannot be used in a multithreaded execution. If 'useCookies' is false the cookie store will be lost for each execution.
+ *     <br>- the https connection: Apache Http Client uses Java Secure Socket Extension (JSEE) and this supports SSL versions 2.0 and 3.0 and Transport Layer Security (TLS) 1.0. The operation will take into account 'trustAllRoots' , 'keystore', 'keystorePassword', 'trustKeystore' and 'trustPassword'. With trustAllRoots=true you do not need to spcify anything else. Otherwise you may need to import the selfsigned certificates into your default keystore (<OO_Home>/java/lib/security/cacerts)  or the one specified by the 'keystore' input. 'trustKeystore' is for server side https autentication and is less used. The loaded keystores and the resulting SSL socket factory are cached for the whole JVM and reloaded when the keystore file is modified.
+ *     <br>- the connection pool: This will take the connection pool from the 'Global Session' and build it if it does not exist. This will allow reuse of the existing connection. If 'keepAlive' is true the currrent connection will not be closed. A background task closes the expired connections and the connections idle for longer than 'connectionsIdleTimeout', and shuts down the pools not used for longer than 'connectionsPoolUnusedTimeout'. The 'Http Client Connection Pool Statistics' operation shows the state of the pools of a session.
+ *     <br>- the http client: The client built for the connection pool and 'keepAlive' is also kept in the 'Global Session' and reused by the next requests. The credentials, authentication schemes and cookies of each request are given through the request context, so they are not shared between requests.
  *     <br>
  *     <br>The request will be executed.
  *     <br>
  *     <br>And the response will be parsed:
- *     <br>- the entity will be read using the character set specified by the 'responseCharacterSet'. If no 'responseCharacterSet' present, the charset from the content-type from the response headers will be used. Otherwise charset will default to 'ISO_8859_1'. If 'destinationFile' is specified the entity content will go there, if not it will go to the 'returnResult' output.
+ *     <br>- the entity will be read using the character set specified by the 'responseCharacterSet'. If no 'responseCharacterSet' present, the charset from the content-type from the response headers will be used. Otherwise charset will default to 'ISO_8859_1'. If 'destinationFile' is specified the entity content will be copied there byte by byte, without using the character set, if not it will go to the 'returnResult' output. With 'resumeDownload' an existing destination file is completed using an HTTP range request. With 'responseBodyMemoryThreshold' an entity bigger than the threshold is written to a temporary file instead of being kept in memory, and 'responseBodyMaxSize' fails the request as soon as the entity gets bigger than the limit.
+ *     <br>
+ *     <br>The 'Http Client Batch' operation does the same request for a list of URLs, 'parallelism' requests at a time, over the connection pool and the http clients of the session, and returns the status code and the entity of each request as a JSON array.
  *     <br>
  *     <br>
  *     <br>Other notes
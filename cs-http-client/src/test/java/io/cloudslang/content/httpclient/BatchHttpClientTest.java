@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+
+public class BatchHttpClientTest {
+
+    @Test
+    public void buildUrlsFromList() {
+        List<String> urls = BatchHttpClient.buildUrls("http://host/1, http://host/2,", null, null, null);
+        assertEquals(Arrays.asList("http://host/1", "http://host/2"), urls);
+    }
+
+    @Test
+    public void buildUrlsFromTemplate() {
+        List<String> urls = BatchHttpClient.buildUrls(null, "http://host/items/{value}", "a;b", ";");
+        assertEquals(Arrays.asList("http://host/items/a", "http://host/items/b"), urls);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildUrlsFromTemplateWithoutPlaceholder() {
+        BatchHttpClient.buildUrls("", "http://host/items", "a", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidParallelism() {
+        new BatchHttpClient().setParallelism("0");
+    }
+
+    @Test
+    public void executeInParallel() {
+        final CountDownLatch allStarted = new CountDownLatch(3);
+        BatchHttpClient batchHttpClient = new BatchHttpClient() {
+            @Override
+            protected Map<String, String> executeRequest(HttpClientInputs httpClientInputs) {
+                allStarted.countDown();
+                try {
+                    //the requests only finish if they all run at the same time
+                    if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("the requests were not executed in parallel");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (httpClientInputs.getUrl().endsWith("3")) {
+                    throw new IllegalStateException("Connection error");
+                }
+                Map<String, String> result = new HashMap<>();
+                result.put(CSHttpClient.RETURN_RESULT, httpClientInputs.getUrl());
+                result.put(CSHttpClient.STATUS_CODE, "200");
+                result.put(CSHttpClient.RETURN_CODE, CSHttpClient.SUCCESS);
+                return result;
+            }
+        };
+        HttpClientInputs httpClientInputs = new HttpClientInputs();
+        List<String> urls = Arrays.asList("http://host/1", "http://host/2", "http://host/3");
+
+        List<Map<String, String>> results = batchHttpClient.setParallelism("3").execute(httpClientInputs, urls);
+
+        assertEquals(3, results.size());
+        assertEquals("http://host/1", results.get(0).get(CSHttpClient.RETURN_RESULT));
+        assertEquals("http://host/2", results.get(1).get(CSHttpClient.RETURN_RESULT));
+        assertEquals("Connection error", results.get(2).get(CSHttpClient.RETURN_RESULT));
+        assertEquals(2, BatchHttpClient.countSuccesses(results));
+        assertEquals("3", httpClientInputs.getConnectionsMaxPerRoute());
+        assertNotNull(httpClientInputs.getConnectionPoolSessionObject());
+        assertNotNull(httpClientInputs.getHttpClientSessionObject());
+    }
+
+    @Test
+    public void toJson() {
+        Map<String, String> success = new HashMap<>();
+        success.put(CSHttpClient.RETURN_RESULT, "{\"a\":\"b\"}\r\n");
+        success.put(CSHttpClient.STATUS_CODE, "200");
+        success.put(CSHttpClient.RETURN_CODE, CSHttpClient.SUCCESS);
+        Map<String, String> failure = new HashMap<>();
+        failure.put(CSHttpClient.RETURN_RESULT, "Connection error");
+        failure.put(CSHttpClient.RETURN_CODE, "-1");
+
+        String json = BatchHttpClient.toJson(Arrays.asList("http://host/1", "http://host/2"), Arrays.asList(success, failure));
+
+        assertEquals("[{\"url\":\"http:\\/\\/host\\/1\",\"returnCode\":0,\"statusCode\":200,\"returnResult\":\"{\\\"a\\\":\\\"b\\\"}\\r\\n\"},"
+                + "{\"url\":\"http:\\/\\/host\\/2\",\"returnCode\":-1,\"returnResult\":\"Connection error\"}]", json);
+    }
+}
@@ -13,13 +13,17 @@ package io.cloudslang.content.httpclient.build;
 import com.hp.oo.sdk.content.plugin.SerializableSessionObject;
 import org.apache.http.client.CookieStore;
 import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.cookie.BasicClientCookie;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Date;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -79,4 +83,56 @@ public class CookieStoreBuilderTest {
 
         assertNull(cookieStore);
     }
+
+    @Test
+    public void buildCookieStoreFromJavaSerialization() throws IOException {
+        BasicCookieStore basicCookieStore = new BasicCookieStore();
+        basicCookieStore.addCookie(new BasicClientCookie("session", "abc"));
+        SerializableSessionObject sessionObjectHolder = new SerializableSessionObject();
+        sessionObjectHolder.setValue(CookieStoreBuilder.serialize(basicCookieStore));
+        CookieStore cookieStore = cookieStoreBuilder
+                .setCookieStoreSessionObject(sessionObjectHolder)
+                .buildCookieStore();
+
+        assertEquals(1, cookieStore.getCookies().size());
+        assertEquals("abc", cookieStore.getCookies().get(0).getValue());
+        CookieStoreBuilder.saveCookieStore(cookieStore, sessionObjectHolder);
+        assertTrue(SessionCookieStore.isEncoded((byte[]) sessionObjectHolder.getValue()));
+    }
+
+    @Test
+    public void saveCookieStoreOnlyWhenChanged() throws IOException {
+        SessionCookieStore sessionCookieStore = new SessionCookieStore();
+        sessionCookieStore.addCookie(new BasicClientCookie("session", "abc"));
+        SerializableSessionObject sessionObjectHolder = new SerializableSessionObject();
+        sessionObjectHolder.setValue(sessionCookieStore.encode());
+        CookieStore cookieStore = cookieStoreBuilder
+                .setCookieStoreSessionObject(sessionObjectHolder)
+                .buildCookieStore();
+
+        byte[] savedValue = (byte[]) sessionObjectHolder.getValue();
+        CookieStoreBuilder.saveCookieStore(cookieStore, sessionObjectHolder);
+        assertSame(savedValue, sessionObjectHolder.getValue());
+
+        cookieStore.addCookie(new BasicClientCookie("id", "1"));
+        CookieStoreBuilder.saveCookieStore(cookieStore, sessionObjectHolder);
+        assertEquals(2, SessionCookieStore.decode((byte[]) sessionObjectHolder.getValue()).getCookies().size());
+    }
+
+    @Test
+    public void buildCookieStoreRemovesExpiredCookies() throws IOException {
+        SessionCookieStore sessionCookieStore = new SessionCookieStore();
+        BasicClientCookie expiredCookie = new BasicClientCookie("session", "abc");
+        expiredCookie.setExpiryDate(new Date(System.currentTimeMillis() - 1000));
+        sessionCookieStore.addCookie(expiredCookie);
+        SerializableSessionObject sessionObjectHolder = new SerializableSessionObject();
+        sessionObjectHolder.setValue(sessionCookieStore.encode());
+        CookieStore cookieStore = cookieStoreBuilder
+                .setCookieStoreSessionObject(sessionObjectHolder)
+                .buildCookieStore();
+
+        assertEquals(0, cookieStore.getCookies().size());
+        CookieStoreBuilder.saveCookieStore(cookieStore, sessionObjectHolder);
+        assertEquals(0, SessionCookieStore.decode((byte[]) sessionObjectHolder.getValue()).getCookies().size());
+    }
 }
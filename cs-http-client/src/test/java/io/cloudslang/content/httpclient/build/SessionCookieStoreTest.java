@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build;
+
+import org.apache.http.cookie.ClientCookie;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.impl.cookie.BasicClientCookie2;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class SessionCookieStoreTest {
+
+    private SessionCookieStore cookieStore;
+
+    @Before
+    public void setUp() {
+        cookieStore = new SessionCookieStore();
+    }
+
+    @Test
+    public void encodeAndDecode() throws IOException {
+        BasicClientCookie cookie = new BasicClientCookie("session", "abc");
+        cookie.setDomain("host.com");
+        cookie.setPath("/app");
+        cookie.setExpiryDate(new Date(System.currentTimeMillis() + 60000));
+        cookie.setSecure(true);
+        cookie.setAttribute(ClientCookie.DOMAIN_ATTR, "host.com");
+        BasicClientCookie2 cookie2 = new BasicClientCookie2("id", null);
+        cookie2.setDomain("host.com");
+        cookie2.setPorts(new int[]{80, 8080});
+        cookie2.setCommentURL("http://host.com/cookies");
+        cookie2.setVersion(1);
+        cookieStore.addCookie(cookie);
+        cookieStore.addCookie(cookie2);
+
+        byte[] bytes = cookieStore.encode();
+        assertTrue(SessionCookieStore.isEncoded(bytes));
+        SessionCookieStore decodedCookieStore = SessionCookieStore.decode(bytes);
+
+        assertFalse(decodedCookieStore.isDirty());
+        assertEquals(2, decodedCookieStore.getCookies().size());
+        //the store keeps the cookies sorted by name
+        Cookie decodedCookie = decodedCookieStore.getCookies().get(1);
+        assertEquals("session", decodedCookie.getName());
+        assertEquals("abc", decodedCookie.getValue());
+        assertEquals("/app", decodedCookie.getPath());
+        assertEquals(cookie.getExpiryDate(), decodedCookie.getExpiryDate());
+        assertTrue(decodedCookie.isSecure());
+        assertEquals("host.com", ((ClientCookie) decodedCookie).getAttribute(ClientCookie.DOMAIN_ATTR));
+        assertNull(((ClientCookie) decodedCookie).getAttribute(ClientCookie.PATH_ATTR));
+        Cookie decodedCookie2 = decodedCookieStore.getCookies().get(0);
+        assertTrue(decodedCookie2 instanceof BasicClientCookie2);
+        assertNull(decodedCookie2.getValue());
+        assertTrue(Arrays.equals(new int[]{80, 8080}, decodedCookie2.getPorts()));
+        assertEquals("http://host.com/cookies", decodedCookie2.getCommentURL());
+        assertEquals(1, decodedCookie2.getVersion());
+    }
+
+    @Test
+    public void dirtyAfterChanges() {
+        assertFalse(cookieStore.isDirty());
+        long now = System.currentTimeMillis();
+        BasicClientCookie cookie = new BasicClientCookie("session", "abc");
+        cookie.setExpiryDate(new Date(now + 60000));
+        cookieStore.addCookie(cookie);
+        assertTrue(cookieStore.isDirty());
+
+        cookieStore.setDirty(false);
+        assertFalse(cookieStore.clearExpired(new Date(now)));
+        assertFalse(cookieStore.isDirty());
+        assertTrue(cookieStore.clearExpired(new Date(now + 120000)));
+        assertTrue(cookieStore.isDirty());
+    }
+
+    @Test(expected = IOException.class)
+    public void decodeUnknownFormat() throws IOException {
+        SessionCookieStore.decode(new byte[]{1, 2, 3, 4, 5});
+    }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build.conn;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedEntry() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.get("key1");
+        cache.put("key3", "value3");
+
+        assertEquals(2, cache.size());
+        assertEquals("value1", cache.get("key1"));
+        assertNull(cache.get("key2"));
+        assertEquals("value3", cache.get("key3"));
+    }
+
+    @Test
+    public void clear() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.put("key1", "value1");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("key1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMaxEntries() {
+        new BoundedCache<String, String>(0);
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build.conn;
+
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+
+public class CloseableHttpClientBuilderTest {
+
+    private final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+
+    @Test
+    public void buildHttpClientWithoutHolder() {
+        CloseableHttpClient httpClient = new CloseableHttpClientBuilder()
+                .setHttpClientMapKey("key1", "key2")
+                .setConnectionManager(connectionManager)
+                .buildHttpClient();
+        assertNotNull(httpClient);
+    }
+
+    @Test
+    public void buildHttpClientReusesClientForSameKey() {
+        GlobalSessionObject holder = new GlobalSessionObject();
+        CloseableHttpClient first = buildHttpClient(holder, connectionManager, "true");
+        CloseableHttpClient second = buildHttpClient(holder, connectionManager, "");
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void buildHttpClientForDifferentKeepAlive() {
+        GlobalSessionObject holder = new GlobalSessionObject();
+        CloseableHttpClient first = buildHttpClient(holder, connectionManager, "true");
+        CloseableHttpClient second = buildHttpClient(holder, connectionManager, "false");
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void buildHttpClientForReplacedConnectionManager() {
+        GlobalSessionObject holder = new GlobalSessionObject();
+        CloseableHttpClient first = buildHttpClient(holder, connectionManager, "true");
+        CloseableHttpClient second = buildHttpClient(holder, new PoolingHttpClientConnectionManager(), "true");
+
+        assertNotSame(first, second);
+    }
+
+    private CloseableHttpClient buildHttpClient(GlobalSessionObject holder, PoolingHttpClientConnectionManager connManager,
+                                                String keepAlive) {
+        return new CloseableHttpClientBuilder()
+                .setHttpClientMapKey("key1", "key2")
+                .setHttpClientHolder(holder)
+                .setConnectionManager(connManager)
+                .setKeepAlive(keepAlive)
+                .buildHttpClient();
+    }
+}
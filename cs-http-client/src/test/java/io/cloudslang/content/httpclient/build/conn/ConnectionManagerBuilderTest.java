@@ -11,7 +11,6 @@
 package io.cloudslang.content.httpclient.build.conn;
 
 import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
-import com.hp.oo.sdk.content.plugin.SessionResource;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.junit.Test;
@@ -19,9 +18,6 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import static junit.framework.Assert.*;
 
 /**
@@ -33,8 +29,6 @@ public class ConnectionManagerBuilderTest {
 
     @Mock
     private SSLConnectionSocketFactory sslConnectionSocketFactoryMock;
-    @Mock
-    private PoolingHttpClientConnectionManager connectionManagerMock;
 
     @Test
     public void buildConnectionManagerWithoutPoolHolder() {
@@ -55,25 +49,60 @@ public class ConnectionManagerBuilderTest {
     }
 
     @Test
-    public void buildConnectionManagerNewConnectionManager1() {
+    public void buildConnectionManagerExistingConnectionManager() {
         GlobalSessionObject holder = new GlobalSessionObject();
-        final Map<String, PoolingHttpClientConnectionManager> connectionManagerMap = new HashMap();
-        connectionManagerMap.put("key1:key2", connectionManagerMock);
-        holder.setResource(new SessionResource() {
-            @Override
-            public Object get() {
-                return connectionManagerMap;
-            }
+        PoolingHttpClientConnectionManager connectionManager = buildConnectionManager(holder, "key2", "5", "30");
+        PoolingHttpClientConnectionManager connectionManager1 = buildConnectionManager(holder, "key2", "5", "30");
+        assertSame(connectionManager, connectionManager1);
+        assertEquals(5, connectionManager1.getDefaultMaxPerRoute());
+        assertEquals(30, connectionManager1.getMaxTotal());
+        assertEquals(1, ((ConnectionPoolRegistry) holder.get()).size());
+    }
 
-            @Override
-            public void release() {
-            }
-        });
-        PoolingHttpClientConnectionManager connectionManager = new ConnectionManagerBuilder()
+    @Test
+    public void buildConnectionManagerDifferentKey() {
+        GlobalSessionObject holder = new GlobalSessionObject();
+        PoolingHttpClientConnectionManager connectionManager = buildConnectionManager(holder, "key2", null, null);
+        PoolingHttpClientConnectionManager connectionManager1 = buildConnectionManager(holder, "key3", null, null);
+        assertNotSame(connectionManager, connectionManager1);
+        assertEquals(2, ((ConnectionPoolRegistry) holder.get()).size());
+    }
+
+    @Test
+    public void buildConnectionManagerChangedLimits() {
+        GlobalSessionObject holder = new GlobalSessionObject();
+        buildConnectionManager(holder, "key2", "5", "30");
+        PoolingHttpClientConnectionManager connectionManager = buildConnectionManager(holder, "key2", "10", "40");
+        assertEquals(10, connectionManager.getDefaultMaxPerRoute());
+        assertEquals(40, connectionManager.getMaxTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildConnectionManagerInvalidIdleTimeout() {
+        new ConnectionManagerBuilder()
                 .setConnectionManagerMapKey("key1", "key2")
                 .setSslsf(sslConnectionSocketFactoryMock)
+                .setConnectionPoolHolder(new GlobalSessionObject())
+                .setIdleTimeout("-1")
+                .buildConnectionManager();
+    }
+
+    @Test
+    public void releaseShutsDownConnectionManagers() {
+        GlobalSessionObject holder = new GlobalSessionObject();
+        buildConnectionManager(holder, "key2", null, null);
+        holder.getResource().release();
+        assertEquals(0, ((ConnectionPoolRegistry) holder.get()).size());
+    }
+
+    private PoolingHttpClientConnectionManager buildConnectionManager(GlobalSessionObject holder, String key,
+                                                                      String maxPerRoute, String totalMax) {
+        return new ConnectionManagerBuilder()
+                .setConnectionManagerMapKey("key1", key)
+                .setSslsf(sslConnectionSocketFactoryMock)
                 .setConnectionPoolHolder(holder)
+                .setDefaultMaxPerRoute(maxPerRoute)
+                .setTotalMax(totalMax)
                 .buildConnectionManager();
-        assertEquals(connectionManagerMock, connectionManager);
     }
 }
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.httpclient.build.conn;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.SortedMap;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionPoolRegistryTest {
+
+    @Mock
+    private SSLConnectionSocketFactory sslConnectionSocketFactoryMock;
+    private ConnectionPoolRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new ConnectionPoolRegistry();
+    }
+
+    @Test
+    public void getConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = registry.getConnectionManager("key", sslConnectionSocketFactoryMock);
+        assertSame(connectionManager, registry.getConnectionManager("key", sslConnectionSocketFactoryMock));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void evictUnusedConnectionManager() throws InterruptedException {
+        PoolingHttpClientConnectionManager connectionManager = registry.getConnectionManager("key", sslConnectionSocketFactoryMock);
+        registry.setUnusedTimeout(1);
+        Thread.sleep(10);
+        registry.evict();
+
+        assertEquals(0, registry.size());
+        assertNotSame(connectionManager, registry.getConnectionManager("key", sslConnectionSocketFactoryMock));
+    }
+
+    @Test
+    public void evictKeepsRecentlyUsedConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = registry.getConnectionManager("key", sslConnectionSocketFactoryMock);
+        registry.setUnusedTimeout(60000);
+        registry.evict();
+
+        assertSame(connectionManager, registry.getConnectionManager("key", sslConnectionSocketFactoryMock));
+    }
+
+    @Test
+    public void getPoolStats() {
+        registry.getConnectionManager("key1", sslConnectionSocketFactoryMock).setMaxTotal(10);
+        registry.getConnectionManager("key2", sslConnectionSocketFactoryMock);
+
+        SortedMap<String, PoolStats> poolStats = registry.getPoolStats();
+        assertEquals(2, poolStats.size());
+        assertEquals("key1", poolStats.firstKey());
+        assertEquals(10, poolStats.get("key1").getMax());
+        assertEquals(0, poolStats.get("key1").getLeased());
+    }
+
+    @Test
+    public void scheduleEvictionReschedulesOnNewInterval() {
+        registry.scheduleEviction(60000);
+        assertEquals(60000, registry.getEvictionInterval());
+
+        registry.scheduleEviction(30000);
+        assertEquals(30000, registry.getEvictionInterval());
+
+        registry.scheduleEviction(0);
+        assertEquals(0, registry.getEvictionInterval());
+    }
+
+    @Test
+    public void shutdown() {
+        registry.getConnectionManager("key", sslConnectionSocketFactoryMock);
+        registry.scheduleEviction(60000);
+        registry.shutdown();
+
+        assertEquals(0, registry.size());
+    }
+}
@@ -11,6 +11,7 @@
 package io.cloudslang.content.httpclient.build.conn;
 
 import org.apache.http.conn.ssl.*;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -27,7 +28,9 @@ import java.security.KeyStore;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertSame;
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.*;
@@ -62,6 +65,11 @@ public class SSLConnectionSocketFactoryBuilderTest {
     @Mock
     private InputStream inputStreamMock;
 
+    @Before
+    public void setUp() {
+        SSLConnectionSocketFactoryBuilder.clearCache();
+    }
+
     @Test
     public void build() throws Exception {
         builder = new SSLConnectionSocketFactoryBuilder() {
@@ -119,6 +127,41 @@ public class SSLConnectionSocketFactoryBuilderTest {
         assertEquals(sslsfMock, sslsf);
     }
 
+    @Test
+    public void buildReturnsCachedSocketFactory() throws Exception {
+        mockStatic(SSLContexts.class);
+        when(SSLContexts.custom()).thenReturn(sslContextBuilderMock);
+        when(sslContextBuilderMock.build()).thenReturn(sslCtxMock);
+        prepareSSLConnectionSocketFactory();
+
+        SSLConnectionSocketFactory first = new SSLConnectionSocketFactoryBuilder().setTrustAllRoots("true").build();
+        SSLConnectionSocketFactory second = new SSLConnectionSocketFactoryBuilder().setTrustAllRoots("true").build();
+
+        assertSame(first, second);
+        verifyNew(SSLConnectionSocketFactory.class, times(1))
+                .withArguments(isA(SSLContext.class), isA(String[].class), isNull(), isA(X509HostnameVerifier.class));
+    }
+
+    @Test
+    public void loadKeyStoreFromCache() throws Exception {
+        final int[] loads = {0};
+        builder = new SSLConnectionSocketFactoryBuilder() {
+            @Override
+            protected KeyStore createKeyStore(final URL url, final String password) {
+                loads[0]++;
+                return keyStoreMock;
+            }
+        };
+        URL keystoreUrl = new URL("file:" + KEYSTORE);
+
+        assertSame(keyStoreMock, builder.loadKeyStore(keystoreUrl, PASSWORD));
+        assertSame(keyStoreMock, builder.loadKeyStore(keystoreUrl, PASSWORD));
+        assertEquals(1, loads[0]);
+
+        builder.loadKeyStore(keystoreUrl, "otherPassword");
+        assertEquals(2, loads[0]);
+    }
+
     @Test
     public void createTrustKeystore() throws Exception {
         builder = new SSLConnectionSocketFactoryBuilder() {
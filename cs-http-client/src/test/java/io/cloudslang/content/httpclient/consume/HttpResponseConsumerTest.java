@@ -10,30 +10,36 @@
 
 package io.cloudslang.content.httpclient.consume;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.Consts;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicStatusLine;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.*;
-import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
-import static org.mockito.Matchers.*;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
-import static org.powermock.api.mockito.PowerMockito.whenNew;
 
 
 /**
@@ -46,15 +52,17 @@ public class HttpResponseConsumerTest {
 
     private static final String CONTENT_TYPE = "text/plain;charset=UTF-8";
     private static final String RETURN_RESULT = "returnResult";
+    private static final String CHECKSUM = "checksum";
+    private static final String RESPONSE_BODY_SIZE = "responseBodySize";
+    private static final String RESPONSE_BODY_FILE = "responseBodyFile";
+    private static final String SHA_256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
     private HttpResponseConsumer httpResponseConsumer;
     @Mock
     private HttpResponse httpResponseMock;
     @Mock
     private InputStream inputStreamMock;
-    @Mock
-    private BufferedReader bufferedReaderMock;
-    @Mock
-    private InputStreamReader inputStreamReaderMock;
     private Map<String, String> result;
 
     @Before
@@ -99,29 +107,205 @@ public class HttpResponseConsumerTest {
 
     @Test
     public void consumeWithDestinationFile() throws Exception {
-        setHttpResponseEntity(CONTENT_TYPE);
-
-        whenNew(InputStreamReader.class).withArguments(anyObject(), anyString()).thenReturn(inputStreamReaderMock);
-        whenNew(BufferedReader.class).withArguments(inputStreamReaderMock).thenReturn(bufferedReaderMock);
-        when(bufferedReaderMock.read((char[]) anyObject(), anyInt(), anyInt())).thenReturn(-1);
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream(new byte[]{(byte) 0xC3, 0x00, (byte) 0xFF}));
 
+        File file = temporaryFolder.newFile("test.bin");
         httpResponseConsumer
                 .setHttpResponse(httpResponseMock)
-                .setDestinationFile("test.txt")
+                .setDestinationFile(file.getAbsolutePath())
                 .setResponseCharacterSet(null)
                 .consume(result);
 
-        File file = new File("test.txt");
-        file.delete();
         assertNull(result.get(RETURN_RESULT));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xC3, 0x00, (byte) 0xFF}, FileUtils.readFileToByteArray(file)));
+    }
+
+    @Test
+    public void consumeWithDestinationFileAndChecksum() throws Exception {
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("abc".getBytes(Consts.ASCII)));
+
+        File file = temporaryFolder.newFile("test.txt");
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setDestinationFile(file.getAbsolutePath())
+                .setBufferSize("2")
+                .setChecksumAlgorithm("sha-256")
+                .consume(result);
+
+        assertEquals("abc", FileUtils.readFileToString(file));
+        assertEquals(SHA_256_ABC, result.get(CHECKSUM));
+    }
+
+    @Test
+    public void consumeResumedDownload() throws Exception {
+        File file = temporaryFolder.newFile("test.txt");
+        FileUtils.writeStringToFile(file, "ab");
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("c".getBytes(Consts.ASCII)));
+        setStatusCode(HttpStatus.SC_PARTIAL_CONTENT);
+        when(httpResponseMock.getFirstHeader("Content-Range")).thenReturn(new HeaderEntity("Content-Range", "bytes 2-2/3"));
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setDestinationFile(file.getAbsolutePath())
+                .setResumeDownload("true")
+                .setChecksumAlgorithm("SHA-256")
+                .consume(result);
+
+        assertEquals("abc", FileUtils.readFileToString(file));
+        assertEquals(SHA_256_ABC, result.get(CHECKSUM));
+    }
+
+    @Test
+    public void consumeResumedDownloadNotSupportedByServer() throws Exception {
+        File file = temporaryFolder.newFile("test.txt");
+        FileUtils.writeStringToFile(file, "xy");
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("abc".getBytes(Consts.ASCII)));
+        setStatusCode(HttpStatus.SC_OK);
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setDestinationFile(file.getAbsolutePath())
+                .setResumeDownload("true")
+                .consume(result);
+
+        assertEquals("abc", FileUtils.readFileToString(file));
+    }
+
+    @Test
+    public void consumeResumedDownloadOfCompleteFile() throws Exception {
+        File file = temporaryFolder.newFile("test.txt");
+        FileUtils.writeStringToFile(file, "abc");
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("error".getBytes(Consts.ASCII)));
+        setStatusCode(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setDestinationFile(file.getAbsolutePath())
+                .setResumeDownload("true")
+                .setChecksumAlgorithm("SHA-256")
+                .consume(result);
+
+        assertEquals("abc", FileUtils.readFileToString(file));
+        assertEquals(SHA_256_ABC, result.get(CHECKSUM));
+    }
+
+    @Test
+    public void consumeFailedResumedDownload() throws Exception {
+        File file = temporaryFolder.newFile("test.txt");
+        FileUtils.writeStringToFile(file, "ab");
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("error".getBytes(Consts.ASCII)));
+        setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE);
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setDestinationFile(file.getAbsolutePath())
+                .setResumeDownload("true")
+                .consume(result);
+
+        assertEquals("ab", FileUtils.readFileToString(file));
+        assertEquals("error", result.get(RETURN_RESULT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidChecksumAlgorithm() {
+        httpResponseConsumer.setChecksumAlgorithm("SHA-1");
+    }
+
+    @Test
+    public void consumeBelowMemoryThreshold() throws Exception {
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("abc".getBytes(Consts.ASCII)));
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setMemoryThreshold("3")
+                .consume(result);
+
+        assertEquals("abc", result.get(RETURN_RESULT));
+        assertEquals("3", result.get(RESPONSE_BODY_SIZE));
+        assertNull(result.get(RESPONSE_BODY_FILE));
+    }
+
+    @Test
+    public void consumeAboveMemoryThreshold() throws Exception {
+        byte[] content = new byte[20000];
+        Arrays.fill(content, (byte) 'a');
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream(content));
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setMemoryThreshold("10000")
+                .consume(result);
+
+        File responseBodyFile = new File(result.get(RESPONSE_BODY_FILE));
+        try {
+            assertEquals("", result.get(RETURN_RESULT));
+            assertEquals("20000", result.get(RESPONSE_BODY_SIZE));
+            assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(responseBodyFile)));
+        } finally {
+            responseBodyFile.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void consumeAboveMaxSizeByContentLength() throws Exception {
+        InputStream content = new ByteArrayInputStream("abcd".getBytes(Consts.ASCII));
+        setHttpResponseEntity(CONTENT_TYPE, content).setContentLength(4);
+
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setMaxSize("3")
+                .consume(result);
+    }
+
+    @Test
+    public void consumeAboveMaxSize() throws Exception {
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("abcd".getBytes(Consts.ASCII)));
+
+        try {
+            httpResponseConsumer
+                    .setHttpResponse(httpResponseMock)
+                    .setMaxSize("3")
+                    .consume(result);
+            fail("the response entity is bigger than the max size");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("responseBodyMaxSize"));
+        }
+        assertNull(result.get(RETURN_RESULT));
+    }
+
+    @Test(expected = IOException.class)
+    public void consumeAboveMaxSizeToDestinationFile() throws Exception {
+        setHttpResponseEntity(CONTENT_TYPE, new ByteArrayInputStream("abcd".getBytes(Consts.ASCII)));
+
+        File file = temporaryFolder.newFile("test.txt");
+        httpResponseConsumer
+                .setHttpResponse(httpResponseMock)
+                .setDestinationFile(file.getAbsolutePath())
+                .setBufferSize("2")
+                .setMaxSize("3")
+                .consume(result);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMemoryThreshold() {
+        httpResponseConsumer.setMemoryThreshold("-1");
+    }
+
+    private void setStatusCode(int statusCode) {
+        when(httpResponseMock.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, null));
     }
 
     private void setHttpResponseEntity(String contentType) {
+        setHttpResponseEntity(contentType, inputStreamMock);
+    }
+
+    private BasicHttpEntity setHttpResponseEntity(String contentType, InputStream content) {
         BasicHttpEntity entity = new BasicHttpEntity();
-        entity.setContent(inputStreamMock);
+        entity.setContent(content);
         Header contentTypeHeader = new HeaderEntity("Content-Type", contentType);
         entity.setContentType(contentTypeHeader);
         when(httpResponseMock.getEntity()).thenReturn(entity);
+        return entity;
     }
 
 }
@@ -74,6 +74,24 @@ public class PowerShellScriptAction {
      *                             Default value is 'en-US'.
      * @param operationTimeout     Defines the OperationTimeout value in seconds to indicate that the clients expect a response or a fault within the specified time.
      *                             Default value is '60'.
+     * @param reuseShell           Specifies whether the remote shell is kept open after the script for the next scripts sent to the same host with the same
+     *                             credentials. A reused shell saves the creation and the deletion of the shell.
+     *                             Valid values are 'true' and 'false'.
+     *                             Default value is 'false'.
+     * @param maxShellsPerHost     The maximum number of shells kept open for a host and user when reuseShell is 'true', each shell runs one script at a time.
+     *                             It should not exceed the MaxShellsPerUser setting of the WinRM server.
+     *                             Default value is '5'.
+     * @param shellMaxIdleTime     The time in seconds after which an unused shell is deleted when reuseShell is 'true'. It should be lower than the
+     *                             IdleTimeout setting of the WinRM shells on the server.
+     *                             Default value is '60'.
+     * @param stdoutFile           The path of a local file the whole stdout of the script is written to, as it is received. When it is set, the
+     *                             returnResult output only holds the last outputTailSize bytes of the stdout, stdoutTruncated tells whether
+     *                             some of it was left out and stdoutSize gives the size of the whole stdout. An existing file is overwritten.
+     * @param stderrFile           The path of a local file the whole stderr of the script is written to, as it is received. When it is set, the
+     *                             stderr output only holds the last outputTailSize bytes of the stderr, stderrTruncated tells whether
+     *                             some of it was left out and stderrSize gives the size of the whole stderr. An existing file is overwritten.
+     * @param outputTailSize       The number of bytes of a stream written to stdoutFile or stderrFile that are kept for the outputs.
+     *                             Default value is '65536'.
      * @return
      */
     @Action(name = "PowerShell Script Action",
@@ -82,6 +100,12 @@ public class PowerShellScriptAction {
                     @Output(RETURN_RESULT),
                     @Output(STDERR),
                     @Output(SCRIPT_EXIT_CODE),
+                    @Output(RECEIVE_POLLS),
+                    @Output(RECEIVE_POLLS_WITH_DATA),
+                    @Output(STDOUT_SIZE),
+                    @Output(STDOUT_TRUNCATED),
+                    @Output(STDERR_SIZE),
+                    @Output(STDERR_TRUNCATED),
                     @Output(EXCEPTION)
             },
             responses = {
@@ -112,7 +136,13 @@ public class PowerShellScriptAction {
             @Param(value = MAX_ENVELOP_SIZE) String maxEnvelopeSize,
             @Param(value = INPUT_SCRIPT, required = true) String script,
             @Param(value = WINRM_LOCALE) String winrmLocale,
-            @Param(value = OPERATION_TIMEOUT) String operationTimeout
+            @Param(value = OPERATION_TIMEOUT) String operationTimeout,
+            @Param(value = REUSE_SHELL) String reuseShell,
+            @Param(value = MAX_SHELLS_PER_HOST) String maxShellsPerHost,
+            @Param(value = SHELL_MAX_IDLE_TIME) String shellMaxIdleTime,
+            @Param(value = STDOUT_FILE) String stdoutFile,
+            @Param(value = STDERR_FILE) String stderrFile,
+            @Param(value = OUTPUT_TAIL_SIZE) String outputTailSize
     ) {
         Map<String, String> resultMap = new HashMap<>();
         try {
@@ -142,6 +172,12 @@ public class PowerShellScriptAction {
                     .withScript(script)
                     .withWinrmLocale(winrmLocale)
                     .withOperationTimeout(operationTimeout)
+                    .withReuseShell(reuseShell)
+                    .withMaxShellsPerHost(maxShellsPerHost)
+                    .withShellMaxIdleTime(shellMaxIdleTime)
+                    .withStdoutFile(stdoutFile)
+                    .withStderrFile(stderrFile)
+                    .withOutputTailSize(outputTailSize)
                     .build();
 
             resultMap = wsManRemoteShellService.runCommand(wsManRequestInputs);
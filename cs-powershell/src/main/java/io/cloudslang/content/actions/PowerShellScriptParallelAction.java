@@ -0,0 +1,200 @@
+package io.cloudslang.content.actions;
+
+import com.hp.oo.sdk.content.annotations.Action;
+import com.hp.oo.sdk.content.annotations.Output;
+import com.hp.oo.sdk.content.annotations.Param;
+import com.hp.oo.sdk.content.annotations.Response;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.MatchType;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.ResponseType;
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import io.cloudslang.content.entities.InputDefaults;
+import io.cloudslang.content.entities.WSManRequestInputs;
+import io.cloudslang.content.services.ParallelScriptService;
+import io.cloudslang.content.utils.Constants;
+import io.cloudslang.content.utils.WSManUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.cloudslang.content.httpclient.HttpClientInputs.*;
+import static io.cloudslang.content.utils.Constants.InputNames.*;
+import static io.cloudslang.content.utils.Constants.OutputNames.*;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_FAILURE;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_SUCCESS;
+
+public class PowerShellScriptParallelAction {
+
+    // each host uses one connection at a time, a second one is kept for the requests that overlap
+    private static final int CONNECTIONS_PER_HOST = 2;
+
+    /**
+     * Executes a PowerShell script on several remote hosts at the same time.
+     *
+     * @param hosts                The hostnames or ip addresses of the remote hosts, separated by hostDelimiter.
+     * @param hostDelimiter        The delimiter of the hosts list.
+     *                             Default value is ','.
+     * @param port                 The port to use when connecting to the remote WinRM servers.
+     * @param protocol             The protocol to use when connecting to the remote server.
+     *                             Valid values are 'HTTP' and 'HTTPS'.
+     *                             Default value is 'HTTPS'.
+     * @param username             The username used to connect to the remote machine.
+     * @param password             The password used to connect to the remote machine.
+     * @param proxyHost            The proxy server used to access the remote host.
+     * @param proxyPort            The proxy server port.
+     * @param proxyUsername        The username used when connecting to the proxy.
+     * @param proxyPassword        The password used when connecting to the proxy.
+     * @param trustAllRoots        Specifies whether to enable weak security over SSL/TSL. A certificate is trusted even if no trusted certification authority issued it.
+     *                             Default value is 'false'.
+     *                             Valid values are 'true' and 'false'.
+     * @param x509HostnameVerifier Specifies the way the server hostname must match a domain name in the subject's Common Name (CN) or subjectAltName field of the
+     *                             X.509 certificate. The hostname verification system prevents communication with other hosts other than the ones you intended.
+     *                             This is done by checking that the hostname is in the subject alternative name extension of the certificate. This system is
+     *                             designed to ensure that, if an attacker(Man In The Middle) redirects traffic to his machine, the client will not accept the
+     *                             connection. If you set this input to "allow_all", this verification is ignored and you become vulnerable to security attacks.
+     *                             For the value "browser_compatible" the hostname verifier works the same way as Curl and Firefox. The hostname must match
+     *                             either the first CN, or any of the subject-alts. A wildcard can occur in the CN, and in any of the subject-alts. The only
+     *                             difference between "browser_compatible" and "strict" is that a wildcard (such as "*.foo.com") with "browser_compatible" matches
+     *                             all subdomains, including "a.b.foo.com". From the security perspective, to provide protection against possible Man-In-The-Middle
+     *                             attacks, we strongly recommend to use "strict" option.
+     *                             Valid values are 'strict', 'browser_compatible', 'allow_all'.
+     *                             Default value is 'strict'.
+     * @param trustKeystore        The pathname of the Java TrustStore file. This contains certificates from other parties that you expect to communicate with, or from
+     *                             Certificate Authorities that you trust to identify other parties.  If the protocol selected is not 'https' or if trustAllRoots
+     *                             is 'true' this input is ignored.
+     *                             Format of the keystore is Java KeyStore (JKS).
+     * @param trustPassword        The password associated with the TrustStore file. If trustAllRoots is false and trustKeystore is empty, trustPassword default will be supplied.
+     *                             Default value is 'changeit'.
+     * @param keystore             The pathname of the Java KeyStore file. You only need this if the server requires client authentication. If the protocol selected is not
+     *                             'https' or if trustAllRoots is 'true' this input is ignored.
+     *                             Format of the keystore is Java KeyStore (JKS).
+     * @param keystorePassword     The password associated with the KeyStore file. If trustAllRoots is false and keystore is empty, keystorePassword default will be supplied.
+     *                             Default value is 'changeit'.
+     * @param maxEnvelopeSize      The maximum size of a SOAP packet in bytes for all stream content.
+     *                             Default value is '153600'.
+     * @param script               The PowerShell script that will be executed on the remote shell of each host.
+     * @param winrmLocale          The WinRM locale to use.
+     *                             Default value is 'en-US'.
+     * @param operationTimeout     Defines the OperationTimeout value in seconds to indicate that the clients expect a response or a fault within the specified time.
+     *                             Default value is '60'.
+     * @param reuseShell           Specifies whether the remote shell is kept open after the script for the next scripts sent to the same host with the same
+     *                             credentials. A reused shell saves the creation and the deletion of the shell.
+     *                             Valid values are 'true' and 'false'.
+     *                             Default value is 'false'.
+     * @param maxShellsPerHost     The maximum number of shells kept open for a host and user when reuseShell is 'true', each shell runs one script at a time.
+     *                             It should not exceed the MaxShellsPerUser setting of the WinRM server.
+     *                             Default value is '5'.
+     * @param shellMaxIdleTime     The time in seconds after which an unused shell is deleted when reuseShell is 'true'. It should be lower than the
+     *                             IdleTimeout setting of the WinRM shells on the server.
+     *                             Default value is '60'.
+     * @param parallelism          The maximum number of hosts the script is executed on at the same time.
+     *                             Default value is '10'.
+     * @param connectionPoolSessionObject The connection pool shared by the executions of the action, so the connections to a host are
+     *                             reused by the next requests and scripts sent to the host.
+     * @return a map with the results of the hosts as a JSON array in returnResult. Each host has its host, returnCode, scriptExitCode,
+     * returnResult, stderr and exception fields. The returnCode is '0' only if the script succeeded on all the hosts.
+     */
+    @Action(name = "PowerShell Script Parallel Action",
+            outputs = {
+                    @Output(RETURN_CODE),
+                    @Output(RETURN_RESULT),
+                    @Output(EXCEPTION)
+            },
+            responses = {
+                    @Response(text = Constants.ResponseNames.SUCCESS, field = RETURN_CODE, value = RETURN_CODE_SUCCESS, matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.RESOLVED),
+                    @Response(text = Constants.ResponseNames.FAILURE, field = RETURN_CODE, value = RETURN_CODE_FAILURE, matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.ERROR, isOnFail = true)
+            }
+    )
+    public Map<String, String> execute(
+            @Param(value = HOSTS, required = true) String hosts,
+            @Param(value = HOST_DELIMITER) String hostDelimiter,
+            @Param(value = INPUT_PORT) String port,
+            @Param(value = PROTOCOL) String protocol,
+            @Param(value = USERNAME) String username,
+            @Param(value = PASSWORD, encrypted = true) String password,
+            @Param(value = AUTH_TYPE) String authType,
+            @Param(value = PROXY_HOST) String proxyHost,
+            @Param(value = PROXY_PORT) String proxyPort,
+            @Param(value = PROXY_USERNAME) String proxyUsername,
+            @Param(value = PROXY_PASSWORD, encrypted = true) String proxyPassword,
+            @Param(value = TRUST_ALL_ROOTS) String trustAllRoots,
+            @Param(value = X509_HOSTNAME_VERIFIER) String x509HostnameVerifier,
+            @Param(value = TRUST_KEYSTORE) String trustKeystore,
+            @Param(value = TRUST_PASSWORD, encrypted = true) String trustPassword,
+            @Param(value = KERBEROS_CONFIG_FILE) String kerberosConfFile,
+            @Param(value = KERBEROS_LOGIN_CONFIG_FILE) String kerberosLoginConfFile,
+            @Param(value = KERBEROS_SKIP_PORT_CHECK) String kerberosSkipPortForLookup,
+            @Param(value = KEYSTORE) String keystore,
+            @Param(value = KEYSTORE_PASSWORD, encrypted = true) String keystorePassword,
+            @Param(value = MAX_ENVELOP_SIZE) String maxEnvelopeSize,
+            @Param(value = INPUT_SCRIPT, required = true) String script,
+            @Param(value = WINRM_LOCALE) String winrmLocale,
+            @Param(value = OPERATION_TIMEOUT) String operationTimeout,
+            @Param(value = REUSE_SHELL) String reuseShell,
+            @Param(value = MAX_SHELLS_PER_HOST) String maxShellsPerHost,
+            @Param(value = SHELL_MAX_IDLE_TIME) String shellMaxIdleTime,
+            @Param(value = PARALLELISM) String parallelism,
+            @Param(value = SESSION_CONNECTION_POOL) GlobalSessionObject connectionPoolSessionObject
+    ) {
+        Map<String, String> resultMap = new HashMap<>();
+        try {
+            int parallelismValue = Integer.parseInt(StringUtils.isBlank(parallelism) ? InputDefaults.PARALLELISM.getValue() : parallelism);
+            String delimiter = StringUtils.isEmpty(hostDelimiter) ? InputDefaults.HOST_DELIMITER.getValue() : hostDelimiter;
+            if (connectionPoolSessionObject == null) {
+                connectionPoolSessionObject = new GlobalSessionObject();
+            }
+
+            List<WSManRequestInputs> wsManRequestInputsList = new ArrayList<>();
+            for (String host : StringUtils.splitByWholeSeparator(hosts, delimiter)) {
+                if (StringUtils.isBlank(host)) {
+                    continue;
+                }
+                wsManRequestInputsList.add(new WSManRequestInputs.WSManRequestInputsBuilder()
+                        .withHost(host.trim())
+                        .withPort(port)
+                        .withProtocol(protocol)
+                        .withUsername(username)
+                        .withPassword(password)
+                        .withAuthType(authType)
+                        .withKerberosConfFile(kerberosConfFile)
+                        .withKerberosLoginConfFile(kerberosLoginConfFile)
+                        .withKerberosSkipPortForLookup(kerberosSkipPortForLookup)
+                        .withProxyHost(proxyHost)
+                        .withProxyPort(proxyPort)
+                        .withProxyUsername(proxyUsername)
+                        .withProxyPassword(proxyPassword)
+                        .withMaxEnvelopeSize(maxEnvelopeSize)
+                        .withTrustAllRoots(trustAllRoots)
+                        .withX509HostnameVerifier(x509HostnameVerifier)
+                        .withKeystore(keystore)
+                        .withKeystorePassword(keystorePassword)
+                        .withTrustKeystore(trustKeystore)
+                        .withTrustPassword(trustPassword)
+                        .withScript(script)
+                        .withWinrmLocale(winrmLocale)
+                        .withOperationTimeout(operationTimeout)
+                        .withReuseShell(reuseShell)
+                        .withMaxShellsPerHost(maxShellsPerHost)
+                        .withShellMaxIdleTime(shellMaxIdleTime)
+                        .withConnectionPoolSessionObject(connectionPoolSessionObject)
+                        .withConnectionsMaxPerRoute(String.valueOf(CONNECTIONS_PER_HOST))
+                        .withConnectionsMaxTotal(String.valueOf(CONNECTIONS_PER_HOST * parallelismValue))
+                        .build());
+            }
+            if (wsManRequestInputsList.isEmpty()) {
+                throw new RuntimeException("The hosts input should contain at least one host.");
+            }
+
+            List<Map<String, String>> results = new ParallelScriptService().runCommands(wsManRequestInputsList, parallelismValue);
+            resultMap.put(RETURN_RESULT, WSManUtils.toJsonArray(results));
+            resultMap.put(RETURN_CODE, WSManUtils.isSuccess(results) ? RETURN_CODE_SUCCESS : RETURN_CODE_FAILURE);
+        } catch (Exception e) {
+            resultMap.put(EXCEPTION, ExceptionUtils.getStackTrace(e));
+            resultMap.put(RETURN_CODE, RETURN_CODE_FAILURE);
+        }
+        return resultMap;
+    }
+}
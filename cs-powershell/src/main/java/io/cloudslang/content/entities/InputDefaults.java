@@ -11,7 +11,15 @@ public enum InputDefaults {
     X_509_HOSTNAME_VERIFIER("strict"),
     WINRM_LOCALE("en-US"),
     OPERATION_TIMEOUT("60"),
-    AUTH_TYPE("Basic");
+    AUTH_TYPE("Basic"),
+    REUSE_SHELL("false"),
+    MAX_SHELLS_PER_HOST("5"),
+    SHELL_MAX_IDLE_TIME("60"),
+    OUTPUT_TAIL_SIZE("65536"),
+    HOST_DELIMITER(","),
+    PARALLELISM("10"),
+    SCRIPT_DELIMITER("@@"),
+    STOP_ON_FAILURE("true");
 
     private String defaultValue;
 
@@ -0,0 +1,101 @@
+package io.cloudslang.content.entities;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The content of a WS-Management response read in a single pass: the action, the fault, the command state and
+ * exit code and the decoded stdout and stderr streams of a receive response.
+ */
+public class ReceiveResponse {
+
+    private static final String DONE_COMMAND_STATE = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/CommandState/Done";
+    private static final String WSMAN_FAULT_RESPONSE_ACTION = "http://schemas.dmtf.org/wbem/wsman/1/wsman/fault";
+    private static final String ADDRESSING_FAULT_RESPONSE_ACTION = "http://schemas.xmlsoap.org/ws/2004/08/addressing/fault";
+    private static final String TIMED_OUT_FAULT_SUBCODE = "TimedOut";
+
+    private final String action;
+    private final String faultReason;
+    private final String faultDetail;
+    private final String faultSubcode;
+    private final String commandState;
+    private final String exitCode;
+    private final ByteArrayOutputStream stdout;
+    private final ByteArrayOutputStream stderr;
+    private final long receivedBytes;
+
+    /**
+     * @param stdout        The decoded stdout, it may also hold the output of the previous receive responses.
+     * @param stderr        The decoded stderr, it may also hold the output of the previous receive responses.
+     * @param receivedBytes The number of decoded bytes of this response.
+     */
+    public ReceiveResponse(String action, String faultReason, String faultDetail, String faultSubcode, String commandState,
+                           String exitCode, ByteArrayOutputStream stdout, ByteArrayOutputStream stderr, long receivedBytes) {
+        this.action = action;
+        this.faultReason = faultReason;
+        this.faultDetail = faultDetail;
+        this.faultSubcode = faultSubcode;
+        this.commandState = commandState;
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.receivedBytes = receivedBytes;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public boolean isAction(String responseAction) {
+        return StringUtils.containsIgnoreCase(action, responseAction);
+    }
+
+    public boolean isFault() {
+        return isAction(WSMAN_FAULT_RESPONSE_ACTION) || isAction(ADDRESSING_FAULT_RESPONSE_ACTION);
+    }
+
+    /**
+     * @return the fault reason followed by the fault detail message.
+     */
+    public String getFault() {
+        return faultReason + faultDetail;
+    }
+
+    /**
+     * @return true for the fault sent when the operation timeout of a receive request elapsed without any output.
+     */
+    public boolean isTimedOutFault() {
+        return isFault() && StringUtils.endsWithIgnoreCase(faultSubcode, TIMED_OUT_FAULT_SUBCODE);
+    }
+
+    public boolean isCommandDone() {
+        return StringUtils.containsIgnoreCase(commandState, DONE_COMMAND_STATE);
+    }
+
+    /**
+     * @return the exit code of the command, or an empty string if the command is not done.
+     */
+    public String getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return true if the response carried some output or the end of the command.
+     */
+    public boolean hasData() {
+        return receivedBytes > 0 || isCommandDone();
+    }
+
+    public String getStream(OutputStream outputStream) {
+        return new String((outputStream == OutputStream.STDERR ? stderr : stdout).toByteArray());
+    }
+
+    public String getStdout() {
+        return getStream(OutputStream.STDOUT);
+    }
+
+    public String getStderr() {
+        return getStream(OutputStream.STDERR);
+    }
+}
@@ -0,0 +1,119 @@
+package io.cloudslang.content.entities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Keeps the output of a command stream. The whole output is written to a local file when one is given and only its
+ * last 'tailSize' bytes are kept in memory, so the memory used does not grow with the size of the output.
+ * Without a file, the whole output is kept in memory.
+ */
+public class TailOutputStream extends ByteArrayOutputStream {
+
+    private final int tailSize;
+    private final FileOutputStream fileOutputStream;
+    private long totalBytes;
+
+    /**
+     * Keeps the whole output in memory.
+     */
+    public TailOutputStream() {
+        this(-1, null);
+    }
+
+    /**
+     * @param tailSize         The number of bytes kept in memory, a negative value keeps the whole output.
+     * @param fileOutputStream The file the whole output is appended to, it may be null.
+     */
+    public TailOutputStream(int tailSize, FileOutputStream fileOutputStream) {
+        this.tailSize = tailSize;
+        this.fileOutputStream = fileOutputStream;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * @throws IllegalStateException if the chunk cannot be written to the file, ByteArrayOutputStream.write does not
+     *                               declare IOException.
+     */
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        if (fileOutputStream != null) {
+            try {
+                fileOutputStream.write(bytes, offset, length);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+        totalBytes += length;
+        if (tailSize < 0) {
+            super.write(bytes, offset, length);
+            return;
+        }
+        if (length >= tailSize) {
+            count = 0;
+            super.write(bytes, offset + length - tailSize, tailSize);
+            return;
+        }
+        super.write(bytes, offset, length);
+        // the tail is moved to the start of the buffer once the buffer holds twice the tail, so each byte is
+        // copied at most once more
+        if (count >= 2 * tailSize) {
+            System.arraycopy(buf, count - tailSize, buf, 0, tailSize);
+            count = tailSize;
+        }
+    }
+
+    /**
+     * @return the bytes kept in memory, the last 'tailSize' bytes of the output.
+     */
+    @Override
+    public synchronized byte[] toByteArray() {
+        if (tailSize >= 0 && count > tailSize) {
+            return Arrays.copyOfRange(buf, count - tailSize, count);
+        }
+        return super.toByteArray();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new String(toByteArray());
+    }
+
+    @Override
+    public synchronized int size() {
+        return tailSize >= 0 ? Math.min(count, tailSize) : count;
+    }
+
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        totalBytes = 0;
+    }
+
+    /**
+     * @return the number of bytes written, including the ones no longer kept in memory.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return true if the beginning of the output is only in the file.
+     */
+    public synchronized boolean isTruncated() {
+        return totalBytes > size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileOutputStream != null) {
+            fileOutputStream.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.cloudslang.content.entities;
 
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -30,6 +31,15 @@ public class WSManRequestInputs {
     private String script;
     private String winrmLocale;
     private int operationTimeout;
+    private boolean reuseShell;
+    private int maxShellsPerHost;
+    private int shellMaxIdleTime;
+    private String stdoutFile;
+    private String stderrFile;
+    private int outputTailSize;
+    private GlobalSessionObject connectionPoolSessionObject;
+    private String connectionsMaxPerRoute;
+    private String connectionsMaxTotal;
 
     public WSManRequestInputs(WSManRequestInputsBuilder builder) {
         this.host = builder.host;
@@ -55,6 +65,15 @@ public class WSManRequestInputs {
         this.script = builder.script;
         this.winrmLocale = builder.winrmLocale;
         this.operationTimeout = builder.operationTimeout;
+        this.reuseShell = builder.reuseShell;
+        this.maxShellsPerHost = builder.maxShellsPerHost;
+        this.shellMaxIdleTime = builder.shellMaxIdleTime;
+        this.stdoutFile = builder.stdoutFile;
+        this.stderrFile = builder.stderrFile;
+        this.outputTailSize = builder.outputTailSize;
+        this.connectionPoolSessionObject = builder.connectionPoolSessionObject;
+        this.connectionsMaxPerRoute = builder.connectionsMaxPerRoute;
+        this.connectionsMaxTotal = builder.connectionsMaxTotal;
     }
 
     public String getHost() {
@@ -149,6 +168,42 @@ public class WSManRequestInputs {
         return operationTimeout;
     }
 
+    public boolean isReuseShell() {
+        return reuseShell;
+    }
+
+    public int getMaxShellsPerHost() {
+        return maxShellsPerHost;
+    }
+
+    public int getShellMaxIdleTime() {
+        return shellMaxIdleTime;
+    }
+
+    public String getStdoutFile() {
+        return stdoutFile;
+    }
+
+    public String getStderrFile() {
+        return stderrFile;
+    }
+
+    public int getOutputTailSize() {
+        return outputTailSize;
+    }
+
+    public GlobalSessionObject getConnectionPoolSessionObject() {
+        return connectionPoolSessionObject;
+    }
+
+    public String getConnectionsMaxPerRoute() {
+        return connectionsMaxPerRoute;
+    }
+
+    public String getConnectionsMaxTotal() {
+        return connectionsMaxTotal;
+    }
+
     public static class WSManRequestInputsBuilder {
         private String host;
         private String port;
@@ -173,6 +228,15 @@ public class WSManRequestInputs {
         private String script;
         private String winrmLocale;
         private int operationTimeout;
+        private boolean reuseShell = Boolean.parseBoolean(InputDefaults.REUSE_SHELL.getValue());
+        private int maxShellsPerHost = Integer.parseInt(InputDefaults.MAX_SHELLS_PER_HOST.getValue());
+        private int shellMaxIdleTime = Integer.parseInt(InputDefaults.SHELL_MAX_IDLE_TIME.getValue());
+        private String stdoutFile;
+        private String stderrFile;
+        private int outputTailSize = Integer.parseInt(InputDefaults.OUTPUT_TAIL_SIZE.getValue());
+        private GlobalSessionObject connectionPoolSessionObject;
+        private String connectionsMaxPerRoute;
+        private String connectionsMaxTotal;
 
         public WSManRequestInputs build() {
             return new WSManRequestInputs(this);
@@ -295,5 +359,57 @@ public class WSManRequestInputs {
             this.kerberosSkipPortForLookup = kerberosSkipPortForLookup;
             return this;
         }
+
+        public WSManRequestInputsBuilder withReuseShell(String reuseShell) {
+            reuseShell = StringUtils.isBlank(reuseShell) ? InputDefaults.REUSE_SHELL.getValue() : reuseShell;
+            this.reuseShell = Boolean.parseBoolean(reuseShell);
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withMaxShellsPerHost(String maxShellsPerHost) {
+            maxShellsPerHost = StringUtils.isBlank(maxShellsPerHost) ? InputDefaults.MAX_SHELLS_PER_HOST.getValue() : maxShellsPerHost;
+            this.maxShellsPerHost = Integer.parseInt(maxShellsPerHost);
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withShellMaxIdleTime(String shellMaxIdleTime) {
+            shellMaxIdleTime = StringUtils.isBlank(shellMaxIdleTime) ? InputDefaults.SHELL_MAX_IDLE_TIME.getValue() : shellMaxIdleTime;
+            this.shellMaxIdleTime = Integer.parseInt(shellMaxIdleTime);
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withStdoutFile(String stdoutFile) {
+            this.stdoutFile = stdoutFile;
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withStderrFile(String stderrFile) {
+            this.stderrFile = stderrFile;
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withOutputTailSize(String outputTailSize) {
+            outputTailSize = StringUtils.isBlank(outputTailSize) ? InputDefaults.OUTPUT_TAIL_SIZE.getValue() : outputTailSize;
+            this.outputTailSize = Integer.parseInt(outputTailSize);
+            return this;
+        }
+
+        /**
+         * The connection pool shared by the requests, a new pool is used for each script when it is not set.
+         */
+        public WSManRequestInputsBuilder withConnectionPoolSessionObject(GlobalSessionObject connectionPoolSessionObject) {
+            this.connectionPoolSessionObject = connectionPoolSessionObject;
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withConnectionsMaxPerRoute(String connectionsMaxPerRoute) {
+            this.connectionsMaxPerRoute = connectionsMaxPerRoute;
+            return this;
+        }
+
+        public WSManRequestInputsBuilder withConnectionsMaxTotal(String connectionsMaxTotal) {
+            this.connectionsMaxTotal = connectionsMaxTotal;
+            return this;
+        }
     }
 }
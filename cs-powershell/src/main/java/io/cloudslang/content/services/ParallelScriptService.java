@@ -0,0 +1,107 @@
+package io.cloudslang.content.services;
+
+import io.cloudslang.content.entities.WSManRequestInputs;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.cloudslang.content.utils.Constants.OutputNames.EXCEPTION;
+import static io.cloudslang.content.utils.Constants.OutputNames.RETURN_CODE;
+import static io.cloudslang.content.utils.Constants.OutputNames.RETURN_RESULT;
+import static io.cloudslang.content.utils.Constants.OutputNames.SCRIPT_EXIT_CODE;
+import static io.cloudslang.content.utils.Constants.OutputNames.STDERR;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_FAILURE;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_SUCCESS;
+
+/**
+ * Runs a script on several hosts at the same time, with at most 'parallelism' hosts at once. The hosts share the
+ * http connection pool of their requests inputs, so the connections of a host are kept between its requests.
+ */
+public class ParallelScriptService {
+
+    private static final String HOST = "host";
+    private static final String ZERO_SCRIPT_EXIT_CODE = "0";
+
+    /**
+     * Runs the script of each requests inputs on its host.
+     *
+     * @param wsManRequestInputsList The inputs of each host.
+     * @param parallelism            The maximum number of hosts the script runs on at the same time.
+     * @return the results of the hosts, in the order of the inputs.
+     * @throws InterruptedException
+     */
+    public List<Map<String, String>> runCommands(List<WSManRequestInputs> wsManRequestInputsList, int parallelism) throws InterruptedException {
+        if (parallelism <= 0) {
+            throw new RuntimeException("The parallelism should be greater than 0.");
+        }
+        List<Map<String, String>> results = new ArrayList<>();
+        if (wsManRequestInputsList.isEmpty()) {
+            return results;
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, wsManRequestInputsList.size()), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "powershell-parallel-script-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Map<String, String>>> futures = new ArrayList<>();
+            for (final WSManRequestInputs wsManRequestInputs : wsManRequestInputsList) {
+                futures.add(executorService.submit(new Callable<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> call() {
+                        return runCommand(wsManRequestInputs);
+                    }
+                }));
+            }
+            for (Future<Map<String, String>> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runCommand returns the failures of a host as its result
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the result of the host, a failure of the host is returned in its result.
+     */
+    protected Map<String, String> runCommand(WSManRequestInputs wsManRequestInputs) {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put(HOST, wsManRequestInputs.getHost());
+        try {
+            Map<String, String> scriptResults = createShellService().runCommand(wsManRequestInputs);
+            result.put(RETURN_CODE, ZERO_SCRIPT_EXIT_CODE.equals(scriptResults.get(SCRIPT_EXIT_CODE)) ? RETURN_CODE_SUCCESS : RETURN_CODE_FAILURE);
+            result.put(SCRIPT_EXIT_CODE, scriptResults.get(SCRIPT_EXIT_CODE));
+            result.put(RETURN_RESULT, scriptResults.get(RETURN_RESULT));
+            result.put(STDERR, scriptResults.get(STDERR));
+        } catch (Exception e) {
+            result.put(RETURN_CODE, RETURN_CODE_FAILURE);
+            result.put(EXCEPTION, StringUtils.defaultIfEmpty(e.getMessage(), e.getClass().getName()));
+        }
+        return result;
+    }
+
+    protected WSManRemoteShellService createShellService() {
+        return new WSManRemoteShellService();
+    }
+}
@@ -0,0 +1,231 @@
+package io.cloudslang.content.services;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the remote shells open between the commands sent to the same WinRM endpoint. The shells are grouped by
+ * endpoint, username and a fingerprint of the credentials and shell options, and a shell runs one command at a time.
+ * An idle shell is deleted after its 'maxIdleTime' the next time the pool is used, the server deletes the shells
+ * left after its own idle timeout. A shell is not reused once it gets close to the lifetime requested when it was
+ * created.
+ */
+public class ShellPool {
+
+    public static final long SHELL_LIFETIME = 1000000; //the rsp:Lifetime of the CreateShell template
+    private static final long MAX_SHELL_AGE = SHELL_LIFETIME - 60000;
+
+    private static final ShellPool INSTANCE = new ShellPool();
+
+    private final Map<String, Shells> shellsByKey = new HashMap<>();
+
+    public static ShellPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Builds the pool key. The credentials and the shell options are only kept as a SHA-256 fingerprint.
+     */
+    public static String buildKey(String endpoint, String username, String... options) {
+        return endpoint + "|" + username + "|" + DigestUtils.sha256Hex(StringUtils.join(options, '\0'));
+    }
+
+    /**
+     * Leases a shell of the key. An idle shell is reused, otherwise, if the key has less than 'maxShells' shells, a
+     * shell without an id is returned and the caller creates the shell and sets its id; otherwise the call waits
+     * until a shell is released.
+     *
+     * @param key          The pool key, see {@link #buildKey(String, String, String...)}.
+     * @param shellDeleter Deletes the shell when it is evicted.
+     * @param maxShells    The maximum number of shells for the key, it should not exceed the MaxShellsPerUser of the server.
+     * @param maxIdleTime  The time in milliseconds after which an unused shell is deleted.
+     * @param waitTimeout  The time in milliseconds to wait for a shell, 0 waits without a limit.
+     * @return the leased shell, it must be given back with {@link #release(PooledShell)} or {@link #invalidate(PooledShell)}.
+     */
+    public PooledShell lease(String key, ShellDeleter shellDeleter, int maxShells, long maxIdleTime, long waitTimeout) {
+        List<PooledShell> expiredShells = new ArrayList<>();
+        long deadline = waitTimeout > 0 ? System.currentTimeMillis() + waitTimeout : Long.MAX_VALUE;
+        try {
+            synchronized (this) {
+                removeExpired(expiredShells);
+                Shells shells = shellsByKey.get(key);
+                if (shells == null) {
+                    shells = new Shells();
+                    shellsByKey.put(key, shells);
+                }
+                while (shells.idle.isEmpty() && shells.leased >= Math.max(maxShells, 1)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new RuntimeException("Timed out waiting for a pooled shell for " + key.substring(0, key.lastIndexOf('|')));
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted while waiting for a pooled shell", e);
+                    }
+                }
+                shells.leased++;
+                PooledShell pooledShell = shells.idle.pollFirst();
+                if (pooledShell == null) {
+                    pooledShell = new PooledShell(key, shells);
+                }
+                pooledShell.shellDeleter = shellDeleter;
+                pooledShell.maxIdleTime = maxIdleTime;
+                return pooledShell;
+            }
+        } finally {
+            // the shells are deleted outside the lock, each deletion is a request to the server
+            deleteShells(expiredShells);
+        }
+    }
+
+    /**
+     * Gives back a shell after a successful command.
+     */
+    public void release(PooledShell pooledShell) {
+        synchronized (this) {
+            if (pooledShell.shellId == null || shellsByKey.get(pooledShell.key) == pooledShell.shells) {
+                pooledShell.shells.leased--;
+                if (pooledShell.shellId != null) {
+                    pooledShell.lastUsed = System.currentTimeMillis();
+                    pooledShell.shells.idle.addFirst(pooledShell);
+                }
+                notifyAll();
+                return;
+            }
+        }
+        // the pool was cleared while the shell was leased
+        invalidate(pooledShell);
+    }
+
+    /**
+     * Removes a shell that may no longer be usable from the pool and deletes it.
+     */
+    public void invalidate(PooledShell pooledShell) {
+        synchronized (this) {
+            pooledShell.shells.leased--;
+            notifyAll();
+        }
+        deleteShells(Collections.singletonList(pooledShell));
+    }
+
+    /**
+     * Deletes the unused shells that have been idle for longer than their 'maxIdleTime' or that are close to their lifetime.
+     *
+     * @return the number of deleted shells.
+     */
+    public int evictIdle() {
+        List<PooledShell> expiredShells = new ArrayList<>();
+        synchronized (this) {
+            removeExpired(expiredShells);
+        }
+        deleteShells(expiredShells);
+        return expiredShells.size();
+    }
+
+    /**
+     * @return the number of shells in the pool, leased or not.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Shells shells : shellsByKey.values()) {
+            size += shells.leased + shells.idle.size();
+        }
+        return size;
+    }
+
+    /**
+     * Deletes all the unused shells of the pool.
+     */
+    public void clear() {
+        List<PooledShell> idleShells = new ArrayList<>();
+        synchronized (this) {
+            for (Shells shells : shellsByKey.values()) {
+                idleShells.addAll(shells.idle);
+            }
+            shellsByKey.clear();
+            notifyAll();
+        }
+        deleteShells(idleShells);
+    }
+
+    private void removeExpired(List<PooledShell> expiredShells) {
+        long now = System.currentTimeMillis();
+        Iterator<Shells> keys = shellsByKey.values().iterator();
+        while (keys.hasNext()) {
+            Shells shells = keys.next();
+            Iterator<PooledShell> iterator = shells.idle.iterator();
+            while (iterator.hasNext()) {
+                PooledShell pooledShell = iterator.next();
+                if (now - pooledShell.lastUsed > pooledShell.maxIdleTime || now - pooledShell.created > MAX_SHELL_AGE) {
+                    iterator.remove();
+                    expiredShells.add(pooledShell);
+                }
+            }
+            if (shells.leased == 0 && shells.idle.isEmpty()) {
+                keys.remove();
+            }
+        }
+    }
+
+    private static void deleteShells(List<PooledShell> shells) {
+        for (PooledShell pooledShell : shells) {
+            if (pooledShell.shellId == null) {
+                continue;
+            }
+            try {
+                pooledShell.shellDeleter.deleteShell(pooledShell.shellId);
+            } catch (Exception ignore) {
+                // the server deletes the shell itself when its idle timeout or its lifetime expires
+            }
+        }
+    }
+
+    public interface ShellDeleter {
+        void deleteShell(String shellId) throws Exception;
+    }
+
+    public static class PooledShell {
+        private final String key;
+        private final Shells shells;
+        private final long created = System.currentTimeMillis();
+        private String shellId;
+        private ShellDeleter shellDeleter;
+        private long maxIdleTime;
+        private long lastUsed = created;
+
+        private PooledShell(String key, Shells shells) {
+            this.key = key;
+            this.shells = shells;
+        }
+
+        /**
+         * @return the id of the shell, or null if the shell has to be created by the caller.
+         */
+        public String getShellId() {
+            return shellId;
+        }
+
+        public void setShellId(String shellId) {
+            this.shellId = shellId;
+        }
+    }
+
+    /**
+     * The shells of a key: the number of leased shells and the idle ones, the most recently used first.
+     */
+    private static class Shells {
+        private final Deque<PooledShell> idle = new ArrayDeque<>();
+        private int leased;
+    }
+}
@@ -1,32 +1,49 @@
 package io.cloudslang.content.services;
 
 import io.cloudslang.content.entities.EncoderDecoder;
-import io.cloudslang.content.entities.OutputStream;
+import io.cloudslang.content.entities.ReceiveResponse;
+import io.cloudslang.content.entities.TailOutputStream;
 import io.cloudslang.content.entities.WSManRequestInputs;
 import io.cloudslang.content.httpclient.HttpClientInputs;
 import io.cloudslang.content.httpclient.CSHttpClient;
+import io.cloudslang.content.httpclient.build.EntityBuilder;
 import io.cloudslang.content.utils.Constants;
-import io.cloudslang.content.utils.ResourceLoader;
+import io.cloudslang.content.utils.ReceiveResponseParser;
+import io.cloudslang.content.utils.RequestTemplate;
 import io.cloudslang.content.utils.WSManUtils;
 import io.cloudslang.content.utils.XMLUtils;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.ByteArrayBuffer;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
 
+import static io.cloudslang.content.utils.Constants.OutputNames.EXCEPTION;
+import static io.cloudslang.content.utils.Constants.OutputNames.RETURN_CODE;
 import static io.cloudslang.content.utils.Constants.OutputNames.RETURN_RESULT;
+import static io.cloudslang.content.utils.Constants.OutputNames.SCRIPT_EXIT_CODE;
+import static io.cloudslang.content.utils.Constants.OutputNames.STDERR;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_FAILURE;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_SUCCESS;
 
 /**
  * Created by giloan on 3/27/2016.
@@ -44,23 +61,27 @@ public class WSManRemoteShellService {
 
     private static final String CREATE_RESPONSE_SHELL_ID_XPATH = "/Envelope/Body/ResourceCreated/ReferenceParameters/SelectorSet/Selector[@Name='ShellId']/text()";
     private static final String COMMAND_RESULT_COMMAND_ID_XPATH = "/Envelope/Body/CommandResponse/CommandId";
-    private static final String RECEIVE_RESPONSE_XPATH = "/Envelope/Body/ReceiveResponse/Stream[@Name='%s'][%d]/text()";
 
     private static final String CREATE_RESPONSE_ACTION = "http://schemas.xmlsoap.org/ws/2004/09/transfer/CreateResponse";
     private static final String COMMAND_RESPONSE_ACTION = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/CommandResponse";
     private static final String RECEIVE_RESPONSE_ACTION = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/ReceiveResponse";
+    private static final String SIGNAL_RESPONSE_ACTION = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/SignalResponse";
     private static final String DELETE_RESPONSE_ACTION = "http://schemas.xmlsoap.org/ws/2004/09/transfer/DeleteResponse";
     private static final String CONTENT_TYPE_HEADER = "Content-Type:application/soap+xml;charset=UTF-8";
+    private static final long MIN_POLL_DELAY = 50;
+    private static final long MAX_POLL_DELAY = 3200;
+    private static final long MAX_RECEIVE_OPERATION_TIMEOUT = 20;
+    private static final ContentType SOAP_CONTENT_TYPE = ContentType.create("application/soap+xml", Charsets.UTF_8);
     private static final String STATUS_CODE = "statusCode";
 
     private static final String UNAUTHORIZED_STATUS_CODE = "401";
     private static final String WSMAN_RESOURCE_URI = "/wsman";
     private static final String NEW_LINE_SEPARATOR = "\\n";
     private static final String UUID_LABEL = "uuid:";
-    private static final String PLACEHOLDER_NOT_FOUND = "Resource does not contain the expected placeholder name: ";
     private static final String CREATE_SHELL_REQUEST_XML = "templates/CreateShell.xml";
     private static final String EXECUTE_COMMAND_REQUEST_XML = "templates/ExecuteCommand.xml";
     private static final String RECEIVE_REQUEST_XML = "templates/Receive.xml";
+    private static final String SIGNAL_REQUEST_XML = "templates/Signal.xml";
     private static final String DELETE_SHELL_REQUEST_XML = "templates/DeleteShell.xml";
     private static final String UNEXPECTED_SERVICE_RESPONSE = "Unexpected service response: ";
     private static final String SHELL_ID = "shellId";
@@ -70,6 +91,7 @@ public class WSManRemoteShellService {
     private static final String SHELL_ID_NOT_RETRIEVED = "The shell id could not be retrieved.";
     private static final String POWERSHELL_SCRIPT_PREFIX = "PowerShell -NonInteractive -EncodedCommand";
     private static final String UNAUTHORIZED_EXCEPTION_MESSAGE = "Unauthorized! Service responded with 401 status code!";
+    private static final String ZERO_SCRIPT_EXIT_CODE = "0";
 
     private long commandExecutionStartTime;
 
@@ -94,9 +116,12 @@ public class WSManRemoteShellService {
         HttpClientInputs httpClientInputs = new HttpClientInputs();
         URL url = buildURL(wsManRequestInputs, WSMAN_RESOURCE_URI);
         httpClientInputs = setCommonHttpInputs(httpClientInputs, url, wsManRequestInputs);
+        String commandStr = createPowerShellCommand(wsManRequestInputs.getScript());
+        if (wsManRequestInputs.isReuseShell()) {
+            return runCommandOnPooledShell(csHttpClient, httpClientInputs, wsManRequestInputs, commandStr);
+        }
         String shellId = createShell(csHttpClient, httpClientInputs, wsManRequestInputs);
         WSManUtils.validateUUID(shellId, SHELL_ID);
-        String commandStr = POWERSHELL_SCRIPT_PREFIX + " " + EncoderDecoder.encodeStringInBase64(wsManRequestInputs.getScript(), Charsets.UTF_16LE);
         String commandId = executeCommand(csHttpClient, httpClientInputs, shellId, wsManRequestInputs, commandStr);
         WSManUtils.validateUUID(commandId, COMMAND_ID);
         Map<String, String> scriptResults = receiveCommandResult(csHttpClient, httpClientInputs, shellId, commandId, wsManRequestInputs);
@@ -104,6 +129,150 @@ public class WSManRemoteShellService {
         return scriptResults;
     }
 
+    /**
+     * Executes several scripts one after the other on a single remote shell, so the shell is created and deleted once
+     * for all of them. A script starts after the previous one finished, each one in its own PowerShell process.
+     *
+     * @param wsManRequestInputs
+     * @param scripts            The scripts to execute, in order.
+     * @param stopOnFailure      Whether the remaining scripts are skipped after a script with a non zero exit code.
+     * @return the results of the executed scripts, in order. A script that could not be executed has its exception in
+     * its result and the remaining scripts are skipped.
+     * @throws RuntimeException
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws ParserConfigurationException
+     * @throws TransformerException
+     * @throws XPathExpressionException
+     * @throws URISyntaxException
+     * @throws SAXException
+     */
+    public List<Map<String, String>> runCommands(WSManRequestInputs wsManRequestInputs, List<String> scripts, boolean stopOnFailure) throws RuntimeException,
+            IOException, InterruptedException, ParserConfigurationException, TransformerException, XPathExpressionException, URISyntaxException, SAXException {
+        CSHttpClient csHttpClient = new CSHttpClient();
+        HttpClientInputs httpClientInputs = new HttpClientInputs();
+        URL url = buildURL(wsManRequestInputs, WSMAN_RESOURCE_URI);
+        httpClientInputs = setCommonHttpInputs(httpClientInputs, url, wsManRequestInputs);
+        String shellId = createShell(csHttpClient, httpClientInputs, wsManRequestInputs);
+        WSManUtils.validateUUID(shellId, SHELL_ID);
+        List<Map<String, String>> results = new ArrayList<>();
+        try {
+            for (String script : scripts) {
+                Map<String, String> result = new LinkedHashMap<>();
+                results.add(result);
+                try {
+                    String commandId = executeCommand(csHttpClient, httpClientInputs, shellId, wsManRequestInputs, createPowerShellCommand(script));
+                    WSManUtils.validateUUID(commandId, COMMAND_ID);
+                    Map<String, String> scriptResults = receiveCommandResult(csHttpClient, httpClientInputs, shellId, commandId, wsManRequestInputs);
+                    // the finished command is released before the next one is sent to the shell
+                    terminateCommand(csHttpClient, httpClientInputs, shellId, commandId, wsManRequestInputs);
+                    String scriptExitCode = scriptResults.get(SCRIPT_EXIT_CODE);
+                    result.put(RETURN_CODE, ZERO_SCRIPT_EXIT_CODE.equals(scriptExitCode) ? RETURN_CODE_SUCCESS : RETURN_CODE_FAILURE);
+                    result.put(SCRIPT_EXIT_CODE, scriptExitCode);
+                    result.put(RETURN_RESULT, scriptResults.get(RETURN_RESULT));
+                    result.put(STDERR, scriptResults.get(STDERR));
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // the state of the shell is unknown after a failed request, so no other script is sent to it
+                    result.put(RETURN_CODE, RETURN_CODE_FAILURE);
+                    result.put(EXCEPTION, StringUtils.defaultIfEmpty(e.getMessage(), e.getClass().getName()));
+                    break;
+                }
+                if (stopOnFailure && !RETURN_CODE_SUCCESS.equals(result.get(RETURN_CODE))) {
+                    break;
+                }
+            }
+        } finally {
+            try {
+                deleteShell(csHttpClient, httpClientInputs, shellId, wsManRequestInputs);
+            } catch (Exception ignore) {
+                // the results of the scripts are kept, the server deletes the shell itself when its idle timeout expires
+            }
+        }
+        return results;
+    }
+
+    private static String createPowerShellCommand(String script) {
+        return POWERSHELL_SCRIPT_PREFIX + " " + EncoderDecoder.encodeStringInBase64(script, Charsets.UTF_16LE);
+    }
+
+    /**
+     * Executes a command on a shell of the shell pool. The shell is created when the pool has no idle shell for the
+     * endpoint and credentials, and stays open after the command for the next commands. A reused shell that does not
+     * accept the command, for example because the server deleted it, is removed from the pool and another one is used.
+     *
+     * @param csHttpClient
+     * @param httpClientInputs
+     * @param wsManRequestInputs
+     * @param command
+     * @return a map with the result of the command and the exit code of the command execution.
+     */
+    private Map<String, String> runCommandOnPooledShell(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs,
+                                                       WSManRequestInputs wsManRequestInputs, String command) throws RuntimeException,
+            IOException, URISyntaxException, TransformerException, XPathExpressionException, SAXException, ParserConfigurationException,
+            TimeoutException, InterruptedException {
+        ShellPool shellPool = getShellPool();
+        String key = ShellPool.buildKey(httpClientInputs.getUrl(), wsManRequestInputs.getUsername(), wsManRequestInputs.getPassword(),
+                wsManRequestInputs.getAuthType(), wsManRequestInputs.getKerberosConfFile(), wsManRequestInputs.getKerberosLoginConfFile(),
+                wsManRequestInputs.getProxyHost(), wsManRequestInputs.getProxyPort(), wsManRequestInputs.getProxyUsername(),
+                wsManRequestInputs.getProxyPassword(), wsManRequestInputs.getTrustAllRoots(), wsManRequestInputs.getX509HostnameVerifier(),
+                wsManRequestInputs.getKeystore(), wsManRequestInputs.getTrustKeystore(), wsManRequestInputs.getWinrmLocale(),
+                String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()));
+        ShellPool.ShellDeleter shellDeleter = createShellDeleter(wsManRequestInputs);
+        while (true) {
+            // an operationTimeout of 0 means no timeout, the lease then waits for a shell without a limit
+            ShellPool.PooledShell pooledShell = shellPool.lease(key, shellDeleter, wsManRequestInputs.getMaxShellsPerHost(),
+                    wsManRequestInputs.getShellMaxIdleTime() * 1000L, wsManRequestInputs.getOperationTimeout() * 1000L);
+            boolean reused = pooledShell.getShellId() != null;
+            boolean healthy = false;
+            try {
+                if (!reused) {
+                    String shellId = createShell(csHttpClient, httpClientInputs, wsManRequestInputs);
+                    WSManUtils.validateUUID(shellId, SHELL_ID);
+                    pooledShell.setShellId(shellId);
+                }
+                String commandId;
+                try {
+                    commandId = executeCommand(csHttpClient, httpClientInputs, pooledShell.getShellId(), wsManRequestInputs, command);
+                } catch (RuntimeException e) {
+                    if (reused) {
+                        continue;
+                    }
+                    throw e;
+                }
+                WSManUtils.validateUUID(commandId, COMMAND_ID);
+                Map<String, String> scriptResults = receiveCommandResult(csHttpClient, httpClientInputs, pooledShell.getShellId(), commandId, wsManRequestInputs);
+                terminateCommand(csHttpClient, httpClientInputs, pooledShell.getShellId(), commandId, wsManRequestInputs);
+                healthy = true;
+                return scriptResults;
+            } finally {
+                if (healthy) {
+                    shellPool.release(pooledShell);
+                } else {
+                    shellPool.invalidate(pooledShell);
+                }
+            }
+        }
+    }
+
+    protected ShellPool getShellPool() {
+        return ShellPool.getInstance();
+    }
+
+    /**
+     * @return a deleter that sends its own delete requests, the pool may delete the shells from another thread.
+     */
+    private ShellPool.ShellDeleter createShellDeleter(final WSManRequestInputs wsManRequestInputs) {
+        return new ShellPool.ShellDeleter() {
+            @Override
+            public void deleteShell(String shellId) throws Exception {
+                HttpClientInputs httpClientInputs = setCommonHttpInputs(new HttpClientInputs(), buildURL(wsManRequestInputs, WSMAN_RESOURCE_URI), wsManRequestInputs);
+                WSManRemoteShellService.this.deleteShell(new CSHttpClient(), httpClientInputs, shellId, wsManRequestInputs);
+            }
+        };
+    }
+
     /**
      * Configures the HttpClientInputs object with the most common http parameters.
      *
@@ -131,6 +300,9 @@ public class WSManRemoteShellService {
         httpClientInputs.setKeystorePassword(wsManRequestInputs.getKeystorePassword());
         httpClientInputs.setTrustKeystore(wsManRequestInputs.getTrustKeystore());
         httpClientInputs.setTrustPassword(wsManRequestInputs.getTrustPassword());
+        httpClientInputs.setConnectionPoolSessionObject(wsManRequestInputs.getConnectionPoolSessionObject());
+        httpClientInputs.setConnectionsMaxPerRoute(wsManRequestInputs.getConnectionsMaxPerRoute());
+        httpClientInputs.setConnectionsMaxTotal(wsManRequestInputs.getConnectionsMaxTotal());
         String headers = httpClientInputs.getHeaders();
         if (StringUtils.isEmpty(headers)) {
             httpClientInputs.setHeaders(CONTENT_TYPE_HEADER);
@@ -142,15 +314,16 @@ public class WSManRemoteShellService {
     }
 
     /**
-     * This method executes a request with the given CSHttpClient, HttpClientInputs and body.
+     * This method executes a request with the given CSHttpClient, HttpClientInputs and body. The rendered body is
+     * sent as it is, without being copied into a string.
      *
      * @param csHttpClient
      * @param httpClientInputs
      * @param requestMessage
      * @return the result of the request execution.
      */
-    private Map<String, String> executeRequest(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs, String requestMessage) {
-        httpClientInputs.setBody(requestMessage);
+    private Map<String, String> executeRequest(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs, ByteArrayBuffer requestMessage) {
+        csHttpClient.setHttpEntityBuilder(new RequestEntityBuilder(requestMessage));
         Map<String, String> requestResponse = csHttpClient.execute(httpClientInputs);
         if (UNAUTHORIZED_STATUS_CODE.equals(requestResponse.get(STATUS_CODE))) {
             throw new RuntimeException(UNAUTHORIZED_EXCEPTION_MESSAGE);
@@ -176,9 +349,8 @@ public class WSManRemoteShellService {
     private String createShell(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs, WSManRequestInputs wsManRequestInputs)
             throws RuntimeException, IOException, URISyntaxException,
             TransformerException, XPathExpressionException, SAXException, ParserConfigurationException {
-        String document = ResourceLoader.loadAsString(CREATE_SHELL_REQUEST_XML);
-        document = createCreateShellRequestBody(document, httpClientInputs.getUrl(), String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()),
-                wsManRequestInputs.getWinrmLocale(), String.valueOf(wsManRequestInputs.getOperationTimeout()));
+        ByteArrayBuffer document = RequestTemplate.getTemplate(CREATE_SHELL_REQUEST_XML).render(createCreateShellRequestValues(httpClientInputs.getUrl(),
+                String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(), String.valueOf(wsManRequestInputs.getOperationTimeout())));
         Map<String, String> createShellResult = executeRequest(csHttpClient, httpClientInputs, document);
         return getResourceId(createShellResult.get(RETURN_RESULT), CREATE_RESPONSE_ACTION, CREATE_RESPONSE_SHELL_ID_XPATH,
                 SHELL_ID_NOT_RETRIEVED);
@@ -203,9 +375,9 @@ public class WSManRemoteShellService {
     private String executeCommand(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs, String shellId,
                                   WSManRequestInputs wsManRequestInputs, String command) throws RuntimeException,
             IOException, URISyntaxException, TransformerException, XPathExpressionException, SAXException, ParserConfigurationException {
-        String documentStr = ResourceLoader.loadAsString(EXECUTE_COMMAND_REQUEST_XML);
-        documentStr = createExecuteCommandRequestBody(documentStr, httpClientInputs.getUrl(), shellId, command, String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()),
-                wsManRequestInputs.getWinrmLocale(), String.valueOf(wsManRequestInputs.getOperationTimeout()));
+        ByteArrayBuffer documentStr = RequestTemplate.getTemplate(EXECUTE_COMMAND_REQUEST_XML).render(createExecuteCommandRequestValues(httpClientInputs.getUrl(),
+                shellId, command, String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(),
+                String.valueOf(wsManRequestInputs.getOperationTimeout())));
         commandExecutionStartTime = System.currentTimeMillis() / 1000;
         Map<String, String> executeCommandResult = executeRequest(csHttpClient, httpClientInputs, documentStr);
         return getResourceId(executeCommandResult.get(RETURN_RESULT), COMMAND_RESPONSE_ACTION, COMMAND_RESULT_COMMAND_ID_XPATH,
@@ -235,27 +407,80 @@ public class WSManRemoteShellService {
                                                      String shellId, String commandId, WSManRequestInputs wsManRequestInputs) throws RuntimeException,
             IOException, URISyntaxException, TransformerException, TimeoutException, XPathExpressionException, SAXException,
             ParserConfigurationException, InterruptedException {
-        String documentStr = ResourceLoader.loadAsString(RECEIVE_REQUEST_XML);
-        documentStr = createReceiveRequestBody(documentStr, httpClientInputs.getUrl(), shellId, commandId, String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(), String.valueOf(wsManRequestInputs.getOperationTimeout()));
-        Map<String, String> receiveResult;
-        while (true) {
-            receiveResult = executeRequest(csHttpClient, httpClientInputs, documentStr);
-            if (executionIsTimedOut(commandExecutionStartTime, wsManRequestInputs.getOperationTimeout())) {
-                throw new TimeoutException(EXECUTION_TIMED_OUT);
-            } else if (WSManUtils.isSpecificResponseAction(receiveResult.get(RETURN_RESULT), RECEIVE_RESPONSE_ACTION) &&
-                    WSManUtils.commandExecutionIsDone(receiveResult.get(RETURN_RESULT))) {
-                return processCommandExecutionResponse(receiveResult);
-            } else if (WSManUtils.isFaultResponse(receiveResult.get(RETURN_RESULT))) {
-                throw new RuntimeException(WSManUtils.getResponseFault(receiveResult.get(RETURN_RESULT)));
-            }
+        RequestTemplate receiveTemplate = RequestTemplate.getTemplate(RECEIVE_REQUEST_XML);
+        int receivePolls = 0;
+        int receivePollsWithData = 0;
+        long pollDelay = 0;
+        try (TailOutputStream stdout = createOutputStream(wsManRequestInputs.getStdoutFile(), wsManRequestInputs.getOutputTailSize());
+             TailOutputStream stderr = createOutputStream(wsManRequestInputs.getStderrFile(), wsManRequestInputs.getOutputTailSize())) {
+            while (true) {
+                // rendering is cheap, so each receive request gets its own message id
+                ByteArrayBuffer documentStr = receiveTemplate.render(createReceiveRequestValues(httpClientInputs.getUrl(), shellId, commandId,
+                        String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(),
+                        String.valueOf(getReceiveOperationTimeout(wsManRequestInputs.getOperationTimeout()))));
+                Map<String, String> receiveResult = executeRequest(csHttpClient, httpClientInputs, documentStr);
+                receivePolls++;
+                if (executionIsTimedOut(commandExecutionStartTime, wsManRequestInputs.getOperationTimeout())) {
+                    throw new TimeoutException(EXECUTION_TIMED_OUT);
+                }
+                // the decoded chunks go to the output files as soon as they are received
+                ReceiveResponse receiveResponse = ReceiveResponseParser.parse(receiveResult.get(RETURN_RESULT), stdout, stderr);
+                if (receiveResponse.isAction(RECEIVE_RESPONSE_ACTION)) {
+                    if (receiveResponse.hasData()) {
+                        receivePollsWithData++;
+                    }
+                    if (receiveResponse.isCommandDone()) {
+                        Map<String, String> scriptResults = processCommandExecutionResponse(receiveResponse);
+                        scriptResults.put(Constants.OutputNames.RECEIVE_POLLS, String.valueOf(receivePolls));
+                        scriptResults.put(Constants.OutputNames.RECEIVE_POLLS_WITH_DATA, String.valueOf(receivePollsWithData));
+                        scriptResults.put(Constants.OutputNames.STDOUT_SIZE, String.valueOf(stdout.getTotalBytes()));
+                        scriptResults.put(Constants.OutputNames.STDOUT_TRUNCATED, String.valueOf(stdout.isTruncated()));
+                        scriptResults.put(Constants.OutputNames.STDERR_SIZE, String.valueOf(stderr.getTotalBytes()));
+                        scriptResults.put(Constants.OutputNames.STDERR_TRUNCATED, String.valueOf(stderr.isTruncated()));
+                        return scriptResults;
+                    }
+                } else if (receiveResponse.isFault() && !receiveResponse.isTimedOutFault()) {
+                    throw new RuntimeException(receiveResponse.getFault());
+                }
 
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                throw e;
+                // the server holds a receive request until there is output or its operation timeout elapses, so a
+                // response with output is followed at once by the next request and only empty responses are delayed
+                pollDelay = receiveResponse.hasData() ? 0 : getNextPollDelay(pollDelay);
+                if (pollDelay > 0) {
+                    Thread.sleep(pollDelay);
+                }
             }
         }
+    }
 
+    /**
+     * @return a stream that keeps the whole output in memory, or that writes it to the given file and keeps its tail.
+     */
+    private static TailOutputStream createOutputStream(String outputFile, int tailSize) throws IOException {
+        if (StringUtils.isBlank(outputFile)) {
+            return new TailOutputStream();
+        }
+        return new TailOutputStream(tailSize, new FileOutputStream(outputFile));
+    }
+
+    /**
+     * @param pollDelay The delay after the previous empty receive response, in milliseconds.
+     * @return the delay after an empty receive response, doubled after each empty response up to a ceiling.
+     */
+    private static long getNextPollDelay(long pollDelay) {
+        return pollDelay == 0 ? MIN_POLL_DELAY : Math.min(pollDelay * 2, MAX_POLL_DELAY);
+    }
+
+    /**
+     * @param operationTimeout The timeout of the command, in seconds.
+     * @return how long the server may hold a receive request, in seconds, at most the time left to the command.
+     */
+    private long getReceiveOperationTimeout(int operationTimeout) {
+        if (operationTimeout == 0) {
+            return MAX_RECEIVE_OPERATION_TIMEOUT;
+        }
+        long remaining = operationTimeout - (System.currentTimeMillis() / 1000 - commandExecutionStartTime);
+        return Math.max(1, Math.min(remaining, MAX_RECEIVE_OPERATION_TIMEOUT));
     }
 
     /**
@@ -303,8 +528,8 @@ public class WSManRemoteShellService {
      */
     private void deleteShell(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs, String shellId, WSManRequestInputs wsManRequestInputs)
             throws RuntimeException, IOException, URISyntaxException, TransformerException, XPathExpressionException, SAXException, ParserConfigurationException {
-        String documentStr = ResourceLoader.loadAsString(DELETE_SHELL_REQUEST_XML);
-        documentStr = createDeleteShellRequestBody(documentStr, httpClientInputs.getUrl(), shellId, String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(), String.valueOf(wsManRequestInputs.getOperationTimeout()));
+        ByteArrayBuffer documentStr = RequestTemplate.getTemplate(DELETE_SHELL_REQUEST_XML).render(createDeleteShellRequestValues(httpClientInputs.getUrl(),
+                shellId, String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(), String.valueOf(wsManRequestInputs.getOperationTimeout())));
         Map<String, String> deleteShellResult = executeRequest(csHttpClient, httpClientInputs, documentStr);
         if (WSManUtils.isSpecificResponseAction(deleteShellResult.get(RETURN_RESULT), DELETE_RESPONSE_ACTION)) {
             return;
@@ -316,44 +541,41 @@ public class WSManRemoteShellService {
     }
 
     /**
-     * This method separates the stdout and stderr response streams from the received execution response.
+     * Sends the terminate signal to a finished command, so that the server releases the command before the shell is reused.
      *
-     * @param receiveResult A map containing the response from the service.
-     * @return a map containing the stdout, stderr streams and the script exit code.
-     * @throws ParserConfigurationException
-     * @throws SAXException
-     * @throws XPathExpressionException
-     * @throws IOException
+     * @param csHttpClient
+     * @param httpClientInputs
+     * @param shellId
+     * @param commandId
+     * @param wsManRequestInputs
      */
-    private Map<String, String> processCommandExecutionResponse(Map<String, String> receiveResult) throws ParserConfigurationException, SAXException, XPathExpressionException, IOException {
-        Map<String, String> scriptResults = new HashMap<>();
-        scriptResults.put(RETURN_RESULT, buildResultFromResponseStreams(receiveResult.get(RETURN_RESULT), OutputStream.STDOUT));
-        scriptResults.put(Constants.OutputNames.STDERR, buildResultFromResponseStreams(receiveResult.get(RETURN_RESULT), OutputStream.STDERR));
-        scriptResults.put(Constants.OutputNames.SCRIPT_EXIT_CODE, WSManUtils.getScriptExitCode(receiveResult.get(RETURN_RESULT)));
-        return scriptResults;
+    private void terminateCommand(CSHttpClient csHttpClient, HttpClientInputs httpClientInputs, String shellId, String commandId, WSManRequestInputs wsManRequestInputs)
+            throws RuntimeException, IOException, URISyntaxException, TransformerException, XPathExpressionException, SAXException, ParserConfigurationException {
+        ByteArrayBuffer documentStr = RequestTemplate.getTemplate(SIGNAL_REQUEST_XML).render(createSignalRequestValues(httpClientInputs.getUrl(),
+                shellId, commandId, String.valueOf(wsManRequestInputs.getMaxEnvelopeSize()), wsManRequestInputs.getWinrmLocale(),
+                String.valueOf(wsManRequestInputs.getOperationTimeout())));
+        Map<String, String> signalResult = executeRequest(csHttpClient, httpClientInputs, documentStr);
+        if (WSManUtils.isSpecificResponseAction(signalResult.get(RETURN_RESULT), SIGNAL_RESPONSE_ACTION)) {
+            return;
+        } else if (WSManUtils.isFaultResponse(signalResult.get(RETURN_RESULT))) {
+            throw new RuntimeException(WSManUtils.getResponseFault(signalResult.get(RETURN_RESULT)));
+        } else {
+            throw new RuntimeException(UNEXPECTED_SERVICE_RESPONSE + signalResult.get(RETURN_RESULT));
+        }
     }
 
     /**
-     * Constructs the executed command response from multiple streams of data containing the encoded result of the execution.
+     * This method separates the stdout and stderr response streams from the received execution response.
      *
-     * @param response
-     * @param outputStream
-     * @return the decoded result of the command in a string.
-     * @throws ParserConfigurationException
-     * @throws SAXException
-     * @throws XPathExpressionException
-     * @throws IOException
+     * @param receiveResponse The parsed response from the service.
+     * @return a map containing the stdout, stderr streams and the script exit code.
      */
-    private String buildResultFromResponseStreams(String response, OutputStream outputStream) throws ParserConfigurationException, SAXException, XPathExpressionException, IOException {
-        StringBuilder commandResult = new StringBuilder();
-        int noOfStreams = WSManUtils.countStreamElements(response);
-        for (int streamNo = 0; streamNo < noOfStreams; streamNo++) {
-            String stream = XMLUtils.parseXml(response, String.format(RECEIVE_RESPONSE_XPATH, outputStream.getValue(), streamNo));
-            if (!"DQo=".equals(stream)) {
-                commandResult.append(EncoderDecoder.decodeBase64String(stream));
-            }
-        }
-        return commandResult.toString();
+    private Map<String, String> processCommandExecutionResponse(ReceiveResponse receiveResponse) {
+        Map<String, String> scriptResults = new HashMap<>();
+        scriptResults.put(RETURN_RESULT, receiveResponse.getStdout());
+        scriptResults.put(Constants.OutputNames.STDERR, receiveResponse.getStderr());
+        scriptResults.put(Constants.OutputNames.SCRIPT_EXIT_CODE, receiveResponse.getExitCode());
+        return scriptResults;
     }
 
     /**
@@ -373,47 +595,70 @@ public class WSManRemoteShellService {
         return false;
     }
 
-    private String createCreateShellRequestBody(String doc, String url, String maxEnvelopeSize, String winrmLocale, String operationTimeout) throws RuntimeException {
-        doc = replaceCommonPlaceholders(doc, url, maxEnvelopeSize, winrmLocale, operationTimeout);
-        return replacePlaceholder(doc, MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+    private Map<String, String> createCreateShellRequestValues(String url, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
+        Map<String, String> values = createCommonRequestValues(url, maxEnvelopeSize, winrmLocale, operationTimeout);
+        values.put(MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+        return values;
     }
 
-    private String createExecuteCommandRequestBody(String doc, String url, String shellId, String command, String maxEnvelopeSize, String winrmLocale, String operationTimeout) throws RuntimeException {
-        doc = replaceCommonPlaceholders(doc, url, maxEnvelopeSize, winrmLocale, operationTimeout);
-        doc = replacePlaceholder(doc, SHELL_ID_PLACEHOLDER_NAME, shellId);
-        doc = replacePlaceholder(doc, MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
-        return replacePlaceholder(doc, COMMAND_PLACEHOLDER_NAME, command);
+    private Map<String, String> createExecuteCommandRequestValues(String url, String shellId, String command, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
+        Map<String, String> values = createCommonRequestValues(url, maxEnvelopeSize, winrmLocale, operationTimeout);
+        values.put(SHELL_ID_PLACEHOLDER_NAME, shellId);
+        values.put(MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+        values.put(COMMAND_PLACEHOLDER_NAME, command);
+        return values;
     }
 
-    private String createReceiveRequestBody(String doc, String url, String shellId, String commandId, String maxEnvelopeSize, String winrmLocale, String operationTimeout) throws RuntimeException {
-        doc = replaceCommonPlaceholders(doc, url, maxEnvelopeSize, winrmLocale, operationTimeout);
-        doc = replacePlaceholder(doc, SHELL_ID_PLACEHOLDER_NAME, shellId);
-        doc = replacePlaceholder(doc, MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
-        return replacePlaceholder(doc, COMMAND_ID_PLACEHOLDER_NAME, commandId);
+    private Map<String, String> createReceiveRequestValues(String url, String shellId, String commandId, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
+        Map<String, String> values = createCommonRequestValues(url, maxEnvelopeSize, winrmLocale, operationTimeout);
+        values.put(SHELL_ID_PLACEHOLDER_NAME, shellId);
+        values.put(MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+        values.put(COMMAND_ID_PLACEHOLDER_NAME, commandId);
+        return values;
     }
 
-    private String createDeleteShellRequestBody(String doc, String url, String shellId, String maxEnvelopeSize, String winrmLocale, String operationTimeout) throws RuntimeException {
-        doc = replaceCommonPlaceholders(doc, url, maxEnvelopeSize, winrmLocale, operationTimeout);
-        doc = replacePlaceholder(doc, SHELL_ID_PLACEHOLDER_NAME, shellId);
-        return replacePlaceholder(doc, MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+    private Map<String, String> createSignalRequestValues(String url, String shellId, String commandId, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
+        Map<String, String> values = createCommonRequestValues(url, maxEnvelopeSize, winrmLocale, operationTimeout);
+        values.put(SHELL_ID_PLACEHOLDER_NAME, shellId);
+        values.put(MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+        values.put(COMMAND_ID_PLACEHOLDER_NAME, commandId);
+        return values;
     }
 
-    private String replaceCommonPlaceholders(String doc, String url, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
-        doc = replacePlaceholder(doc, SERVICE_ADDRESS_PLACEHOLDER_NAME, url);
-        doc = replacePlaceholder(doc, MAX_ENVELOPE_SIZE_PLACEHOLDER_NAME, maxEnvelopeSize);
-        doc = replacePlaceholder(doc, WINRM_LOCALE_PLACEHOLDER_NAME, winrmLocale);
-        return replacePlaceholder(doc, OPERATION_TIMEOUT_PLACEHOLDER_NAME, operationTimeout);
+    private Map<String, String> createDeleteShellRequestValues(String url, String shellId, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
+        Map<String, String> values = createCommonRequestValues(url, maxEnvelopeSize, winrmLocale, operationTimeout);
+        values.put(SHELL_ID_PLACEHOLDER_NAME, shellId);
+        values.put(MESSAGE_ID_PLACEHOLDER_NAME, UUID_LABEL + UUID.randomUUID().toString());
+        return values;
     }
 
-    private String replacePlaceholder(String document, String placeholderName, String placeholderValue) throws RuntimeException {
-        if (StringUtils.containsIgnoreCase(document, placeholderName)) {
-            return StringUtils.replace(document, placeholderName, placeholderValue);
-        } else {
-            throw new RuntimeException(PLACEHOLDER_NOT_FOUND + placeholderName);
-        }
+    private Map<String, String> createCommonRequestValues(String url, String maxEnvelopeSize, String winrmLocale, String operationTimeout) {
+        Map<String, String> values = new HashMap<>();
+        values.put(SERVICE_ADDRESS_PLACEHOLDER_NAME, url);
+        values.put(MAX_ENVELOPE_SIZE_PLACEHOLDER_NAME, maxEnvelopeSize);
+        values.put(WINRM_LOCALE_PLACEHOLDER_NAME, winrmLocale);
+        values.put(OPERATION_TIMEOUT_PLACEHOLDER_NAME, operationTimeout);
+        return values;
     }
 
     private URL buildURL(WSManRequestInputs wsManRequestInputs, String resource) throws MalformedURLException {
         return new URL(wsManRequestInputs.getProtocol(), wsManRequestInputs.getHost(), Integer.parseInt(wsManRequestInputs.getPort()), resource);
     }
+
+    /**
+     * Builds the request entity directly on the bytes of the rendered request. The entity is repeatable, so the
+     * request can be sent again after an authentication challenge.
+     */
+    private static class RequestEntityBuilder extends EntityBuilder {
+        private final ByteArrayBuffer requestBody;
+
+        private RequestEntityBuilder(ByteArrayBuffer requestBody) {
+            this.requestBody = requestBody;
+        }
+
+        @Override
+        public HttpEntity buildEntity() {
+            return new ByteArrayEntity(requestBody.buffer(), 0, requestBody.length(), SOAP_CONTENT_TYPE);
+        }
+    }
 }
@@ -13,6 +13,18 @@ public class Constants {
         public static final String WINRM_LOCALE = "winrmLocale";
         public static final String PROTOCOL = "protocol";
         public static final String OPERATION_TIMEOUT = "operationTimeout";
+        public static final String REUSE_SHELL = "reuseShell";
+        public static final String MAX_SHELLS_PER_HOST = "maxShellsPerHost";
+        public static final String SHELL_MAX_IDLE_TIME = "shellMaxIdleTime";
+        public static final String STDOUT_FILE = "stdoutFile";
+        public static final String STDERR_FILE = "stderrFile";
+        public static final String OUTPUT_TAIL_SIZE = "outputTailSize";
+        public static final String HOSTS = "hosts";
+        public static final String HOST_DELIMITER = "hostDelimiter";
+        public static final String PARALLELISM = "parallelism";
+        public static final String SCRIPTS = "scripts";
+        public static final String SCRIPT_DELIMITER = "scriptDelimiter";
+        public static final String STOP_ON_FAILURE = "stopOnFailure";
     }
 
     public static final class OutputNames {
@@ -21,6 +33,12 @@ public class Constants {
         public static final String SCRIPT_EXIT_CODE = "scriptExitCode";
         public static final String EXCEPTION = "exception";
         public static final String RETURN_CODE = "returnCode";
+        public static final String RECEIVE_POLLS = "receivePolls";
+        public static final String RECEIVE_POLLS_WITH_DATA = "receivePollsWithData";
+        public static final String STDOUT_SIZE = "stdoutSize";
+        public static final String STDOUT_TRUNCATED = "stdoutTruncated";
+        public static final String STDERR_SIZE = "stderrSize";
+        public static final String STDERR_TRUNCATED = "stderrTruncated";
     }
 
     public static final class ReturnCodes {
@@ -0,0 +1,161 @@
+package io.cloudslang.content.utils;
+
+import io.cloudslang.content.entities.OutputStream;
+import io.cloudslang.content.entities.ReceiveResponse;
+import org.apache.commons.codec.binary.Base64;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a WS-Management response with a single StAX pass instead of one DOM parse and XPath evaluation for each value.
+ * The elements are matched by their local names, like the XPath expressions of {@link WSManUtils}. Each stream chunk
+ * is base64 decoded as soon as its element ends.
+ */
+public class ReceiveResponseParser {
+
+    private static final String RESPONSE_IS_NOT_WELL_FORMED = "The http response document is not a Well-formed XML: ";
+    private static final String CRLF_CHUNK = "DQo=";
+    private static final String NAME_ATTRIBUTE = "Name";
+    private static final String STATE_ATTRIBUTE = "State";
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private ReceiveResponseParser() {
+    }
+
+    /**
+     * Parses the response of a WS-Management request.
+     *
+     * @param response The xml response.
+     * @return the action, the fault, the command state, the exit code and the decoded streams of the response.
+     */
+    public static ReceiveResponse parse(String response) {
+        return parse(response, new ByteArrayOutputStream(), new ByteArrayOutputStream());
+    }
+
+    /**
+     * Parses the response of a WS-Management request and appends its decoded streams to the given ones, so that
+     * the output of several receive responses is gathered.
+     *
+     * @param response The xml response.
+     * @param stdout   The stream the decoded stdout chunks are appended to.
+     * @param stderr   The stream the decoded stderr chunks are appended to.
+     * @return the action, the fault, the command state, the exit code and the decoded streams of the response.
+     */
+    public static ReceiveResponse parse(String response, ByteArrayOutputStream stdout, ByteArrayOutputStream stderr) {
+        StringBuilder action = new StringBuilder();
+        StringBuilder faultReason = new StringBuilder();
+        StringBuilder faultDetail = new StringBuilder();
+        StringBuilder faultSubcode = new StringBuilder();
+        StringBuilder exitCode = new StringBuilder();
+        StringBuilder chunk = new StringBuilder();
+        String commandState = "";
+        long receivedBytes = 0;
+        ByteArrayOutputStream currentStream = null;
+        // the local names of the open elements, from the root
+        List<String> path = new ArrayList<>();
+
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(response));
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        path.add(reader.getLocalName());
+                        if (isPath(path, "Envelope", "Body", "ReceiveResponse", "Stream")) {
+                            String name = reader.getAttributeValue(null, NAME_ATTRIBUTE);
+                            currentStream = OutputStream.STDERR.getValue().equals(name) ? stderr :
+                                    OutputStream.STDOUT.getValue().equals(name) ? stdout : null;
+                            chunk.setLength(0);
+                        } else if (isPath(path, "Envelope", "Body", "ReceiveResponse", "CommandState")) {
+                            String state = reader.getAttributeValue(null, STATE_ATTRIBUTE);
+                            commandState = state != null ? state : "";
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        appendText(path, reader, action, faultReason, faultDetail, faultSubcode, exitCode, chunk, currentStream);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (currentStream != null && isPath(path, "Envelope", "Body", "ReceiveResponse", "Stream")) {
+                            String encodedChunk = chunk.toString();
+                            if (!CRLF_CHUNK.equals(encodedChunk)) {
+                                byte[] decodedChunk = Base64.decodeBase64(encodedChunk);
+                                currentStream.write(decodedChunk, 0, decodedChunk.length);
+                                receivedBytes += decodedChunk.length;
+                            }
+                            currentStream = null;
+                        }
+                        path.remove(path.size() - 1);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(RESPONSE_IS_NOT_WELL_FORMED + response, e);
+        } finally {
+            close(reader);
+        }
+        return new ReceiveResponse(action.toString(), faultReason.toString(), faultDetail.toString(), faultSubcode.toString().trim(),
+                commandState, exitCode.toString(), stdout, stderr, receivedBytes);
+    }
+
+    private static void appendText(List<String> path, XMLStreamReader reader, StringBuilder action, StringBuilder faultReason,
+                                   StringBuilder faultDetail, StringBuilder faultSubcode, StringBuilder exitCode, StringBuilder chunk,
+                                   ByteArrayOutputStream currentStream) {
+        if (currentStream != null) {
+            chunk.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        } else if (startsWith(path, "Envelope", "Header", "Action")) {
+            action.append(reader.getText());
+        } else if (startsWith(path, "Envelope", "Body", "Fault", "Reason")) {
+            faultReason.append(reader.getText());
+        } else if (isPath(path, "Envelope", "Body", "Fault", "Code", "Subcode", "Value")) {
+            faultSubcode.append(reader.getText());
+        } else if (startsWith(path, "Envelope", "Body", "Fault", "Detail", "WSManFault", "Message")) {
+            faultDetail.append(reader.getText());
+        } else if (isPath(path, "Envelope", "Body", "ReceiveResponse", "CommandState", "ExitCode")) {
+            exitCode.append(reader.getText());
+        }
+    }
+
+    private static boolean isPath(List<String> path, String... names) {
+        return path.size() == names.length && startsWith(path, names);
+    }
+
+    private static boolean startsWith(List<String> path, String... names) {
+        if (path.size() < names.length) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].equals(path.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignore) {
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return inputFactory;
+    }
+}
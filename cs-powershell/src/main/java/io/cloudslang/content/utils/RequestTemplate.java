@@ -0,0 +1,133 @@
+package io.cloudslang.content.utils;
+
+import org.apache.http.util.ByteArrayBuffer;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A SOAP request template split once into its literal parts and its placeholders. The templates are loaded from the
+ * classpath the first time they are used and are then shared by all the requests. A request is rendered in a single
+ * pass into a buffer that is reused by the next requests of the same thread.
+ */
+public class RequestTemplate {
+
+    private static final String PLACEHOLDER_NOT_FOUND = "Resource does not contain the expected placeholder name: ";
+    private static final String PLACEHOLDER_VALUE_NOT_FOUND = "No value was given for the placeholder: ";
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$PLACEHOLDER_FOR_[A-Z_]+");
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    // a buffer grown by a large command is not kept for the next requests of the thread
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private static final ConcurrentMap<String, RequestTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<ByteArrayBuffer> BUFFER = new ThreadLocal<ByteArrayBuffer>() {
+        @Override
+        protected ByteArrayBuffer initialValue() {
+            return new ByteArrayBuffer(INITIAL_BUFFER_SIZE);
+        }
+    };
+
+    private final List<byte[]> literals;
+    private final List<String> placeholders;
+    private final Set<String> placeholderNames;
+
+    private RequestTemplate(List<byte[]> literals, List<String> placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.placeholderNames = Collections.unmodifiableSet(new HashSet<>(placeholders));
+    }
+
+    /**
+     * Returns the template of a resource file, the file is only read the first time.
+     *
+     * @param resourceFileName The name of the resource file.
+     * @return the compiled template.
+     * @throws IOException
+     * @throws URISyntaxException
+     */
+    public static RequestTemplate getTemplate(String resourceFileName) throws IOException, URISyntaxException {
+        RequestTemplate template = TEMPLATES.get(resourceFileName);
+        if (template == null) {
+            template = compile(ResourceLoader.loadAsString(resourceFileName));
+            RequestTemplate previous = TEMPLATES.putIfAbsent(resourceFileName, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Splits a document on its '$PLACEHOLDER_FOR_...' names. A template always starts and ends with a literal part,
+     * possibly empty, so the literal parts are one more than the placeholders.
+     */
+    public static RequestTemplate compile(String document) {
+        List<byte[]> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(document);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(document.substring(start, matcher.start()).getBytes(UTF_8));
+            placeholders.add(matcher.group());
+            start = matcher.end();
+        }
+        literals.add(document.substring(start).getBytes(UTF_8));
+        return new RequestTemplate(literals, placeholders);
+    }
+
+    /**
+     * Renders the request into the buffer of the calling thread. The returned buffer is only valid until the next
+     * request is rendered by the same thread.
+     *
+     * @param values The values of the placeholders, by placeholder name. A null value is rendered as an empty string.
+     * @return the buffer that contains the UTF-8 encoded request.
+     * @throws RuntimeException if the template does not contain a given placeholder or a placeholder has no value.
+     */
+    public ByteArrayBuffer render(Map<String, String> values) {
+        for (String placeholderName : values.keySet()) {
+            if (!placeholderNames.contains(placeholderName)) {
+                throw new RuntimeException(PLACEHOLDER_NOT_FOUND + placeholderName);
+            }
+        }
+        ByteArrayBuffer buffer = BUFFER.get();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = new ByteArrayBuffer(INITIAL_BUFFER_SIZE);
+            BUFFER.set(buffer);
+        }
+        buffer.clear();
+        for (int i = 0; i < placeholders.size(); i++) {
+            append(buffer, literals.get(i));
+            String placeholderName = placeholders.get(i);
+            if (!values.containsKey(placeholderName)) {
+                throw new RuntimeException(PLACEHOLDER_VALUE_NOT_FOUND + placeholderName);
+            }
+            String value = values.get(placeholderName);
+            if (value != null) {
+                append(buffer, value.getBytes(UTF_8));
+            }
+        }
+        append(buffer, literals.get(placeholders.size()));
+        return buffer;
+    }
+
+    public Set<String> getPlaceholderNames() {
+        return placeholderNames;
+    }
+
+    private static void append(ByteArrayBuffer buffer, byte[] bytes) {
+        buffer.append(bytes, 0, bytes.length);
+    }
+}
@@ -1,13 +1,19 @@
 package io.cloudslang.content.utils;
 
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static io.cloudslang.content.utils.Constants.OutputNames.RETURN_CODE;
+import static io.cloudslang.content.utils.Constants.ReturnCodes.RETURN_CODE_SUCCESS;
+
 /**
  * Created by giloan on 3/29/2016.
  */
@@ -16,11 +22,7 @@ public class WSManUtils {
     private static final String HEADER_XPATH = "/Envelope/Header";
     private static final String FAULT_DETAIL_XPATH = "/Envelope/Body/Fault/Detail/WSManFault/Message";
     private static final String FAULT_REASON_XPATH = "/Envelope/Body/Fault/Reason";
-    private static final String COMMAND_STATE_XPATH = "/Envelope/Body/ReceiveResponse/CommandState/@State";
-    private static final String COUNT_STREAMS_XPATH = "count(//Envelope/Body/ReceiveResponse/Stream)";
-    private static final String SCRIPT_EXIT_CODE_XPATH = "/Envelope/Body/ReceiveResponse/CommandState/ExitCode";
 
-    private static final String DONE_COMMAND_STATE_ACTION = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/CommandState/Done";
     private static final String WSMAN_FAULT_RESPONSE_ACTION = "http://schemas.dmtf.org/wbem/wsman/1/wsman/fault";
     private static final String ADDRESSING_FAULT_RESPONSE_ACTION = "http://schemas.xmlsoap.org/ws/2004/08/addressing/fault";
 
@@ -43,23 +45,11 @@ public class WSManUtils {
         return XMLUtils.parseXml(response, FAULT_REASON_XPATH);
     }
 
-    public static boolean commandExecutionIsDone(String response) throws ParserConfigurationException, SAXException, XPathExpressionException, IOException {
-        return StringUtils.containsIgnoreCase(XMLUtils.parseXml(response, COMMAND_STATE_XPATH), DONE_COMMAND_STATE_ACTION);
-    }
-
-    public static int countStreamElements(String response) throws ParserConfigurationException, SAXException, XPathExpressionException, IOException {
-        return Integer.parseInt(XMLUtils.parseXml(response, COUNT_STREAMS_XPATH));
-    }
-
     public static boolean isFaultResponse(String response) throws ParserConfigurationException, SAXException, XPathExpressionException, IOException {
         return StringUtils.isNotEmpty(response) &&
                 (isSpecificResponseAction(response, WSMAN_FAULT_RESPONSE_ACTION) || isSpecificResponseAction(response, ADDRESSING_FAULT_RESPONSE_ACTION));
     }
 
-    public static String getScriptExitCode(String response) throws ParserConfigurationException, SAXException, XPathExpressionException, IOException {
-        return XMLUtils.parseXml(response, SCRIPT_EXIT_CODE_XPATH);
-    }
-
     /**
      * Checks if a string is a valid UUID or not.
      *
@@ -91,4 +81,48 @@ public class WSManUtils {
             throw new RuntimeException("The returned " + uuidValueOf + " is not a valid UUID value! " + uuidValueOf + ": " + uuid);
         }
     }
+
+    /**
+     * @param results The results of several scripts.
+     * @return true if all the results have the success return code.
+     */
+    public static boolean isSuccess(List<Map<String, String>> results) {
+        for (Map<String, String> result : results) {
+            if (!RETURN_CODE_SUCCESS.equals(result.get(RETURN_CODE))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Formats the results of several scripts as a JSON array with one object for each result. The fields of an object
+     * are in the iteration order of its map and the fields without value are left out.
+     *
+     * @param results The results of several scripts.
+     * @return the JSON array.
+     */
+    public static String toJsonArray(List<Map<String, String>> results) {
+        StringBuilder json = new StringBuilder("[");
+        for (Map<String, String> result : results) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> field : result.entrySet()) {
+                if (field.getValue() == null) {
+                    continue;
+                }
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append('"').append(StringEscapeUtils.escapeJson(field.getKey())).append("\":\"")
+                        .append(StringEscapeUtils.escapeJson(field.getValue())).append('"');
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
 }
@@ -48,6 +48,11 @@ public class PowerShellScriptActionTest {
     private static final String SCRIPT = "Get-Host";
     private static final String WINRM_LOCALE_EN_US = "en-US";
     private static final String OPERATION_TIMEOUT = "60";
+    private static final String MAX_SHELLS_PER_HOST = "2";
+    private static final String SHELL_MAX_IDLE_TIME = "30";
+    private static final String STDOUT_FILE = "stdout.txt";
+    private static final String STDERR_FILE = "stderr.txt";
+    private static final String OUTPUT_TAIL_SIZE = "1024";
     private static final String RETURN_CODE = "returnCode";
     private static final String RETURN_CODE_SUCCESS = "0";
     private static final String SCRIPT_EXIT_CODE = "scriptExitCode";
@@ -91,7 +96,8 @@ public class PowerShellScriptActionTest {
 
         Map<String, String> result = powerShellScriptAction.execute(LOCALHOST, PORT, HTTPS, USER, PASS, BASIC_AUTH_TYPE, PROXY_HOST, PROXY_PORT,
                 PROXY_USER, PASS, Boolean.TRUE.toString(), X_509_HOSTNAME_VERIFIER_STRICT, TRUST_KEYSTORE, PASS, KERBEROS_CONF_FILE, KERBEROS_LOGIN_CONF_FILE, KERBEROS_SKIP_PORT_FOR_LOOKUP, KEYSTORE, PASS,
-                MAX_ENVELOPE_SIZE, SCRIPT, WINRM_LOCALE_EN_US, OPERATION_TIMEOUT);
+                MAX_ENVELOPE_SIZE, SCRIPT, WINRM_LOCALE_EN_US, OPERATION_TIMEOUT, Boolean.TRUE.toString(), MAX_SHELLS_PER_HOST, SHELL_MAX_IDLE_TIME,
+                STDOUT_FILE, STDERR_FILE, OUTPUT_TAIL_SIZE);
 
         verifyNew(WSManRemoteShellService.class).withNoArguments();
         verifyMockInteractions();
@@ -104,7 +110,7 @@ public class PowerShellScriptActionTest {
 
         Map<String, String> result = powerShellScriptAction.execute(LOCALHOST, EMPTY_STRING, EMPTY_STRING, USER, PASS, BASIC_AUTH_TYPE, PROXY_HOST, PROXY_PORT,
                 PROXY_USER, PASS, EMPTY_STRING, EMPTY_STRING, TRUST_KEYSTORE, PASS, KERBEROS_CONF_FILE, KERBEROS_LOGIN_CONF_FILE, KERBEROS_SKIP_PORT_FOR_LOOKUP, KEYSTORE, PASS,
-                EMPTY_STRING, SCRIPT, EMPTY_STRING, EMPTY_STRING);
+                EMPTY_STRING, SCRIPT, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING);
 
         verifyNew(WSManRemoteShellService.class).withNoArguments();
         verifyMockInteractions();
@@ -118,7 +124,7 @@ public class PowerShellScriptActionTest {
 
         Map<String, String> result = powerShellScriptAction.execute(LOCALHOST, EMPTY_STRING, EMPTY_STRING, USER, BASIC_AUTH_TYPE, PASS, PROXY_HOST, PROXY_PORT,
                 PROXY_USER, PASS, EMPTY_STRING, EMPTY_STRING, TRUST_KEYSTORE, PASS, KERBEROS_CONF_FILE, KERBEROS_LOGIN_CONF_FILE, KERBEROS_SKIP_PORT_FOR_LOOKUP, KEYSTORE, PASS,
-                EMPTY_STRING, SCRIPT, EMPTY_STRING, EMPTY_STRING);
+                EMPTY_STRING, SCRIPT, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING);
 
         assertTrue(result.get(EXCEPTION).contains(EXCEPTION_MESSAGE));
         assertEquals(RETURN_CODE_FAILURE, result.get(RETURN_CODE));
@@ -133,7 +139,7 @@ public class PowerShellScriptActionTest {
 
         Map<String, String> result = powerShellScriptAction.execute(LOCALHOST, EMPTY_STRING, EMPTY_STRING, USER, PASS, BASIC_AUTH_TYPE, PROXY_HOST, PROXY_PORT,
                 PROXY_USER, PASS, EMPTY_STRING, EMPTY_STRING, TRUST_KEYSTORE, PASS, KERBEROS_CONF_FILE, KERBEROS_LOGIN_CONF_FILE, KERBEROS_SKIP_PORT_FOR_LOOKUP, KEYSTORE, PASS,
-                EMPTY_STRING, SCRIPT, EMPTY_STRING, EMPTY_STRING);
+                EMPTY_STRING, SCRIPT, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING, EMPTY_STRING);
 
         verifyNew(WSManRemoteShellService.class).withNoArguments();
         verify(serviceMock, times(1)).runCommand(any(WSManRequestInputs.class));
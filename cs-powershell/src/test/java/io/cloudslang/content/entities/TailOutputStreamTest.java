@@ -0,0 +1,64 @@
+package io.cloudslang.content.entities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class TailOutputStreamTest {
+
+    private static final String OUTPUT = "0123456789abcdefghij";
+
+    private File outputFile;
+
+    @Before
+    public void setUp() throws IOException {
+        outputFile = File.createTempFile("TailOutputStreamTest", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Test
+    public void testWriteKeepsTailAndWritesFile() throws IOException {
+        try (TailOutputStream tailOutputStream = new TailOutputStream(4, new FileOutputStream(outputFile))) {
+            for (int i = 0; i < OUTPUT.length(); i += 3) {
+                byte[] chunk = OUTPUT.substring(i, Math.min(i + 3, OUTPUT.length())).getBytes();
+                tailOutputStream.write(chunk, 0, chunk.length);
+            }
+
+            assertEquals("ghij", tailOutputStream.toString());
+            assertEquals(4, tailOutputStream.size());
+            assertEquals(20, tailOutputStream.getTotalBytes());
+            assertTrue(tailOutputStream.isTruncated());
+        }
+        assertEquals(OUTPUT, new String(Files.readAllBytes(outputFile.toPath())));
+    }
+
+    @Test
+    public void testWriteChunkLargerThanTail() throws IOException {
+        TailOutputStream tailOutputStream = new TailOutputStream(4, null);
+        tailOutputStream.write(OUTPUT.getBytes(), 0, OUTPUT.length());
+
+        assertEquals("ghij", tailOutputStream.toString());
+    }
+
+    @Test
+    public void testWriteWithoutTailKeepsWholeOutput() {
+        TailOutputStream tailOutputStream = new TailOutputStream();
+        tailOutputStream.write(OUTPUT.getBytes(), 0, OUTPUT.length());
+
+        assertEquals(OUTPUT, tailOutputStream.toString());
+        assertFalse(tailOutputStream.isTruncated());
+    }
+}
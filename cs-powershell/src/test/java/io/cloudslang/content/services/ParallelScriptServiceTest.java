@@ -0,0 +1,89 @@
+package io.cloudslang.content.services;
+
+import io.cloudslang.content.entities.WSManRequestInputs;
+import io.cloudslang.content.utils.WSManUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.cloudslang.content.utils.Constants.OutputNames.RETURN_RESULT;
+import static io.cloudslang.content.utils.Constants.OutputNames.SCRIPT_EXIT_CODE;
+import static io.cloudslang.content.utils.Constants.OutputNames.STDERR;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ParallelScriptServiceTest {
+
+    private static final String FAILED_HOST = "host3";
+    private static final String CONNECTION_REFUSED = "Connection refused";
+
+    @Rule
+    public ExpectedException thrownException = ExpectedException.none();
+
+    @Test
+    public void testRunCommandsReturnsResultsInInputOrder() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ParallelScriptService parallelScriptService = new ParallelScriptService() {
+            @Override
+            protected WSManRemoteShellService createShellService() {
+                return new WSManRemoteShellService() {
+                    @Override
+                    public Map<String, String> runCommand(WSManRequestInputs wsManRequestInputs) {
+                        int current = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                            maxRunning.set(Math.max(maxRunning.get(), current));
+                        }
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                        if (FAILED_HOST.equals(wsManRequestInputs.getHost())) {
+                            throw new RuntimeException(CONNECTION_REFUSED);
+                        }
+                        Map<String, String> result = new HashMap<>();
+                        result.put(SCRIPT_EXIT_CODE, "0");
+                        result.put(RETURN_RESULT, wsManRequestInputs.getHost());
+                        result.put(STDERR, "");
+                        return result;
+                    }
+                };
+            }
+        };
+
+        List<Map<String, String>> results = parallelScriptService.runCommands(createInputs("host1", "host2", FAILED_HOST, "host4", "host5"), 2);
+
+        assertEquals(5, results.size());
+        assertEquals("host1", results.get(0).get(RETURN_RESULT));
+        assertEquals("host5", results.get(4).get(RETURN_RESULT));
+        assertEquals(CONNECTION_REFUSED, results.get(2).get("exception"));
+        assertEquals("-1", results.get(2).get("returnCode"));
+        assertTrue(maxRunning.get() <= 2);
+        assertFalse(WSManUtils.isSuccess(results));
+    }
+
+    @Test
+    public void testRunCommandsWithInvalidParallelism() throws InterruptedException {
+        thrownException.expectMessage("The parallelism should be greater than 0.");
+
+        new ParallelScriptService().runCommands(createInputs("host1"), 0);
+    }
+
+    private List<WSManRequestInputs> createInputs(String... hosts) {
+        List<WSManRequestInputs> inputs = new ArrayList<>();
+        for (String host : hosts) {
+            inputs.add(new WSManRequestInputs.WSManRequestInputsBuilder().withHost(host).build());
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,118 @@
+package io.cloudslang.content.services;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShellPoolTest {
+
+    private static final String KEY = ShellPool.buildKey("https://localhost:5986/wsman", "user", "pass", "Basic");
+    private static final String SHELL_UUID = "19034e02-69a7-46e2-9da9-7d95d8096054";
+    private static final long MAX_IDLE_TIME = 60000;
+    private static final long WAIT_TIMEOUT = 100;
+
+    @Rule
+    public ExpectedException thrownException = ExpectedException.none();
+
+    private ShellPool shellPool;
+    private List<String> deletedShells;
+    private ShellPool.ShellDeleter shellDeleter;
+
+    @Before
+    public void setUp() {
+        shellPool = new ShellPool();
+        deletedShells = new ArrayList<>();
+        shellDeleter = new ShellPool.ShellDeleter() {
+            @Override
+            public void deleteShell(String shellId) {
+                deletedShells.add(shellId);
+            }
+        };
+    }
+
+    @Test
+    public void testBuildKey() {
+        assertEquals(KEY, ShellPool.buildKey("https://localhost:5986/wsman", "user", "pass", "Basic"));
+        assertFalse(KEY.equals(ShellPool.buildKey("https://localhost:5986/wsman", "user", "pass", "Kerberos")));
+        assertFalse(KEY.contains("pass"));
+    }
+
+    @Test
+    public void testLeaseReusesReleasedShell() {
+        ShellPool.PooledShell pooledShell = shellPool.lease(KEY, shellDeleter, 2, MAX_IDLE_TIME, WAIT_TIMEOUT);
+        assertNull(pooledShell.getShellId());
+        pooledShell.setShellId(SHELL_UUID);
+        shellPool.release(pooledShell);
+
+        assertEquals(SHELL_UUID, shellPool.lease(KEY, shellDeleter, 2, MAX_IDLE_TIME, WAIT_TIMEOUT).getShellId());
+        assertEquals(1, shellPool.size());
+        assertTrue(deletedShells.isEmpty());
+    }
+
+    @Test
+    public void testLeaseTimesOutWhenAllShellsAreLeased() {
+        shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, WAIT_TIMEOUT).setShellId(SHELL_UUID);
+
+        thrownException.expectMessage("Timed out waiting for a pooled shell for https://localhost:5986/wsman|user");
+        shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, WAIT_TIMEOUT);
+    }
+
+    @Test
+    public void testLeaseWithoutWaitTimeoutWaitsForRelease() {
+        final ShellPool.PooledShell pooledShell = shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, WAIT_TIMEOUT);
+        pooledShell.setShellId(SHELL_UUID);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(WAIT_TIMEOUT * 2);
+                } catch (InterruptedException ignore) {
+                }
+                shellPool.release(pooledShell);
+            }
+        }).start();
+
+        assertEquals(SHELL_UUID, shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, 0).getShellId());
+    }
+
+    @Test
+    public void testInvalidateDeletesShell() {
+        ShellPool.PooledShell pooledShell = shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, WAIT_TIMEOUT);
+        pooledShell.setShellId(SHELL_UUID);
+        shellPool.invalidate(pooledShell);
+
+        assertEquals(0, shellPool.size());
+        assertEquals(1, deletedShells.size());
+        assertNull(shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, WAIT_TIMEOUT).getShellId());
+    }
+
+    @Test
+    public void testReleaseFreesSlotOfShellNotCreated() {
+        shellPool.release(shellPool.lease(KEY, shellDeleter, 1, MAX_IDLE_TIME, WAIT_TIMEOUT));
+
+        assertEquals(0, shellPool.size());
+        assertTrue(deletedShells.isEmpty());
+    }
+
+    @Test
+    public void testEvictIdle() throws InterruptedException {
+        ShellPool.PooledShell idleShell = shellPool.lease(KEY, shellDeleter, 2, 1, WAIT_TIMEOUT);
+        idleShell.setShellId(SHELL_UUID);
+        shellPool.lease(KEY, shellDeleter, 2, 1, WAIT_TIMEOUT).setShellId("C0DE9575-6E2D-4C79-9367-676071BDE404");
+        shellPool.release(idleShell);
+        Thread.sleep(10);
+
+        assertEquals(1, shellPool.evictIdle());
+        assertEquals(1, shellPool.size());
+        assertEquals(SHELL_UUID, deletedShells.get(0));
+    }
+}
@@ -1,11 +1,14 @@
 package io.cloudslang.content.services;
 
-import io.cloudslang.content.entities.OutputStream;
+import io.cloudslang.content.entities.ReceiveResponse;
 import io.cloudslang.content.entities.WSManRequestInputs;
 import io.cloudslang.content.httpclient.HttpClientInputs;
+import io.cloudslang.content.httpclient.build.EntityBuilder;
 import io.cloudslang.content.httpclient.CSHttpClient;
+import io.cloudslang.content.utils.ReceiveResponseParser;
 import io.cloudslang.content.utils.WSManUtils;
 import io.cloudslang.content.utils.XMLUtils;
+import org.apache.http.util.ByteArrayBuffer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -19,8 +22,11 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
@@ -31,7 +37,7 @@ import static org.powermock.api.mockito.PowerMockito.verifyStatic;
  * Created by giloan on 5/9/2016.
  */
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({WSManRemoteShellService.class, WSManUtils.class, XMLUtils.class})
+@PrepareForTest({WSManRemoteShellService.class, WSManUtils.class, XMLUtils.class, ReceiveResponseParser.class})
 public class WSManRemoteShellServiceTest {
 
     private static final String LOCALHOST = "localhost";
@@ -73,10 +79,10 @@ public class WSManRemoteShellServiceTest {
     private static final String STDOUT_VALUE = "stdout stream value";
     private static final String STDERR_VALUE = "stderr stream value";
     private static final String STDERR = "stderr";
-    private static final String RECEIVE_RESULT = "script execution result containing stdout and stderr streams";
     private static final String SCRIPT_EXIT_CODE_ZERO = "0";
     private static final String SCRIPT_EXIT_CODE = "scriptExitCode";
-    private static final String BUILD_RESULT_FROM_RESPONSE_STREAMS_METHOD = "buildResultFromResponseStreams";
+    private static final String RETURN_CODE = "returnCode";
+    private static final String EXCEPTION = "exception";
     private static final String PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD = "processCommandExecutionResponse";
     private static final String GET_RESOURCE_ID_METHOD = "getResourceId";
     private static final String RECEIVE_COMMAND_RESULT_METHOD = "receiveCommandResult";
@@ -85,6 +91,15 @@ public class WSManRemoteShellServiceTest {
     private static final String CREATE_SHELL_METHOD = "createShell";
     private static final String EXECUTE_REQUEST_METHOD = "executeRequest";
     private static final String DELETE_SHELL_METHOD = "deleteShell";
+    private static final String TERMINATE_COMMAND_METHOD = "terminateCommand";
+    private static final String TIMED_OUT_FAULT_SUBCODE = "w:TimedOut";
+    private static final String RECEIVE_POLLS = "receivePolls";
+    private static final String RECEIVE_POLLS_WITH_DATA = "receivePollsWithData";
+    private static final String STDOUT_SIZE = "stdoutSize";
+    private static final String STDOUT_TRUNCATED = "stdoutTruncated";
+    private static final String OTHER_SHELL_UUID = "4b2f5a4e-3c55-4e6e-9a5c-08a1c6f4c6a1";
+    private static final String DONE_COMMAND_STATE = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/CommandState/Done";
+    private static final String WSMAN_FAULT_RESPONSE_ACTION = "http://schemas.dmtf.org/wbem/wsman/1/wsman/fault";
     private static final String DELETE_RESPONSE_ACTION = "http://schemas.xmlsoap.org/ws/2004/09/transfer/DeleteResponse";
 
     private WSManRequestInputs wsManRequestInputs;
@@ -167,6 +182,100 @@ public class WSManRemoteShellServiceTest {
         assertEquals(resultMock, result);
     }
 
+    @Test
+    public void testRunCommandReusesPooledShell() throws Exception {
+        ShellPool shellPool = mockPooledShellRequests(wsManRemoteShellServiceSpy);
+        PowerMockito.doReturn(COMMAND_UUID).when(wsManRemoteShellServiceSpy, EXECUTE_COMMAND_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(String.class), any(WSManRequestInputs.class), any(String.class));
+
+        assertEquals(resultMock, wsManRemoteShellServiceSpy.runCommand(wsManRequestInputs));
+        assertEquals(resultMock, wsManRemoteShellServiceSpy.runCommand(wsManRequestInputs));
+
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(1)).invoke(CREATE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(WSManRequestInputs.class));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(2)).invoke(TERMINATE_COMMAND_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(String.class), any(WSManRequestInputs.class));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, never()).invoke(DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(WSManRequestInputs.class));
+        assertEquals(1, shellPool.size());
+    }
+
+    @Test
+    public void testRunCommandReplacesStalePooledShell() throws Exception {
+        ShellPool shellPool = mockPooledShellRequests(wsManRemoteShellServiceSpy);
+        PowerMockito.doReturn(COMMAND_UUID).when(wsManRemoteShellServiceSpy, EXECUTE_COMMAND_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(String.class), any(WSManRequestInputs.class), any(String.class));
+
+        wsManRemoteShellServiceSpy.runCommand(wsManRequestInputs);
+        PowerMockito.doThrow(new RuntimeException(FAULT_MESSAGE)).when(wsManRemoteShellServiceSpy, EXECUTE_COMMAND_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), eq(SHELL_UUID), any(WSManRequestInputs.class), any(String.class));
+        PowerMockito.doReturn(OTHER_SHELL_UUID).when(wsManRemoteShellServiceSpy, CREATE_SHELL_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(WSManRequestInputs.class));
+        assertEquals(resultMock, wsManRemoteShellServiceSpy.runCommand(wsManRequestInputs));
+
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(2)).invoke(CREATE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(WSManRequestInputs.class));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(1)).invoke(DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                eq(SHELL_UUID), any(WSManRequestInputs.class));
+        assertEquals(1, shellPool.size());
+    }
+
+    @Test
+    public void testRunCommandsRunsAllScriptsOnOneShell() throws Exception {
+        mockScriptsRequests(SCRIPT_EXIT_CODE_ZERO);
+
+        List<Map<String, String>> results = wsManRemoteShellServiceSpy.runCommands(wsManRequestInputs, Arrays.asList(SCRIPT, SCRIPT, SCRIPT), true);
+
+        assertEquals(3, results.size());
+        assertEquals(SCRIPT_EXIT_CODE_ZERO, results.get(2).get(SCRIPT_EXIT_CODE));
+        assertEquals(STDOUT_VALUE, results.get(2).get(RETURN_RESULT));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(1)).invoke(CREATE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(WSManRequestInputs.class));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(3)).invoke(TERMINATE_COMMAND_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                eq(SHELL_UUID), eq(COMMAND_UUID), any(WSManRequestInputs.class));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(1)).invoke(DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                eq(SHELL_UUID), any(WSManRequestInputs.class));
+    }
+
+    @Test
+    public void testRunCommandsKeepsResultsWhenDeleteShellFails() throws Exception {
+        mockScriptsRequests(SCRIPT_EXIT_CODE_ZERO);
+        PowerMockito.doThrow(new RuntimeException(FAULT_MESSAGE)).when(wsManRemoteShellServiceSpy, DELETE_SHELL_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(String.class), any(WSManRequestInputs.class));
+
+        List<Map<String, String>> results = wsManRemoteShellServiceSpy.runCommands(wsManRequestInputs, Arrays.asList(SCRIPT, SCRIPT), true);
+
+        assertEquals(2, results.size());
+        assertEquals(SCRIPT_EXIT_CODE_ZERO, results.get(1).get(SCRIPT_EXIT_CODE));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(1)).invoke(DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                eq(SHELL_UUID), any(WSManRequestInputs.class));
+    }
+
+    @Test
+    public void testRunCommandsStopsOnFailure() throws Exception {
+        mockScriptsRequests("1");
+
+        List<Map<String, String>> results = wsManRemoteShellServiceSpy.runCommands(wsManRequestInputs, Arrays.asList(SCRIPT, SCRIPT), true);
+
+        assertEquals(1, results.size());
+        assertEquals("-1", results.get(0).get(RETURN_CODE));
+        assertEquals(2, wsManRemoteShellServiceSpy.runCommands(wsManRequestInputs, Arrays.asList(SCRIPT, SCRIPT), false).size());
+    }
+
+    @Test
+    public void testRunCommandsStopsAfterFailedRequest() throws Exception {
+        mockScriptsRequests(SCRIPT_EXIT_CODE_ZERO);
+        PowerMockito.doThrow(new RuntimeException(FAULT_MESSAGE)).when(wsManRemoteShellServiceSpy, EXECUTE_COMMAND_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(String.class), any(WSManRequestInputs.class), any(String.class));
+
+        List<Map<String, String>> results = wsManRemoteShellServiceSpy.runCommands(wsManRequestInputs, Arrays.asList(SCRIPT, SCRIPT), false);
+
+        assertEquals(1, results.size());
+        assertEquals(FAULT_MESSAGE, results.get(0).get(EXCEPTION));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy, times(1)).invoke(DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                eq(SHELL_UUID), any(WSManRequestInputs.class));
+    }
+
     @Test
     public void testRunCommandThrowsException() throws Exception {
         PowerMockito.doThrow(new RuntimeException(SHELL_ID_NOT_RETRIEVED)).when(wsManRemoteShellServiceSpy,
@@ -181,26 +290,24 @@ public class WSManRemoteShellServiceTest {
 
     @Test
     public void testExecuteRequest() throws Exception {
-        doNothing().when(httpClientInputsMock).setBody(RESPONSE_BODY);
         doReturn(resultMock).when(csHttpClientMock).execute(httpClientInputsMock);
 
-        Map<String, String> result = Whitebox.invokeMethod(new WSManRemoteShellService(), EXECUTE_REQUEST_METHOD, csHttpClientMock, httpClientInputsMock, RESPONSE_BODY);
+        Map<String, String> result = Whitebox.invokeMethod(new WSManRemoteShellService(), EXECUTE_REQUEST_METHOD, csHttpClientMock, httpClientInputsMock, createRequestBody());
 
-        verify(httpClientInputsMock).setBody(RESPONSE_BODY);
+        verify(csHttpClientMock).setHttpEntityBuilder(any(EntityBuilder.class));
         verify(csHttpClientMock).execute(httpClientInputsMock);
         assertEquals(resultMock, result);
     }
 
     @Test
     public void testExecuteRequestThrowsException() throws Exception {
-        doNothing().when(httpClientInputsMock).setBody(RESPONSE_BODY);
         doReturn(resultMock).when(csHttpClientMock).execute(httpClientInputsMock);
         doReturn(UNAUTHORIZED_STATUS_CODE).when(resultMock).get(STATUS_CODE);
 
         thrownException.expectMessage(UNAUTHORIZED_EXCEPTION_MESSAGE);
-        Whitebox.invokeMethod(new WSManRemoteShellService(), EXECUTE_REQUEST_METHOD, csHttpClientMock, httpClientInputsMock, RESPONSE_BODY);
+        Whitebox.invokeMethod(new WSManRemoteShellService(), EXECUTE_REQUEST_METHOD, csHttpClientMock, httpClientInputsMock, createRequestBody());
 
-        verify(httpClientInputsMock).setBody(RESPONSE_BODY);
+        verify(csHttpClientMock).setHttpEntityBuilder(any(EntityBuilder.class));
         verify(csHttpClientMock).execute(httpClientInputsMock);
         verify(resultMock).get(STATUS_CODE);
     }
@@ -338,40 +445,60 @@ public class WSManRemoteShellServiceTest {
     public void testReceiveCommandResult() throws Exception {
         mockExecuteRequest();
         PowerMockito.doReturn(false).when(wsManRemoteShellServiceSpy, EXECUTION_IS_TIMED_OUT_METHOD, anyLong(), anyInt());
-        PowerMockito.mockStatic(WSManUtils.class);
-        Mockito.when(WSManUtils.isSpecificResponseAction(RESPONSE_BODY, RECEIVE_RESPONSE_ACTION)).thenReturn(true);
-        Mockito.when(WSManUtils.commandExecutionIsDone(RESPONSE_BODY)).thenReturn(true);
-        PowerMockito.doReturn(resultMock).when(wsManRemoteShellServiceSpy, PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, any(String.class));
+        PowerMockito.mockStatic(ReceiveResponseParser.class);
+        ReceiveResponse receiveResponse = createReceiveResponse(RECEIVE_RESPONSE_ACTION, DONE_COMMAND_STATE, "");
+        Mockito.when(ReceiveResponseParser.parse(eq(RESPONSE_BODY), any(ByteArrayOutputStream.class), any(ByteArrayOutputStream.class)))
+                .thenReturn(receiveResponse);
+        PowerMockito.doReturn(resultMock).when(wsManRemoteShellServiceSpy, PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, receiveResponse);
 
         Map<String, String> result = Whitebox.invokeMethod(wsManRemoteShellServiceSpy, RECEIVE_COMMAND_RESULT_METHOD, csHttpClientMock, httpClientInputsMock,
                 SHELL_UUID, COMMAND_UUID, wsManRequestInputs);
 
         assertEquals(resultMock, result);
         verifyStatic();
-        WSManUtils.isSpecificResponseAction(RESPONSE_BODY, RECEIVE_RESPONSE_ACTION);
-        WSManUtils.commandExecutionIsDone(RESPONSE_BODY);
-        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy).invoke(PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, any(String.class));
+        ReceiveResponseParser.parse(eq(RESPONSE_BODY), any(ByteArrayOutputStream.class), any(ByteArrayOutputStream.class));
+        PowerMockito.verifyPrivate(wsManRemoteShellServiceSpy).invoke(PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, receiveResponse);
+    }
+
+    @Test
+    public void testReceiveCommandResultPollsAgainAfterTimedOutFault() throws Exception {
+        mockExecuteRequest();
+        PowerMockito.doReturn(false).when(wsManRemoteShellServiceSpy, EXECUTION_IS_TIMED_OUT_METHOD, anyLong(), anyInt());
+        PowerMockito.mockStatic(ReceiveResponseParser.class);
+        ReceiveResponse timedOutResponse = new ReceiveResponse(WSMAN_FAULT_RESPONSE_ACTION, "", FAULT_MESSAGE, TIMED_OUT_FAULT_SUBCODE, "", "",
+                new ByteArrayOutputStream(), new ByteArrayOutputStream(), 0);
+        ReceiveResponse runningResponse = new ReceiveResponse(RECEIVE_RESPONSE_ACTION, "", "", "", "", "",
+                new ByteArrayOutputStream(), new ByteArrayOutputStream(), 10);
+        ReceiveResponse doneResponse = createReceiveResponse(RECEIVE_RESPONSE_ACTION, DONE_COMMAND_STATE, "");
+        Mockito.when(ReceiveResponseParser.parse(eq(RESPONSE_BODY), any(ByteArrayOutputStream.class), any(ByteArrayOutputStream.class)))
+                .thenReturn(timedOutResponse, runningResponse, doneResponse);
+        PowerMockito.doReturn(resultMock).when(wsManRemoteShellServiceSpy, PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, doneResponse);
+
+        Map<String, String> result = Whitebox.invokeMethod(wsManRemoteShellServiceSpy, RECEIVE_COMMAND_RESULT_METHOD, csHttpClientMock, httpClientInputsMock,
+                SHELL_UUID, COMMAND_UUID, wsManRequestInputs);
+
+        assertEquals(resultMock, result);
+        verify(csHttpClientMock, times(3)).execute(httpClientInputsMock);
+        verify(resultMock).put(RECEIVE_POLLS, "3");
+        verify(resultMock).put(RECEIVE_POLLS_WITH_DATA, "2");
+        verify(resultMock).put(STDOUT_SIZE, "0");
+        verify(resultMock).put(STDOUT_TRUNCATED, "false");
     }
 
     @Test
     public void testReceiveCommandResultThrowsFaultException() throws Exception {
         mockExecuteRequest();
         PowerMockito.doReturn(false).when(wsManRemoteShellServiceSpy, EXECUTION_IS_TIMED_OUT_METHOD, anyLong(), anyInt());
-        PowerMockito.mockStatic(WSManUtils.class);
-        Mockito.when(WSManUtils.isSpecificResponseAction(RESPONSE_BODY, RECEIVE_RESPONSE_ACTION)).thenReturn(true);
-        Mockito.when(WSManUtils.commandExecutionIsDone(RESPONSE_BODY)).thenReturn(false);
-        Mockito.when(WSManUtils.isFaultResponse(RESPONSE_BODY)).thenReturn(true);
-        Mockito.when(WSManUtils.getResponseFault(RESPONSE_BODY)).thenReturn(FAULT_MESSAGE);
+        PowerMockito.mockStatic(ReceiveResponseParser.class);
+        Mockito.when(ReceiveResponseParser.parse(eq(RESPONSE_BODY), any(ByteArrayOutputStream.class), any(ByteArrayOutputStream.class)))
+                .thenReturn(createReceiveResponse(WSMAN_FAULT_RESPONSE_ACTION, "", FAULT_MESSAGE));
 
         thrownException.expectMessage(FAULT_MESSAGE);
         Whitebox.invokeMethod(wsManRemoteShellServiceSpy, RECEIVE_COMMAND_RESULT_METHOD, csHttpClientMock, httpClientInputsMock,
                 SHELL_UUID, COMMAND_UUID, wsManRequestInputs);
 
         verifyStatic();
-        WSManUtils.isSpecificResponseAction(RESPONSE_BODY, RECEIVE_RESPONSE_ACTION);
-        WSManUtils.commandExecutionIsDone(RESPONSE_BODY);
-        WSManUtils.isFaultResponse(RESPONSE_BODY);
-        WSManUtils.getResponseFault(RESPONSE_BODY);
+        ReceiveResponseParser.parse(eq(RESPONSE_BODY), any(ByteArrayOutputStream.class), any(ByteArrayOutputStream.class));
     }
 
     @Test
@@ -450,20 +577,14 @@ public class WSManRemoteShellServiceTest {
 
     @Test
     public void testProcessCommandExecutionResponse() throws Exception {
-        doReturn(RECEIVE_RESULT).when(resultMock).get(RETURN_RESULT);
-        PowerMockito.doReturn(STDOUT_VALUE).when(wsManRemoteShellServiceSpy, BUILD_RESULT_FROM_RESPONSE_STREAMS_METHOD, RECEIVE_RESULT, OutputStream.STDOUT);
-        PowerMockito.doReturn(STDERR_VALUE).when(wsManRemoteShellServiceSpy, BUILD_RESULT_FROM_RESPONSE_STREAMS_METHOD, RECEIVE_RESULT, OutputStream.STDERR);
-        PowerMockito.mockStatic(WSManUtils.class);
-        PowerMockito.when(WSManUtils.getScriptExitCode(RECEIVE_RESULT)).thenReturn(SCRIPT_EXIT_CODE_ZERO);
+        ReceiveResponse receiveResponse = new ReceiveResponse(RECEIVE_RESPONSE_ACTION, "", "", "", DONE_COMMAND_STATE, SCRIPT_EXIT_CODE_ZERO,
+                toStream(STDOUT_VALUE), toStream(STDERR_VALUE), STDOUT_VALUE.length() + STDERR_VALUE.length());
 
-        Map<String, String> result = Whitebox.invokeMethod(wsManRemoteShellServiceSpy, PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, resultMock);
+        Map<String, String> result = Whitebox.invokeMethod(wsManRemoteShellServiceSpy, PROCESS_COMMAND_EXECUTION_RESPONSE_METHOD, receiveResponse);
 
         assertEquals(STDOUT_VALUE, result.get(RETURN_RESULT));
         assertEquals(STDERR_VALUE, result.get(STDERR));
         assertEquals(SCRIPT_EXIT_CODE_ZERO, result.get(SCRIPT_EXIT_CODE));
-        verify(resultMock, times(3)).get(RETURN_RESULT);
-        verifyStatic();
-        WSManUtils.getScriptExitCode(RECEIVE_RESULT);
     }
 
     @Test
@@ -510,19 +631,62 @@ public class WSManRemoteShellServiceTest {
         WSManUtils.isFaultResponse(RESPONSE_BODY);
     }
 
-    @Test
-    public void testBuildResultFromResponseStreams() throws Exception {
+    private static ReceiveResponse createReceiveResponse(String action, String commandState, String faultDetail) {
+        return new ReceiveResponse(action, "", faultDetail, "", commandState, "", new ByteArrayOutputStream(), new ByteArrayOutputStream(), 0);
+    }
+
+    private static ByteArrayOutputStream toStream(String value) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(value.getBytes(), 0, value.length());
+        return stream;
+    }
+
+    private ShellPool mockPooledShellRequests(WSManRemoteShellService wsManRemoteShellService) throws Exception {
+        wsManRequestInputs = new WSManRequestInputs.WSManRequestInputsBuilder()
+                .withHost(LOCALHOST)
+                .withPort(PORT)
+                .withProtocol(HTTPS)
+                .withUsername(USER)
+                .withPassword(PASS)
+                .withScript(SCRIPT)
+                .withReuseShell(Boolean.TRUE.toString())
+                .build();
+        ShellPool shellPool = new ShellPool();
+        PowerMockito.doReturn(shellPool).when(wsManRemoteShellService).getShellPool();
+        PowerMockito.doReturn(SHELL_UUID).when(wsManRemoteShellService, CREATE_SHELL_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(WSManRequestInputs.class));
+        PowerMockito.doReturn(resultMock).when(wsManRemoteShellService, RECEIVE_COMMAND_RESULT_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(String.class), any(WSManRequestInputs.class));
+        PowerMockito.doNothing().when(wsManRemoteShellService, TERMINATE_COMMAND_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(String.class), any(WSManRequestInputs.class));
+        PowerMockito.doNothing().when(wsManRemoteShellService, DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(WSManRequestInputs.class));
         PowerMockito.mockStatic(WSManUtils.class);
-        Mockito.when(WSManUtils.countStreamElements(RECEIVE_RESULT)).thenReturn(2);
-        PowerMockito.mockStatic(XMLUtils.class);
-        Mockito.when(XMLUtils.parseXml(anyString(), anyString())).thenReturn("c3RyZWFtX3ZhbA==");
+        return shellPool;
+    }
 
-        String result = Whitebox.invokeMethod(wsManRemoteShellServiceSpy, "buildResultFromResponseStreams", RECEIVE_RESULT, OutputStream.STDOUT);
+    private void mockScriptsRequests(String scriptExitCode) throws Exception {
+        Map<String, String> scriptResults = new HashMap<>();
+        scriptResults.put(SCRIPT_EXIT_CODE, scriptExitCode);
+        scriptResults.put(RETURN_RESULT, STDOUT_VALUE);
+        scriptResults.put(STDERR, STDERR_VALUE);
+        PowerMockito.doReturn(SHELL_UUID).when(wsManRemoteShellServiceSpy, CREATE_SHELL_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(WSManRequestInputs.class));
+        PowerMockito.doReturn(COMMAND_UUID).when(wsManRemoteShellServiceSpy, EXECUTE_COMMAND_METHOD, any(CSHttpClient.class),
+                any(HttpClientInputs.class), any(String.class), any(WSManRequestInputs.class), any(String.class));
+        PowerMockito.doReturn(scriptResults).when(wsManRemoteShellServiceSpy, RECEIVE_COMMAND_RESULT_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(String.class), any(WSManRequestInputs.class));
+        PowerMockito.doNothing().when(wsManRemoteShellServiceSpy, TERMINATE_COMMAND_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(String.class), any(WSManRequestInputs.class));
+        PowerMockito.doNothing().when(wsManRemoteShellServiceSpy, DELETE_SHELL_METHOD, any(CSHttpClient.class), any(HttpClientInputs.class),
+                any(String.class), any(WSManRequestInputs.class));
+        PowerMockito.mockStatic(WSManUtils.class);
+    }
 
-        assertEquals("stream_val" + "stream_val", result);
-        verifyStatic();
-        WSManUtils.countStreamElements(RECEIVE_RESULT);
-        XMLUtils.parseXml(anyString(), anyString());
+    private static ByteArrayBuffer createRequestBody() {
+        ByteArrayBuffer requestBody = new ByteArrayBuffer(RESPONSE_BODY.length());
+        requestBody.append(RESPONSE_BODY.getBytes(), 0, RESPONSE_BODY.length());
+        return requestBody;
     }
 
     private void mockExecuteRequest() {
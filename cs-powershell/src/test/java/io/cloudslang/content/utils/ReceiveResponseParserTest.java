@@ -0,0 +1,121 @@
+package io.cloudslang.content.utils;
+
+import io.cloudslang.content.entities.ReceiveResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReceiveResponseParserTest {
+
+    private static final String RECEIVE_RESPONSE = "<s:Envelope xml:lang=\"en-US\"\n" +
+            "            xmlns:s=\"http://www.w3.org/2003/05/soap-envelope\"\n" +
+            "            xmlns:a=\"http://schemas.xmlsoap.org/ws/2004/08/addressing\"\n" +
+            "            xmlns:rsp=\"http://schemas.microsoft.com/wbem/wsman/1/windows/shell\">\n" +
+            "\t<s:Header>\n" +
+            "\t\t<a:Action>http://schemas.microsoft.com/wbem/wsman/1/windows/shell/ReceiveResponse</a:Action>\n" +
+            "\t\t<a:MessageID>uuid:3F8709D8-2EE6-4D90-9092-081411C49E2A</a:MessageID>\n" +
+            "\t</s:Header>\n" +
+            "\t<s:Body>\n" +
+            "\t\t<rsp:ReceiveResponse>\n" +
+            "\t\t\t<rsp:Stream Name=\"stdout\" CommandId=\"CE0D0C63-9A3A-4638-AA95-DD305D4848CB\">Y29tcGF0</rsp:Stream>\n" +
+            "\t\t\t<rsp:Stream Name=\"stderr\" CommandId=\"CE0D0C63-9A3A-4638-AA95-DD305D4848CB\">ZXJyb3I=</rsp:Stream>\n" +
+            "\t\t\t<rsp:Stream Name=\"stdout\" CommandId=\"CE0D0C63-9A3A-4638-AA95-DD305D4848CB\">DQo=</rsp:Stream>\n" +
+            "\t\t\t<rsp:Stream Name=\"stdout\" CommandId=\"CE0D0C63-9A3A-4638-AA95-DD305D4848CB\">aWJpbGl0eQ==</rsp:Stream>\n" +
+            "\t\t\t<rsp:Stream Name=\"stdout\" CommandId=\"CE0D0C63-9A3A-4638-AA95-DD305D4848CB\" End=\"true\"/>\n" +
+            "\t\t\t<rsp:CommandState CommandId=\"CE0D0C63-9A3A-4638-AA95-DD305D4848CB\"\n" +
+            "\t\t\t                  State=\"http://schemas.microsoft.com/wbem/wsman/1/windows/shell/CommandState/Done\">\n" +
+            "\t\t\t\t<rsp:ExitCode>1</rsp:ExitCode>\n" +
+            "\t\t\t</rsp:CommandState>\n" +
+            "\t\t</rsp:ReceiveResponse>\n" +
+            "\t</s:Body>\n" +
+            "</s:Envelope>";
+
+    private static final String FAULT_RESPONSE = "<s:Envelope xmlns:s=\"http://www.w3.org/2003/05/soap-envelope\"\n" +
+            "            xmlns:a=\"http://schemas.xmlsoap.org/ws/2004/08/addressing\"\n" +
+            "            xmlns:f=\"http://schemas.microsoft.com/wbem/wsman/1/wsmanfault\">\n" +
+            "\t<s:Header>\n" +
+            "\t\t<a:Action>http://schemas.dmtf.org/wbem/wsman/1/wsman/fault</a:Action>\n" +
+            "\t</s:Header>\n" +
+            "\t<s:Body>\n" +
+            "\t\t<s:Fault>\n" +
+            "\t\t\t<s:Reason><s:Text xml:lang=\"en-US\">The request timed out. </s:Text></s:Reason>\n" +
+            "\t\t\t<s:Detail><f:WSManFault Code=\"2150858793\"><f:Message>The shell was not found.</f:Message></f:WSManFault></s:Detail>\n" +
+            "\t\t</s:Fault>\n" +
+            "\t</s:Body>\n" +
+            "</s:Envelope>";
+
+    private static final String TIMED_OUT_FAULT_RESPONSE = "<s:Envelope xmlns:s=\"http://www.w3.org/2003/05/soap-envelope\"\n" +
+            "            xmlns:a=\"http://schemas.xmlsoap.org/ws/2004/08/addressing\"\n" +
+            "            xmlns:w=\"http://schemas.dmtf.org/wbem/wsman/1/wsman.xsd\">\n" +
+            "\t<s:Header>\n" +
+            "\t\t<a:Action>http://schemas.dmtf.org/wbem/wsman/1/wsman/fault</a:Action>\n" +
+            "\t</s:Header>\n" +
+            "\t<s:Body>\n" +
+            "\t\t<s:Fault>\n" +
+            "\t\t\t<s:Code><s:Value>s:Receiver</s:Value><s:Subcode><s:Value>w:TimedOut</s:Value></s:Subcode></s:Code>\n" +
+            "\t\t\t<s:Reason><s:Text xml:lang=\"en-US\">The WS-Management service cannot complete the operation within the time specified in OperationTimeout.</s:Text></s:Reason>\n" +
+            "\t\t</s:Fault>\n" +
+            "\t</s:Body>\n" +
+            "</s:Envelope>";
+
+    private static final String RECEIVE_RESPONSE_ACTION = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/ReceiveResponse";
+    private static final String RESPONSE_IS_NOT_WELL_FORMED = "The http response document is not a Well-formed XML: ";
+
+    @Rule
+    public ExpectedException thrownException = ExpectedException.none();
+
+    @Test
+    public void testParseReceiveResponse() {
+        ReceiveResponse receiveResponse = ReceiveResponseParser.parse(RECEIVE_RESPONSE);
+
+        assertTrue(receiveResponse.isAction(RECEIVE_RESPONSE_ACTION));
+        assertFalse(receiveResponse.isFault());
+        assertTrue(receiveResponse.isCommandDone());
+        assertEquals("1", receiveResponse.getExitCode());
+        assertEquals("compatibility", receiveResponse.getStdout());
+        assertEquals("error", receiveResponse.getStderr());
+    }
+
+    @Test
+    public void testParseFaultResponse() {
+        ReceiveResponse receiveResponse = ReceiveResponseParser.parse(FAULT_RESPONSE);
+
+        assertTrue(receiveResponse.isFault());
+        assertFalse(receiveResponse.isCommandDone());
+        assertEquals("", receiveResponse.getExitCode());
+        assertEquals("The request timed out. The shell was not found.", receiveResponse.getFault());
+        assertFalse(receiveResponse.isTimedOutFault());
+    }
+
+    @Test
+    public void testParseTimedOutFaultResponse() {
+        ReceiveResponse receiveResponse = ReceiveResponseParser.parse(TIMED_OUT_FAULT_RESPONSE);
+
+        assertTrue(receiveResponse.isTimedOutFault());
+        assertFalse(receiveResponse.hasData());
+    }
+
+    @Test
+    public void testParseAppendsStreams() {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        ReceiveResponseParser.parse(RECEIVE_RESPONSE, stdout, stderr);
+        ReceiveResponse receiveResponse = ReceiveResponseParser.parse(RECEIVE_RESPONSE, stdout, stderr);
+
+        assertTrue(receiveResponse.hasData());
+        assertEquals("compatibilitycompatibility", receiveResponse.getStdout());
+        assertEquals("errorerror", receiveResponse.getStderr());
+    }
+
+    @Test
+    public void testParseThrowsException() {
+        thrownException.expectMessage(RESPONSE_IS_NOT_WELL_FORMED);
+        ReceiveResponseParser.parse("<note>\n<to>Tove</to>\n<from>Jani</from>");
+    }
+}
@@ -0,0 +1,65 @@
+package io.cloudslang.content.utils;
+
+import org.apache.http.util.ByteArrayBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+public class RequestTemplateTest {
+
+    private static final String COMMAND_PLACEHOLDER = "$PLACEHOLDER_FOR_COMMAND";
+    private static final String COMMAND_ID_PLACEHOLDER = "$PLACEHOLDER_FOR_COMMAND_ID";
+    private static final String TIMEOUT_PLACEHOLDER = "$PLACEHOLDER_FOR_OPERATION_TIMEOUT";
+    private static final String DOCUMENT = "<a Id=\"" + COMMAND_ID_PLACEHOLDER + "\">" + COMMAND_PLACEHOLDER + "</a><t>PT" + TIMEOUT_PLACEHOLDER + ".000S</t>";
+    private static final String RECEIVE_REQUEST_XML = "templates/Receive.xml";
+
+    @Rule
+    public ExpectedException thrownException = ExpectedException.none();
+
+    @Test
+    public void testRender() {
+        Map<String, String> values = new HashMap<>();
+        values.put(COMMAND_PLACEHOLDER, "powershell -EncodedCommand ZQBjAGgAbwA=");
+        values.put(COMMAND_ID_PLACEHOLDER, "C0DE9575-6E2D-4C79-9367-676071BDE404");
+        values.put(TIMEOUT_PLACEHOLDER, "60");
+
+        ByteArrayBuffer buffer = RequestTemplate.compile(DOCUMENT).render(values);
+
+        assertEquals("<a Id=\"C0DE9575-6E2D-4C79-9367-676071BDE404\">powershell -EncodedCommand ZQBjAGgAbwA=</a><t>PT60.000S</t>",
+                new String(buffer.buffer(), 0, buffer.length(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRenderThrowsExceptionForUnknownPlaceholder() {
+        Map<String, String> values = new HashMap<>();
+        values.put("$PLACEHOLDER_FOR_SHELL_ID", "shellId");
+
+        thrownException.expectMessage("Resource does not contain the expected placeholder name: $PLACEHOLDER_FOR_SHELL_ID");
+        RequestTemplate.compile(DOCUMENT).render(values);
+    }
+
+    @Test
+    public void testRenderThrowsExceptionForMissingValue() {
+        thrownException.expectMessage("No value was given for the placeholder: " + COMMAND_ID_PLACEHOLDER);
+        RequestTemplate.compile(DOCUMENT).render(new HashMap<String, String>());
+    }
+
+    @Test
+    public void testGetTemplateIsCached() throws Exception {
+        RequestTemplate template = RequestTemplate.getTemplate(RECEIVE_REQUEST_XML);
+
+        assertSame(template, RequestTemplate.getTemplate(RECEIVE_REQUEST_XML));
+        assertEquals(new HashSet<>(Arrays.asList("$PLACEHOLDER_FOR_SERVICE_NETWORK_ADDRESS", "$PLACEHOLDER_FOR_MESSAGE_ID",
+                "$PLACEHOLDER_FOR_MAX_ENVELOPE_SIZE", "$PLACEHOLDER_FOR_LOCALE", "$PLACEHOLDER_FOR_SHELL_ID",
+                "$PLACEHOLDER_FOR_OPERATION_TIMEOUT", COMMAND_ID_PLACEHOLDER)), template.getPlaceholderNames());
+    }
+}
@@ -7,6 +7,11 @@ import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -35,4 +40,22 @@ public class WSManUtilsTest {
         thrownException.expectMessage("The returned " + uuidValueOf + " is not a valid UUID value!");
         WSManUtils.validateUUID(INVALID_UUID, uuidValueOf);
     }
+
+    @Test
+    public void testToJsonArray() {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("returnCode", "0");
+        result.put("scriptExitCode", "0");
+        result.put("returnResult", "line \"1\"\r\nline 2\\");
+        result.put("stderr", null);
+        Map<String, String> failure = new LinkedHashMap<>();
+        failure.put("returnCode", "-1");
+        failure.put("exception", "Connection refused");
+
+        assertEquals("[{\"returnCode\":\"0\",\"scriptExitCode\":\"0\",\"returnResult\":\"line \\\"1\\\"\\r\\nline 2\\\\\"}," +
+                        "{\"returnCode\":\"-1\",\"exception\":\"Connection refused\"}]",
+                WSManUtils.toJsonArray(Arrays.asList(result, failure)));
+        assertFalse(WSManUtils.isSuccess(Arrays.asList(result, failure)));
+        assertTrue(WSManUtils.isSuccess(Arrays.asList(result)));
+    }
 }
@@ -16,16 +16,18 @@ import com.hp.oo.sdk.content.annotations.Param;
 import com.hp.oo.sdk.content.annotations.Response;
 import com.hp.oo.sdk.content.plugin.ActionMetadata.MatchType;
 import com.hp.oo.sdk.content.plugin.ActionMetadata.ResponseType;
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
 
 import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
 import io.cloudslang.content.rft.services.RemoteSecureCopyService;
+import io.cloudslang.content.rft.services.SessionPool;
 import io.cloudslang.content.rft.utils.Constants;
 
 
 import java.util.Map;
 
 /**
- * The operation copies a file on the remote machine using the SCP protocol.
+ * The operation copies a file on the remote machine using the SCP or the SFTP protocol.
  *
  * Date: 3/12/2015
  *
@@ -38,6 +40,7 @@ public class RemoteSecureCopyAction {
      *
      * @param sourceHost The hostname or ip address of the source remote machine.
      * @param sourcePath The path to the file that needs to be copied from the source remote machine.
+     *                   When 'useWildcards' is true, the file name can contain the * and ? wildcards to copy all the matching files.
      * @param sourcePort The port number for running the command on the source remote machine.
      * @param sourceUsername The username of the account on the source remote machine.
      * @param sourcePassword The password of the user for the source remote machine.
@@ -51,11 +54,48 @@ public class RemoteSecureCopyAction {
      * @param knownHostsPolicy The policy used for managing known_hosts file. Valid values: allow, strict, add. Default value: strict
      * @param knownHostsPath The path to the known hosts file.
      * @param timeout Time in milliseconds to wait for the command to complete. Default value is 90000 (90 seconds)
+     * @param protocol The protocol used to copy the file. Valid values: scp, sftp. Default value: scp
+     * @param bufferSize The size in bytes of the buffer used to read and write the files, at least 1024. Default value: 32768
+     * @param outstandingRequests The number of SFTP read or write requests sent without waiting for their response. Used only by the sftp protocol. Default value: 16
+     * @param preserveAttributes If true, the copy keeps the modification time and the permissions of the source file. Used only by the sftp protocol, scp always keeps them when uploading. Default value: true
+     * @param remoteCopyMode How a file is copied between two remote machines. tempFile downloads the whole file to a local temporary file and then uploads it,
+     *                       piped sends the file to the destination while it is received from the source and falls back to tempFile if the destination fails during the copy.
+     *                       Valid values: tempFile, piped. Default value: tempFile
+     * @param relayBufferSize The maximum number of bytes received from the source and not yet sent to the destination, used only by the piped remote copy mode of the scp protocol. Default value: 1048576
+     * @param recursive If true and the source path is a directory, the whole directory tree is copied under the destination path. Default value: false
+     * @param fileList A list of paths relative to the source path, one per line, to copy several files at once.
+     * @param useWildcards If true, the * and ? characters in the file name of the source path are wildcards and all the matching files are copied,
+     *                     otherwise they are part of the file name. Default value: false
+     * @param parallelStreams The number of files copied at the same time, each stream with its own session, when several files are copied. Default value: 4
+     * @param skipUnchanged If true, the files with the same size and modification time on the destination are not copied again. Default value: false
+     * @param sessionPoolScope Where the sessions are kept for the next copies to the same host with the same credentials. none closes the sessions after the copy,
+     *                         run keeps them until the end of the flow run, global keeps them for all the flows of the worker.
+     *                         Valid values: none, run, global. Default value: none
+     * @param maxSessionsPerHost The maximum number of unused sessions kept for a host and credentials. Each session is used by one copy at a time,
+     *                           a copy that finds no unused session opens a new one. Default value: 4
+     * @param sessionMaxIdleTime The time in milliseconds after which an unused pooled session is closed, the next time the pool is used. Default value: 300000 (5 minutes)
+     * @param resume If true and the destination already has a shorter file, for example after an interrupted copy, only the rest of the source is copied
+     *               and appended to it. Default value: false
+     * @param verifyChecksum If true, the SHA-256 checksums of the source and of the destination are compared after the copy. A resumed copy whose checksums
+     *                       do not match is done again from the start. Default value: false
+     * @param globalSessionObject The object holding the session pool of the flow run.
      *
      * @return - a map containing the output of the operation. Keys present in the map are:
      *     <br><b>returnResult</b> - The primary output.
      *     <br><b>returnCode</b> - the return code of the operation. 0 if the operation goes to success, -1 if the operation goes to failure.
      *     <br><b>exception</b> - the exception message if the operation goes to failure.
+     *     <br><b>bytesTransferred</b> - the number of bytes written to the destination.
+     *     <br><b>transferTime</b> - the duration of the copy in milliseconds, including the connection setup.
+     *     <br><b>transferRate</b> - the average transfer rate in bytes per second.
+     *     <br><b>filesTransferred</b> - the number of files copied, when several files are copied.
+     *     <br><b>filesSkipped</b> - the number of unchanged files not copied again, when several files are copied.
+     *     <br><b>filesFailed</b> - the number of files that could not be copied, when several files are copied.
+     *     <br><b>resumeOffset</b> - the number of bytes of the destination kept by a resumed copy, 0 if the whole file was copied.
+     *     <br><b>checksum</b> - the SHA-256 checksum of the copied file, when 'verifyChecksum' is true.
+     *
+     * Several files are copied when 'useWildcards' is true and the source path contains a wildcard, when 'recursive' is true or when 'fileList' is given.
+     * They are always copied with the sftp protocol and keep their path relative to the source path under the destination path.
+     * A single file is also copied with the sftp protocol when 'resume' or 'verifyChecksum' is true, through a temporary file between two remote machines.
      *
      */
 
@@ -63,7 +103,15 @@ public class RemoteSecureCopyAction {
             outputs = {
                     @Output(Constants.OutputNames.RETURN_CODE),
                     @Output(Constants.OutputNames.RETURN_RESULT),
-                    @Output(Constants.OutputNames.EXCEPTION)
+                    @Output(Constants.OutputNames.EXCEPTION),
+                    @Output(Constants.OutputNames.BYTES_TRANSFERRED),
+                    @Output(Constants.OutputNames.TRANSFER_TIME),
+                    @Output(Constants.OutputNames.TRANSFER_RATE),
+                    @Output(Constants.OutputNames.FILES_TRANSFERRED),
+                    @Output(Constants.OutputNames.FILES_SKIPPED),
+                    @Output(Constants.OutputNames.FILES_FAILED),
+                    @Output(Constants.OutputNames.RESUME_OFFSET),
+                    @Output(Constants.OutputNames.CHECKSUM)
             },
             responses = {
                     @Response(text = Constants.ResponseNames.SUCCESS, field = Constants.OutputNames.RETURN_CODE, value = Constants.ReturnCodes.RETURN_CODE_SUCCESS, matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.RESOLVED),
@@ -85,7 +133,24 @@ public class RemoteSecureCopyAction {
             @Param(Constants.InputNames.DESTINATION_PRIVATE_KEY_FILE) String destinationPrivateKeyFile,
             @Param(Constants.InputNames.KNOWN_HOSTS_POLICY) String knownHostsPolicy,
             @Param(Constants.InputNames.KNOWN_HOSTS_PATH) String knownHostsPath,
-            @Param(Constants.InputNames.TIMEOUT) String timeout) {
+            @Param(Constants.InputNames.TIMEOUT) String timeout,
+            @Param(Constants.InputNames.PROTOCOL) String protocol,
+            @Param(Constants.InputNames.BUFFER_SIZE) String bufferSize,
+            @Param(Constants.InputNames.OUTSTANDING_REQUESTS) String outstandingRequests,
+            @Param(Constants.InputNames.PRESERVE_ATTRIBUTES) String preserveAttributes,
+            @Param(Constants.InputNames.REMOTE_COPY_MODE) String remoteCopyMode,
+            @Param(Constants.InputNames.RELAY_BUFFER_SIZE) String relayBufferSize,
+            @Param(Constants.InputNames.RECURSIVE) String recursive,
+            @Param(Constants.InputNames.FILE_LIST) String fileList,
+            @Param(Constants.InputNames.USE_WILDCARDS) String useWildcards,
+            @Param(Constants.InputNames.PARALLEL_STREAMS) String parallelStreams,
+            @Param(Constants.InputNames.SKIP_UNCHANGED) String skipUnchanged,
+            @Param(Constants.InputNames.SESSION_POOL_SCOPE) String sessionPoolScope,
+            @Param(Constants.InputNames.MAX_SESSIONS_PER_HOST) String maxSessionsPerHost,
+            @Param(Constants.InputNames.SESSION_MAX_IDLE_TIME) String sessionMaxIdleTime,
+            @Param(Constants.InputNames.RESUME) String resume,
+            @Param(Constants.InputNames.VERIFY_CHECKSUM) String verifyChecksum,
+            @Param(Constants.InputNames.RFT_SESSIONS_DEFAULT_ID) GlobalSessionObject<SessionPool> globalSessionObject) {
 
         RemoteSecureCopyInputs remoteSecureCopyInputs = new RemoteSecureCopyInputs(sourcePath, destinationHost, destinationPath, destinationUsername);
         remoteSecureCopyInputs.setSrcHost(sourceHost);
@@ -99,6 +164,23 @@ public class RemoteSecureCopyAction {
         remoteSecureCopyInputs.setKnownHostsPolicy(knownHostsPolicy);
         remoteSecureCopyInputs.setKnownHostsPath(knownHostsPath);
         remoteSecureCopyInputs.setTimeout(timeout);
+        remoteSecureCopyInputs.setProtocol(protocol);
+        remoteSecureCopyInputs.setBufferSize(bufferSize);
+        remoteSecureCopyInputs.setOutstandingRequests(outstandingRequests);
+        remoteSecureCopyInputs.setPreserveAttributes(preserveAttributes);
+        remoteSecureCopyInputs.setRemoteCopyMode(remoteCopyMode);
+        remoteSecureCopyInputs.setRelayBufferSize(relayBufferSize);
+        remoteSecureCopyInputs.setRecursive(recursive);
+        remoteSecureCopyInputs.setFileList(fileList);
+        remoteSecureCopyInputs.setUseWildcards(useWildcards);
+        remoteSecureCopyInputs.setParallelStreams(parallelStreams);
+        remoteSecureCopyInputs.setSkipUnchanged(skipUnchanged);
+        remoteSecureCopyInputs.setSessionPoolScope(sessionPoolScope);
+        remoteSecureCopyInputs.setMaxSessionsPerHost(maxSessionsPerHost);
+        remoteSecureCopyInputs.setSessionMaxIdleTime(sessionMaxIdleTime);
+        remoteSecureCopyInputs.setResume(resume);
+        remoteSecureCopyInputs.setVerifyChecksum(verifyChecksum);
+        remoteSecureCopyInputs.setGlobalSessionObject(globalSessionObject);
 
         return new RemoteSecureCopyService().execute(remoteSecureCopyInputs);
 
@@ -10,6 +10,9 @@
 
 package io.cloudslang.content.rft.entities;
 
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import io.cloudslang.content.rft.services.SessionPool;
+
 /**
  * Date: 4/10/2015
  *
@@ -32,6 +35,23 @@ public class RemoteSecureCopyInputs {
     private String knownHostsPolicy;
     private String knownHostsPath;
     private String timeout;
+    private String protocol;
+    private String bufferSize;
+    private String outstandingRequests;
+    private String preserveAttributes;
+    private String remoteCopyMode;
+    private String relayBufferSize;
+    private String recursive;
+    private String fileList;
+    private String useWildcards;
+    private String parallelStreams;
+    private String skipUnchanged;
+    private String sessionPoolScope;
+    private String maxSessionsPerHost;
+    private String sessionMaxIdleTime;
+    private String resume;
+    private String verifyChecksum;
+    private GlobalSessionObject<SessionPool> globalSessionObject;
 
     public RemoteSecureCopyInputs(String srcPath, String destHost, String destPath, String destUsername) {
         this.srcPath = srcPath;
@@ -160,4 +180,140 @@ public class RemoteSecureCopyInputs {
         this.timeout = timeout;
     }
 
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    public String getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(String bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public String getOutstandingRequests() {
+        return outstandingRequests;
+    }
+
+    public void setOutstandingRequests(String outstandingRequests) {
+        this.outstandingRequests = outstandingRequests;
+    }
+
+    public String getPreserveAttributes() {
+        return preserveAttributes;
+    }
+
+    public void setPreserveAttributes(String preserveAttributes) {
+        this.preserveAttributes = preserveAttributes;
+    }
+
+    public String getRemoteCopyMode() {
+        return remoteCopyMode;
+    }
+
+    public void setRemoteCopyMode(String remoteCopyMode) {
+        this.remoteCopyMode = remoteCopyMode;
+    }
+
+    public String getRelayBufferSize() {
+        return relayBufferSize;
+    }
+
+    public void setRelayBufferSize(String relayBufferSize) {
+        this.relayBufferSize = relayBufferSize;
+    }
+
+    public String getRecursive() {
+        return recursive;
+    }
+
+    public void setRecursive(String recursive) {
+        this.recursive = recursive;
+    }
+
+    public String getFileList() {
+        return fileList;
+    }
+
+    public void setFileList(String fileList) {
+        this.fileList = fileList;
+    }
+
+    public String getUseWildcards() {
+        return useWildcards;
+    }
+
+    public void setUseWildcards(String useWildcards) {
+        this.useWildcards = useWildcards;
+    }
+
+    public String getParallelStreams() {
+        return parallelStreams;
+    }
+
+    public void setParallelStreams(String parallelStreams) {
+        this.parallelStreams = parallelStreams;
+    }
+
+    public String getSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    public void setSkipUnchanged(String skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public String getSessionPoolScope() {
+        return sessionPoolScope;
+    }
+
+    public void setSessionPoolScope(String sessionPoolScope) {
+        this.sessionPoolScope = sessionPoolScope;
+    }
+
+    public String getMaxSessionsPerHost() {
+        return maxSessionsPerHost;
+    }
+
+    public void setMaxSessionsPerHost(String maxSessionsPerHost) {
+        this.maxSessionsPerHost = maxSessionsPerHost;
+    }
+
+    public String getSessionMaxIdleTime() {
+        return sessionMaxIdleTime;
+    }
+
+    public void setSessionMaxIdleTime(String sessionMaxIdleTime) {
+        this.sessionMaxIdleTime = sessionMaxIdleTime;
+    }
+
+    public String getResume() {
+        return resume;
+    }
+
+    public void setResume(String resume) {
+        this.resume = resume;
+    }
+
+    public String getVerifyChecksum() {
+        return verifyChecksum;
+    }
+
+    public void setVerifyChecksum(String verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+    }
+
+    public GlobalSessionObject<SessionPool> getGlobalSessionObject() {
+        return globalSessionObject;
+    }
+
+    public void setGlobalSessionObject(GlobalSessionObject<SessionPool> globalSessionObject) {
+        this.globalSessionObject = globalSessionObject;
+    }
+
 }
\ No newline at end of file
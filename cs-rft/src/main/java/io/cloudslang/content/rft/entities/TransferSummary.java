@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The counters of a copy of several files, updated by the threads that copy the files.
+ */
+public class TransferSummary {
+    private int filesTransferred;
+    private int filesSkipped;
+    private long bytesTransferred;
+    private final List<String> failures = new ArrayList<>();
+
+    public synchronized void addTransferred(long bytes) {
+        filesTransferred++;
+        bytesTransferred += bytes;
+    }
+
+    public synchronized void addSkipped() {
+        filesSkipped++;
+    }
+
+    public synchronized void addFailure(String path, String message) {
+        failures.add(path + ": " + message);
+    }
+
+    public synchronized int getFilesTransferred() {
+        return filesTransferred;
+    }
+
+    public synchronized int getFilesSkipped() {
+        return filesSkipped;
+    }
+
+    public synchronized int getFilesFailed() {
+        return failures.size();
+    }
+
+    public synchronized long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    public synchronized List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.*;
+import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
+import io.cloudslang.content.rft.entities.TransferSummary;
+import io.cloudslang.content.rft.utils.Constants;
+import io.cloudslang.content.rft.utils.StringUtils;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies several files with the SFTP protocol: a directory tree ('recursive'), the files matching a wildcard in the
+ * file name of the source path ('useWildcards'), or a list of files relative to the source path ('fileList'). The files keep their
+ * path relative to the source directory under the destination path.
+ * <p/>
+ * The files are shared between 'parallelStreams' threads, each with its own sessions used for all the files it
+ * copies. The files with the same size and modification time on the destination are skipped if 'skipUnchanged' is
+ * true. A file that cannot be copied does not stop the copy of the others.
+ */
+public class MultiFileCopier extends SFTPCopier {
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    public MultiFileCopier(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        super(remoteSecureCopyInputs);
+    }
+
+    /**
+     * @return true if the inputs select more than one file to copy.
+     */
+    public static boolean isMultiFileCopy(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getRecursive(), false)
+                || !StringUtils.isEmpty(remoteSecureCopyInputs.getFileList())
+                || matchesSeveralFiles(remoteSecureCopyInputs, getBaseName(remoteSecureCopyInputs.getSrcPath()));
+    }
+
+    public TransferSummary copyFiles() {
+        final boolean localSource = StringUtils.isEmpty(remoteSecureCopyInputs.getSrcHost());
+        final TransferSummary summary = new TransferSummary();
+        int parallelStreams = getParallelStreams();
+        ExecutorService executorService = null;
+        Connection setupConnection = null;
+
+        try {
+            setupConnection = openConnection(localSource);
+            List<FileEntry> entries = localSource ? listLocalFiles() : listRemoteFiles(setupConnection.src);
+            createRemoteDirectories(setupConnection.dest, entries);
+
+            final Queue<FileEntry> queue = new ConcurrentLinkedQueue<>(entries);
+            int workers = Math.min(parallelStreams, entries.size());
+            if (workers == 0) {
+                return summary;
+            }
+            executorService = Executors.newFixedThreadPool(workers, new CopyThreadFactory());
+            List<Future<?>> futures = new ArrayList<>();
+            // the first thread uses the connection already opened for the listing, the others open their own
+            final Connection firstConnection = setupConnection;
+            for (int i = 0; i < workers; i++) {
+                final boolean first = i == 0;
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Connection connection = first ? firstConnection : openConnection(localSource);
+                        try {
+                            copyQueuedFiles(connection, localSource, queue, summary);
+                        } finally {
+                            if (!first) {
+                                connection.close();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            String connectionError = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    connectionError = e.getCause().getMessage();
+                }
+            }
+            // the files left when all the threads lost their connection
+            for (FileEntry entry : queue) {
+                summary.addFailure(entry.relativePath, connectionError != null ? connectionError : "Not copied");
+            }
+            return summary;
+        } catch (JSchException | SftpException | IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("The copy was interrupted", e);
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+            if (setupConnection != null) {
+                setupConnection.close();
+            }
+        }
+    }
+
+    private void copyQueuedFiles(Connection connection, boolean localSource, Queue<FileEntry> queue, TransferSummary summary) throws IOException {
+        boolean skipUnchanged = StringUtils.toBoolean(remoteSecureCopyInputs.getSkipUnchanged(), Constants.DEFAULT_SKIP_UNCHANGED);
+        FileEntry entry;
+        while ((entry = queue.poll()) != null) {
+            String destPath = joinRemotePath(remoteSecureCopyInputs.getDestPath(), entry.relativePath);
+            try {
+                if (skipUnchanged && isUnchanged(connection.dest, destPath, entry)) {
+                    summary.addSkipped();
+                } else {
+                    summary.addTransferred(copyFile(connection, localSource, entry, destPath));
+                }
+            } catch (SftpException | IOException e) {
+                summary.addFailure(entry.relativePath, e.getMessage());
+                if (!connection.isConnected()) {
+                    throw new IOException("The connection was lost: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private long copyFile(Connection connection, boolean localSource, FileEntry entry, String destPath) throws SftpException, IOException {
+        InputStream in = localSource ? new BufferedInputStream(new FileInputStream(entry.sourcePath), getBufferSize()) : connection.src.get(entry.sourcePath);
+        TransferMonitor monitor = new TransferMonitor();
+        try {
+            connection.dest.put(in, destPath, monitor, ChannelSftp.OVERWRITE);
+        } finally {
+            in.close();
+        }
+        if (isPreserveAttributes()) {
+            connection.dest.setMtime(destPath, entry.modifiedTime);
+            connection.dest.chmod(entry.permissions & PERMISSIONS_MASK, destPath);
+        }
+        return monitor.getCount();
+    }
+
+    private static boolean isUnchanged(ChannelSftp channel, String destPath, FileEntry entry) throws SftpException {
+        try {
+            SftpATTRS attributes = channel.stat(destPath);
+            return attributes.getSize() == entry.size && attributes.getMTime() == entry.modifiedTime;
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the destination directory and its sub directories needed by the files, before the files are copied
+     * in parallel.
+     */
+    private void createRemoteDirectories(ChannelSftp channel, List<FileEntry> entries) throws SftpException {
+        String destRoot = remoteSecureCopyInputs.getDestPath();
+        // sorted, so the parent directories are created first
+        SortedSet<String> directories = new TreeSet<>();
+        directories.add(destRoot);
+        for (FileEntry entry : entries) {
+            int index = entry.relativePath.indexOf('/');
+            while (index > 0) {
+                directories.add(joinRemotePath(destRoot, entry.relativePath.substring(0, index)));
+                index = entry.relativePath.indexOf('/', index + 1);
+            }
+        }
+        for (String directory : directories) {
+            try {
+                if (!channel.stat(directory).isDir()) {
+                    throw new RuntimeException("The destination path " + directory + " is not a directory.");
+                }
+            } catch (SftpException e) {
+                if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                    throw e;
+                }
+                channel.mkdir(directory);
+            }
+        }
+    }
+
+    protected List<FileEntry> listLocalFiles() throws IOException {
+        String srcPath = remoteSecureCopyInputs.getSrcPath();
+        String baseName = getBaseName(srcPath);
+        List<FileEntry> entries = new ArrayList<>();
+
+        if (!StringUtils.isEmpty(remoteSecureCopyInputs.getFileList())) {
+            Path base = Paths.get(srcPath);
+            for (String relativePath : getFileList()) {
+                addLocalFile(entries, base.resolve(relativePath), relativePath);
+            }
+        } else if (matchesSeveralFiles(remoteSecureCopyInputs, baseName)) {
+            Path parent = Paths.get(srcPath).getParent();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent != null ? parent : Paths.get("."), baseName)) {
+                for (Path path : stream) {
+                    addLocalFile(entries, path, path.getFileName().toString());
+                }
+            }
+        } else {
+            Path source = Paths.get(srcPath);
+            if (Files.isDirectory(source)) {
+                addLocalDirectory(entries, source, "");
+            } else {
+                addLocalFile(entries, source, source.getFileName().toString());
+            }
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    private void addLocalFile(List<FileEntry> entries, Path path, String relativePath) throws IOException {
+        if (Files.isDirectory(path)) {
+            if (isRecursive()) {
+                addLocalDirectory(entries, path, relativePath + "/");
+            }
+        } else if (Files.isRegularFile(path)) {
+            entries.add(new FileEntry(path.toString(), relativePath.replace('\\', '/'), Files.size(path),
+                    (int) (Files.getLastModifiedTime(path).toMillis() / 1000), getPermissions(path)));
+        } else {
+            throw new NoSuchFileException(path.toString());
+        }
+    }
+
+    private void addLocalDirectory(final List<FileEntry> entries, final Path directory, final String prefix) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (Files.isRegularFile(file)) {
+                    addLocalFile(entries, file, prefix + directory.relativize(file).toString());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    protected List<FileEntry> listRemoteFiles(ChannelSftp channel) throws SftpException {
+        String srcPath = remoteSecureCopyInputs.getSrcPath();
+        String baseName = getBaseName(srcPath);
+        List<FileEntry> entries = new ArrayList<>();
+
+        if (!StringUtils.isEmpty(remoteSecureCopyInputs.getFileList())) {
+            for (String relativePath : getFileList()) {
+                String path = joinRemotePath(srcPath, relativePath);
+                addRemoteFile(channel, entries, path, relativePath, channel.stat(path));
+            }
+        } else if (matchesSeveralFiles(remoteSecureCopyInputs, baseName)) {
+            String parent = srcPath.substring(0, srcPath.length() - baseName.length());
+            for (ChannelSftp.LsEntry lsEntry : listDirectory(channel, srcPath)) {
+                addRemoteFile(channel, entries, parent + lsEntry.getFilename(), lsEntry.getFilename(), lsEntry.getAttrs());
+            }
+        } else {
+            SftpATTRS attributes = channel.stat(srcPath);
+            if (attributes.isDir()) {
+                addRemoteDirectory(channel, entries, srcPath, "");
+            } else {
+                addRemoteFile(channel, entries, srcPath, getBaseName(srcPath), attributes);
+            }
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    private void addRemoteFile(ChannelSftp channel, List<FileEntry> entries, String path, String relativePath, SftpATTRS attributes) throws SftpException {
+        if (attributes.isLink()) {
+            attributes = channel.stat(path);
+        }
+        if (attributes.isDir()) {
+            if (isRecursive()) {
+                addRemoteDirectory(channel, entries, path, relativePath + "/");
+            }
+        } else if (attributes.isReg()) {
+            entries.add(new FileEntry(path, relativePath, attributes.getSize(), attributes.getMTime(), attributes.getPermissions()));
+        }
+    }
+
+    private void addRemoteDirectory(ChannelSftp channel, List<FileEntry> entries, String directory, String prefix) throws SftpException {
+        for (ChannelSftp.LsEntry lsEntry : listDirectory(channel, directory)) {
+            String path = joinRemotePath(directory, lsEntry.getFilename());
+            SftpATTRS attributes = lsEntry.getAttrs();
+            if (attributes.isLink()) {
+                attributes = channel.stat(path);
+                // like the local listing, the linked directories are not descended into, a link may point to a parent directory
+                if (attributes.isDir()) {
+                    continue;
+                }
+            }
+            addRemoteFile(channel, entries, path, prefix + lsEntry.getFilename(), attributes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ChannelSftp.LsEntry> listDirectory(ChannelSftp channel, String path) throws SftpException {
+        List<ChannelSftp.LsEntry> lsEntries = new ArrayList<>();
+        for (ChannelSftp.LsEntry lsEntry : (Vector<ChannelSftp.LsEntry>) channel.ls(path)) {
+            if (!".".equals(lsEntry.getFilename()) && !"..".equals(lsEntry.getFilename())) {
+                lsEntries.add(lsEntry);
+            }
+        }
+        return lsEntries;
+    }
+
+    private List<String> getFileList() {
+        List<String> fileList = new ArrayList<>();
+        for (String line : remoteSecureCopyInputs.getFileList().split("\r?\n")) {
+            if (!line.trim().isEmpty()) {
+                fileList.add(line.trim());
+            }
+        }
+        return fileList;
+    }
+
+    private Connection openConnection(boolean localSource) throws JSchException, IOException {
+        Connection connection = new Connection();
+        try {
+            if (!localSource) {
+                connection.srcSession = openSession(true);
+                connection.src = openChannel(connection.srcSession);
+            }
+            connection.destSession = openSession(false);
+            connection.dest = openChannel(connection.destSession);
+            return connection;
+        } catch (JSchException | IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private boolean isRecursive() {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getRecursive(), false);
+    }
+
+    private int getParallelStreams() {
+        int parallelStreams = StringUtils.toInt(remoteSecureCopyInputs.getParallelStreams(), Constants.DEFAULT_PARALLEL_STREAMS);
+        if (parallelStreams <= 0) {
+            throw new RuntimeException("The number of parallel streams should be greater than 0.");
+        }
+        return parallelStreams;
+    }
+
+    private static String getBaseName(String path) {
+        return path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+    }
+
+    /**
+     * The * and ? characters are wildcards only when 'useWildcards' is true, otherwise they are part of the file name.
+     */
+    private static boolean matchesSeveralFiles(RemoteSecureCopyInputs remoteSecureCopyInputs, String name) {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getUseWildcards(), Constants.DEFAULT_USE_WILDCARDS)
+                && (name.indexOf('*') >= 0 || name.indexOf('?') >= 0);
+    }
+
+    private static String joinRemotePath(String directory, String relativePath) {
+        return directory.endsWith("/") ? directory + relativePath : directory + "/" + relativePath;
+    }
+
+    protected static class FileEntry implements Comparable<FileEntry> {
+        private final String sourcePath;
+        private final String relativePath;
+        private final long size;
+        private final int modifiedTime;
+        private final int permissions;
+
+        private FileEntry(String sourcePath, String relativePath, long size, int modifiedTime, int permissions) {
+            this.sourcePath = sourcePath;
+            this.relativePath = relativePath;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.permissions = permissions;
+        }
+
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        @Override
+        public int compareTo(FileEntry other) {
+            return relativePath.compareTo(other.relativePath);
+        }
+    }
+
+    private class Connection {
+        private Session srcSession;
+        private ChannelSftp src;
+        private Session destSession;
+        private ChannelSftp dest;
+
+        private boolean isConnected() {
+            return dest.isConnected() && (src == null || src.isConnected());
+        }
+
+        private void close() {
+            disconnect(src, srcSession);
+            disconnect(dest, destSession);
+        }
+    }
+
+    private static class CopyThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rft-copy-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
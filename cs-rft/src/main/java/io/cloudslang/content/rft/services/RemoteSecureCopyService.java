@@ -11,11 +11,15 @@
 package io.cloudslang.content.rft.services;
 
 
+import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
+import com.hp.oo.sdk.content.plugin.SessionResource;
 import io.cloudslang.content.rft.entities.*;
 import io.cloudslang.content.rft.utils.Constants;
+import io.cloudslang.content.rft.utils.SessionPoolResource;
 import io.cloudslang.content.rft.utils.StringUtils;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -32,8 +36,14 @@ public class RemoteSecureCopyService {
 
         try {
 
-            SCPCopier copier = new SCPCopier(remoteSecureCopyInputs);
+            if (MultiFileCopier.isMultiFileCopy(remoteSecureCopyInputs)) {
+                return executeMultiFileCopy(remoteSecureCopyInputs);
+            }
+
+            SCPCopier copier = createCopier(remoteSecureCopyInputs);
+            copier.setSessionPool(getSessionPool(remoteSecureCopyInputs));
 
+            long startTime = System.currentTimeMillis();
             boolean successfullyCopied;
             if (StringUtils.isEmpty(remoteSecureCopyInputs.getSrcHost())){
                 successfullyCopied = copier.copyFromLocalToRemote();
@@ -41,11 +51,16 @@ public class RemoteSecureCopyService {
             else {
                 successfullyCopied = copier.copyFromRemoteToRemote();
             }
+            long transferTime = System.currentTimeMillis() - startTime;
             if(successfullyCopied){
                 resultMessage = "File " + remoteSecureCopyInputs.getSrcPath() + " successfully copied to path " +
                         remoteSecureCopyInputs.getDestPath() + " on " + remoteSecureCopyInputs.getDestHost();
                 errorMessage = Constants.EMPTY_STRING;
                 returnCode = Constants.ReturnCodes.RETURN_CODE_SUCCESS;
+                populateTransferStatistics(returnResult, copier.getBytesTransferred(), transferTime);
+                if (copier instanceof ResumableCopier) {
+                    populateResumeResult(returnResult, (ResumableCopier) copier);
+                }
 
             }else{
                 resultMessage = Constants.NO_ACK_RECEIVED;
@@ -60,6 +75,99 @@ public class RemoteSecureCopyService {
         return returnResult;
     }
 
+    private Map<String, String> executeMultiFileCopy(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        Map<String, String> returnResult = new HashMap<>();
+
+        long startTime = System.currentTimeMillis();
+        MultiFileCopier copier = new MultiFileCopier(remoteSecureCopyInputs);
+        copier.setSessionPool(getSessionPool(remoteSecureCopyInputs));
+        TransferSummary summary = copier.copyFiles();
+        long transferTime = System.currentTimeMillis() - startTime;
+
+        String resultMessage = summary.getFilesTransferred() + " files successfully copied to path " +
+                remoteSecureCopyInputs.getDestPath() + " on " + remoteSecureCopyInputs.getDestHost() + ", " +
+                summary.getFilesSkipped() + " unchanged files skipped";
+        if (summary.getFilesFailed() == 0) {
+            populateResult(returnResult, resultMessage, Constants.EMPTY_STRING, Constants.ReturnCodes.RETURN_CODE_SUCCESS);
+        } else {
+            StringBuilder errorMessage = new StringBuilder(summary.getFilesFailed() + " files could not be copied:");
+            for (String failure : summary.getFailures()) {
+                errorMessage.append('\n').append(failure);
+            }
+            populateResult(returnResult, resultMessage + ", " + errorMessage, errorMessage.toString(), Constants.ReturnCodes.RETURN_CODE_FAILURE);
+        }
+        populateTransferStatistics(returnResult, summary.getBytesTransferred(), transferTime);
+        returnResult.put(Constants.OutputNames.FILES_TRANSFERRED, String.valueOf(summary.getFilesTransferred()));
+        returnResult.put(Constants.OutputNames.FILES_SKIPPED, String.valueOf(summary.getFilesSkipped()));
+        returnResult.put(Constants.OutputNames.FILES_FAILED, String.valueOf(summary.getFilesFailed()));
+        return returnResult;
+    }
+
+    protected SCPCopier createCopier(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        if (ResumableCopier.isResumableCopy(remoteSecureCopyInputs)) {
+            return new ResumableCopier(remoteSecureCopyInputs);
+        }
+        String protocol = StringUtils.toNotEmptyString(remoteSecureCopyInputs.getProtocol(), Constants.DEFAULT_PROTOCOL);
+        switch (protocol.toLowerCase(Locale.ENGLISH)) {
+            case Constants.PROTOCOL_SCP:
+                return new SCPCopier(remoteSecureCopyInputs);
+            case Constants.PROTOCOL_SFTP:
+                return new SFTPCopier(remoteSecureCopyInputs);
+            default:
+                throw new RuntimeException("Unknown transfer protocol: " + protocol + ". Valid values: scp, sftp.");
+        }
+    }
+
+    /**
+     * @return the pool of the 'sessionPoolScope' input, or null if the sessions are not pooled.
+     */
+    protected SessionPool getSessionPool(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        String scope = StringUtils.toNotEmptyString(remoteSecureCopyInputs.getSessionPoolScope(), Constants.DEFAULT_SESSION_POOL_SCOPE);
+        switch (scope.toLowerCase(Locale.ENGLISH)) {
+            case Constants.SESSION_POOL_SCOPE_NONE:
+                return null;
+            case Constants.SESSION_POOL_SCOPE_GLOBAL:
+                return SessionPool.getInstance();
+            case Constants.SESSION_POOL_SCOPE_RUN:
+                return getRunSessionPool(remoteSecureCopyInputs.getGlobalSessionObject());
+            default:
+                throw new RuntimeException("Unknown session pool scope: " + scope + ". Valid values: none, run, global.");
+        }
+    }
+
+    private static SessionPool getRunSessionPool(GlobalSessionObject<SessionPool> sessionObject) {
+        if (sessionObject == null) {
+            throw new RuntimeException("The sessions of the run cannot be pooled, there is no session object.");
+        }
+        synchronized (sessionObject) {
+            SessionResource<SessionPool> resource = sessionObject.getResource();
+            SessionPool sessionPool = resource != null ? resource.get() : null;
+            if (sessionPool == null) {
+                if (sessionObject.getName() == null) {
+                    sessionObject.setName(Constants.InputNames.RFT_SESSIONS_DEFAULT_ID);
+                }
+                sessionPool = new SessionPool();
+                sessionObject.setResource(new SessionPoolResource(sessionPool));
+            }
+            return sessionPool;
+        }
+    }
+
+    private void populateTransferStatistics(Map<String, String> returnResult, long bytesTransferred, long transferTime) {
+        // the rate is in bytes per second, a transfer faster than a millisecond counts as one millisecond
+        long transferRate = bytesTransferred * 1000 / Math.max(transferTime, 1);
+        returnResult.put(Constants.OutputNames.BYTES_TRANSFERRED, String.valueOf(bytesTransferred));
+        returnResult.put(Constants.OutputNames.TRANSFER_TIME, String.valueOf(transferTime));
+        returnResult.put(Constants.OutputNames.TRANSFER_RATE, String.valueOf(transferRate));
+    }
+
+    private void populateResumeResult(Map<String, String> returnResult, ResumableCopier copier) {
+        returnResult.put(Constants.OutputNames.RESUME_OFFSET, String.valueOf(copier.getResumeOffset()));
+        if (copier.getChecksum() != null) {
+            returnResult.put(Constants.OutputNames.CHECKSUM, copier.getChecksum());
+        }
+    }
+
     private void populateResult(Map<String, String> returnResult, String resultMessage, String errorMessage, String returnCode){
         returnResult.put(Constants.OutputNames.RETURN_RESULT, resultMessage);
         returnResult.put(Constants.OutputNames.EXCEPTION, errorMessage);
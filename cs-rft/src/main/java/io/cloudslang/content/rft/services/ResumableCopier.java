@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.*;
+import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
+import io.cloudslang.content.rft.utils.Constants;
+import io.cloudslang.content.rft.utils.StringUtils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copies a file with the SFTP protocol, continuing an interrupted copy. When 'resume' is true and the destination
+ * already has a shorter file, only the rest of the source is sent and appended to it. When 'verifyChecksum' is true,
+ * the SHA-256 of the source is calculated while the file is read and compared to the SHA-256 of the destination; a
+ * resumed copy whose checksums do not match is done again from the start, since the partial destination was not a
+ * prefix of the source.
+ * <p/>
+ * The checksum of a remote file is calculated on the remote machine with sha256sum or shasum, or by reading the
+ * file back through the SFTP channel if the machine has neither command.
+ */
+public class ResumableCopier extends SFTPCopier {
+
+    private static final String EXEC_CHANNEL = "exec";
+    private static final String SHA_256 = "SHA-256";
+    private static final Pattern CHECKSUM_OUTPUT = Pattern.compile("^\\\\?([0-9a-fA-F]{64})\\s");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private long resumeOffset;
+    private String checksum;
+
+    public ResumableCopier(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        super(remoteSecureCopyInputs);
+    }
+
+    public static boolean isResumableCopy(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getResume(), Constants.DEFAULT_RESUME) ||
+                StringUtils.toBoolean(remoteSecureCopyInputs.getVerifyChecksum(), Constants.DEFAULT_VERIFY_CHECKSUM);
+    }
+
+    /**
+     * @return the number of bytes of the destination kept by the last copy.
+     */
+    public long getResumeOffset() {
+        return resumeOffset;
+    }
+
+    /**
+     * @return the SHA-256 of the file copied last, as a hexadecimal string, or null if it was not verified.
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    protected boolean copyFromLocalToRemote(String srcPath, String destPath) {
+        Session session = null;
+        ChannelSftp channel = null;
+        bytesTransferred = 0;
+        checksum = null;
+
+        try {
+            session = openSession(false);
+            channel = openChannel(session);
+
+            File srcFile = new File(srcPath);
+            String remotePath = resolveRemotePath(channel, destPath, srcFile.getName());
+
+            long offset = isResume() ? getRemoteSize(channel, remotePath) : 0;
+            if (offset > srcFile.length()) {
+                // the destination is not a part of this source
+                offset = 0;
+            }
+            String srcChecksum = upload(channel, srcFile, remotePath, offset);
+            if (isVerifyChecksum()) {
+                String destChecksum = getRemoteChecksum(session, channel, remotePath);
+                if (!srcChecksum.equals(destChecksum) && offset > 0) {
+                    offset = 0;
+                    srcChecksum = upload(channel, srcFile, remotePath, offset);
+                    destChecksum = getRemoteChecksum(session, channel, remotePath);
+                }
+                verifyChecksum(srcChecksum, destChecksum, remotePath);
+                checksum = srcChecksum;
+            }
+            resumeOffset = offset;
+
+            if (isPreserveAttributes()) {
+                channel.setMtime(remotePath, (int) (srcFile.lastModified() / 1000));
+                channel.chmod(getPermissions(srcFile.toPath()), remotePath);
+            }
+            return true;
+        } catch (JSchException | SftpException | IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            disconnect(channel, session);
+        }
+    }
+
+    @Override
+    protected boolean copyFromRemoteToLocal(String srcPath, String destPath) {
+        Session session = null;
+        ChannelSftp channel = null;
+        bytesTransferred = 0;
+        checksum = null;
+
+        try {
+            session = openSession(true);
+            channel = openChannel(session);
+
+            SftpATTRS srcAttributes = channel.stat(srcPath);
+            Path localPath = Paths.get(destPath);
+            if (Files.isDirectory(localPath)) {
+                localPath = localPath.resolve(getFileName(srcPath));
+            }
+
+            long offset = isResume() && Files.exists(localPath) ? Files.size(localPath) : 0;
+            if (offset > srcAttributes.getSize()) {
+                offset = 0;
+            }
+            String destChecksum = download(channel, srcPath, localPath, offset);
+            if (isVerifyChecksum()) {
+                String srcChecksum = getRemoteChecksum(session, channel, srcPath);
+                if (!srcChecksum.equals(destChecksum) && offset > 0) {
+                    offset = 0;
+                    destChecksum = download(channel, srcPath, localPath, offset);
+                }
+                verifyChecksum(srcChecksum, destChecksum, localPath.toString());
+                checksum = srcChecksum;
+            }
+            resumeOffset = offset;
+
+            if (isPreserveAttributes()) {
+                Files.setLastModifiedTime(localPath, FileTime.fromMillis(srcAttributes.getMTime() * 1000L));
+                setPermissions(localPath, srcAttributes.getPermissions());
+            }
+            return true;
+        } catch (JSchException | SftpException | IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            disconnect(channel, session);
+        }
+    }
+
+    /**
+     * A remote to remote copy goes through a temporary file, so that the copy to the destination can be resumed.
+     */
+    @Override
+    protected boolean copyFromRemoteToRemotePiped() throws IOException {
+        return copyFromRemoteToRemoteWithTempFile();
+    }
+
+    /**
+     * Sends the source file from 'offset' to the end. The first 'offset' bytes are only read to calculate the
+     * checksum of the whole file.
+     *
+     * @return the checksum of the source file, or null if the checksum is not verified.
+     */
+    private String upload(ChannelSftp channel, File srcFile, String remotePath, long offset) throws SftpException, IOException {
+        MessageDigest messageDigest = isVerifyChecksum() ? createMessageDigest() : null;
+        InputStream fileInputStream = new BufferedInputStream(new FileInputStream(srcFile), getBufferSize());
+        try {
+            if (messageDigest != null) {
+                fileInputStream = new DigestInputStream(fileInputStream, messageDigest);
+            }
+            skipFully(fileInputStream, offset);
+            TransferMonitor monitor = new TransferMonitor();
+            channel.put(fileInputStream, remotePath, monitor, offset > 0 ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE);
+            bytesTransferred += monitor.getCount();
+        } finally {
+            fileInputStream.close();
+        }
+        return messageDigest != null ? toHex(messageDigest.digest()) : null;
+    }
+
+    /**
+     * Receives the source file from 'offset' to the end and appends it to the local file.
+     *
+     * @return the checksum of the local file, or null if the checksum is not verified.
+     */
+    private String download(ChannelSftp channel, String srcPath, Path localPath, long offset) throws SftpException, IOException {
+        MessageDigest messageDigest = null;
+        if (isVerifyChecksum()) {
+            messageDigest = createMessageDigest();
+            if (offset > 0) {
+                try (InputStream localInputStream = new DigestInputStream(new BufferedInputStream(Files.newInputStream(localPath), getBufferSize()), messageDigest)) {
+                    skipFully(localInputStream, offset);
+                }
+            }
+        }
+        OutputStream fileOutputStream = new BufferedOutputStream(new FileOutputStream(localPath.toFile(), offset > 0), getBufferSize());
+        try {
+            if (messageDigest != null) {
+                fileOutputStream = new DigestOutputStream(fileOutputStream, messageDigest);
+            }
+            TransferMonitor monitor = new TransferMonitor();
+            channel.get(srcPath, fileOutputStream, monitor, offset > 0 ? ChannelSftp.RESUME : ChannelSftp.OVERWRITE, offset);
+            bytesTransferred += monitor.getCount();
+        } finally {
+            fileOutputStream.close();
+        }
+        return messageDigest != null ? toHex(messageDigest.digest()) : null;
+    }
+
+    /**
+     * @return the size of the remote file, or 0 if it does not exist.
+     */
+    private static long getRemoteSize(ChannelSftp channel, String remotePath) throws SftpException {
+        try {
+            return channel.stat(remotePath).getSize();
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return 0;
+            }
+            throw e;
+        }
+    }
+
+    protected String getRemoteChecksum(Session session, ChannelSftp channel, String remotePath) throws JSchException, SftpException, IOException {
+        String remoteChecksum = runChecksumCommand(session, remotePath);
+        if (remoteChecksum != null) {
+            return remoteChecksum;
+        }
+        MessageDigest messageDigest = createMessageDigest();
+        try (InputStream remoteInputStream = new DigestInputStream(channel.get(remotePath), messageDigest)) {
+            byte[] buffer = new byte[getBufferSize()];
+            while (remoteInputStream.read(buffer) >= 0) {
+                // the bytes are only read to update the digest
+            }
+        }
+        return toHex(messageDigest.digest());
+    }
+
+    /**
+     * @return the checksum printed by sha256sum or shasum on the remote machine, or null if neither command succeeded.
+     */
+    private static String runChecksumCommand(Session session, String remotePath) throws JSchException, IOException {
+        String quotedPath = "'" + remotePath.replace("'", "'\\''") + "'";
+        ChannelExec channel = (ChannelExec) session.openChannel(EXEC_CHANNEL);
+        try {
+            channel.setCommand("sha256sum " + quotedPath + " 2>/dev/null || shasum -a 256 " + quotedPath + " 2>/dev/null");
+            InputStream in = channel.getInputStream();
+            channel.connect();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = in.read(buffer)) >= 0) {
+                output.write(buffer, 0, length);
+            }
+            Matcher matcher = CHECKSUM_OUTPUT.matcher(new String(output.toByteArray(), UTF_8));
+            return matcher.find() ? matcher.group(1).toLowerCase(Locale.ENGLISH) : null;
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    private static void verifyChecksum(String srcChecksum, String destChecksum, String destPath) {
+        if (!srcChecksum.equals(destChecksum)) {
+            throw new RuntimeException("The SHA-256 checksum of " + destPath + " (" + destChecksum +
+                    ") does not match the checksum of the source (" + srcChecksum + ").");
+        }
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        byte[] buffer = new byte[8192];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("The file ended before the resume offset " + length);
+            }
+            remaining -= read;
+        }
+    }
+
+    private static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    protected static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private boolean isResume() {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getResume(), Constants.DEFAULT_RESUME);
+    }
+
+    private boolean isVerifyChecksum() {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getVerifyChecksum(), Constants.DEFAULT_VERIFY_CHECKSUM);
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.services;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * A bounded byte buffer between one writer thread and one reader thread. The writer waits while the buffer is full,
+ * so a slow reader slows down the writer instead of filling the memory.
+ * <p/>
+ * The writer ends the stream with {@link #close()} or {@link #fail(IOException)}, the reader stops the writer with
+ * {@link #cancel()}.
+ */
+class RingBuffer {
+    private final byte[] buffer;
+    private int start;
+    private int size;
+    private boolean closed;
+    private boolean cancelled;
+    private IOException failure;
+
+    RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The ring buffer capacity should be greater than 0");
+        }
+        buffer = new byte[capacity];
+    }
+
+    /**
+     * Writes all the bytes, waiting for the reader to free space when the buffer is full.
+     *
+     * @throws IOException if the reader cancelled the stream.
+     */
+    synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            while (size == buffer.length && !cancelled) {
+                waitForChange();
+            }
+            if (cancelled) {
+                throw new IOException("The stream was cancelled by the reader");
+            }
+            int end = (start + size) % buffer.length;
+            int count = Math.min(length, Math.min(buffer.length - size, buffer.length - end));
+            System.arraycopy(bytes, offset, buffer, end, count);
+            size += count;
+            offset += count;
+            length -= count;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Reads the available bytes, waiting for the writer when the buffer is empty.
+     *
+     * @return the number of bytes read, or -1 when the writer closed the stream and all its bytes were read.
+     * @throws IOException if the writer failed.
+     */
+    synchronized int read(byte[] bytes, int offset, int length) throws IOException {
+        while (size == 0 && !closed && failure == null) {
+            waitForChange();
+        }
+        if (failure != null) {
+            throw new IOException(failure.getMessage(), failure);
+        }
+        if (size == 0) {
+            return -1;
+        }
+        int count = Math.min(length, Math.min(size, buffer.length - start));
+        System.arraycopy(buffer, start, bytes, offset, count);
+        start = (start + count) % buffer.length;
+        size -= count;
+        notifyAll();
+        return count;
+    }
+
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    synchronized void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    synchronized boolean isFailed() {
+        return failure != null;
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+
+    private void waitForChange() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the ring buffer");
+        }
+    }
+}
@@ -19,6 +19,9 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Date: 7/30/2015
@@ -31,15 +34,45 @@ public class SCPCopier {
     private static final String KNOWN_HOSTS_ALLOW = "allow";
     private static final String KNOWN_HOSTS_STRICT = "strict";
     private static final String KNOWN_HOSTS_ADD = "add";
+    private static final AtomicInteger RELAY_THREAD_NUMBER = new AtomicInteger();
 
     private Session session;
-    private RemoteSecureCopyInputs remoteSecureCopyInputs;
+    protected RemoteSecureCopyInputs remoteSecureCopyInputs;
+    protected long bytesTransferred;
+    private SessionPool sessionPool;
+    private final Map<Session, String> pooledSessions = new ConcurrentHashMap<>();
 
     public SCPCopier(RemoteSecureCopyInputs remoteSecureCopyInputs) {
         this.remoteSecureCopyInputs = remoteSecureCopyInputs;
     }
 
+    /**
+     * @param sessionPool The pool the sessions are taken from, null to open a new session for each copy.
+     */
+    public void setSessionPool(SessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    /**
+     * @return the number of bytes written to the destination by the last copy.
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
     public boolean copyFromRemoteToRemote() throws IOException {
+        String mode = StringUtils.toNotEmptyString(remoteSecureCopyInputs.getRemoteCopyMode(), Constants.DEFAULT_REMOTE_COPY_MODE);
+        switch (mode.toLowerCase(Locale.ENGLISH)) {
+            case Constants.REMOTE_COPY_MODE_TEMP_FILE:
+                return copyFromRemoteToRemoteWithTempFile();
+            case Constants.REMOTE_COPY_MODE_PIPED:
+                return copyFromRemoteToRemotePiped();
+            default:
+                throw new RuntimeException("Unknown remote copy mode: " + mode + ". Valid values: tempFile, piped.");
+        }
+    }
+
+    protected boolean copyFromRemoteToRemoteWithTempFile() throws IOException {
         File temporaryDestFile = File.createTempFile("SCPCopy", ".tmp");
         String temporaryDestFilePath = temporaryDestFile.getCanonicalPath().replace("\\", "\\\\");
 
@@ -49,6 +82,108 @@ public class SCPCopier {
         return result;
     }
 
+    /**
+     * Streams the file from the source host to the destination host without a local copy. A reader thread receives
+     * the file from the source into a bounded ring buffer while the current thread sends it to the destination. If
+     * the destination fails after the file content started, the copy is done again through a temporary file.
+     */
+    protected boolean copyFromRemoteToRemotePiped() throws IOException {
+        Session srcSession = null;
+        Session destSession = null;
+        Channel srcChannel = null;
+        Channel destChannel = null;
+        RingBuffer ringBuffer = null;
+        IOException destinationError = null;
+
+        try {
+            srcSession = openSession(true);
+            destSession = openSession(false);
+
+            srcChannel = srcSession.openChannel(EXEC_CHANNEL);
+            ((ChannelExec) srcChannel).setCommand("scp -p -f " + remoteSecureCopyInputs.getSrcPath());
+            OutputStream srcOut = srcChannel.getOutputStream();
+            InputStream srcIn = srcChannel.getInputStream();
+
+            destChannel = destSession.openChannel(EXEC_CHANNEL);
+            ((ChannelExec) destChannel).setCommand("scp -p -t " + remoteSecureCopyInputs.getDestPath());
+            OutputStream destOut = destChannel.getOutputStream();
+            InputStream destIn = destChannel.getInputStream();
+
+            srcChannel.connect();
+            destChannel.connect();
+
+            if (checkAck(destIn) != 0) {
+                return false;
+            }
+            sendAck(srcOut);
+
+            // the times and the file header of the source are forwarded as they are to the destination
+            int c = checkAck(srcIn);
+            if (c == 'T') {
+                if (!forwardHeader('T', srcIn, destOut) || checkAck(destIn) != 0) {
+                    return false;
+                }
+                sendAck(srcOut);
+                c = checkAck(srcIn);
+            }
+            if (c != 'C') {
+                return false;
+            }
+            String header = readHeader(srcIn);
+            if (header == null) {
+                return false;
+            }
+            long fileSize = Long.parseLong(header.split(" ")[1]);
+            destOut.write(("C" + header + "\n").getBytes());
+            destOut.flush();
+            if (checkAck(destIn) != 0) {
+                return false;
+            }
+            sendAck(srcOut);
+
+            ringBuffer = new RingBuffer(getRelayBufferSize());
+            Thread reader = startRelayReader(srcIn, ringBuffer, fileSize);
+            byte[] buf = new byte[getBufferSize()];
+            bytesTransferred = 0;
+            try {
+                while (true) {
+                    int len = ringBuffer.read(buf, 0, buf.length);
+                    if (len < 0) {
+                        break;
+                    }
+                    destOut.write(buf, 0, len);
+                    bytesTransferred += len;
+                }
+            } catch (IOException e) {
+                if (ringBuffer.isFailed()) {
+                    // the source failed, a copy through a temporary file would read the same source
+                    throw e;
+                }
+                destinationError = e;
+            }
+            if (destinationError == null) {
+                joinRelayReader(reader);
+                if (checkAck(srcIn) != 0) {
+                    return false;
+                }
+                destinationError = completeDestination(destOut, destIn);
+            }
+            if (destinationError == null) {
+                sendAck(srcOut);
+                return true;
+            }
+        } catch (JSchException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (ringBuffer != null) {
+                ringBuffer.cancel();
+            }
+            disconnect(srcChannel, srcSession);
+            disconnect(destChannel, destSession);
+        }
+        return copyFromRemoteToRemoteWithTempFile();
+    }
+
     public boolean copyFromLocalToRemote(){
         return copyFromLocalToRemote(remoteSecureCopyInputs.getSrcPath(), remoteSecureCopyInputs.getDestPath());
     }
@@ -59,19 +194,14 @@ public class SCPCopier {
 
     protected boolean copyFromLocalToRemote(String srcPath, String destPath){
         FileInputStream fileInputStream = null;
+        Channel channel = null;
 
         try {
 
-            JSch jsch = new JSch();
-            session = jsch.getSession(remoteSecureCopyInputs.getDestUsername(), remoteSecureCopyInputs.getDestHost(), StringUtils.toInt(remoteSecureCopyInputs.getDestPort(), Constants.DEFAULT_PORT));
-
-            establishKnownHostsConfiguration(ConnectionUtils.resolveKnownHosts(remoteSecureCopyInputs.getKnownHostsPolicy(), remoteSecureCopyInputs.getKnownHostsPath()), jsch, session);
-            establishPrivateKeyFile(ConnectionUtils.getKeyFile(remoteSecureCopyInputs.getDestPrivateKeyFile(), remoteSecureCopyInputs.getDestPassword()), jsch, session, false);
-
-            session.connect(StringUtils.toInt(remoteSecureCopyInputs.getTimeout(), Constants.DEFAULT_TIMEOUT));
+            session = openSession(false);
 
             String command = "scp " + "-p -t " + destPath;
-            Channel channel = session.openChannel(EXEC_CHANNEL);
+            channel = session.openChannel(EXEC_CHANNEL);
             ((ChannelExec) channel).setCommand(command);
 
             OutputStream out = channel.getOutputStream();
@@ -109,15 +239,16 @@ public class SCPCopier {
                 return false;
             }
 
-            // send a content of srcPath
+            // send a content of srcPath, the channel is flushed only when the whole file was written
             fileInputStream = new FileInputStream(srcPath);
-            byte[] buf = new byte[1024];
+            byte[] buf = new byte[getBufferSize()];
+            bytesTransferred = 0;
             while (true) {
                 int len = fileInputStream.read(buf, 0, buf.length);
                 if (len <= 0)
                     break;
                 out.write(buf, 0, len);
-                out.flush();
+                bytesTransferred += len;
             }
             fileInputStream.close();
             fileInputStream = null;
@@ -129,9 +260,6 @@ public class SCPCopier {
                 return false;
             }
             out.close();
-
-            channel.disconnect();
-            session.disconnect();
             return true;
         } catch (JSchException | IOException e) {
             throw new RuntimeException(e);
@@ -141,31 +269,28 @@ public class SCPCopier {
                     fileInputStream.close();
                 }
             }catch (IOException ioe) {}
+            disconnect(channel, session);
         }
     }
 
     protected boolean copyFromRemoteToLocal(String srcPath, String destPath){
         FileOutputStream fileOutputStream = null;
+        Channel channel = null;
 
         try {
 
-            JSch jsch = new JSch();
-            session = jsch.getSession(remoteSecureCopyInputs.getSrcUsername(), remoteSecureCopyInputs.getSrcHost(), StringUtils.toInt(remoteSecureCopyInputs.getSrcPort(), Constants.DEFAULT_PORT));
-
-            establishKnownHostsConfiguration(ConnectionUtils.resolveKnownHosts(remoteSecureCopyInputs.getKnownHostsPolicy(), remoteSecureCopyInputs.getKnownHostsPath()), jsch, session);
-            establishPrivateKeyFile(ConnectionUtils.getKeyFile(remoteSecureCopyInputs.getSrcPrivateKeyFile(), remoteSecureCopyInputs.getSrcPassword()), jsch, session, true);
-
-            session.connect(StringUtils.toInt(remoteSecureCopyInputs.getTimeout(), Constants.DEFAULT_TIMEOUT));
+            session = openSession(true);
 
             String command = "scp -f " + srcPath;
-            Channel channel = session.openChannel(EXEC_CHANNEL);
+            channel = session.openChannel(EXEC_CHANNEL);
             ((ChannelExec) channel).setCommand(command);
 
             OutputStream out = channel.getOutputStream();
             InputStream in = channel.getInputStream();
 
             channel.connect();
-            byte[] buf = new byte[1024];
+            byte[] buf = new byte[getBufferSize()];
+            bytesTransferred = 0;
 
             buf[0] = 0;
             out.write(buf, 0, 1);
@@ -217,6 +342,7 @@ public class SCPCopier {
                         return false;
                     }
                     fileOutputStream.write(buf, 0, foo);
+                    bytesTransferred += foo;
                     filesize -= foo;
                     if (filesize == 0L) {
                         break;
@@ -231,8 +357,6 @@ public class SCPCopier {
                 out.write(buf, 0, 1);
                 out.flush();
             }
-            channel.disconnect();
-            session.disconnect();
             return true;
 
         } catch (JSchException | IOException e) {
@@ -246,7 +370,184 @@ public class SCPCopier {
             catch (Exception ee){
 
             }
+            disconnect(channel, session);
+        }
+    }
+
+    /**
+     * Gets a connected session to the source or the destination host, from the session pool if there is one. The
+     * session should be given back with {@link #closeSession(Session)}.
+     *
+     * @param toSource true for the source host, false for the destination host.
+     */
+    protected Session openSession(boolean toSource) throws JSchException, IOException {
+        if (sessionPool == null) {
+            return connectSession(toSource);
+        }
+        String poolKey;
+        if (toSource) {
+            poolKey = SessionPool.buildKey(remoteSecureCopyInputs.getSrcHost(), StringUtils.toInt(remoteSecureCopyInputs.getSrcPort(), Constants.DEFAULT_PORT),
+                    remoteSecureCopyInputs.getSrcUsername(), remoteSecureCopyInputs.getSrcPassword(), remoteSecureCopyInputs.getSrcPrivateKeyFile(),
+                    remoteSecureCopyInputs.getKnownHostsPolicy(), remoteSecureCopyInputs.getKnownHostsPath());
+        } else {
+            poolKey = SessionPool.buildKey(remoteSecureCopyInputs.getDestHost(), StringUtils.toInt(remoteSecureCopyInputs.getDestPort(), Constants.DEFAULT_PORT),
+                    remoteSecureCopyInputs.getDestUsername(), remoteSecureCopyInputs.getDestPassword(), remoteSecureCopyInputs.getDestPrivateKeyFile(),
+                    remoteSecureCopyInputs.getKnownHostsPolicy(), remoteSecureCopyInputs.getKnownHostsPath());
+        }
+        Session pooledSession = sessionPool.take(poolKey);
+        if (pooledSession == null) {
+            pooledSession = connectSession(toSource);
+        }
+        pooledSessions.put(pooledSession, poolKey);
+        return pooledSession;
+    }
+
+    /**
+     * Gives a session back to the session pool, or disconnects it when the sessions are not pooled.
+     */
+    protected void closeSession(Session session) {
+        if (session == null) {
+            return;
+        }
+        String poolKey = pooledSessions.remove(session);
+        if (poolKey != null) {
+            int maxSessions = StringUtils.toInt(remoteSecureCopyInputs.getMaxSessionsPerHost(), SessionPool.DEFAULT_MAX_SESSIONS_PER_HOST);
+            int maxIdleTime = StringUtils.toInt(remoteSecureCopyInputs.getSessionMaxIdleTime(), (int) SessionPool.DEFAULT_MAX_IDLE_TIME);
+            sessionPool.give(poolKey, session, maxSessions, maxIdleTime);
+        } else {
+            session.disconnect();
+        }
+    }
+
+    private Session connectSession(boolean toSource) throws JSchException, IOException {
+        JSch jsch = new JSch();
+        Session newSession;
+        if (toSource) {
+            newSession = jsch.getSession(remoteSecureCopyInputs.getSrcUsername(), remoteSecureCopyInputs.getSrcHost(), StringUtils.toInt(remoteSecureCopyInputs.getSrcPort(), Constants.DEFAULT_PORT));
+        } else {
+            newSession = jsch.getSession(remoteSecureCopyInputs.getDestUsername(), remoteSecureCopyInputs.getDestHost(), StringUtils.toInt(remoteSecureCopyInputs.getDestPort(), Constants.DEFAULT_PORT));
+        }
+
+        establishKnownHostsConfiguration(ConnectionUtils.resolveKnownHosts(remoteSecureCopyInputs.getKnownHostsPolicy(), remoteSecureCopyInputs.getKnownHostsPath()), jsch, newSession);
+        if (toSource) {
+            establishPrivateKeyFile(ConnectionUtils.getKeyFile(remoteSecureCopyInputs.getSrcPrivateKeyFile(), remoteSecureCopyInputs.getSrcPassword()), jsch, newSession, true);
+        } else {
+            establishPrivateKeyFile(ConnectionUtils.getKeyFile(remoteSecureCopyInputs.getDestPrivateKeyFile(), remoteSecureCopyInputs.getDestPassword()), jsch, newSession, false);
+        }
+
+        newSession.connect(StringUtils.toInt(remoteSecureCopyInputs.getTimeout(), Constants.DEFAULT_TIMEOUT));
+        return newSession;
+    }
+
+    private int getRelayBufferSize() {
+        int relayBufferSize = StringUtils.toInt(remoteSecureCopyInputs.getRelayBufferSize(), Constants.DEFAULT_RELAY_BUFFER_SIZE);
+        if (relayBufferSize < Constants.MIN_BUFFER_SIZE) {
+            throw new RuntimeException("The relay buffer size should be at least " + Constants.MIN_BUFFER_SIZE + " bytes.");
+        }
+        return relayBufferSize;
+    }
+
+    private Thread startRelayReader(final InputStream in, final RingBuffer ringBuffer, final long fileSize) {
+        final int bufferSize = getBufferSize();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] buf = new byte[bufferSize];
+                long remaining = fileSize;
+                try {
+                    while (remaining > 0) {
+                        int len = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                        if (len < 0) {
+                            throw new EOFException("The source closed the connection before the end of the file");
+                        }
+                        ringBuffer.write(buf, 0, len);
+                        remaining -= len;
+                    }
+                    ringBuffer.close();
+                } catch (IOException e) {
+                    ringBuffer.fail(e);
+                }
+            }
+        }, "scp-relay-" + RELAY_THREAD_NUMBER.incrementAndGet());
+        reader.setDaemon(true);
+        reader.start();
+        return reader;
+    }
+
+    private static void joinRelayReader(Thread reader) throws InterruptedIOException {
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the source of the copy");
+        }
+    }
+
+    /**
+     * Ends the file sent to the destination.
+     *
+     * @return the error of the destination, or null if it acknowledged the file.
+     */
+    private IOException completeDestination(OutputStream destOut, InputStream destIn) {
+        try {
+            destOut.write(0);
+            destOut.flush();
+            if (checkAck(destIn) != 0) {
+                return new IOException("The destination closed the connection before acknowledging the file");
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        } catch (RuntimeException e) {
+            return new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static boolean forwardHeader(char type, InputStream in, OutputStream out) throws IOException {
+        String header = readHeader(in);
+        if (header == null) {
+            return false;
+        }
+        out.write((type + header + "\n").getBytes());
+        out.flush();
+        return true;
+    }
+
+    /**
+     * @return the rest of a header line, without the line feed, or null if the connection was closed.
+     */
+    private static String readHeader(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                return null;
+            }
+            if (c == '\n') {
+                return header.toString();
+            }
+            header.append((char) c);
+        }
+    }
+
+    private static void sendAck(OutputStream out) throws IOException {
+        out.write(0);
+        out.flush();
+    }
+
+    protected void disconnect(Channel channel, Session session) {
+        if (channel != null) {
+            channel.disconnect();
+        }
+        closeSession(session);
+    }
+
+    protected int getBufferSize() {
+        int bufferSize = StringUtils.toInt(remoteSecureCopyInputs.getBufferSize(), Constants.DEFAULT_BUFFER_SIZE);
+        if (bufferSize < Constants.MIN_BUFFER_SIZE) {
+            throw new RuntimeException("The buffer size should be at least " + Constants.MIN_BUFFER_SIZE + " bytes.");
         }
+        return bufferSize;
     }
 
     protected void establishKnownHostsConfiguration(KnownHostsFile knownHostsFile, JSch jsch, Session session) throws JSchException, IOException {
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.*;
+import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
+import io.cloudslang.content.rft.utils.Constants;
+import io.cloudslang.content.rft.utils.StringUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Copies the files using the SFTP protocol. Unlike SCP, the SFTP channel keeps several read or write requests in
+ * flight ('outstandingRequests'), so the transfer is not bound by the round trip time of the link. The local file is
+ * read and written through a buffer of 'bufferSize' bytes and the modification time and permissions of the source
+ * file are kept unless 'preserveAttributes' is false.
+ */
+public class SFTPCopier extends SCPCopier {
+
+    private static final String SFTP_CHANNEL = "sftp";
+    private static final int DEFAULT_PERMISSIONS = 0644;
+    protected static final int PERMISSIONS_MASK = 07777;
+
+    public SFTPCopier(RemoteSecureCopyInputs remoteSecureCopyInputs) {
+        super(remoteSecureCopyInputs);
+    }
+
+    @Override
+    protected boolean copyFromLocalToRemote(String srcPath, String destPath) {
+        Session session = null;
+        ChannelSftp channel = null;
+        InputStream fileInputStream = null;
+
+        try {
+            session = openSession(false);
+            channel = openChannel(session);
+
+            File srcFile = new File(srcPath);
+            String remotePath = resolveRemotePath(channel, destPath, srcFile.getName());
+
+            fileInputStream = new BufferedInputStream(new FileInputStream(srcFile), getBufferSize());
+            TransferMonitor monitor = new TransferMonitor();
+            channel.put(fileInputStream, remotePath, monitor, ChannelSftp.OVERWRITE);
+            fileInputStream.close();
+            fileInputStream = null;
+            bytesTransferred = monitor.getCount();
+
+            if (isPreserveAttributes()) {
+                channel.setMtime(remotePath, (int) (srcFile.lastModified() / 1000));
+                channel.chmod(getPermissions(srcFile.toPath()), remotePath);
+            }
+            return true;
+        } catch (JSchException | SftpException | IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                if (fileInputStream != null) {
+                    fileInputStream.close();
+                }
+            } catch (IOException ioe) {}
+            disconnect(channel, session);
+        }
+    }
+
+    @Override
+    protected boolean copyFromRemoteToLocal(String srcPath, String destPath) {
+        Session session = null;
+        ChannelSftp channel = null;
+        OutputStream fileOutputStream = null;
+
+        try {
+            session = openSession(true);
+            channel = openChannel(session);
+
+            SftpATTRS srcAttributes = channel.stat(srcPath);
+            Path localPath = Paths.get(destPath);
+            if (Files.isDirectory(localPath)) {
+                localPath = localPath.resolve(getFileName(srcPath));
+            }
+
+            fileOutputStream = new BufferedOutputStream(new FileOutputStream(localPath.toFile()), getBufferSize());
+            TransferMonitor monitor = new TransferMonitor();
+            channel.get(srcPath, fileOutputStream, monitor);
+            fileOutputStream.close();
+            fileOutputStream = null;
+            bytesTransferred = monitor.getCount();
+
+            if (isPreserveAttributes()) {
+                Files.setLastModifiedTime(localPath, FileTime.fromMillis(srcAttributes.getMTime() * 1000L));
+                setPermissions(localPath, srcAttributes.getPermissions());
+            }
+            return true;
+        } catch (JSchException | SftpException | IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                if (fileOutputStream != null) {
+                    fileOutputStream.close();
+                }
+            } catch (IOException ioe) {}
+            disconnect(channel, session);
+        }
+    }
+
+    /**
+     * Streams the file from the source channel to the destination channel. The read requests of the source and the
+     * write requests of the destination are both pipelined, so the two transfers overlap. If the destination fails
+     * during the copy, the copy is done again through a temporary file.
+     */
+    @Override
+    protected boolean copyFromRemoteToRemotePiped() throws IOException {
+        Session srcSession = null;
+        Session destSession = null;
+        ChannelSftp srcChannel = null;
+        ChannelSftp destChannel = null;
+        SourceInputStream srcInputStream = null;
+
+        try {
+            srcSession = openSession(true);
+            destSession = openSession(false);
+            srcChannel = openChannel(srcSession);
+            destChannel = openChannel(destSession);
+
+            String srcPath = remoteSecureCopyInputs.getSrcPath();
+            SftpATTRS srcAttributes = srcChannel.stat(srcPath);
+            String remotePath = resolveRemotePath(destChannel, remoteSecureCopyInputs.getDestPath(), getFileName(srcPath));
+
+            srcInputStream = new SourceInputStream(srcChannel.get(srcPath));
+            TransferMonitor monitor = new TransferMonitor();
+            try {
+                destChannel.put(srcInputStream, remotePath, monitor, ChannelSftp.OVERWRITE);
+                bytesTransferred = monitor.getCount();
+                if (isPreserveAttributes()) {
+                    destChannel.setMtime(remotePath, srcAttributes.getMTime());
+                    destChannel.chmod(srcAttributes.getPermissions() & PERMISSIONS_MASK, remotePath);
+                }
+                return true;
+            } catch (SftpException e) {
+                if (srcInputStream.isFailed()) {
+                    // the source failed, a copy through a temporary file would read the same source
+                    throw e;
+                }
+            }
+        } catch (JSchException | SftpException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                if (srcInputStream != null) {
+                    srcInputStream.close();
+                }
+            } catch (IOException ioe) {}
+            disconnect(srcChannel, srcSession);
+            disconnect(destChannel, destSession);
+        }
+        return copyFromRemoteToRemoteWithTempFile();
+    }
+
+    protected ChannelSftp openChannel(Session session) throws JSchException {
+        ChannelSftp channel = (ChannelSftp) session.openChannel(SFTP_CHANNEL);
+        channel.setBulkRequests(getOutstandingRequests());
+        channel.connect(StringUtils.toInt(remoteSecureCopyInputs.getTimeout(), Constants.DEFAULT_TIMEOUT));
+        return channel;
+    }
+
+    /**
+     * Like SCP, a destination that is a directory receives the file under its own name.
+     */
+    protected static String resolveRemotePath(ChannelSftp channel, String destPath, String fileName) throws SftpException {
+        try {
+            if (channel.stat(destPath).isDir()) {
+                return destPath.endsWith("/") ? destPath + fileName : destPath + "/" + fileName;
+            }
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                throw e;
+            }
+        }
+        return destPath;
+    }
+
+    protected static String getFileName(String remotePath) {
+        return remotePath.substring(remotePath.lastIndexOf('/') + 1);
+    }
+
+    private int getOutstandingRequests() {
+        int outstandingRequests = StringUtils.toInt(remoteSecureCopyInputs.getOutstandingRequests(), Constants.DEFAULT_OUTSTANDING_REQUESTS);
+        if (outstandingRequests <= 0) {
+            throw new RuntimeException("The number of outstanding requests should be greater than 0.");
+        }
+        return outstandingRequests;
+    }
+
+    protected boolean isPreserveAttributes() {
+        return StringUtils.toBoolean(remoteSecureCopyInputs.getPreserveAttributes(), Constants.DEFAULT_PRESERVE_ATTRIBUTES);
+    }
+
+    /**
+     * @return the permissions of a local file as mode bits, or 0644 on the file systems without POSIX permissions.
+     */
+    protected static int getPermissions(Path path) throws IOException {
+        try {
+            return toMode(Files.getPosixFilePermissions(path));
+        } catch (UnsupportedOperationException e) {
+            return DEFAULT_PERMISSIONS;
+        }
+    }
+
+    protected static void setPermissions(Path path, int mode) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, toPosixFilePermissions(mode));
+        } catch (UnsupportedOperationException e) {
+            // the file system has no POSIX permissions, only the modification time is kept
+        }
+    }
+
+    // the PosixFilePermission constants are declared from OWNER_READ (0400) to OTHERS_EXECUTE (0001)
+    protected static int toMode(Set<PosixFilePermission> permissions) {
+        int mode = 0;
+        for (PosixFilePermission permission : permissions) {
+            mode |= 1 << (8 - permission.ordinal());
+        }
+        return mode;
+    }
+
+    protected static Set<PosixFilePermission> toPosixFilePermissions(int mode) {
+        Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        for (PosixFilePermission permission : PosixFilePermission.values()) {
+            if ((mode & (1 << (8 - permission.ordinal()))) != 0) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Remembers whether reading the source failed, to tell a failure of the source from one of the destination.
+     */
+    private static class SourceInputStream extends FilterInputStream {
+        private volatile boolean failed;
+
+        private SourceInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                return super.read(bytes, offset, length);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    static class TransferMonitor implements SftpProgressMonitor {
+        private long count;
+
+        @Override
+        public void init(int op, String src, String dest, long max) {
+        }
+
+        @Override
+        public boolean count(long count) {
+            this.count += count;
+            return true;
+        }
+
+        @Override
+        public void end() {
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
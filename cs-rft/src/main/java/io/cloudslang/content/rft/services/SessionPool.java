@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.Session;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the unused authenticated sessions for the next copies to the same host. A copy takes a session out of the
+ * pool and gives it back when it is done, so a session is used by one copy at a time; a copy that finds no unused
+ * session connects a new one. The sessions are grouped by host, port, username and a fingerprint of the credentials
+ * and connection settings, so a session is only reused with the same credentials.
+ * <p/>
+ * The sessions unused for longer than their idle time are disconnected when the pool is used. The pool returned by
+ * {@link #getInstance()} is shared by the whole worker, its idle sessions are also disconnected by a background
+ * thread; a pool created for a flow run is cleared when the run ends.
+ */
+public class SessionPool {
+    public static final int DEFAULT_MAX_SESSIONS_PER_HOST = 4;
+    public static final long DEFAULT_MAX_IDLE_TIME = 300000; //5 minutes
+    private static final long EVICTION_INTERVAL = 60000;
+    private static final int HEALTH_CHECK_TIMEOUT = 5000;
+    private static final String SESSION_CHANNEL = "session";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final SessionPool INSTANCE = new SessionPool();
+    private static ScheduledExecutorService evictor;
+
+    private final Map<String, Deque<IdleSession>> idleSessions = new HashMap<>();
+
+    public static synchronized SessionPool getInstance() {
+        if (evictor == null) {
+            startEvictor();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Builds the pool key. The credentials and the connection settings are only kept as a SHA-256 fingerprint.
+     */
+    public static String buildKey(String host, int port, String username, String... credentials) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (String credential : credentials) {
+                if (credential != null) {
+                    messageDigest.update(credential.getBytes(UTF_8));
+                }
+                messageDigest.update((byte) 0);
+            }
+            return host + ":" + port + ":" + username + ":" + new BigInteger(1, messageDigest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Takes the most recently used session of the key out of the pool. The server may have closed a session while
+     * it was unused, it is checked by opening and closing a channel.
+     *
+     * @return the session, or null if the key has no usable session.
+     */
+    public Session take(String key) {
+        while (true) {
+            Session session;
+            synchronized (this) {
+                evictIdle();
+                Deque<IdleSession> sessions = idleSessions.get(key);
+                if (sessions == null || sessions.isEmpty()) {
+                    return null;
+                }
+                session = sessions.pollFirst().session;
+            }
+            if (isConnected(session)) {
+                return session;
+            }
+            session.disconnect();
+        }
+    }
+
+    /**
+     * Gives back a session for the next copies. The session is disconnected if it is no longer connected or if the
+     * key already has 'maxSessions' unused sessions.
+     *
+     * @param key         The pool key, see {@link #buildKey(String, int, String, String...)}.
+     * @param session     The session taken with {@link #take(String)} or newly connected.
+     * @param maxSessions The maximum number of unused sessions kept for the key.
+     * @param maxIdleTime The time in milliseconds after which an unused session is disconnected.
+     */
+    public void give(String key, Session session, int maxSessions, long maxIdleTime) {
+        evictIdle();
+        if (session.isConnected()) {
+            synchronized (this) {
+                Deque<IdleSession> sessions = idleSessions.get(key);
+                if (sessions == null) {
+                    sessions = new ArrayDeque<>();
+                    idleSessions.put(key, sessions);
+                }
+                if (sessions.size() < Math.max(maxSessions, 1)) {
+                    sessions.addFirst(new IdleSession(session, System.currentTimeMillis() + maxIdleTime));
+                    return;
+                }
+            }
+        }
+        session.disconnect();
+    }
+
+    /**
+     * Disconnects the sessions that have been unused for longer than their idle time.
+     *
+     * @return the number of disconnected sessions.
+     */
+    public synchronized int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        Iterator<Deque<IdleSession>> keys = idleSessions.values().iterator();
+        while (keys.hasNext()) {
+            Deque<IdleSession> sessions = keys.next();
+            Iterator<IdleSession> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                IdleSession idleSession = iterator.next();
+                if (now > idleSession.expirationTime) {
+                    iterator.remove();
+                    idleSession.session.disconnect();
+                    evicted++;
+                }
+            }
+            if (sessions.isEmpty()) {
+                keys.remove();
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of unused sessions in the pool.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Deque<IdleSession> sessions : idleSessions.values()) {
+            size += sessions.size();
+        }
+        return size;
+    }
+
+    /**
+     * Disconnects all the unused sessions of the pool.
+     */
+    public synchronized void clear() {
+        for (Deque<IdleSession> sessions : idleSessions.values()) {
+            for (IdleSession idleSession : sessions) {
+                idleSession.session.disconnect();
+            }
+        }
+        idleSessions.clear();
+    }
+
+    private static boolean isConnected(Session session) {
+        if (!session.isConnected()) {
+            return false;
+        }
+        Channel channel = null;
+        try {
+            // unlike a keep-alive message, opening a channel waits for the answer of the server
+            channel = session.openChannel(SESSION_CHANNEL);
+            channel.connect(HEALTH_CHECK_TIMEOUT);
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            if (channel != null) {
+                channel.disconnect();
+            }
+        }
+    }
+
+    private static void startEvictor() {
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rft-session-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    INSTANCE.evictIdle();
+                } catch (RuntimeException ignore) {
+                    //an exception would cancel the next executions
+                }
+            }
+        }, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private static class IdleSession {
+        private final Session session;
+        private final long expirationTime;
+
+        private IdleSession(Session session, long expirationTime) {
+            this.session = session;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
@@ -29,6 +29,26 @@ public class Constants {
     public static final int DEFAULT_TIMEOUT = 90000;
     public static final String DEFAULT_KNOWN_HOSTS_POLICY = "strict";
     public static final Path DEFAULT_KNOWN_HOSTS_PATH = Paths.get(System.getProperty("user.home"), ".ssh", "known_hosts");
+    public static final String PROTOCOL_SCP = "scp";
+    public static final String PROTOCOL_SFTP = "sftp";
+    public static final String DEFAULT_PROTOCOL = PROTOCOL_SCP;
+    public static final int DEFAULT_BUFFER_SIZE = 32768;
+    public static final int MIN_BUFFER_SIZE = 1024;
+    public static final int DEFAULT_OUTSTANDING_REQUESTS = 16;
+    public static final boolean DEFAULT_PRESERVE_ATTRIBUTES = true;
+    public static final String REMOTE_COPY_MODE_TEMP_FILE = "tempfile";
+    public static final String REMOTE_COPY_MODE_PIPED = "piped";
+    public static final String DEFAULT_REMOTE_COPY_MODE = REMOTE_COPY_MODE_TEMP_FILE;
+    public static final int DEFAULT_RELAY_BUFFER_SIZE = 1048576;
+    public static final int DEFAULT_PARALLEL_STREAMS = 4;
+    public static final boolean DEFAULT_SKIP_UNCHANGED = false;
+    public static final String SESSION_POOL_SCOPE_NONE = "none";
+    public static final String SESSION_POOL_SCOPE_RUN = "run";
+    public static final String SESSION_POOL_SCOPE_GLOBAL = "global";
+    public static final String DEFAULT_SESSION_POOL_SCOPE = SESSION_POOL_SCOPE_NONE;
+    public static final boolean DEFAULT_RESUME = false;
+    public static final boolean DEFAULT_VERIFY_CHECKSUM = false;
+    public static final boolean DEFAULT_USE_WILDCARDS = false;
 
     public static final class InputNames {
         public static final String SOURCE_HOST = "sourceHost";
@@ -46,6 +66,23 @@ public class Constants {
         public static final String KNOWN_HOSTS_POLICY = "knownHostsPolicy";
         public static final String KNOWN_HOSTS_PATH = "knownHostsPath";
         public static final String TIMEOUT = "timeout";
+        public static final String PROTOCOL = "protocol";
+        public static final String BUFFER_SIZE = "bufferSize";
+        public static final String OUTSTANDING_REQUESTS = "outstandingRequests";
+        public static final String PRESERVE_ATTRIBUTES = "preserveAttributes";
+        public static final String REMOTE_COPY_MODE = "remoteCopyMode";
+        public static final String RELAY_BUFFER_SIZE = "relayBufferSize";
+        public static final String RECURSIVE = "recursive";
+        public static final String FILE_LIST = "fileList";
+        public static final String USE_WILDCARDS = "useWildcards";
+        public static final String PARALLEL_STREAMS = "parallelStreams";
+        public static final String SKIP_UNCHANGED = "skipUnchanged";
+        public static final String SESSION_POOL_SCOPE = "sessionPoolScope";
+        public static final String MAX_SESSIONS_PER_HOST = "maxSessionsPerHost";
+        public static final String SESSION_MAX_IDLE_TIME = "sessionMaxIdleTime";
+        public static final String RESUME = "resume";
+        public static final String VERIFY_CHECKSUM = "verifyChecksum";
+        public static final String RFT_SESSIONS_DEFAULT_ID = "rftSessions:default-id";
 
     }
 
@@ -54,6 +91,14 @@ public class Constants {
         public static final String RETURN_RESULT = "returnResult";
         public static final String EXCEPTION = "exception";
         public static final String RETURN_CODE = "returnCode";
+        public static final String BYTES_TRANSFERRED = "bytesTransferred";
+        public static final String TRANSFER_TIME = "transferTime";
+        public static final String TRANSFER_RATE = "transferRate";
+        public static final String FILES_TRANSFERRED = "filesTransferred";
+        public static final String FILES_SKIPPED = "filesSkipped";
+        public static final String FILES_FAILED = "filesFailed";
+        public static final String RESUME_OFFSET = "resumeOffset";
+        public static final String CHECKSUM = "checksum";
     }
 
     public static final class ReturnCodes {
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.content.rft.utils;
+
+import com.hp.oo.sdk.content.plugin.SessionResource;
+import io.cloudslang.content.rft.services.SessionPool;
+
+/**
+ * Holds the session pool of a flow run. The sessions are disconnected when the run ends.
+ */
+public class SessionPoolResource extends SessionResource<SessionPool> {
+    private volatile SessionPool sessionPool;
+
+    public SessionPoolResource(SessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    @Override
+    public SessionPool get() {
+        return sessionPool;
+    }
+
+    @Override
+    public void release() {
+        SessionPool pool = sessionPool;
+        sessionPool = null;
+        if (pool != null) {
+            pool.clear();
+        }
+    }
+}
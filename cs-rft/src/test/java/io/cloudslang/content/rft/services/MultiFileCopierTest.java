@@ -0,0 +1,185 @@
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.*;
+import io.cloudslang.content.rft.entities.KeyFile;
+import io.cloudslang.content.rft.entities.KnownHostsFile;
+import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
+import io.cloudslang.content.rft.entities.TransferSummary;
+import io.cloudslang.content.rft.utils.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SCPCopier.class})
+public class MultiFileCopierTest {
+
+    private static final String DEST_PATH = "/dest";
+    private static final int MODIFIED_TIME = 1440000000;
+
+    @Mock
+    private JSch jSchMock;
+
+    @Mock
+    private Session sessionMock;
+
+    @Mock
+    private ChannelSftp channelSftpMock;
+
+    private Path sourceDirectory;
+    private RemoteSecureCopyInputs remoteSecureCopyInputs;
+
+    @Before
+    public void setUp() throws Exception {
+        sourceDirectory = Files.createTempDirectory("MultiFileCopierTest");
+        Files.write(sourceDirectory.resolve("a.txt"), "aaa".getBytes());
+        Files.write(sourceDirectory.resolve("c.log"), "ccc".getBytes());
+        Files.createDirectory(sourceDirectory.resolve("sub"));
+        Files.write(sourceDirectory.resolve("sub").resolve("b.txt"), "bbbbb".getBytes());
+        sourceDirectory.resolve("a.txt").toFile().setLastModified(MODIFIED_TIME * 1000L);
+
+        remoteSecureCopyInputs = new RemoteSecureCopyInputs(sourceDirectory.toString(), StringUtils.EMPTY_STRING, DEST_PATH, StringUtils.EMPTY_STRING);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(sourceDirectory.resolve("sub").resolve("b.txt"));
+        Files.delete(sourceDirectory.resolve("sub"));
+        Files.delete(sourceDirectory.resolve("a.txt"));
+        Files.delete(sourceDirectory.resolve("c.log"));
+        Files.delete(sourceDirectory);
+    }
+
+    @Test
+    public void isMultiFileCopy() {
+        assertFalse(MultiFileCopier.isMultiFileCopy(remoteSecureCopyInputs));
+        remoteSecureCopyInputs.setSrcPath(sourceDirectory.resolve("*.txt").toString());
+        assertFalse(MultiFileCopier.isMultiFileCopy(remoteSecureCopyInputs));
+        remoteSecureCopyInputs.setUseWildcards("true");
+        assertTrue(MultiFileCopier.isMultiFileCopy(remoteSecureCopyInputs));
+    }
+
+    @Test
+    public void listLocalFilesRecursive() throws IOException {
+        remoteSecureCopyInputs.setRecursive("true");
+
+        assertEquals(Arrays.asList("a.txt", "c.log", "sub/b.txt"), getRelativePaths(new MultiFileCopier(remoteSecureCopyInputs).listLocalFiles()));
+    }
+
+    @Test
+    public void listLocalFilesWithWildcard() throws IOException {
+        remoteSecureCopyInputs.setSrcPath(sourceDirectory.resolve("*").toString());
+        remoteSecureCopyInputs.setUseWildcards("true");
+
+        assertEquals(Arrays.asList("a.txt", "c.log"), getRelativePaths(new MultiFileCopier(remoteSecureCopyInputs).listLocalFiles()));
+    }
+
+    @Test
+    public void listLocalFilesFromFileList() throws IOException {
+        remoteSecureCopyInputs.setFileList("sub/b.txt\n\nc.log\n");
+
+        assertEquals(Arrays.asList("c.log", "sub/b.txt"), getRelativePaths(new MultiFileCopier(remoteSecureCopyInputs).listLocalFiles()));
+    }
+
+    @Test
+    public void listRemoteFilesSkipsLinkedDirectories() throws Exception {
+        SftpATTRS directoryMock = PowerMockito.mock(SftpATTRS.class);
+        when(directoryMock.isDir()).thenReturn(true);
+        SftpATTRS fileMock = PowerMockito.mock(SftpATTRS.class);
+        when(fileMock.isReg()).thenReturn(true);
+        SftpATTRS linkMock = PowerMockito.mock(SftpATTRS.class);
+        when(linkMock.isLink()).thenReturn(true);
+        PowerMockito.doReturn(directoryMock).when(channelSftpMock).stat("/src");
+        //the link points to its own directory, following it would never end
+        PowerMockito.doReturn(directoryMock).when(channelSftpMock).stat(startsWith("/src/loop"));
+        PowerMockito.doReturn(new Vector<>(Arrays.asList(createLsEntry("a.txt", fileMock), createLsEntry("loop", linkMock))))
+                .when(channelSftpMock).ls(startsWith("/src"));
+
+        remoteSecureCopyInputs.setSrcPath("/src");
+        remoteSecureCopyInputs.setRecursive("true");
+
+        assertEquals(Arrays.asList("a.txt"), getRelativePaths(new MultiFileCopier(remoteSecureCopyInputs).listRemoteFiles(channelSftpMock)));
+    }
+
+    @Test
+    public void copyFilesSkipsUnchanged() throws Exception {
+        PowerMockito.whenNew(JSch.class).withNoArguments().thenReturn(jSchMock);
+        when(jSchMock.getSession(anyString(), anyString(), anyInt())).thenReturn(sessionMock);
+        when(sessionMock.openChannel("sftp")).thenReturn(channelSftpMock);
+        when(channelSftpMock.isConnected()).thenReturn(true);
+        SftpATTRS directoryMock = PowerMockito.mock(SftpATTRS.class);
+        when(directoryMock.isDir()).thenReturn(true);
+        SftpATTRS unchangedFileMock = PowerMockito.mock(SftpATTRS.class);
+        when(unchangedFileMock.getSize()).thenReturn(3L);
+        when(unchangedFileMock.getMTime()).thenReturn(MODIFIED_TIME);
+        PowerMockito.doReturn(directoryMock).when(channelSftpMock).stat(DEST_PATH);
+        PowerMockito.doReturn(unchangedFileMock).when(channelSftpMock).stat(DEST_PATH + "/a.txt");
+        SftpException noSuchFile = new SftpException(ChannelSftp.SSH_FX_NO_SUCH_FILE, "No such file");
+        PowerMockito.doThrow(noSuchFile).when(channelSftpMock).stat(DEST_PATH + "/c.log");
+        PowerMockito.doThrow(noSuchFile).when(channelSftpMock).stat(DEST_PATH + "/sub");
+        PowerMockito.doThrow(noSuchFile).when(channelSftpMock).stat(DEST_PATH + "/sub/b.txt");
+
+        remoteSecureCopyInputs.setRecursive("true");
+        remoteSecureCopyInputs.setSkipUnchanged("true");
+        remoteSecureCopyInputs.setParallelStreams("2");
+        MultiFileCopier copier = new MultiFileCopier(remoteSecureCopyInputs) {
+            protected void establishKnownHostsConfiguration(KnownHostsFile knownHostsFile, JSch jsch, Session session) {
+            }
+
+            protected void establishPrivateKeyFile(KeyFile keyFile, JSch jsch, Session session, boolean usesSrcPrivateKeyFile) {
+            }
+        };
+
+        TransferSummary summary = copier.copyFiles();
+
+        assertEquals(2, summary.getFilesTransferred());
+        assertEquals(1, summary.getFilesSkipped());
+        assertEquals(0, summary.getFilesFailed());
+        verify(channelSftpMock).mkdir(DEST_PATH + "/sub");
+        verify(channelSftpMock, never()).mkdir(DEST_PATH);
+        verify(channelSftpMock).put(any(InputStream.class), eq(DEST_PATH + "/c.log"), any(SftpProgressMonitor.class), eq(ChannelSftp.OVERWRITE));
+        verify(channelSftpMock).put(any(InputStream.class), eq(DEST_PATH + "/sub/b.txt"), any(SftpProgressMonitor.class), eq(ChannelSftp.OVERWRITE));
+        verify(channelSftpMock, never()).put(any(InputStream.class), eq(DEST_PATH + "/a.txt"), any(SftpProgressMonitor.class), anyInt());
+    }
+
+    private static ChannelSftp.LsEntry createLsEntry(String filename, SftpATTRS attributes) {
+        ChannelSftp.LsEntry lsEntry = PowerMockito.mock(ChannelSftp.LsEntry.class);
+        when(lsEntry.getFilename()).thenReturn(filename);
+        when(lsEntry.getAttrs()).thenReturn(attributes);
+        return lsEntry;
+    }
+
+    private static List<String> getRelativePaths(List<MultiFileCopier.FileEntry> entries) {
+        List<String> relativePaths = new ArrayList<>();
+        for (MultiFileCopier.FileEntry entry : entries) {
+            relativePaths.add(entry.getRelativePath());
+        }
+        return relativePaths;
+    }
+}
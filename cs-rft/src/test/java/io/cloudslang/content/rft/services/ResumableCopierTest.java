@@ -0,0 +1,202 @@
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.*;
+import io.cloudslang.content.rft.entities.KeyFile;
+import io.cloudslang.content.rft.entities.KnownHostsFile;
+import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
+import io.cloudslang.content.rft.utils.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SCPCopier.class, SFTPCopier.class})
+public class ResumableCopierTest {
+
+    private static final String SFTP = "sftp";
+    private static final String EXEC = "exec";
+    private static final String REMOTE_PATH = "/tmp/remote.txt";
+    private static final String CONTENT = "0123456789";
+
+    @Mock
+    private JSch jSchMock;
+
+    @Mock
+    private Session sessionMock;
+
+    @Mock
+    private ChannelSftp channelSftpMock;
+
+    @Mock
+    private ChannelExec channelExecMock;
+
+    @Mock
+    private SftpATTRS attributesMock;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private RemoteSecureCopyInputs remoteSecureCopyInputs;
+    private File localFile;
+
+    @Before
+    public void setUp() throws Exception {
+        localFile = File.createTempFile("ResumableCopierTest", ".tmp");
+
+        remoteSecureCopyInputs = new RemoteSecureCopyInputs(localFile.getPath(), StringUtils.EMPTY_STRING, REMOTE_PATH, StringUtils.EMPTY_STRING);
+        remoteSecureCopyInputs.setPreserveAttributes("false");
+        PowerMockito.whenNew(JSch.class).withNoArguments().thenReturn(jSchMock);
+        when(jSchMock.getSession(anyString(), anyString(), anyInt())).thenReturn(sessionMock);
+        when(sessionMock.openChannel(SFTP)).thenReturn(channelSftpMock);
+        when(sessionMock.openChannel(EXEC)).thenReturn(channelExecMock);
+        when(channelSftpMock.stat(REMOTE_PATH)).thenReturn(attributesMock);
+    }
+
+    @After
+    public void tearDown() {
+        localFile.delete();
+    }
+
+    @Test
+    public void copyFromLocalToRemoteResumes() throws Exception {
+        Files.write(localFile.toPath(), CONTENT.getBytes());
+        when(attributesMock.getSize()).thenReturn(4L);
+        remoteSecureCopyInputs.setResume("true");
+        final ByteArrayOutputStream sent = captureUpload();
+        ResumableCopier copier = createCopier();
+
+        assertTrue(copier.copyFromLocalToRemote());
+
+        assertEquals("456789", sent.toString());
+        assertEquals(4, copier.getResumeOffset());
+        verify(channelSftpMock).put(any(InputStream.class), eq(REMOTE_PATH), any(SftpProgressMonitor.class), eq(ChannelSftp.APPEND));
+    }
+
+    @Test
+    public void copyFromLocalToRemoteRestartsWhenChecksumDoesNotMatch() throws Exception {
+        Files.write(localFile.toPath(), CONTENT.getBytes());
+        when(attributesMock.getSize()).thenReturn(4L);
+        remoteSecureCopyInputs.setResume("true");
+        remoteSecureCopyInputs.setVerifyChecksum("true");
+        when(channelExecMock.getInputStream()).thenReturn(checksumOutput(sha256("corrupted")), checksumOutput(sha256(CONTENT)));
+        final ByteArrayOutputStream sent = captureUpload();
+        ResumableCopier copier = createCopier();
+
+        assertTrue(copier.copyFromLocalToRemote());
+
+        assertEquals("456789" + CONTENT, sent.toString());
+        assertEquals(0, copier.getResumeOffset());
+        assertEquals(sha256(CONTENT), copier.getChecksum());
+        verify(channelSftpMock).put(any(InputStream.class), eq(REMOTE_PATH), any(SftpProgressMonitor.class), eq(ChannelSftp.APPEND));
+        verify(channelSftpMock).put(any(InputStream.class), eq(REMOTE_PATH), any(SftpProgressMonitor.class), eq(ChannelSftp.OVERWRITE));
+    }
+
+    @Test
+    public void copyFromLocalToRemoteFailsWhenChecksumDoesNotMatch() throws Exception {
+        Files.write(localFile.toPath(), CONTENT.getBytes());
+        when(channelSftpMock.stat(REMOTE_PATH)).thenThrow(new SftpException(ChannelSftp.SSH_FX_NO_SUCH_FILE, "No such file"));
+        remoteSecureCopyInputs.setVerifyChecksum("true");
+        when(channelExecMock.getInputStream()).thenReturn(checksumOutput(sha256("corrupted")));
+        captureUpload();
+        ResumableCopier copier = createCopier();
+
+        exception.expect(RuntimeException.class);
+        exception.expectMessage("does not match the checksum of the source (" + sha256(CONTENT) + ")");
+        copier.copyFromLocalToRemote();
+    }
+
+    @Test
+    public void copyFromRemoteToLocalResumes() throws Exception {
+        Files.write(localFile.toPath(), "0123".getBytes());
+        when(attributesMock.getSize()).thenReturn(10L);
+        remoteSecureCopyInputs.setSrcPath(REMOTE_PATH);
+        remoteSecureCopyInputs.setDestPath(localFile.getPath());
+        remoteSecureCopyInputs.setResume("true");
+        remoteSecureCopyInputs.setVerifyChecksum("true");
+        when(channelExecMock.getInputStream()).thenReturn(checksumOutput(sha256(CONTENT)));
+        PowerMockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((OutputStream) invocation.getArguments()[1]).write("456789".getBytes());
+                return null;
+            }
+        }).when(channelSftpMock).get(eq(REMOTE_PATH), any(OutputStream.class), any(SftpProgressMonitor.class), eq(ChannelSftp.RESUME), eq(4L));
+        ResumableCopier copier = createCopier();
+
+        assertTrue(copier.copyFromRemoteToLocal());
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(localFile.toPath())));
+        assertEquals(4, copier.getResumeOffset());
+        assertEquals(sha256(CONTENT), copier.getChecksum());
+    }
+
+    @Test
+    public void getRemoteChecksumReadsFileWithoutCommand() throws Exception {
+        when(channelExecMock.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(channelSftpMock.get(REMOTE_PATH)).thenReturn(new ByteArrayInputStream(CONTENT.getBytes()));
+
+        assertEquals(sha256(CONTENT), createCopier().getRemoteChecksum(sessionMock, channelSftpMock, REMOTE_PATH));
+        verify(channelExecMock).setCommand("sha256sum '" + REMOTE_PATH + "' 2>/dev/null || shasum -a 256 '" + REMOTE_PATH + "' 2>/dev/null");
+        verify(channelExecMock).disconnect();
+    }
+
+    private ResumableCopier createCopier() {
+        return new ResumableCopier(remoteSecureCopyInputs) {
+            protected void establishKnownHostsConfiguration(KnownHostsFile knownHostsFile, JSch jsch, Session session) {
+            }
+
+            protected void establishPrivateKeyFile(KeyFile keyFile, JSch jsch, Session session, boolean usesSrcPrivateKeyFile) {
+            }
+        };
+    }
+
+    private ByteArrayOutputStream captureUpload() throws SftpException {
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        PowerMockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                InputStream in = (InputStream) invocation.getArguments()[0];
+                int b;
+                while ((b = in.read()) >= 0) {
+                    sent.write(b);
+                }
+                return null;
+            }
+        }).when(channelSftpMock).put(any(InputStream.class), eq(REMOTE_PATH), any(SftpProgressMonitor.class), anyInt());
+        return sent;
+    }
+
+    private static InputStream checksumOutput(String checksum) {
+        return new ByteArrayInputStream((checksum + "  " + REMOTE_PATH + "\n").getBytes());
+    }
+
+    private static String sha256(String content) throws Exception {
+        return ResumableCopier.toHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes()));
+    }
+}
@@ -0,0 +1,73 @@
+package io.cloudslang.content.rft.services;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void writeLargerThanCapacity() throws Exception {
+        final RingBuffer ringBuffer = new RingBuffer(7);
+        final byte[] content = new byte[10000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ringBuffer.write(content, 0, content.length);
+                    ringBuffer.close();
+                } catch (IOException e) {
+                    ringBuffer.fail(e);
+                }
+            }
+        });
+        writer.start();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buf = new byte[5];
+        int len;
+        while ((len = ringBuffer.read(buf, 0, buf.length)) >= 0) {
+            assertTrue(len <= buf.length);
+            result.write(buf, 0, len);
+        }
+        writer.join();
+
+        assertArrayEquals(content, result.toByteArray());
+    }
+
+    @Test
+    public void readAfterWriterFailure() throws Exception {
+        RingBuffer ringBuffer = new RingBuffer(16);
+        ringBuffer.write(new byte[]{1, 2}, 0, 2);
+        ringBuffer.fail(new IOException("source failed"));
+
+        assertTrue(ringBuffer.isFailed());
+        exception.expect(IOException.class);
+        exception.expectMessage("source failed");
+        ringBuffer.read(new byte[16], 0, 16);
+    }
+
+    @Test
+    public void writeAfterCancel() throws Exception {
+        RingBuffer ringBuffer = new RingBuffer(4);
+        ringBuffer.write(new byte[]{1, 2, 3}, 0, 3);
+        assertEquals(3, ringBuffer.read(new byte[4], 0, 4));
+        ringBuffer.cancel();
+
+        exception.expect(IOException.class);
+        ringBuffer.write(new byte[]{1}, 0, 1);
+    }
+}
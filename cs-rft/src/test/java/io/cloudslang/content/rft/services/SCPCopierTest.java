@@ -24,6 +24,8 @@ import java.nio.file.Paths;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.verifyNew;
@@ -53,6 +55,10 @@ public class SCPCopierTest {
     public static final String KEY_FILE_PATH = "path";
     public static final String PASS_PHRASE = "phrase";
     public static final String EXEC = "exec";
+    public static final String REMOTE_COPY_MODE_PIPED = "piped";
+    public static final String SCP_TIMES_HEADER = "T1440000000 0 1440000000 0\n";
+    public static final String SCP_FILE_HEADER = "C0644 11 file.txt\n";
+    public static final String SCP_FILE_CONTENT = "hello world";
 
 
     @Mock
@@ -61,6 +67,9 @@ public class SCPCopierTest {
     @Mock
     private ChannelExec channelExecMock;
 
+    @Mock
+    private ChannelExec sourceChannelMock;
+
     @Mock
     private File tempFileMock;
     @Mock
@@ -142,6 +151,25 @@ public class SCPCopierTest {
         verify(sessionMock).disconnect();
     }
 
+    @Test
+    public void copyFromLocalToRemoteWithSessionPool() throws Exception {
+        PowerMockito.when(sessionMock.isConnected()).thenReturn(true);
+        PowerMockito.when(sessionMock.openChannel("session")).thenReturn(Mockito.mock(Channel.class));
+        SessionPool sessionPool = new SessionPool();
+        scpCopier.setSessionPool(sessionPool);
+
+        assertEquals(true, scpCopier.copyFromLocalToRemote());
+        assertEquals(true, scpCopier.copyFromLocalToRemote());
+
+        verify(jSchMock).getSession(anyString(), anyString(), anyInt());
+        verify(sessionMock).connect(anyInt());
+        verify(channelExecMock, times(2)).disconnect();
+        verify(sessionMock, never()).disconnect();
+        assertEquals(1, sessionPool.size());
+        sessionPool.clear();
+        verify(sessionMock).disconnect();
+    }
+
     @Test
     public void copyFromRemoteToLocal() throws Exception {
         boolean isCopied = scpCopier.copyFromRemoteToLocal();
@@ -206,6 +234,68 @@ public class SCPCopierTest {
         assertEquals(true, isCopied);
     }
 
+    @Test
+    public void copyFromRemoteToRemotePiped() throws Exception {
+        ByteArrayOutputStream destOutput = new ByteArrayOutputStream();
+        mockPipedChannels(destOutput);
+        RemoteSecureCopyInputs remoteSecureCopyInputs = getRemoteSecureCopyInputs();
+        remoteSecureCopyInputs.setRemoteCopyMode(REMOTE_COPY_MODE_PIPED);
+        scpCopier = new SCPCopier(remoteSecureCopyInputs) {
+            protected void establishKnownHostsConfiguration(KnownHostsFile knownHostsFile, JSch jsch, Session session) {
+            }
+
+            protected void establishPrivateKeyFile(KeyFile keyFile, JSch jsch, Session session, boolean usesSrcPrivateKeyFile) {
+            }
+        };
+
+        assertEquals(true, scpCopier.copyFromRemoteToRemote());
+
+        assertEquals(SCP_TIMES_HEADER + SCP_FILE_HEADER + SCP_FILE_CONTENT + '\0', destOutput.toString());
+        assertEquals(SCP_FILE_CONTENT.length(), scpCopier.getBytesTransferred());
+        verify(sourceChannelMock).setCommand("scp -p -f " + remoteSecureCopyInputs.getSrcPath());
+        verify(channelExecMock).setCommand("scp -p -t " + remoteSecureCopyInputs.getDestPath());
+        verify(sourceChannelMock).disconnect();
+        verify(channelExecMock).disconnect();
+    }
+
+    @Test
+    public void copyFromRemoteToRemotePipedFallsBackToTempFile() throws Exception {
+        OutputStream destOutput = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (new String(bytes, offset, length).contains(SCP_FILE_CONTENT)) {
+                    throw new IOException("Disk full");
+                }
+            }
+        };
+        mockPipedChannels(destOutput);
+        RemoteSecureCopyInputs remoteSecureCopyInputs = getRemoteSecureCopyInputs();
+        remoteSecureCopyInputs.setRemoteCopyMode(REMOTE_COPY_MODE_PIPED);
+        final boolean[] usedTempFile = {false};
+        scpCopier = new SCPCopier(remoteSecureCopyInputs) {
+            protected void establishKnownHostsConfiguration(KnownHostsFile knownHostsFile, JSch jsch, Session session) {
+            }
+
+            protected void establishPrivateKeyFile(KeyFile keyFile, JSch jsch, Session session, boolean usesSrcPrivateKeyFile) {
+            }
+
+            protected boolean copyFromRemoteToRemoteWithTempFile() {
+                usedTempFile[0] = true;
+                return true;
+            }
+        };
+
+        assertEquals(true, scpCopier.copyFromRemoteToRemote());
+
+        assertEquals(true, usedTempFile[0]);
+        verify(sourceChannelMock).disconnect();
+        verify(channelExecMock).disconnect();
+    }
+
     @Test
     public void establishKnownHostsConfigurationStrict() throws IOException, JSchException {
         RemoteSecureCopyInputs remoteSecureCopyInputs = getRemoteSecureCopyInputs();
@@ -302,6 +392,15 @@ public class SCPCopierTest {
         verify(jSchMock).addIdentity(key.getKeyFilePath(), key.getPassPhrase());
     }
 
+    private void mockPipedChannels(OutputStream destOutput) throws Exception {
+        String sourceOutput = SCP_TIMES_HEADER + SCP_FILE_HEADER + SCP_FILE_CONTENT + '\0';
+        PowerMockito.when(sessionMock.openChannel(EXEC)).thenReturn(sourceChannelMock, channelExecMock);
+        PowerMockito.when(sourceChannelMock.getInputStream()).thenReturn(new ByteArrayInputStream(sourceOutput.getBytes()));
+        PowerMockito.when(sourceChannelMock.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        PowerMockito.when(channelExecMock.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[4]));
+        PowerMockito.when(channelExecMock.getOutputStream()).thenReturn(destOutput);
+    }
+
     private RemoteSecureCopyInputs getRemoteSecureCopyInputs() {
         return new RemoteSecureCopyInputs(StringUtils.EMPTY_STRING, StringUtils.EMPTY_STRING, StringUtils.EMPTY_STRING, StringUtils.EMPTY_STRING);
     }
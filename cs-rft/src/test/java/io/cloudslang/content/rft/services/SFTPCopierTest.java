@@ -0,0 +1,154 @@
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.*;
+import io.cloudslang.content.rft.entities.KeyFile;
+import io.cloudslang.content.rft.entities.KnownHostsFile;
+import io.cloudslang.content.rft.entities.RemoteSecureCopyInputs;
+import io.cloudslang.content.rft.utils.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SCPCopier.class, SFTPCopier.class})
+public class SFTPCopierTest {
+
+    private static final String SFTP = "sftp";
+    private static final String DEST_PATH = "/tmp/dest.txt";
+    private static final long MODIFIED_TIME = 1440000000000L;
+
+    @Mock
+    private JSch jSchMock;
+
+    @Mock
+    private Session sessionMock;
+
+    @Mock
+    private ChannelSftp channelSftpMock;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private RemoteSecureCopyInputs remoteSecureCopyInputs;
+    private SFTPCopier sftpCopier;
+    private File srcFile;
+
+    @Before
+    public void setUp() throws Exception {
+        srcFile = File.createTempFile("SFTPCopierTest", ".tmp");
+        Files.write(srcFile.toPath(), "content".getBytes());
+        srcFile.setLastModified(MODIFIED_TIME);
+
+        remoteSecureCopyInputs = new RemoteSecureCopyInputs(srcFile.getPath(), StringUtils.EMPTY_STRING, DEST_PATH, StringUtils.EMPTY_STRING);
+        sftpCopier = new SFTPCopier(remoteSecureCopyInputs) {
+            protected void establishKnownHostsConfiguration(KnownHostsFile knownHostsFile, JSch jsch, Session session) {
+            }
+
+            protected void establishPrivateKeyFile(KeyFile keyFile, JSch jsch, Session session, boolean usesSrcPrivateKeyFile) {
+            }
+        };
+        PowerMockito.whenNew(JSch.class).withNoArguments().thenReturn(jSchMock);
+        when(jSchMock.getSession(anyString(), anyString(), anyInt())).thenReturn(sessionMock);
+        when(sessionMock.openChannel(SFTP)).thenReturn(channelSftpMock);
+        when(channelSftpMock.stat(DEST_PATH)).thenThrow(new SftpException(ChannelSftp.SSH_FX_NO_SUCH_FILE, "No such file"));
+    }
+
+    @After
+    public void tearDown() {
+        srcFile.delete();
+    }
+
+    @Test
+    public void copyFromLocalToRemote() throws Exception {
+        remoteSecureCopyInputs.setOutstandingRequests("64");
+
+        assertTrue(sftpCopier.copyFromLocalToRemote());
+
+        verify(channelSftpMock).setBulkRequests(64);
+        verify(channelSftpMock).connect(anyInt());
+        verify(channelSftpMock).put(any(InputStream.class), eq(DEST_PATH), any(SftpProgressMonitor.class), eq(ChannelSftp.OVERWRITE));
+        verify(channelSftpMock).setMtime(DEST_PATH, (int) (MODIFIED_TIME / 1000));
+        verify(channelSftpMock).chmod(SFTPCopier.getPermissions(srcFile.toPath()), DEST_PATH);
+        verify(channelSftpMock).disconnect();
+        verify(sessionMock).disconnect();
+    }
+
+    @Test
+    public void copyFromLocalToRemoteWithoutAttributes() throws Exception {
+        remoteSecureCopyInputs.setPreserveAttributes("false");
+
+        assertTrue(sftpCopier.copyFromLocalToRemote());
+
+        verify(channelSftpMock).put(any(InputStream.class), eq(DEST_PATH), any(SftpProgressMonitor.class), eq(ChannelSftp.OVERWRITE));
+        verify(channelSftpMock, never()).setMtime(anyString(), anyInt());
+        verify(channelSftpMock, never()).chmod(anyInt(), anyString());
+    }
+
+    @Test
+    public void copyFromLocalToRemoteWithSftpException() throws Exception {
+        PowerMockito.doThrow(new SftpException(ChannelSftp.SSH_FX_PERMISSION_DENIED, "Permission denied"))
+                .when(channelSftpMock).put(any(InputStream.class), anyString(), any(SftpProgressMonitor.class), anyInt());
+        exception.expect(RuntimeException.class);
+
+        try {
+            sftpCopier.copyFromLocalToRemote();
+        } finally {
+            verify(channelSftpMock).disconnect();
+            verify(sessionMock).disconnect();
+        }
+    }
+
+    @Test
+    public void copyFromRemoteToLocal() throws Exception {
+        SftpATTRS attributesMock = PowerMockito.mock(SftpATTRS.class);
+        when(attributesMock.getMTime()).thenReturn((int) (MODIFIED_TIME / 1000));
+        when(attributesMock.getPermissions()).thenReturn(0640);
+        PowerMockito.doReturn(attributesMock).when(channelSftpMock).stat(DEST_PATH);
+        remoteSecureCopyInputs.setSrcPath(DEST_PATH);
+        remoteSecureCopyInputs.setDestPath(srcFile.getPath());
+
+        assertTrue(sftpCopier.copyFromRemoteToLocal());
+
+        verify(channelSftpMock).get(eq(DEST_PATH), any(OutputStream.class), any(SftpProgressMonitor.class));
+        assertEquals(MODIFIED_TIME, srcFile.lastModified());
+    }
+
+    @Test
+    public void copyWithInvalidOutstandingRequests() throws IOException {
+        remoteSecureCopyInputs.setOutstandingRequests("0");
+        exception.expect(RuntimeException.class);
+        exception.expectMessage("outstanding requests");
+
+        sftpCopier.copyFromLocalToRemote();
+    }
+
+    @Test
+    public void permissionsConversion() {
+        assertEquals(0750, SFTPCopier.toMode(PosixFilePermissions.fromString("rwxr-x---")));
+        assertEquals(PosixFilePermissions.fromString("rw-r--r--"), SFTPCopier.toPosixFilePermissions(0100644));
+    }
+}
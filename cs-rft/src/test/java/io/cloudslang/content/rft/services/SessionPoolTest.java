@@ -0,0 +1,117 @@
+package io.cloudslang.content.rft.services;
+
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionPoolTest {
+    private static final String KEY = SessionPool.buildKey("host", 22, "user", "password", null);
+    private static final long MAX_IDLE_TIME = 60000;
+
+    private SessionPool sessionPool;
+
+    @Before
+    public void setUp() {
+        sessionPool = new SessionPool();
+    }
+
+    @Test
+    public void buildKeyDependsOnCredentials() {
+        assertEquals(KEY, SessionPool.buildKey("host", 22, "user", "password", null));
+        assertFalse(KEY.equals(SessionPool.buildKey("host", 22, "user", "password", "/root/.ssh/id_rsa")));
+        assertFalse(KEY.equals(SessionPool.buildKey("host", 2222, "user", "password", null)));
+    }
+
+    @Test
+    public void takeReusesGivenSession() throws Exception {
+        Session session = createSession();
+        assertNull(sessionPool.take(KEY));
+        sessionPool.give(KEY, session, 2, MAX_IDLE_TIME);
+
+        assertSame(session, sessionPool.take(KEY));
+        assertNull(sessionPool.take(KEY));
+        assertNull(sessionPool.take(SessionPool.buildKey("host", 22, "user", "otherPassword", null)));
+        verify(session, never()).disconnect();
+    }
+
+    @Test
+    public void giveKeepsAtMostMaxSessions() throws Exception {
+        Session session = createSession();
+        Session session2 = createSession();
+        sessionPool.give(KEY, session, 1, MAX_IDLE_TIME);
+        sessionPool.give(KEY, session2, 1, MAX_IDLE_TIME);
+
+        assertEquals(1, sessionPool.size());
+        verify(session, never()).disconnect();
+        verify(session2).disconnect();
+    }
+
+    @Test
+    public void takeSkipsUnresponsiveSession() throws Exception {
+        Session session = createSession();
+        sessionPool.give(KEY, session, 1, MAX_IDLE_TIME);
+        Channel channel = mock(Channel.class);
+        doThrow(new JSchException("channel is not opened.")).when(channel).connect(anyInt());
+        when(session.openChannel("session")).thenReturn(channel);
+
+        assertNull(sessionPool.take(KEY));
+        assertEquals(0, sessionPool.size());
+        verify(session).disconnect();
+    }
+
+    @Test
+    public void giveEvictsIdleSessions() throws Exception {
+        Session idleSession = createSession();
+        sessionPool.give(KEY, idleSession, 2, 1);
+        Thread.sleep(10);
+        sessionPool.give(SessionPool.buildKey("otherHost", 22, "user", "password", null), createSession(), 2, MAX_IDLE_TIME);
+
+        assertEquals(1, sessionPool.size());
+        verify(idleSession).disconnect();
+    }
+
+    @Test
+    public void takeSkipsDisconnectedSession() throws Exception {
+        Session session = createSession();
+        sessionPool.give(KEY, session, 1, MAX_IDLE_TIME);
+        when(session.isConnected()).thenReturn(false);
+
+        assertNull(sessionPool.take(KEY));
+        assertEquals(0, sessionPool.size());
+        verify(session).disconnect();
+    }
+
+    @Test
+    public void evictIdle() throws Exception {
+        Session idleSession = createSession();
+        Session recentSession = createSession();
+        sessionPool.give(KEY, idleSession, 2, 1);
+        sessionPool.give(KEY, recentSession, 2, MAX_IDLE_TIME);
+        Thread.sleep(10);
+
+        assertEquals(1, sessionPool.evictIdle());
+        assertEquals(1, sessionPool.size());
+        verify(idleSession).disconnect();
+        verify(recentSession, never()).disconnect();
+    }
+
+    private static Session createSession() throws JSchException {
+        Session session = mock(Session.class);
+        when(session.isConnected()).thenReturn(true);
+        when(session.openChannel("session")).thenReturn(mock(Channel.class));
+        return session;
+    }
+}
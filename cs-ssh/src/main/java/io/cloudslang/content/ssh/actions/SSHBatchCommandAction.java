@@ -0,0 +1,161 @@
+package io.cloudslang.content.ssh.actions;
+
+import com.hp.oo.sdk.content.annotations.Action;
+import com.hp.oo.sdk.content.annotations.Output;
+import com.hp.oo.sdk.content.annotations.Param;
+import com.hp.oo.sdk.content.annotations.Response;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.MatchType;
+import com.hp.oo.sdk.content.plugin.ActionMetadata.ResponseType;
+import io.cloudslang.content.constants.OutputNames;
+import io.cloudslang.content.constants.ResponseNames;
+import io.cloudslang.content.constants.ReturnCodes;
+import io.cloudslang.content.ssh.entities.SSHShellInputs;
+import io.cloudslang.content.ssh.services.actions.ScoreSSHBatchCommand;
+import io.cloudslang.content.ssh.utils.Constants;
+import io.cloudslang.content.ssh.utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operation executes a Shell command(s) on a list of remote machines using the SSH protocol.
+ */
+public class SSHBatchCommandAction {
+
+    /**
+     * Executes a Shell command(s) on a list of remote machines using the SSH protocol, several machines at a time.
+     *
+     * @param hosts              The list of hostnames or ip addresses of the remote machines. A host can have its own port,
+     *                           in a syntax like host:port. <br>Example: host1,host2:2222
+     * @param hostCommands       The commands of the hosts that do not run the 'command' input, one host per line in a
+     *                           syntax like host=command. A host given only here is added to the 'hosts' list.
+     * @param delimiter          The delimiter of the 'hosts' list. Default value: ,
+     * @param parallelism        The maximum number of hosts where the command runs at the same time. Default value: 10
+     * @param port               The port number of the hosts without their own port. Default value: 22
+     * @param username           The username of the account on the remote machines.
+     * @param password           The password of the user. If using a private key file this will be used as the passphrase for the file.
+     * @param privateKeyFile     The path to the private key file (OpenSSH type) on the machine where is the worker.
+     * @param privateKeyData     A string representing the private key (OpenSSH type) used for authenticating the user.
+     *                           The 'privateKeyData' and the 'privateKeyFile' inputs are mutually exclusive.
+     * @param knownHostsPolicy   The policy used for managing known_hosts file. Valid values: allow, strict, add. Default value: allow
+     * @param knownHostsPath     The path to the known hosts file.
+     * @param allowedCiphers     A comma separated list of ciphers that will be used in the client-server handshake
+     *                           mechanism when the connection is created.
+     *                           Default value: aes128-ctr,aes128-cbc,3des-ctr,3des-cbc,blowfish-cbc,aes192-ctr,aes192-cbc,aes256-ctr,aes256-cbc
+     * @param command            The command(s) to execute on the hosts without a line in 'hostCommands'.
+     * @param characterSet       The character encoding used for input stream encoding from the target machines.
+     *                           Valid values: SJIS, EUC-JP, UTF-8. Default value: UTF-8.
+     * @param pty                Whether to use a pseudo-terminal (PTY) session. Valid values: false, true. Default value: false
+     * @param agentForwarding    Enables or disables the forwarding of the authentication agent connection.
+     * @param timeout            Time in milliseconds to wait for the command to complete on each host. Default value: 90000
+     * @param connectTimeout     Time in milliseconds to wait for the connection to each host to be made. Default value: 10000
+     * @param proxyHost          The HTTP proxy host.
+     * @param proxyPort          The HTTP proxy port. Default value: 8080
+     * @param proxyUsername      The username used for the proxy authentication.
+     * @param proxyPassword      The password used for the proxy authentication.
+     * @param poolSessions       If true the SSH sessions are taken from the session pool shared by all the flows of the
+     *                           worker and stay connected after the command, otherwise they are closed.
+     *                           Valid values: false, true. Default value: false
+     * @param maxSessionsPerHost The maximum number of pooled sessions for the same host. Default value: 2
+     * @param sessionMaxIdleTime Time in milliseconds after which an unused pooled session is disconnected. Default value: 300000
+     * @param outputTailSize     The maximum number of bytes of each output stream of each host kept in memory.
+     *                           Default value: 0 (no limit), or 65536 if 'outputTailLines' is given.
+     * @param outputTailLines    The maximum number of last lines of each output stream of each host returned. Default value: 0 (no limit)
+     * @return - a map containing the output of the operation. Keys present in the map are:
+     * <br><b>returnResult</b> - A JSON array with an object for each host, in the order of the hosts, like:
+     * <br>{"host":"host1","returnCode":0,"exitStatus":0,"stdout":"the output","stderr":""}
+     * <br>A host where the command could not be run has the returnCode -1, no exitStatus and the error message in exception.
+     * <br><b>successCount</b> - The number of hosts where the command exited with the status 0.
+     * <br><b>failureCount</b> - The number of hosts where the command could not be run or exited with another status.
+     * <br><b>returnCode</b> - the return code of the operation. 0 if the operation goes to success, -1 if the operation goes to failure.
+     * <br><b>exception</b> - the exception message if the operation goes to failure.
+     */
+    @Action(name = "SSH Batch Command",
+            outputs = {
+                    @Output(OutputNames.RETURN_CODE),
+                    @Output(OutputNames.RETURN_RESULT),
+                    @Output(OutputNames.EXCEPTION),
+                    @Output(Constants.SUCCESS_COUNT),
+                    @Output(Constants.FAILURE_COUNT)
+            },
+            responses = {
+                    @Response(text = ResponseNames.SUCCESS, field = OutputNames.RETURN_CODE, value = ReturnCodes.SUCCESS, matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.RESOLVED),
+                    @Response(text = ResponseNames.FAILURE, field = OutputNames.RETURN_CODE, value = ReturnCodes.FAILURE, matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.ERROR, isOnFail = true)
+            }
+    )
+    public Map<String, String> runSshBatchCommand(
+            @Param(Constants.HOSTS) String hosts,
+            @Param(Constants.HOST_COMMANDS) String hostCommands,
+            @Param(Constants.DELIMITER) String delimiter,
+            @Param(Constants.PARALLELISM) String parallelism,
+            @Param(Constants.InputNames.PORT) String port,
+            @Param(value = Constants.InputNames.USERNAME, required = true) String username,
+            @Param(value = Constants.InputNames.PASSWORD, encrypted = true) String password,
+            @Param(Constants.PRIVATE_KEY_FILE) String privateKeyFile,
+            @Param(value = Constants.PRIVATE_KEY_DATA, encrypted = true) String privateKeyData,
+            @Param(Constants.KNOWN_HOSTS_POLICY) String knownHostsPolicy,
+            @Param(Constants.KNOWN_HOSTS_PATH) String knownHostsPath,
+            @Param(Constants.ALLOWED_CIPHERS) String allowedCiphers,
+            @Param(Constants.COMMAND) String command,
+            @Param(Constants.InputNames.CHARACTER_SET) String characterSet,
+            @Param(value = Constants.PTY) String pty,
+            @Param(value = Constants.InputNames.AGENT_FORWARDING) String agentForwarding,
+            @Param(Constants.InputNames.TIMEOUT) String timeout,
+            @Param(Constants.CONNECT_TIMEOUT) String connectTimeout,
+            @Param(Constants.PROXY_HOST) String proxyHost,
+            @Param(Constants.PROXY_PORT) String proxyPort,
+            @Param(Constants.PROXY_USERNAME) String proxyUsername,
+            @Param(value = Constants.PROXY_PASSWORD, encrypted = true) String proxyPassword,
+            @Param(Constants.POOL_SESSIONS) String poolSessions,
+            @Param(Constants.MAX_SESSIONS_PER_HOST) String maxSessionsPerHost,
+            @Param(Constants.SESSION_MAX_IDLE_TIME) String sessionMaxIdleTime,
+            @Param(Constants.OUTPUT_TAIL_SIZE) String outputTailSize,
+            @Param(Constants.OUTPUT_TAIL_LINES) String outputTailLines) {
+
+        SSHShellInputs sshShellInputs = new SSHShellInputs();
+        sshShellInputs.setPort(port);
+        sshShellInputs.setUsername(username);
+        sshShellInputs.setPassword(password);
+        sshShellInputs.setPrivateKeyFile(privateKeyFile);
+        sshShellInputs.setPrivateKeyData(privateKeyData);
+        sshShellInputs.setCommand(command);
+        sshShellInputs.setCharacterSet(characterSet);
+        sshShellInputs.setPty(pty);
+        sshShellInputs.setAgentForwarding(agentForwarding);
+        sshShellInputs.setTimeout(timeout);
+        sshShellInputs.setConnectTimeout(connectTimeout);
+        sshShellInputs.setKnownHostsPolicy(knownHostsPolicy);
+        sshShellInputs.setKnownHostsPath(knownHostsPath);
+        sshShellInputs.setAllowedCiphers(allowedCiphers);
+        sshShellInputs.setProxyHost(proxyHost);
+        sshShellInputs.setProxyPort(proxyPort);
+        sshShellInputs.setProxyUsername(proxyUsername);
+        sshShellInputs.setProxyPassword(proxyPassword);
+        sshShellInputs.setPoolSessions(poolSessions);
+        sshShellInputs.setMaxSessionsPerHost(maxSessionsPerHost);
+        sshShellInputs.setSessionMaxIdleTime(sessionMaxIdleTime);
+        sshShellInputs.setOutputTailSize(outputTailSize);
+        sshShellInputs.setOutputTailLines(outputTailLines);
+
+        Map<String, String> returnResult = new HashMap<>();
+        try {
+            Map<String, String> hostCommandMap = ScoreSSHBatchCommand.buildHostCommands(hosts, hostCommands, delimiter);
+            List<Map<String, String>> results = new ScoreSSHBatchCommand()
+                    .setParallelism(parallelism)
+                    .execute(sshShellInputs, hostCommandMap);
+
+            int successCount = ScoreSSHBatchCommand.countSuccesses(results);
+            returnResult.put(OutputNames.RETURN_RESULT, ScoreSSHBatchCommand.toJson(new ArrayList<>(hostCommandMap.keySet()), results));
+            returnResult.put(Constants.SUCCESS_COUNT, String.valueOf(successCount));
+            returnResult.put(Constants.FAILURE_COUNT, String.valueOf(results.size() - successCount));
+            returnResult.put(OutputNames.RETURN_CODE, ReturnCodes.SUCCESS);
+        } catch (Exception e) {
+            returnResult.put(OutputNames.RETURN_RESULT, e.getMessage());
+            returnResult.put(OutputNames.EXCEPTION, StringUtils.getStackTraceAsString(e));
+            returnResult.put(OutputNames.RETURN_CODE, ReturnCodes.FAILURE);
+        }
+        return returnResult;
+    }
+}
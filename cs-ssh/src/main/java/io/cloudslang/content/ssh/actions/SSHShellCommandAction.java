@@ -57,10 +57,32 @@ public class SSHShellCommandAction {
      * @param globalSessionObject the sessionObject that holds the connection if the close session is false.
      * @param closeSession        If true it closes the SSH session at completion of this operation.
      *                            If false the SSH session will be cached for future calls of this operation during the life of the flow.
+     *                            A flow caches at most 32 sessions, the least recently used ones are closed first.
      *                            Valid values: false, true. Default value: false
+     * @param poolSessions        If true the SSH session is taken from a session pool shared by all the flows of the worker,
+     *                            where it stays connected for future calls with the same host, port, username and credentials.
+     *                            A pooled session runs several commands at the same time, each on its own channel.
+     *                            The 'closeSession', 'globalSessionObject' and 'allowExpectCommands' inputs are ignored.
+     *                            Valid values: false, true. Default value: false
+     * @param maxSessionsPerHost  The maximum number of pooled sessions for the same host, port, username and credentials.
+     *                            When all of them are busy the command waits for one, at most 'timeout' milliseconds. Default value: 2
+     * @param sessionMaxIdleTime  Time in milliseconds after which an unused pooled session is disconnected. Default value: 300000
+     * @param stdoutFile          The path of a file on the worker where the standard output is written as it arrives.
+     *                            If given, only the tail of the standard output is kept in memory and returned in STDOUT.
+     * @param stderrFile          The path of a file on the worker where the standard error is written as it arrives.
+     *                            If given, only the tail of the standard error is kept in memory and returned in STDERR.
+     * @param outputTailSize      The maximum number of bytes of each output stream kept in memory and returned.
+     *                            Default value: 0 (no limit), or 65536 if a file or 'outputTailLines' is given.
+     * @param outputTailLines     The maximum number of last lines of each output stream returned. Default value: 0 (no limit)
      * @return - a map containing the output of the operation. Keys present in the map are:
      * <br><b>returnResult</b> - The primary output.
      * <br><b>STDOUT</b> - The standard output of the command(s).
+     * <br><b>stdoutSize</b> - The size in bytes of the whole standard output.
+     * <br><b>stderrSize</b> - The size in bytes of the whole standard error.
+     * <br><b>sessionCacheHits</b> - The number of times a cached SSH session of the flow was reused.
+     * <br><b>sessionCacheMisses</b> - The number of times no connected SSH session of the flow was cached.
+     * <br><b>sessionCacheEvictions</b> - The number of cached SSH sessions of the flow that were disconnected because
+     * they were dead or least recently used.
      * <br><b>visualized</b> - The output of the command in XML format.
      * <br><b>returnCode</b> - the return code of the operation. 0 if the operation goes to success, -1 if the operation goes to failure.
      * <br><b>exception</b> - the exception message if the operation goes to failure.
@@ -73,7 +95,12 @@ public class SSHShellCommandAction {
                     @Output(OutputNames.EXCEPTION),
                     @Output(Constants.STDOUT),
                     @Output(Constants.STDERR),
-                    @Output(Constants.EXIT_STATUS)
+                    @Output(Constants.EXIT_STATUS),
+                    @Output(Constants.STDOUT_SIZE),
+                    @Output(Constants.STDERR_SIZE),
+                    @Output(Constants.SESSION_CACHE_HITS),
+                    @Output(Constants.SESSION_CACHE_MISSES),
+                    @Output(Constants.SESSION_CACHE_EVICTIONS)
             },
             responses = {
                     @Response(text = ResponseNames.SUCCESS, field = OutputNames.RETURN_CODE, value = ReturnCodes.SUCCESS, matchType = MatchType.COMPARE_EQUAL, responseType = ResponseType.RESOLVED),
@@ -103,7 +130,14 @@ public class SSHShellCommandAction {
             @Param(Constants.PROXY_PORT) String proxyPort,
             @Param(Constants.PROXY_USERNAME) String proxyUsername,
             @Param(value = Constants.PROXY_PASSWORD, encrypted = true) String proxyPassword,
-            @Param(Constants.ALLOW_EXPECT_COMMANDS) String allowExpectCommands) {
+            @Param(Constants.ALLOW_EXPECT_COMMANDS) String allowExpectCommands,
+            @Param(Constants.POOL_SESSIONS) String poolSessions,
+            @Param(Constants.MAX_SESSIONS_PER_HOST) String maxSessionsPerHost,
+            @Param(Constants.SESSION_MAX_IDLE_TIME) String sessionMaxIdleTime,
+            @Param(Constants.STDOUT_FILE) String stdoutFile,
+            @Param(Constants.STDERR_FILE) String stderrFile,
+            @Param(Constants.OUTPUT_TAIL_SIZE) String outputTailSize,
+            @Param(Constants.OUTPUT_TAIL_LINES) String outputTailLines) {
 
         SSHShellInputs sshShellInputs = new SSHShellInputs();
         sshShellInputs.setHost(host);
@@ -129,6 +163,13 @@ public class SSHShellCommandAction {
         sshShellInputs.setProxyUsername(proxyUsername);
         sshShellInputs.setProxyPassword(proxyPassword);
         sshShellInputs.setAllowExpectCommands(allowExpectCommands);
+        sshShellInputs.setPoolSessions(poolSessions);
+        sshShellInputs.setMaxSessionsPerHost(maxSessionsPerHost);
+        sshShellInputs.setSessionMaxIdleTime(sessionMaxIdleTime);
+        sshShellInputs.setStdoutFile(stdoutFile);
+        sshShellInputs.setStderrFile(stderrFile);
+        sshShellInputs.setOutputTailSize(outputTailSize);
+        sshShellInputs.setOutputTailLines(outputTailLines);
 
         return new ScoreSSHShellCommand().execute(sshShellInputs);
     }
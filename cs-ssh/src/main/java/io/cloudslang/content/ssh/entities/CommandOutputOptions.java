@@ -0,0 +1,63 @@
+package io.cloudslang.content.ssh.entities;
+
+import java.nio.file.Path;
+
+/**
+ * Tells where the output of a command goes. By default the whole standard output and error are kept in memory.
+ * When a file is given the stream is written to it as it arrives and only its tail is kept in memory.
+ */
+public class CommandOutputOptions {
+    public static final int DEFAULT_TAIL_SIZE = 65536; //64 KB, used when only a file or a number of lines is given
+    public static final CommandOutputOptions DEFAULT = new CommandOutputOptions(null, null, 0, 0);
+
+    private final Path standardOutputFile;
+    private final Path standardErrorFile;
+    private final int tailSize;
+    private final int tailLines;
+
+    /**
+     * @param standardOutputFile The file the standard output is written to, null to keep it only in memory.
+     * @param standardErrorFile  The file the standard error is written to, null to keep it only in memory.
+     * @param tailSize           The maximum number of bytes kept in memory for each stream, 0 for no limit.
+     * @param tailLines          The maximum number of lines returned for each stream, 0 for no limit.
+     */
+    public CommandOutputOptions(Path standardOutputFile, Path standardErrorFile, int tailSize, int tailLines) {
+        if (tailSize < 0) {
+            throw new IllegalArgumentException("The output tail size should not be negative");
+        }
+        if (tailLines < 0) {
+            throw new IllegalArgumentException("The output tail lines should not be negative");
+        }
+        this.standardOutputFile = standardOutputFile;
+        this.standardErrorFile = standardErrorFile;
+        this.tailSize = tailSize;
+        this.tailLines = tailLines;
+    }
+
+    public Path getStandardOutputFile() {
+        return standardOutputFile;
+    }
+
+    public Path getStandardErrorFile() {
+        return standardErrorFile;
+    }
+
+    public int getTailSize() {
+        return tailSize;
+    }
+
+    public int getTailLines() {
+        return tailLines;
+    }
+
+    /**
+     * @param file The file of the stream, if any.
+     * @return the number of bytes kept in memory for a stream, 0 for no limit.
+     */
+    public int getTailSize(Path file) {
+        if (tailSize == 0 && (file != null || tailLines > 0)) {
+            return DEFAULT_TAIL_SIZE;
+        }
+        return tailSize;
+    }
+}
@@ -8,6 +8,8 @@ public class CommandResult {
     private String standardOutput;
     private String standardError;
     private int exitCode;
+    private long standardOutputSize;
+    private long standardErrorSize;
 
     public CommandResult() {
     }
@@ -36,6 +38,22 @@ public class CommandResult {
         this.exitCode = exitCode;
     }
 
+    public long getStandardOutputSize() {
+        return standardOutputSize;
+    }
+
+    public void setStandardOutputSize(long standardOutputSize) {
+        this.standardOutputSize = standardOutputSize;
+    }
+
+    public long getStandardErrorSize() {
+        return standardErrorSize;
+    }
+
+    public void setStandardErrorSize(long standardErrorSize) {
+        this.standardErrorSize = standardErrorSize;
+    }
+
     @Override
     public String toString() {
         return "CommandResult{" +
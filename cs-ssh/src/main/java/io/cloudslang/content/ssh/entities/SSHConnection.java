@@ -11,6 +11,9 @@ public class SSHConnection {
     private Session session;
     private Channel channel;
     private int sessionsCounter;
+    private volatile long lastUsed = System.currentTimeMillis();
+    private int leases;
+    private boolean evicted;
 
     public SSHConnection(Session session) {
         this.session = session;
@@ -44,4 +47,72 @@ public class SSHConnection {
     public void setSessionsCounter(int sessionsCounter) {
         this.sessionsCounter = sessionsCounter;
     }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public void setLastUsed(long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
+    /**
+     * Marks the connection as used by a command, a leased connection is not evicted from the cache.
+     *
+     * @return false if the connection was already evicted from the cache.
+     */
+    public synchronized boolean lease() {
+        if (evicted) {
+            return false;
+        }
+        leases++;
+        lastUsed = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Gives back a connection taken with {@link #lease()}. A connection replaced in the cache while it was leased is
+     * disconnected once its last lease is given back.
+     */
+    public synchronized void release() {
+        if (leases > 0) {
+            leases--;
+        }
+        lastUsed = System.currentTimeMillis();
+        if (evicted && leases == 0) {
+            disconnect();
+        }
+    }
+
+    /**
+     * Marks the connection as no longer cached and disconnects it, at once if it is not leased, otherwise when its
+     * last lease is given back.
+     */
+    public synchronized void retire() {
+        evicted = true;
+        if (leases == 0) {
+            disconnect();
+        }
+    }
+
+    public synchronized void disconnect() {
+        if (channel != null) {
+            channel.disconnect();
+        }
+        if (session != null) {
+            session.disconnect();
+        }
+    }
+
+    public synchronized boolean isLeased() {
+        return leases > 0;
+    }
+
+    public synchronized boolean isEvicted() {
+        return evicted;
+    }
+
+    public synchronized void setEvicted(boolean evicted) {
+        this.evicted = evicted;
+    }
 }
@@ -9,7 +9,7 @@ import java.util.Map;
 /**
  * Created by ioanvranauhp on 11/5/2014.
  */
-public class SSHShellInputs {
+public class SSHShellInputs implements Cloneable {
     private String host;
     private String port;
     private String username;
@@ -34,6 +34,13 @@ public class SSHShellInputs {
     private String proxyPassword;
     private String privateKeyData;
     private String allowedCiphers;
+    private String poolSessions;
+    private String maxSessionsPerHost;
+    private String sessionMaxIdleTime;
+    private String stdoutFile;
+    private String stderrFile;
+    private String outputTailSize;
+    private String outputTailLines;
     private boolean allowExpectCommands;
     private int connectTimeout;
 
@@ -245,4 +252,71 @@ public class SSHShellInputs {
     public int getConnectTimeout() {
         return connectTimeout;
     }
+
+    public String getPoolSessions() {
+        return poolSessions;
+    }
+
+    public void setPoolSessions(String poolSessions) {
+        this.poolSessions = poolSessions;
+    }
+
+    public String getMaxSessionsPerHost() {
+        return maxSessionsPerHost;
+    }
+
+    public void setMaxSessionsPerHost(String maxSessionsPerHost) {
+        this.maxSessionsPerHost = maxSessionsPerHost;
+    }
+
+    public String getSessionMaxIdleTime() {
+        return sessionMaxIdleTime;
+    }
+
+    public void setSessionMaxIdleTime(String sessionMaxIdleTime) {
+        this.sessionMaxIdleTime = sessionMaxIdleTime;
+    }
+
+    public String getStdoutFile() {
+        return stdoutFile;
+    }
+
+    public void setStdoutFile(String stdoutFile) {
+        this.stdoutFile = stdoutFile;
+    }
+
+    public String getStderrFile() {
+        return stderrFile;
+    }
+
+    public void setStderrFile(String stderrFile) {
+        this.stderrFile = stderrFile;
+    }
+
+    public String getOutputTailSize() {
+        return outputTailSize;
+    }
+
+    public void setOutputTailSize(String outputTailSize) {
+        this.outputTailSize = outputTailSize;
+    }
+
+    public String getOutputTailLines() {
+        return outputTailLines;
+    }
+
+    public void setOutputTailLines(String outputTailLines) {
+        this.outputTailLines = outputTailLines;
+    }
+
+    /**
+     * @return a shallow copy of these inputs, the session object is shared with the copy.
+     */
+    public SSHShellInputs copy() {
+        try {
+            return (SSHShellInputs) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package io.cloudslang.content.ssh.services;
 import com.hp.oo.sdk.content.plugin.GlobalSessionObject;
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.Session;
+import io.cloudslang.content.ssh.entities.CommandOutputOptions;
 import io.cloudslang.content.ssh.entities.CommandResult;
 import io.cloudslang.content.ssh.entities.SSHConnection;
 
@@ -27,6 +28,20 @@ public interface SSHService extends AutoCloseable {
      */
     CommandResult runShellCommand(String command, String characterSet, boolean usePseudoTerminal, int connectTimeout, int commandTimeout, boolean agentForwarding);
 
+    /**
+     * Run a Shell command(s) using SSH protocol, with its output streamed to files or limited to its tail.
+     *
+     * @param command           The Shell command(s).
+     * @param characterSet      The character set for the command and for the output of the command.
+     * @param usePseudoTerminal If true the result will be formatted like in a terminal.
+     * @param connectTimeout    The channel connection timeout.
+     * @param commandTimeout    The command timeout.
+     * @param agentForwarding   Weathers the agent forwarding is enabled or not.
+     * @param outputOptions     Where the output of the command goes.
+     * @return the command result, with the output kept in memory and the total size of each output stream.
+     */
+    CommandResult runShellCommand(String command, String characterSet, boolean usePseudoTerminal, int connectTimeout, int commandTimeout, boolean agentForwarding, CommandOutputOptions outputOptions);
+
     /**
      * Checks the SSH session.
      *
@@ -55,6 +70,12 @@ public interface SSHService extends AutoCloseable {
      */
     void removeFromCache(GlobalSessionObject<Map<String, SSHConnection>> sessionParam, String sessionId);
 
+    /**
+     * Give back the SSH session taken from the cache, so that the cache may evict it again.
+     * Does nothing if the session was not taken from the cache.
+     */
+    void releaseFromCache();
+
     /**
      * Create a local SSH tunnel (connect to a local port on the engine, which is then forwarded to the remote end of the tunnel.
      *
@@ -9,11 +9,9 @@ import io.cloudslang.content.ssh.entities.SSHShellInputs;
 import io.cloudslang.content.ssh.services.SSHService;
 import io.cloudslang.content.ssh.utils.CacheUtils;
 import io.cloudslang.content.ssh.utils.Constants;
+import io.cloudslang.content.ssh.utils.SSHSessionResource;
 import io.cloudslang.content.ssh.utils.StringUtils;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
-import java.security.Provider;
-import java.security.Security;
 import java.util.Map;
 
 /**
@@ -24,20 +22,6 @@ public abstract class SSHShellAbstract {
 
     public static final String COMMAND_IS_NOT_SPECIFIED_MESSAGE = "Command is not specified.";
 
-    protected boolean addSecurityProvider() {
-        boolean providerAdded = false;
-        Provider provider = Security.getProvider("BC");
-        if (provider == null) {
-            providerAdded = true;
-            Security.insertProviderAt(new BouncyCastleProvider(), 2);
-        }
-        return providerAdded;
-    }
-
-    protected void removeSecurityProvider() {
-        Security.removeProvider(BouncyCastleProvider.PROVIDER_NAME);
-    }
-
     protected KeyFile getKeyFile(String privateKeyFile, String privateKeyPassPhrase) {
         KeyFile keyFile = null;
         if (privateKeyFile != null && !privateKeyFile.isEmpty()) {
@@ -67,6 +51,18 @@ public abstract class SSHShellAbstract {
         return service.saveToCache(sessionParam, sessionId);
     }
 
+    /**
+     * Adds the hit, miss and eviction counters of the sessions cache of the flow.
+     */
+    protected void populateCacheStatistics(Map<String, String> returnResult, GlobalSessionObject<Map<String, SSHConnection>> sessionParam) {
+        if (sessionParam != null && sessionParam.getResource() instanceof SSHSessionResource) {
+            SSHSessionResource resource = (SSHSessionResource) sessionParam.getResource();
+            returnResult.put(Constants.SESSION_CACHE_HITS, String.valueOf(resource.getHits()));
+            returnResult.put(Constants.SESSION_CACHE_MISSES, String.valueOf(resource.getMisses()));
+            returnResult.put(Constants.SESSION_CACHE_EVICTIONS, String.valueOf(resource.getEvictions()));
+        }
+    }
+
     protected void populateResult(Map<String, String> returnResult, Throwable e) {
         returnResult.put(OutputNames.RETURN_RESULT, e.getMessage());
         returnResult.put(OutputNames.EXCEPTION, StringUtils.getStackTraceAsString(e));
@@ -0,0 +1,311 @@
+package io.cloudslang.content.ssh.services.actions;
+
+import io.cloudslang.content.constants.OutputNames;
+import io.cloudslang.content.constants.ReturnCodes;
+import io.cloudslang.content.ssh.entities.SSHShellInputs;
+import io.cloudslang.content.ssh.utils.Constants;
+import io.cloudslang.content.ssh.utils.StringUtils;
+import io.cloudslang.content.utils.StringUtilities;
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a command on a list of hosts, 'parallelism' hosts at a time. Each host gets its own SSH session, closed after
+ * the command unless the sessions are pooled; the 'timeout' and 'connectTimeout' inputs apply to each host.
+ */
+public class ScoreSSHBatchCommand {
+    public static final int DEFAULT_PARALLELISM = 10;
+    public static final String DEFAULT_DELIMITER = ",";
+    public static final String HOST_COMMAND_SEPARATOR = "=";
+
+    private static final long IDLE_WAIT_TIME = 1000;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    public ScoreSSHBatchCommand setParallelism(String parallelism) {
+        if (!StringUtilities.isEmpty(parallelism)) {
+            try {
+                this.parallelism = Integer.parseInt(parallelism);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("The '" + Constants.PARALLELISM + "' input should be an integer: " + e.getMessage(), e);
+            }
+            if (this.parallelism <= 0) {
+                throw new IllegalArgumentException("The '" + Constants.PARALLELISM + "' input should be greater than 0");
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Starts the commands of at most 'parallelism' hosts at a time. The sessions are connected and the commands are
+     * started by up to 'parallelism' threads, so the slow connections do not delay the other hosts; a running command
+     * does not hold a thread: the calling thread collects the commands as they finish or time out and starts the next
+     * hosts.
+     *
+     * @param sshShellInputs The inputs shared by all the hosts, the 'command' is used for the hosts without their own command.
+     * @param hostCommands   The hosts, in order, with their command or null to use the 'command' input.
+     * @return the results of the commands, in the order of the hosts. A command that could not be run has the
+     * 'returnCode' -1 and the error message in 'returnResult'.
+     */
+    public List<Map<String, String>> execute(final SSHShellInputs sshShellInputs, Map<String, String> hostCommands) {
+        List<Map.Entry<String, String>> hosts = new ArrayList<>(hostCommands.entrySet());
+        List<Map<String, String>> results = new ArrayList<>(Collections.<Map<String, String>>nCopies(hosts.size(), null));
+        if (hosts.isEmpty()) {
+            return results;
+        }
+        final BlockingQueue<HostEvent> events = new LinkedBlockingQueue<>();
+        Map<Integer, StartedHost> running = new HashMap<>();
+        ExecutorService startExecutor = Executors.newFixedThreadPool(Math.min(parallelism, hosts.size()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ssh-batch-start");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        int nextHost = 0;
+        int activeHosts = 0;
+        int finishedHosts = 0;
+        try {
+            while (finishedHosts < hosts.size()) {
+                for (; nextHost < hosts.size() && activeHosts < parallelism; nextHost++, activeHosts++) {
+                    Map.Entry<String, String> hostCommand = hosts.get(nextHost);
+                    submitStart(startExecutor, events, nextHost, buildHostInputs(sshShellInputs, hostCommand.getKey(), hostCommand.getValue()));
+                }
+                HostEvent event = events.poll(getWaitTime(running), TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    if (event.result != null) {
+                        results.set(event.hostIndex, event.result);
+                        activeHosts--;
+                        finishedHosts++;
+                    } else if (event.command != null) {
+                        final int hostIndex = event.hostIndex;
+                        running.put(hostIndex, new StartedHost(event.command, System.currentTimeMillis() + event.timeout));
+                        event.command.onCompletion(new Runnable() {
+                            @Override
+                            public void run() {
+                                events.add(new HostEvent(hostIndex, null, 0, null));
+                            }
+                        });
+                    } else {
+                        StartedHost startedHost = running.remove(event.hostIndex);
+                        // a command finished by its timeout signals its completion as well
+                        if (startedHost != null) {
+                            results.set(event.hostIndex, startedHost.command.finish());
+                            activeHosts--;
+                            finishedHosts++;
+                        }
+                    }
+                }
+                long now = System.currentTimeMillis();
+                for (Iterator<Map.Entry<Integer, StartedHost>> iterator = running.entrySet().iterator(); iterator.hasNext(); ) {
+                    Map.Entry<Integer, StartedHost> startedHost = iterator.next();
+                    if (startedHost.getValue().deadline <= now) {
+                        iterator.remove();
+                        results.set(startedHost.getKey(), startedHost.getValue().command.finish());
+                        activeHosts--;
+                        finishedHosts++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("The batch execution was interrupted", e);
+        } finally {
+            startExecutor.shutdownNow();
+            // the commands still running when the batch is interrupted are stopped and their sessions closed
+            for (StartedHost startedHost : running.values()) {
+                startedHost.command.finish();
+            }
+            for (HostEvent event : events) {
+                if (event.command != null) {
+                    event.command.finish();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Connects the session of the host and starts its command.
+     *
+     * @throws Exception if the command could not be started.
+     */
+    protected ScoreSSHShellCommand.StartedCommand startCommand(SSHShellInputs sshShellInputs) throws Exception {
+        return new ScoreSSHShellCommand().startCommand(sshShellInputs);
+    }
+
+    private void submitStart(ExecutorService startExecutor, final BlockingQueue<HostEvent> events, final int hostIndex, final SSHShellInputs hostInputs) {
+        startExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ScoreSSHShellCommand.StartedCommand command = startCommand(hostInputs);
+                    events.add(new HostEvent(hostIndex, command, StringUtils.toInt(hostInputs.getTimeout(), Constants.DEFAULT_TIMEOUT), null));
+                } catch (Exception e) {
+                    events.add(new HostEvent(hostIndex, null, 0, failureResult(e)));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the time until the first running command times out, or a long time when no command runs.
+     */
+    private static long getWaitTime(Map<Integer, StartedHost> running) {
+        long deadline = Long.MAX_VALUE;
+        for (StartedHost startedHost : running.values()) {
+            deadline = Math.min(deadline, startedHost.deadline);
+        }
+        return deadline == Long.MAX_VALUE ? IDLE_WAIT_TIME : Math.max(deadline - System.currentTimeMillis(), 0);
+    }
+
+    private static SSHShellInputs buildHostInputs(SSHShellInputs sshShellInputs, String host, String command) {
+        SSHShellInputs hostInputs = sshShellInputs.copy();
+        // a host given as host:port has its own port
+        int portIndex = host.lastIndexOf(':');
+        if (portIndex > 0 && host.indexOf(':') == portIndex) {
+            hostInputs.setHost(host.substring(0, portIndex));
+            hostInputs.setPort(host.substring(portIndex + 1));
+        } else {
+            hostInputs.setHost(host);
+        }
+        if (command != null) {
+            hostInputs.setCommand(command);
+        }
+        return hostInputs;
+    }
+
+    private static Map<String, String> failureResult(Throwable e) {
+        Map<String, String> result = new HashMap<>();
+        // an exception without a message is reported by its class name
+        result.put(OutputNames.RETURN_RESULT, StringUtilities.isEmpty(e.getMessage()) ? e.getClass().getName() : e.getMessage());
+        result.put(OutputNames.RETURN_CODE, ReturnCodes.FAILURE);
+        return result;
+    }
+
+    /**
+     * Builds the hosts from the 'hosts' list and the 'hostCommands' lines, in the format host=command. The hosts
+     * of the 'hosts' list without a line run the 'command' input.
+     *
+     * @return the hosts, in order, with their command or null.
+     */
+    public static Map<String, String> buildHostCommands(String hosts, String hostCommands, String delimiter) {
+        if (StringUtilities.isEmpty(delimiter)) {
+            delimiter = DEFAULT_DELIMITER;
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!StringUtilities.isEmpty(hosts)) {
+            for (String host : hosts.split(Pattern.quote(delimiter))) {
+                if (!StringUtilities.isBlank(host)) {
+                    result.put(host.trim(), null);
+                }
+            }
+        }
+        if (!StringUtilities.isEmpty(hostCommands)) {
+            for (String line : hostCommands.split("\r?\n")) {
+                if (StringUtilities.isBlank(line)) {
+                    continue;
+                }
+                int separatorIndex = line.indexOf(HOST_COMMAND_SEPARATOR);
+                if (separatorIndex <= 0) {
+                    throw new IllegalArgumentException("The '" + Constants.HOST_COMMANDS + "' line should be host" + HOST_COMMAND_SEPARATOR + "command: " + line);
+                }
+                result.put(line.substring(0, separatorIndex).trim(), line.substring(separatorIndex + 1).trim());
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Either the '" + Constants.HOSTS + "' or the '" + Constants.HOST_COMMANDS + "' input should be specified");
+        }
+        return result;
+    }
+
+    /**
+     * Writes the results as a JSON array with an object for each host, like:
+     * {"host":"host1","returnCode":0,"exitStatus":0,"stdout":"...","stderr":"..."}
+     * A host where the command could not be run has the returnCode -1 and an "exception" with the error message.
+     */
+    public static String toJson(List<String> hosts, List<Map<String, String>> results) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < results.size(); i++) {
+            Map<String, String> result = results.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"host\":").append(toJsonString(hosts.get(i)));
+            json.append(",\"returnCode\":").append(ReturnCodes.SUCCESS.equals(result.get(OutputNames.RETURN_CODE)) ? "0" : "-1");
+            String exitStatus = result.get(Constants.EXIT_STATUS);
+            if (!StringUtilities.isEmpty(exitStatus)) {
+                json.append(",\"exitStatus\":").append(exitStatus);
+                json.append(",\"stdout\":").append(toJsonString(result.get(Constants.STDOUT)));
+                json.append(",\"stderr\":").append(toJsonString(result.get(Constants.STDERR)));
+            } else {
+                json.append(",\"exception\":").append(toJsonString(result.get(OutputNames.RETURN_RESULT)));
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @return the escaped and quoted value, or the JSON null for a missing value.
+     */
+    private static String toJsonString(String value) {
+        return value == null ? "null" : '"' + StringEscapeUtils.escapeJson(value) + '"';
+    }
+
+    /**
+     * @return the number of hosts where the command ran and exited with the status 0.
+     */
+    public static int countSuccesses(List<Map<String, String>> results) {
+        int count = 0;
+        for (Map<String, String> result : results) {
+            if (ReturnCodes.SUCCESS.equals(result.get(OutputNames.RETURN_CODE)) && "0".equals(result.get(Constants.EXIT_STATUS))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A host whose command was started, a failed one or a finished command: the events are handled by the thread
+     * running the batch.
+     */
+    private static class HostEvent {
+        private final int hostIndex;
+        private final ScoreSSHShellCommand.StartedCommand command;
+        private final int timeout;
+        private final Map<String, String> result;
+
+        HostEvent(int hostIndex, ScoreSSHShellCommand.StartedCommand command, int timeout, Map<String, String> result) {
+            this.hostIndex = hostIndex;
+            this.command = command;
+            this.timeout = timeout;
+            this.result = result;
+        }
+    }
+
+    private static class StartedHost {
+        private final ScoreSSHShellCommand.StartedCommand command;
+        private final long deadline;
+
+        StartedHost(ScoreSSHShellCommand.StartedCommand command, long deadline) {
+            this.command = command;
+            this.deadline = deadline;
+        }
+    }
+}
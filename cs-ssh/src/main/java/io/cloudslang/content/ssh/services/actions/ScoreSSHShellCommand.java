@@ -1,15 +1,22 @@
 package io.cloudslang.content.ssh.services.actions;
 
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.ProxyHTTP;
+import com.jcraft.jsch.Session;
 import io.cloudslang.content.constants.OutputNames;
 import io.cloudslang.content.constants.ReturnCodes;
+import io.cloudslang.content.ssh.entities.CommandOutputOptions;
 import io.cloudslang.content.ssh.entities.CommandResult;
 import io.cloudslang.content.ssh.entities.ConnectionDetails;
 import io.cloudslang.content.ssh.entities.IdentityKey;
 import io.cloudslang.content.ssh.entities.KnownHostsFile;
 import io.cloudslang.content.ssh.entities.SSHShellInputs;
+import io.cloudslang.content.ssh.exceptions.SSHException;
+import io.cloudslang.content.ssh.exceptions.TimeoutException;
 import io.cloudslang.content.ssh.services.SSHService;
 import io.cloudslang.content.ssh.services.impl.SSHServiceImpl;
+import io.cloudslang.content.ssh.services.impl.SSHSessionPool;
+import io.cloudslang.content.ssh.services.impl.ShellCommandExecution;
 import io.cloudslang.content.ssh.utils.Constants;
 import io.cloudslang.content.ssh.utils.IdentityKeyUtils;
 import io.cloudslang.content.ssh.utils.ProxyUtils;
@@ -28,7 +35,7 @@ public class ScoreSSHShellCommand extends SSHShellAbstract {
     public Map<String, String> execute(SSHShellInputs sshShellInputs) {
         Map<String, String> returnResult = new HashMap<>();
         SSHService service = null;
-        boolean providerAdded = addSecurityProvider();
+        SSHService cachedService = null;
         String sessionId = "";
 
         try {
@@ -50,8 +57,14 @@ public class ScoreSSHShellCommand extends SSHShellAbstract {
             IdentityKey identityKey = IdentityKeyUtils.getIdentityKey(sshShellInputs.getPrivateKeyFile(), sshShellInputs.getPrivateKeyData(), sshShellInputs.getPassword());
             KnownHostsFile knownHostsFile = new KnownHostsFile(knownHostsPath, knownHostsPolicy);
 
+            if (StringUtils.toBoolean(sshShellInputs.getPoolSessions(), Constants.DEFAULT_POOL_SESSIONS)) {
+                runPooledSSHCommand(sshShellInputs, returnResult, connection, identityKey, knownHostsFile);
+                return returnResult;
+            }
+
             // get the cached SSH session
-            service = getSshServiceFromCache(sshShellInputs, sessionId);
+            cachedService = getSshServiceFromCache(sshShellInputs, sessionId);
+            service = cachedService;
             boolean saveSSHSession = false;
             if (service == null || !service.isConnected()) {
                 saveSSHSession = true;
@@ -60,14 +73,15 @@ public class ScoreSSHShellCommand extends SSHShellAbstract {
             }
 
             runSSHCommand(sshShellInputs, returnResult, service, sessionId, saveSSHSession);
+            populateCacheStatistics(returnResult, sshShellInputs.getSshGlobalSessionObject());
         } catch (Exception e) {
             if (service != null) {
                 cleanupService(sshShellInputs, service, sessionId);
             }
             populateResult(returnResult, e);
         } finally {
-            if (providerAdded) {
-                removeSecurityProvider();
+            if (cachedService != null) {
+                cachedService.releaseFromCache();
             }
         }
         return returnResult;
@@ -84,24 +98,161 @@ public class ScoreSSHShellCommand extends SSHShellAbstract {
             SSHService service, String sessionId,
             boolean saveSSHSession) {
 
+        // run the SSH command
+        CommandResult commandResult = runShellCommand(sshShellInputs, service);
+
+        handleSessionClosure(sshShellInputs, service, sessionId, saveSSHSession);
+
+        // populate the results
+        populateResult(returnResult, commandResult);
+    }
+
+    private CommandResult runShellCommand(SSHShellInputs sshShellInputs, SSHService service) {
         int timeoutNumber = StringUtils.toInt(sshShellInputs.getTimeout(), Constants.DEFAULT_TIMEOUT);
-        boolean usePseudoTerminal = StringUtils.toBoolean(sshShellInputs.getPty(), Constants.DEFAULT_USE_PSEUDO_TERMINAL);
-        boolean agentForwarding = StringUtils.toBoolean(sshShellInputs.getAgentForwarding(), Constants.DEFAULT_USE_AGENT_FORWARDING);
         sshShellInputs.setCharacterSet(StringUtils.toNotEmptyString(sshShellInputs.getCharacterSet(), Constants.DEFAULT_CHARACTER_SET));
 
-        // run the SSH command
-        CommandResult commandResult = service.runShellCommand(
+        return service.runShellCommand(
                 sshShellInputs.getCommand(),
                 sshShellInputs.getCharacterSet(),
-                usePseudoTerminal,
+                StringUtils.toBoolean(sshShellInputs.getPty(), Constants.DEFAULT_USE_PSEUDO_TERMINAL),
                 sshShellInputs.getConnectTimeout(),
                 timeoutNumber,
-                agentForwarding);
+                StringUtils.toBoolean(sshShellInputs.getAgentForwarding(), Constants.DEFAULT_USE_AGENT_FORWARDING),
+                getOutputOptions(sshShellInputs));
+    }
 
-        handleSessionClosure(sshShellInputs, service, sessionId, saveSSHSession);
+    private static CommandOutputOptions getOutputOptions(SSHShellInputs sshShellInputs) {
+        return new CommandOutputOptions(
+                StringUtils.toPath(sshShellInputs.getStdoutFile(), null),
+                StringUtils.toPath(sshShellInputs.getStderrFile(), null),
+                StringUtils.toInt(sshShellInputs.getOutputTailSize(), 0),
+                StringUtils.toInt(sshShellInputs.getOutputTailLines(), 0));
+    }
 
-        // populate the results
-        populateResult(returnResult, commandResult);
+    /**
+     * Starts the command without waiting for it to finish, on a new session or, when 'poolSessions' is true, on a
+     * pooled one. The session is not cached in the flow, {@link StartedCommand#finish()} closes it or gives it back to
+     * the pool. The 'timeout' input is not applied, the caller decides when the command timed out.
+     *
+     * @throws Exception if the session could not be connected or the command could not be started.
+     */
+    public StartedCommand startCommand(final SSHShellInputs sshShellInputs) throws Exception {
+        if (StringUtilities.isEmpty(sshShellInputs.getCommand())) {
+            throw new RuntimeException(COMMAND_IS_NOT_SPECIFIED_MESSAGE);
+        }
+        String command = sshShellInputs.getCommand();
+        if (sshShellInputs.getArguments() != null) {
+            command = command + " " + sshShellInputs.getArguments();
+        }
+        sshShellInputs.setCharacterSet(StringUtils.toNotEmptyString(sshShellInputs.getCharacterSet(), Constants.DEFAULT_CHARACTER_SET));
+        int portNumber = StringUtils.toInt(sshShellInputs.getPort(), Constants.DEFAULT_PORT);
+        String knownHostsPolicy = StringUtils.toNotEmptyString(sshShellInputs.getKnownHostsPolicy(), Constants.DEFAULT_KNOWN_HOSTS_POLICY);
+        Path knownHostsPath = StringUtils.toPath(sshShellInputs.getKnownHostsPath(), Constants.DEFAULT_KNOWN_HOSTS_PATH);
+        ConnectionDetails connection = new ConnectionDetails(sshShellInputs.getHost(), portNumber, sshShellInputs.getUsername(), sshShellInputs.getPassword());
+        IdentityKey identityKey = IdentityKeyUtils.getIdentityKey(sshShellInputs.getPrivateKeyFile(), sshShellInputs.getPrivateKeyData(), sshShellInputs.getPassword());
+        KnownHostsFile knownHostsFile = new KnownHostsFile(knownHostsPath, knownHostsPolicy);
+
+        final SSHSessionPool.PooledSession pooledSession;
+        final SSHServiceImpl service;
+        if (StringUtils.toBoolean(sshShellInputs.getPoolSessions(), Constants.DEFAULT_POOL_SESSIONS)) {
+            pooledSession = leasePooledSession(sshShellInputs, connection, identityKey, knownHostsFile);
+            service = new SSHServiceImpl(pooledSession.getSession(), null);
+        } else {
+            pooledSession = null;
+            ProxyHTTP proxyHTTP = ProxyUtils.getHTTPProxy(sshShellInputs.getProxyHost(), sshShellInputs.getProxyPort(), sshShellInputs.getProxyUsername(), sshShellInputs.getProxyPassword());
+            service = new SSHServiceImpl(connection, identityKey, knownHostsFile, sshShellInputs.getConnectTimeout(), false, proxyHTTP, sshShellInputs.getAllowedCiphers());
+        }
+        final ShellCommandExecution execution;
+        try {
+            execution = service.startShellCommand(command, sshShellInputs.getCharacterSet(),
+                    StringUtils.toBoolean(sshShellInputs.getPty(), Constants.DEFAULT_USE_PSEUDO_TERMINAL), sshShellInputs.getConnectTimeout(),
+                    StringUtils.toBoolean(sshShellInputs.getAgentForwarding(), Constants.DEFAULT_USE_AGENT_FORWARDING), getOutputOptions(sshShellInputs));
+        } catch (Exception e) {
+            closeSession(service, pooledSession);
+            throw e;
+        }
+        return new StartedCommand() {
+            @Override
+            public void onCompletion(Runnable listener) {
+                execution.onCompletion(listener);
+            }
+
+            @Override
+            public Map<String, String> finish() {
+                Map<String, String> returnResult = new HashMap<>();
+                try {
+                    boolean timedOut = !execution.isDone();
+                    CommandResult commandResult = execution.getResult();
+                    if (timedOut) {
+                        throw new RuntimeException(new TimeoutException(String.valueOf(commandResult)));
+                    }
+                    populateResult(returnResult, commandResult);
+                } catch (Exception e) {
+                    populateResult(returnResult, e);
+                } finally {
+                    closeSession(service, pooledSession);
+                }
+                return returnResult;
+            }
+        };
+    }
+
+    private static void closeSession(SSHService service, SSHSessionPool.PooledSession pooledSession) {
+        if (pooledSession != null) {
+            SSHSessionPool.getInstance().release(pooledSession);
+        } else {
+            service.close();
+        }
+    }
+
+    /**
+     * Runs the command on a session of the SSH session pool, on its own exec channel, and gives the session back
+     * to the pool. The 'closeSession' and 'allowExpectCommands' inputs do not apply to pooled sessions.
+     */
+    private void runPooledSSHCommand(
+            final SSHShellInputs sshShellInputs,
+            Map<String, String> returnResult,
+            final ConnectionDetails connection,
+            final IdentityKey identityKey,
+            final KnownHostsFile knownHostsFile) throws SSHException {
+        SSHSessionPool.PooledSession pooledSession = leasePooledSession(sshShellInputs, connection, identityKey, knownHostsFile);
+        SSHSessionPool sessionPool = SSHSessionPool.getInstance();
+        try {
+            SSHService service = new SSHServiceImpl(pooledSession.getSession(), null);
+            CommandResult commandResult = runShellCommand(sshShellInputs, service);
+            populateResult(returnResult, commandResult);
+        } finally {
+            sessionPool.release(pooledSession);
+        }
+    }
+
+    private static SSHSessionPool.PooledSession leasePooledSession(
+            final SSHShellInputs sshShellInputs,
+            final ConnectionDetails connection,
+            final IdentityKey identityKey,
+            final KnownHostsFile knownHostsFile) throws SSHException {
+        final ProxyHTTP proxyHTTP = ProxyUtils.getHTTPProxy(sshShellInputs.getProxyHost(), sshShellInputs.getProxyPort(), sshShellInputs.getProxyUsername(), sshShellInputs.getProxyPassword());
+        String poolKey = SSHSessionPool.buildKey(connection.getHost(), connection.getPort(), connection.getUsername(),
+                sshShellInputs.getPassword(), sshShellInputs.getPrivateKeyFile(), sshShellInputs.getPrivateKeyData(),
+                knownHostsFile.getPolicy(), knownHostsFile.getPath().toString(), sshShellInputs.getProxyHost(), sshShellInputs.getProxyPort(),
+                sshShellInputs.getProxyUsername(), sshShellInputs.getProxyPassword(), sshShellInputs.getAllowedCiphers());
+        int maxSessions = StringUtils.toInt(sshShellInputs.getMaxSessionsPerHost(), SSHSessionPool.DEFAULT_MAX_SESSIONS_PER_HOST);
+        int maxIdleTime = StringUtils.toInt(sshShellInputs.getSessionMaxIdleTime(), (int) SSHSessionPool.DEFAULT_MAX_IDLE_TIME);
+        int timeoutNumber = StringUtils.toInt(sshShellInputs.getTimeout(), Constants.DEFAULT_TIMEOUT);
+
+        return SSHSessionPool.getInstance().lease(poolKey, maxSessions, maxIdleTime, timeoutNumber,
+                new SSHSessionPool.SessionFactory() {
+                    @Override
+                    public Session createSession() throws SSHException {
+                        Session session = SSHServiceImpl.createSession(connection, identityKey, knownHostsFile, proxyHTTP, sshShellInputs.getAllowedCiphers());
+                        try {
+                            session.connect(sshShellInputs.getConnectTimeout());
+                        } catch (JSchException e) {
+                            throw new SSHException(e);
+                        }
+                        return session;
+                    }
+                });
     }
 
     private void handleSessionClosure(SSHShellInputs sshShellInputs, SSHService service, String sessionId, boolean saveSSHSession) {
@@ -133,6 +284,23 @@ public class ScoreSSHShellCommand extends SSHShellAbstract {
             returnResult.put(OutputNames.RETURN_CODE, ReturnCodes.FAILURE);
         }
         returnResult.put(Constants.EXIT_STATUS, String.valueOf(commandResult.getExitCode()));
+        returnResult.put(Constants.STDOUT_SIZE, String.valueOf(commandResult.getStandardOutputSize()));
+        returnResult.put(Constants.STDERR_SIZE, String.valueOf(commandResult.getStandardErrorSize()));
     }
 
+    /**
+     * A command started by {@link #startCommand(SSHShellInputs)}.
+     */
+    public interface StartedCommand {
+        /**
+         * Registers a listener called once the command finished, usually on the JSch session thread.
+         */
+        void onCompletion(Runnable listener);
+
+        /**
+         * Reads the result of the command and closes its session or gives it back to the pool. A command that did
+         * not finish is stopped and has a timeout failure as result.
+         */
+        Map<String, String> finish();
+    }
 }
@@ -0,0 +1,154 @@
+package io.cloudslang.content.ssh.services.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Receives one output stream of a command from the JSch session thread. The bytes are counted, optionally written to
+ * a file and kept in memory, either all of them or only the last 'tailSize' ones.
+ * <p/>
+ * A failure to write the file is kept and reported by {@link #checkError()}, because an exception thrown to JSch
+ * would end the whole session.
+ */
+class CommandOutputStream extends OutputStream {
+    private final Path file;
+    private final int tailLines;
+    private final ByteArrayOutputStream buffer;
+    private final byte[] tail;
+    private OutputStream fileStream;
+    private IOException fileError;
+    private long size;
+    private int tailEnd;
+    private boolean tailFull;
+
+    /**
+     * @param file      The file the output is written to, null if none.
+     * @param tailSize  The number of last bytes kept in memory, 0 to keep all of them.
+     * @param tailLines The number of last lines returned by {@link #toString(String)}, 0 to return all of them.
+     */
+    CommandOutputStream(Path file, int tailSize, int tailLines) throws IOException {
+        this.file = file;
+        this.tailLines = tailLines;
+        if (tailSize > 0) {
+            buffer = null;
+            tail = new byte[tailSize];
+        } else {
+            buffer = new ByteArrayOutputStream();
+            tail = null;
+        }
+        if (file != null) {
+            fileStream = new BufferedOutputStream(Files.newOutputStream(file));
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        size += length;
+        writeToFile(bytes, offset, length);
+        if (buffer != null) {
+            buffer.write(bytes, offset, length);
+        } else {
+            writeToTail(bytes, offset, length);
+        }
+    }
+
+    private void writeToFile(byte[] bytes, int offset, int length) {
+        if (fileStream != null) {
+            try {
+                fileStream.write(bytes, offset, length);
+            } catch (IOException e) {
+                fileError = e;
+                closeFile();
+            }
+        }
+    }
+
+    private void writeToTail(byte[] bytes, int offset, int length) {
+        if (length >= tail.length) {
+            System.arraycopy(bytes, offset + length - tail.length, tail, 0, tail.length);
+            tailEnd = 0;
+            tailFull = true;
+            return;
+        }
+        int firstPart = Math.min(length, tail.length - tailEnd);
+        System.arraycopy(bytes, offset, tail, tailEnd, firstPart);
+        System.arraycopy(bytes, offset + firstPart, tail, 0, length - firstPart);
+        int end = tailEnd + length;
+        tailFull |= end >= tail.length;
+        tailEnd = end % tail.length;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeFile();
+    }
+
+    private void closeFile() {
+        if (fileStream != null) {
+            try {
+                fileStream.close();
+            } catch (IOException e) {
+                if (fileError == null) {
+                    fileError = e;
+                }
+            }
+            fileStream = null;
+        }
+    }
+
+    /**
+     * @return the number of bytes received, including the ones no longer kept in memory.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @throws IOException if the output could not be written to the file.
+     */
+    public synchronized void checkError() throws IOException {
+        if (fileError != null) {
+            throw new IOException("Could not write the command output to " + file + ": " + fileError.getMessage(), fileError);
+        }
+    }
+
+    /**
+     * @return the output kept in memory, limited to the last 'tailLines' lines.
+     */
+    public synchronized String toString(String characterSet) throws UnsupportedEncodingException {
+        String output;
+        if (buffer != null) {
+            output = buffer.toString(characterSet);
+        } else if (tailFull) {
+            byte[] bytes = new byte[tail.length];
+            System.arraycopy(tail, tailEnd, bytes, 0, tail.length - tailEnd);
+            System.arraycopy(tail, 0, bytes, tail.length - tailEnd, tailEnd);
+            output = new String(bytes, characterSet);
+        } else {
+            output = new String(tail, 0, tailEnd, characterSet);
+        }
+        return tailLines > 0 ? lastLines(output, tailLines) : output;
+    }
+
+    private static String lastLines(String output, int lines) {
+        // a line break at the very end does not start a new line
+        int index = output.endsWith("\n") ? output.length() - 1 : output.length();
+        for (int i = 0; i < lines; i++) {
+            index = output.lastIndexOf('\n', index - 1);
+            if (index < 0) {
+                return output;
+            }
+        }
+        return output.substring(index + 1);
+    }
+}
@@ -7,6 +7,7 @@ import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.ProxyHTTP;
 import com.jcraft.jsch.Session;
+import io.cloudslang.content.ssh.entities.CommandOutputOptions;
 import io.cloudslang.content.ssh.entities.CommandResult;
 import io.cloudslang.content.ssh.entities.ConnectionDetails;
 import io.cloudslang.content.ssh.entities.IdentityKey;
@@ -17,12 +18,9 @@ import io.cloudslang.content.ssh.exceptions.TimeoutException;
 import io.cloudslang.content.ssh.services.SSHService;
 import io.cloudslang.content.ssh.utils.CacheUtils;
 import io.cloudslang.content.ssh.utils.IdentityKeyUtils;
-import io.cloudslang.content.utils.StringUtilities;
+import io.cloudslang.content.ssh.utils.SSHConfigUtils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Locale;
@@ -34,19 +32,28 @@ import java.util.Map;
  * @author octavian-h
  */
 public class SSHServiceImpl implements SSHService {
-    private static final int POLLING_INTERVAL = 10;
     private static final String EXEC_CHANNEL = "exec";
     private static final String KNOWN_HOSTS_ALLOW = "allow";
     private static final String KNOWN_HOSTS_STRICT = "strict";
     private static final String KNOWN_HOSTS_ADD = "add";
-    private static final String ALLOWED_CIPHERS = "aes128-ctr,aes128-cbc,3des-ctr,3des-cbc,blowfish-cbc,aes192-ctr,aes192-cbc,aes256-ctr,aes256-cbc";
     private Session session;
     private Channel execChannel;
+    private SSHConnection cachedConnection;
 
     public SSHServiceImpl(Session session, Channel channel) {
         this.session = session;
         this.execChannel = channel;
     }
+
+    /**
+     * Uses a session leased from the cache, see {@link #releaseFromCache()}.
+     *
+     * @param cachedConnection The leased connection.
+     */
+    public SSHServiceImpl(SSHConnection cachedConnection) {
+        this(cachedConnection.getSession(), cachedConnection.getChannel());
+        this.cachedConnection = cachedConnection;
+    }
         /**
      * Open SSH session.
      *
@@ -60,17 +67,45 @@ public class SSHServiceImpl implements SSHService {
      */
     public SSHServiceImpl(ConnectionDetails details, IdentityKey identityKey, KnownHostsFile knownHostsFile,
                           int connectTimeout, boolean keepContextForExpectCommand, ProxyHTTP proxyHTTP, String allowedCiphers) throws SSHException {
+        session = createSession(details, identityKey, knownHostsFile, proxyHTTP, allowedCiphers);
+
+        try {
+            session.connect(connectTimeout);
+
+            if (keepContextForExpectCommand) {
+                // create exec channel
+                execChannel = session.openChannel(EXEC_CHANNEL);
+
+                // connect to the channel and run the command(s)
+                execChannel.connect(connectTimeout);
+            }
+        } catch (JSchException e) {
+            throw new SSHException(e);
+        }
+    }
+
+
+    /**
+     * Create a SSH session, configured but not connected.
+     *
+     * @param details        The connection details.
+     * @param identityKey    The private key file or string.
+     * @param knownHostsFile The known_hosts file and policy.
+     * @param proxyHTTP      The proxy settings, parse it as null if no proxy settings required
+     * @param allowedCiphers The list of allowed ciphers. If not empty, it will be used to overwrite the default list.
+     */
+    public static Session createSession(ConnectionDetails details, IdentityKey identityKey, KnownHostsFile knownHostsFile,
+                                        ProxyHTTP proxyHTTP, String allowedCiphers) throws SSHException {
+        Session session;
         JSch jsch = new JSch();
-        String finalListOfAllowedCiphers = StringUtilities.isNotBlank(allowedCiphers) ? allowedCiphers : ALLOWED_CIPHERS;
-        JSch.setConfig("cipher.s2c", finalListOfAllowedCiphers);
-        JSch.setConfig("cipher.c2s", finalListOfAllowedCiphers);
-        JSch.setConfig("PreferredAuthentications", "publickey,password,keyboard-interactive");
 
         try {
             session = jsch.getSession(details.getUsername(), details.getHost(), details.getPort());
         } catch (JSchException e) {
             throw new SSHException(e);
         }
+        // the settings are given to the session, the global JSch configuration is shared by all the running operations
+        SSHConfigUtils.applySessionConfig(session, allowedCiphers);
 
         try {
             String policy = knownHostsFile.getPolicy();
@@ -80,7 +115,7 @@ public class SSHServiceImpl implements SSHService {
                     session.setConfig("StrictHostKeyChecking", "no");
                     break;
                 case KNOWN_HOSTS_STRICT:
-                    jsch.setKnownHosts(knownHostsFilePath.toString());
+                    jsch.setHostKeyRepository(SSHConfigUtils.getKnownHosts(knownHostsFilePath));
                     session.setConfig("StrictHostKeyChecking", "yes");
                     break;
                 case KNOWN_HOSTS_ADD:
@@ -94,7 +129,7 @@ public class SSHServiceImpl implements SSHService {
                         }
                         Files.createFile(knownHostsFilePath);
                     }
-                    jsch.setKnownHosts(knownHostsFilePath.toString());
+                    jsch.setHostKeyRepository(SSHConfigUtils.getKnownHosts(knownHostsFilePath));
                     session.setConfig("StrictHostKeyChecking", "no");
                     break;
                 default:
@@ -118,22 +153,9 @@ public class SSHServiceImpl implements SSHService {
             session.setProxy(proxyHTTP);
         }
 
-        try {
-            session.connect(connectTimeout);
-
-            if (keepContextForExpectCommand) {
-                // create exec channel
-                execChannel = session.openChannel(EXEC_CHANNEL);
-
-                // connect to the channel and run the command(s)
-                execChannel.connect(connectTimeout);
-            }
-        } catch (JSchException e) {
-            throw new SSHException(e);
-        }
+        return session;
     }
 
-
     @Override
     public CommandResult runShellCommand(
             String command,
@@ -142,58 +164,80 @@ public class SSHServiceImpl implements SSHService {
             int connectTimeout,
             int commandTimeout,
             boolean agentForwarding) {
+        return runShellCommand(command, characterSet, usePseudoTerminal, connectTimeout, commandTimeout, agentForwarding, CommandOutputOptions.DEFAULT);
+    }
+
+    @Override
+    public CommandResult runShellCommand(
+            String command,
+            String characterSet,
+            boolean usePseudoTerminal,
+            int connectTimeout,
+            int commandTimeout,
+            boolean agentForwarding,
+            CommandOutputOptions outputOptions) {
         try {
-            if (!isConnected()) {
-                session.connect(connectTimeout);
-            }
-            // create exec channel
-            ChannelExec channel = (ChannelExec) session.openChannel(EXEC_CHANNEL);
-            channel.setCommand(command.getBytes(characterSet));
-            channel.setPty(usePseudoTerminal);
-            channel.setAgentForwarding(agentForwarding);
-            OutputStream out = new ByteArrayOutputStream();
-            channel.setOutputStream(out);
-            OutputStream err = new ByteArrayOutputStream();
-            channel.setErrStream(err);
-
-            // connect to the channel and run the command(s)
-            channel.connect(connectTimeout);
+            ShellCommandExecution execution = startShellCommand(command, characterSet, usePseudoTerminal, connectTimeout, agentForwarding, outputOptions);
 
             // wait for response
-            long currentTime = System.currentTimeMillis();
-            long timeLimit = currentTime + commandTimeout;
-            while (!channel.isClosed() && currentTime < timeLimit) {
-                try {
-                    Thread.sleep(POLLING_INTERVAL);
-                } catch (InterruptedException ignore) {
-                }
-                currentTime = System.currentTimeMillis();
+            boolean timedOut;
+            try {
+                timedOut = !execution.await(commandTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                timedOut = !execution.isDone();
             }
-            boolean timedOut = !channel.isClosed();
 
             // save the response
-            CommandResult result = new CommandResult();
-            result.setStandardOutput(((ByteArrayOutputStream) out).toString(characterSet));
-            if (usePseudoTerminal && channel.getExitStatus() != 0) {
-                result.setStandardError(((ByteArrayOutputStream) out).toString(characterSet));
-            } else {
-                result.setStandardError(((ByteArrayOutputStream) err).toString(characterSet));
-            }
-
-            channel.disconnect();
-            // The exit status is only available after the channel was closed (more exactly, just before the channel is closed).
-            result.setExitCode(channel.getExitStatus());
-
+            CommandResult result = execution.getResult();
             if (timedOut) {
                 throw new TimeoutException(String.valueOf(result));
             }
 
             return result;
-        } catch (JSchException | UnsupportedEncodingException | TimeoutException e) {
+        } catch (JSchException | IOException | TimeoutException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Starts a Shell command(s) without waiting for it to finish.
+     *
+     * @param command           The Shell command(s).
+     * @param characterSet      The character set for the command and for the output of the command.
+     * @param usePseudoTerminal If true the result will be formatted like in a terminal.
+     * @param connectTimeout    The channel connection timeout.
+     * @param agentForwarding   Weathers the agent forwarding is enabled or not.
+     * @param outputOptions     Where the output of the command goes.
+     * @return the running command.
+     */
+    public ShellCommandExecution startShellCommand(
+            String command,
+            String characterSet,
+            boolean usePseudoTerminal,
+            int connectTimeout,
+            boolean agentForwarding,
+            CommandOutputOptions outputOptions) throws JSchException, IOException {
+        if (!isConnected()) {
+            session.connect(connectTimeout);
+        }
+        // create exec channel
+        ChannelExec channel = (ChannelExec) session.openChannel(EXEC_CHANNEL);
+        channel.setCommand(command.getBytes(characterSet));
+        channel.setPty(usePseudoTerminal);
+        channel.setAgentForwarding(agentForwarding);
+        ShellCommandExecution execution = new ShellCommandExecution(channel, characterSet, usePseudoTerminal, outputOptions);
+
+        // connect to the channel and run the command(s)
+        try {
+            channel.connect(connectTimeout);
+        } catch (JSchException e) {
+            execution.closeStreams();
+            throw e;
+        }
+        return execution;
+    }
+
     @Override
     public void createLocalTunnel(int localPort, String remoteHost, int remotePort) {
         try {
@@ -229,6 +273,14 @@ public class SSHServiceImpl implements SSHService {
         CacheUtils.removeSshSession(sessionParam, sessionId);
     }
 
+    @Override
+    public void releaseFromCache() {
+        if (cachedConnection != null) {
+            cachedConnection.release();
+            cachedConnection = null;
+        }
+    }
+
     @Override
     public Session getSSHSession() {
         return session;
@@ -0,0 +1,296 @@
+package io.cloudslang.content.ssh.services.impl;
+
+import com.jcraft.jsch.Session;
+import io.cloudslang.content.ssh.exceptions.SSHException;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps authenticated SSH sessions for reuse across operation runs. The sessions are grouped by host, port, username
+ * and a fingerprint of the credentials and connection settings, so a session is only reused with the same credentials.
+ * A session runs up to 'maxChannelsPerSession' commands at the same time, each on its own exec channel.
+ */
+public class SSHSessionPool {
+    public static final int DEFAULT_MAX_SESSIONS_PER_HOST = 2;
+    public static final int DEFAULT_MAX_CHANNELS_PER_SESSION = 8;
+    public static final long DEFAULT_MAX_IDLE_TIME = 300000; //5 minutes
+    private static final long VALIDATION_INTERVAL = 10000;
+    private static final long EVICTION_INTERVAL = 30000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final SSHSessionPool INSTANCE = new SSHSessionPool(DEFAULT_MAX_CHANNELS_PER_SESSION);
+
+    static {
+        ScheduledExecutorService evictionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ssh-session-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    INSTANCE.evictIdle();
+                } catch (RuntimeException ignore) {
+                    //an exception would cancel the next executions
+                }
+            }
+        }, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private final ConcurrentMap<String, HostPool> hostPools = new ConcurrentHashMap<>();
+    private final int maxChannelsPerSession;
+
+    public SSHSessionPool(int maxChannelsPerSession) {
+        if (maxChannelsPerSession <= 0) {
+            throw new IllegalArgumentException("The maximum number of channels per session should be greater than 0");
+        }
+        this.maxChannelsPerSession = maxChannelsPerSession;
+    }
+
+    public static SSHSessionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Builds the pool key. The credentials and the connection settings are only kept as a SHA-256 fingerprint.
+     */
+    public static String buildKey(String host, int port, String username, String... credentials) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (String credential : credentials) {
+                if (credential != null) {
+                    messageDigest.update(credential.getBytes(UTF_8));
+                }
+                messageDigest.update((byte) 0);
+            }
+            return host + ":" + port + ":" + username + ":" + new BigInteger(1, messageDigest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Leases a connected session for running one command. A new session is created by the 'sessionFactory' when all
+     * the sessions of the key run 'maxChannelsPerSession' commands and there are less than 'maxSessions' sessions,
+     * otherwise the call waits until a session is released.
+     *
+     * @param key            The pool key, see {@link #buildKey(String, int, String, String...)}.
+     * @param maxSessions    The maximum number of sessions for the key.
+     * @param maxIdleTime    The time in milliseconds after which an unused session is disconnected.
+     * @param waitTimeout    The time in milliseconds to wait for a session.
+     * @param sessionFactory Creates and connects a new session.
+     * @return the leased session, it must be given back with {@link #release(PooledSession)}.
+     */
+    public PooledSession lease(String key, int maxSessions, long maxIdleTime, long waitTimeout, SessionFactory sessionFactory) throws SSHException {
+        HostPool hostPool = hostPools.get(key);
+        if (hostPool == null) {
+            HostPool newHostPool = new HostPool();
+            hostPool = hostPools.putIfAbsent(key, newHostPool);
+            if (hostPool == null) {
+                hostPool = newHostPool;
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + waitTimeout;
+        synchronized (hostPool) {
+            hostPool.maxIdleTime = maxIdleTime;
+            while (true) {
+                PooledSession pooledSession = hostPool.leaseLeastUsed(maxChannelsPerSession);
+                if (pooledSession != null) {
+                    return pooledSession;
+                }
+                if (hostPool.sessions.size() + hostPool.pendingSessions < Math.max(maxSessions, 1)) {
+                    hostPool.pendingSessions++;
+                    break;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new SSHException("Timed out waiting for a pooled SSH session for " + key.substring(0, key.lastIndexOf(':')));
+                }
+                try {
+                    hostPool.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SSHException("Interrupted while waiting for a pooled SSH session", e);
+                }
+            }
+        }
+
+        // connect outside the lock so that the other sessions of the key can still be leased
+        Session session;
+        try {
+            session = sessionFactory.createSession();
+        } catch (SSHException | RuntimeException e) {
+            synchronized (hostPool) {
+                hostPool.pendingSessions--;
+                hostPool.notifyAll();
+            }
+            throw e;
+        }
+        synchronized (hostPool) {
+            hostPool.pendingSessions--;
+            PooledSession pooledSession = new PooledSession(hostPool, session);
+            pooledSession.activeChannels = 1;
+            hostPool.sessions.add(pooledSession);
+            return pooledSession;
+        }
+    }
+
+    /**
+     * Gives back a leased session. A session that is no longer connected is removed from the pool.
+     */
+    public void release(PooledSession pooledSession) {
+        HostPool hostPool = pooledSession.hostPool;
+        synchronized (hostPool) {
+            pooledSession.activeChannels--;
+            pooledSession.lastUsed = System.currentTimeMillis();
+            if (!pooledSession.session.isConnected()) {
+                hostPool.remove(pooledSession);
+            }
+            hostPool.notifyAll();
+        }
+    }
+
+    /**
+     * Disconnects the unused sessions that have been idle for longer than their 'maxIdleTime'.
+     *
+     * @return the number of disconnected sessions.
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (HostPool hostPool : hostPools.values()) {
+            synchronized (hostPool) {
+                Iterator<PooledSession> iterator = hostPool.sessions.iterator();
+                while (iterator.hasNext()) {
+                    PooledSession pooledSession = iterator.next();
+                    boolean idle = pooledSession.activeChannels == 0 && now - pooledSession.lastUsed > hostPool.maxIdleTime;
+                    if (idle || pooledSession.activeChannels == 0 && !pooledSession.session.isConnected()) {
+                        iterator.remove();
+                        pooledSession.session.disconnect();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of sessions in the pool, leased or not.
+     */
+    public int size() {
+        int size = 0;
+        for (HostPool hostPool : hostPools.values()) {
+            synchronized (hostPool) {
+                size += hostPool.sessions.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Disconnects all the sessions of the pool.
+     */
+    public void clear() {
+        for (HostPool hostPool : hostPools.values()) {
+            synchronized (hostPool) {
+                for (PooledSession pooledSession : hostPool.sessions) {
+                    pooledSession.session.disconnect();
+                }
+                hostPool.sessions.clear();
+                hostPool.notifyAll();
+            }
+        }
+        hostPools.clear();
+    }
+
+    public interface SessionFactory {
+        /**
+         * @return a new connected and authenticated session.
+         */
+        Session createSession() throws SSHException;
+    }
+
+    public static class PooledSession {
+        private final HostPool hostPool;
+        private final Session session;
+        private int activeChannels;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledSession(HostPool hostPool, Session session) {
+            this.hostPool = hostPool;
+            this.session = session;
+        }
+
+        public Session getSession() {
+            return session;
+        }
+    }
+
+    private static class HostPool {
+        private final List<PooledSession> sessions = new ArrayList<>();
+        private int pendingSessions;
+        private long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+
+        private PooledSession leaseLeastUsed(int maxChannelsPerSession) {
+            PooledSession leastUsed = null;
+            Iterator<PooledSession> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                PooledSession pooledSession = iterator.next();
+                if (!isHealthy(pooledSession)) {
+                    if (pooledSession.activeChannels == 0) {
+                        iterator.remove();
+                        pooledSession.session.disconnect();
+                    }
+                } else if (pooledSession.activeChannels < maxChannelsPerSession
+                        && (leastUsed == null || pooledSession.activeChannels < leastUsed.activeChannels)) {
+                    leastUsed = pooledSession;
+                }
+            }
+            if (leastUsed != null) {
+                leastUsed.activeChannels++;
+            }
+            return leastUsed;
+        }
+
+        /**
+         * A session unused for a while is checked with a keep-alive message, the server may have closed it.
+         */
+        private boolean isHealthy(PooledSession pooledSession) {
+            Session session = pooledSession.session;
+            if (!session.isConnected()) {
+                return false;
+            }
+            if (pooledSession.activeChannels == 0 && System.currentTimeMillis() - pooledSession.lastUsed > VALIDATION_INTERVAL) {
+                try {
+                    session.sendKeepAliveMsg();
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void remove(PooledSession pooledSession) {
+            sessions.remove(pooledSession);
+            pooledSession.session.disconnect();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.cloudslang.content.ssh.services.impl;
+
+import com.jcraft.jsch.ChannelExec;
+import io.cloudslang.content.ssh.entities.CommandOutputOptions;
+import io.cloudslang.content.ssh.entities.CommandResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A command started on an exec channel. The completion is signaled by JSch itself: the error stream of a channel is
+ * closed by the session thread only when the channel is closed, after the output was read to EOF and the exit status
+ * was received. So no thread has to poll the channel while the command runs.
+ * <p/>
+ * The caller either blocks with {@link #await(long)} or registers a listener with {@link #onCompletion(Runnable)},
+ * which lets a few threads handle many commands at the same time.
+ */
+public class ShellCommandExecution {
+    private final ChannelExec channel;
+    private final String characterSet;
+    private final boolean usePseudoTerminal;
+    private final CommandOutputStream out;
+    private final CommandOutputStream err;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    ShellCommandExecution(ChannelExec channel, String characterSet, boolean usePseudoTerminal, CommandOutputOptions outputOptions) throws IOException {
+        this.channel = channel;
+        this.characterSet = characterSet;
+        this.usePseudoTerminal = usePseudoTerminal;
+        Path outFile = outputOptions.getStandardOutputFile();
+        Path errFile = outputOptions.getStandardErrorFile();
+        out = new CommandOutputStream(outFile, outputOptions.getTailSize(outFile), outputOptions.getTailLines());
+        try {
+            err = new CompletionOutputStream(errFile, outputOptions.getTailSize(errFile), outputOptions.getTailLines());
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        channel.setOutputStream(out);
+        channel.setErrStream(err);
+    }
+
+    /**
+     * @return true if the channel was closed by the server, false if the command is still running.
+     */
+    public boolean isDone() {
+        return closed.getCount() == 0 || channel.isClosed();
+    }
+
+    /**
+     * Waits for the channel to be closed.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return true if the command finished, false if the timeout elapsed.
+     */
+    public boolean await(long timeout) throws InterruptedException {
+        return isDone() || closed.await(Math.max(timeout, 0), TimeUnit.MILLISECONDS) || channel.isClosed();
+    }
+
+    /**
+     * Registers a listener called when the channel is closed, by the server or by {@link #getResult()}. It is usually
+     * called on the JSch session thread, so it should only hand over the result to another thread. If the command
+     * already finished the listener is called right away.
+     */
+    public void onCompletion(Runnable listener) {
+        synchronized (listeners) {
+            if (closed.getCount() != 0) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Reads the command result and disconnects the channel. For a command that did not finish the partial output is returned.
+     *
+     * @return the command result.
+     * @throws IOException if the output could not be written to the output files.
+     */
+    public CommandResult getResult() throws IOException {
+        CommandResult result = new CommandResult();
+        result.setStandardOutput(out.toString(characterSet));
+        if (usePseudoTerminal && channel.getExitStatus() != 0) {
+            result.setStandardError(out.toString(characterSet));
+        } else {
+            result.setStandardError(err.toString(characterSet));
+        }
+
+        channel.disconnect();
+        closeStreams();
+        // The exit status is only available after the channel was closed (more exactly, just before the channel is closed).
+        result.setExitCode(channel.getExitStatus());
+        result.setStandardOutputSize(out.getSize());
+        result.setStandardErrorSize(err.getSize());
+        out.checkError();
+        err.checkError();
+        return result;
+    }
+
+    /**
+     * Closes the output files, for a channel that could not be connected.
+     */
+    void closeStreams() {
+        out.close();
+        err.close();
+    }
+
+    private void complete() {
+        List<Runnable> toNotify;
+        synchronized (listeners) {
+            if (closed.getCount() == 0) {
+                return;
+            }
+            closed.countDown();
+            toNotify = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : toNotify) {
+            try {
+                listener.run();
+            } catch (RuntimeException ignore) {
+                //a listener must not break the JSch session thread
+            }
+        }
+    }
+
+    private class CompletionOutputStream extends CommandOutputStream {
+        CompletionOutputStream(Path file, int tailSize, int tailLines) throws IOException {
+            super(file, tailSize, tailLines);
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            complete();
+        }
+    }
+}
@@ -8,47 +8,49 @@ import io.cloudslang.content.ssh.entities.SSHConnection;
 import io.cloudslang.content.ssh.services.SSHService;
 import io.cloudslang.content.ssh.services.impl.SSHServiceImpl;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * The sessions of a flow are kept in a concurrent map, shared by the parallel branches of the flow. The map holds at
+ * most {@link #MAX_CACHED_SESSIONS} sessions, the least recently used ones are disconnected first, except the ones a
+ * branch is running a command on: a session handed out by {@link #getFromCache} is leased until the branch gives it
+ * back with {@link SSHService#releaseFromCache()}, so the map may exceed its limit for a while. A session unused
+ * for a while is checked with a keep-alive message before it is handed out, and a background thread removes the
+ * sessions closed by the server.
+ *
  * @author octavian-h
  * @author ioanvranauhp
  *         Date: 10/29/14
  */
 public class CacheUtils {
-    /**
-     * @param resource the cache.
-     * @return the SSH session from cache
-     */
-    private static Session getSshSession(SessionResource<Map<String, SSHConnection>> resource, String sessionId) {
-        if (resource != null) {
-            Object obj = resource.get();
-            if (obj != null) {
-                SSHConnection sshConnection = (SSHConnection) ((Map) obj).get(sessionId);
-                if (sshConnection != null) {
-                    return sshConnection.getSession();
-                }
-            }
-        }
-        return null;
-    }
+    public static final int MAX_CACHED_SESSIONS = 32;
+    private static final long VALIDATION_INTERVAL = 10000; //10 seconds
+    private static final long REAPING_INTERVAL = 30000; //30 seconds
+    private static final Object RESOURCE_LOCK = new Object();
+    private static final Set<SSHSessionResource> RESOURCES = Collections.newSetFromMap(new WeakHashMap<SSHSessionResource, Boolean>());
+    private static ScheduledExecutorService reaper;
 
     /**
      * @param resource the cache.
-     * @return the SSH channel from cache
+     * @return the SSH connection from cache
      */
-    private static Channel getSshChannel(SessionResource<Map<String, SSHConnection>> resource, String sessionId) {
+    private static SSHConnection getSshConnection(SessionResource<Map<String, SSHConnection>> resource, String sessionId) {
         if (resource != null) {
-            Object obj = resource.get();
-            if (obj != null) {
-                SSHConnection sshConnection = (SSHConnection) ((Map) obj).get(sessionId);
-                if (sshConnection != null) {
-                    return sshConnection.getChannel();
-                }
+            Map<String, SSHConnection> sshConnectionMap = resource.get();
+            if (sshConnectionMap != null && sessionId != null) {
+                return sshConnectionMap.get(sessionId);
             }
         }
-
         return null;
     }
 
@@ -67,17 +69,76 @@ public class CacheUtils {
             sshConnection = new SSHConnection(session);
         }
         if (sessionParam != null) {
-            Map<String, SSHConnection> tempMap = sessionParam.get();
-            if (tempMap == null) {
-                tempMap = new HashMap<>();
+            SessionResource<Map<String, SSHConnection>> resource = getOrCreateResource(sessionParam);
+            Map<String, SSHConnection> sshConnectionMap = resource.get();
+            SSHConnection replaced = sshConnectionMap.put(sessionId, sshConnection);
+            if (replaced != null && replaced.getSession() != session) {
+                // a parallel branch connected its own session while the cached one was busy, the cached one is
+                // disconnected once its branch is done with it
+                replaced.retire();
+                if (resource instanceof SSHSessionResource) {
+                    ((SSHSessionResource) resource).recordEviction();
+                }
             }
-            tempMap.put(sessionId, sshConnection);
-            sessionParam.setResource(new SSHSessionResource(tempMap));
+            evictLeastRecentlyUsed(resource, sshConnectionMap, sessionId);
             return true;
         }
         return false;
     }
 
+    /**
+     * The resource is created only once, so that the parallel branches of a flow do not replace each other's sessions.
+     */
+    private static SessionResource<Map<String, SSHConnection>> getOrCreateResource(GlobalSessionObject<Map<String, SSHConnection>> sessionParam) {
+        synchronized (RESOURCE_LOCK) {
+            SessionResource<Map<String, SSHConnection>> resource = sessionParam.getResource();
+            if (resource == null || resource.get() == null) {
+                SSHSessionResource sshSessionResource = new SSHSessionResource(new ConcurrentHashMap<String, SSHConnection>());
+                sessionParam.setResource(sshSessionResource);
+                RESOURCES.add(sshSessionResource);
+                startReaper();
+                resource = sshSessionResource;
+            }
+            return resource;
+        }
+    }
+
+    private static void evictLeastRecentlyUsed(SessionResource<Map<String, SSHConnection>> resource, Map<String, SSHConnection> sshConnectionMap, String savedSessionId) {
+        while (sshConnectionMap.size() > MAX_CACHED_SESSIONS) {
+            Map.Entry<String, SSHConnection> leastRecentlyUsed = null;
+            for (Map.Entry<String, SSHConnection> entry : sshConnectionMap.entrySet()) {
+                if (!entry.getKey().equals(savedSessionId) && !entry.getValue().isLeased()
+                        && (leastRecentlyUsed == null || entry.getValue().getLastUsed() < leastRecentlyUsed.getValue().getLastUsed())) {
+                    leastRecentlyUsed = entry;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                // all the other sessions are running commands
+                return;
+            }
+            evict(resource, sshConnectionMap, leastRecentlyUsed.getKey(), leastRecentlyUsed.getValue(), false);
+        }
+    }
+
+    private static boolean evict(SessionResource<Map<String, SSHConnection>> resource, Map<String, SSHConnection> sshConnectionMap,
+                                 String sessionId, SSHConnection sshConnection, boolean evenIfLeased) {
+        synchronized (sshConnection) {
+            if (!evenIfLeased && sshConnection.isLeased()) {
+                // a branch leased it since it was picked
+                return false;
+            }
+            if (!sshConnectionMap.remove(sessionId, sshConnection)) {
+                // another branch already removed or replaced it
+                return false;
+            }
+            sshConnection.setEvicted(true);
+            sshConnection.disconnect();
+        }
+        if (resource instanceof SSHSessionResource) {
+            ((SSHSessionResource) resource).recordEviction();
+        }
+        return true;
+    }
 
     /**
      * Remove the SSH session (and associated channel if any) from the cache.
@@ -98,18 +159,105 @@ public class CacheUtils {
     }
 
     /**
-     * Get an opened SSH session from cache (Operation Orchestration session).
+     * Get an opened SSH session from cache (Operation Orchestration session). The session is leased, the caller gives
+     * it back with {@link SSHService#releaseFromCache()} once its command finished.
      *
      * @param sessionResource The session resource.
      * @return the SSH service
      */
     public static SSHService getFromCache(SessionResource<Map<String, SSHConnection>> sessionResource, String sessionId) {
-        Session savedSession = CacheUtils.getSshSession(sessionResource, sessionId);
-        if (savedSession != null && savedSession.isConnected()) {
-            Channel savedChannel = CacheUtils.getSshChannel(sessionResource, sessionId);
-            return new SSHServiceImpl(savedSession, savedChannel);
+        SSHSessionResource statistics = sessionResource instanceof SSHSessionResource ? (SSHSessionResource) sessionResource : null;
+        SSHConnection sshConnection = getSshConnection(sessionResource, sessionId);
+        if (sshConnection != null) {
+            if (isAlive(sshConnection)) {
+                if (sshConnection.lease()) {
+                    if (statistics != null) {
+                        statistics.recordHit();
+                    }
+                    return new SSHServiceImpl(sshConnection);
+                }
+            } else {
+                Map<String, SSHConnection> sshConnectionMap = sessionResource.get();
+                if (sshConnectionMap != null) {
+                    // a dead session is of no use to the branches that leased it
+                    evict(sessionResource, sshConnectionMap, sessionId, sshConnection, true);
+                }
+            }
+        }
+        if (statistics != null) {
+            statistics.recordMiss();
         }
-
         return null;
     }
+
+    /**
+     * A session unused for a while is checked with a keep-alive message, the server may have closed it.
+     */
+    private static boolean isAlive(SSHConnection sshConnection) {
+        Session session = sshConnection.getSession();
+        if (session == null || !session.isConnected()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - sshConnection.getLastUsed() > VALIDATION_INTERVAL) {
+            try {
+                session.sendKeepAliveMsg();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the disconnected sessions from all the caches.
+     *
+     * @return the number of removed sessions.
+     */
+    public static int reapDeadSessions() {
+        List<SSHSessionResource> resources;
+        synchronized (RESOURCE_LOCK) {
+            resources = new ArrayList<>(RESOURCES);
+        }
+        int reaped = 0;
+        for (SSHSessionResource resource : resources) {
+            Map<String, SSHConnection> sshConnectionMap = resource.get();
+            if (sshConnectionMap == null) {
+                synchronized (RESOURCE_LOCK) {
+                    RESOURCES.remove(resource);
+                }
+                continue;
+            }
+            for (Map.Entry<String, SSHConnection> entry : sshConnectionMap.entrySet()) {
+                Session session = entry.getValue().getSession();
+                if ((session == null || !session.isConnected()) && evict(resource, sshConnectionMap, entry.getKey(), entry.getValue(), true)) {
+                    reaped++;
+                }
+            }
+        }
+        return reaped;
+    }
+
+    private static void startReaper() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ssh-session-cache-reaper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reapDeadSessions();
+                } catch (RuntimeException ignore) {
+                    //an exception would cancel the next executions
+                }
+            }
+        }, REAPING_INTERVAL, REAPING_INTERVAL, TimeUnit.MILLISECONDS);
+    }
 }
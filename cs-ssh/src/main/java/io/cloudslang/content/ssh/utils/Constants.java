@@ -26,10 +26,28 @@ public class Constants {
     public static final String PROXY_USERNAME = "proxyUsername";
     public static final String PROXY_PASSWORD = "proxyPassword";
     public static final String CONNECT_TIMEOUT = "connectTimeout";
+    public static final String POOL_SESSIONS = "poolSessions";
+    public static final String MAX_SESSIONS_PER_HOST = "maxSessionsPerHost";
+    public static final String SESSION_MAX_IDLE_TIME = "sessionMaxIdleTime";
+    public static final String STDOUT_FILE = "stdoutFile";
+    public static final String STDERR_FILE = "stderrFile";
+    public static final String OUTPUT_TAIL_SIZE = "outputTailSize";
+    public static final String OUTPUT_TAIL_LINES = "outputTailLines";
+    public static final String HOSTS = "hosts";
+    public static final String HOST_COMMANDS = "hostCommands";
+    public static final String DELIMITER = "delimiter";
+    public static final String PARALLELISM = "parallelism";
     // outputs
     public static final String STDOUT = "STDOUT";
     public static final String STDERR = "STDERR";
     public static final String EXIT_STATUS = "exitStatus";
+    public static final String STDOUT_SIZE = "stdoutSize";
+    public static final String STDERR_SIZE = "stderrSize";
+    public static final String SESSION_CACHE_HITS = "sessionCacheHits";
+    public static final String SESSION_CACHE_MISSES = "sessionCacheMisses";
+    public static final String SESSION_CACHE_EVICTIONS = "sessionCacheEvictions";
+    public static final String SUCCESS_COUNT = "successCount";
+    public static final String FAILURE_COUNT = "failureCount";
     // default values
     public static final int DEFAULT_PORT = 22;
     public static final int DEFAULT_PROXY_PORT = 8080;
@@ -41,6 +59,7 @@ public class Constants {
     public static final String DEFAULT_NEWLINE = "\\n";
     public static final String DEFAULT_CHARACTER_SET = "UTF-8";
     public static final boolean DEFAULT_CLOSE_SESSION = false;
+    public static final boolean DEFAULT_POOL_SESSIONS = false;
     public static final String DEFAULT_KNOWN_HOSTS_POLICY = "allow";
     public static final Path DEFAULT_KNOWN_HOSTS_PATH = Paths.get(System.getProperty("user.home"), ".ssh", "known_hosts");
 
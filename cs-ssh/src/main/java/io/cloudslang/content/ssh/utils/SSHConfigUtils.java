@@ -0,0 +1,100 @@
+package io.cloudslang.content.ssh.utils;
+
+import com.jcraft.jsch.HostKeyRepository;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import io.cloudslang.content.utils.StringUtilities;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Security;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The configuration shared by the SSH sessions of the worker. The settings are applied on each session instead of the
+ * JVM-global JSch configuration, so that concurrent operations with different settings do not change each other's
+ * sessions. The known_hosts files are parsed once and parsed again only when they change.
+ */
+public class SSHConfigUtils {
+    public static final String DEFAULT_ALLOWED_CIPHERS = "aes128-ctr,aes128-cbc,3des-ctr,3des-cbc,blowfish-cbc,aes192-ctr,aes192-cbc,aes256-ctr,aes256-cbc";
+    private static final String PREFERRED_AUTHENTICATIONS = "publickey,password,keyboard-interactive";
+    private static final int MAX_CACHED_CONFIGS = 64;
+
+    private static final ConcurrentMap<String, Map<String, String>> SESSION_CONFIGS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, KnownHostsEntry> KNOWN_HOSTS = new ConcurrentHashMap<>();
+
+    static {
+        // the provider is registered once for the whole worker, removing it could break the running sessions
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.insertProviderAt(new BouncyCastleProvider(), 2);
+        }
+    }
+
+    /**
+     * Applies the cipher and authentication settings on a session.
+     *
+     * @param session        The session, not yet connected.
+     * @param allowedCiphers The list of allowed ciphers. If empty, the default list is used.
+     */
+    public static void applySessionConfig(Session session, String allowedCiphers) {
+        String ciphers = StringUtilities.isNotBlank(allowedCiphers) ? allowedCiphers : DEFAULT_ALLOWED_CIPHERS;
+        Map<String, String> config = SESSION_CONFIGS.get(ciphers);
+        if (config == null) {
+            config = createSessionConfig(ciphers);
+            if (SESSION_CONFIGS.size() < MAX_CACHED_CONFIGS) {
+                SESSION_CONFIGS.putIfAbsent(ciphers, config);
+            }
+        }
+        session.setConfig(new Hashtable<>(config));
+    }
+
+    private static Map<String, String> createSessionConfig(String ciphers) {
+        Map<String, String> config = new HashMap<>();
+        config.put("cipher.s2c", ciphers);
+        config.put("cipher.c2s", ciphers);
+        config.put("PreferredAuthentications", PREFERRED_AUTHENTICATIONS);
+        return Collections.unmodifiableMap(config);
+    }
+
+    /**
+     * Gets the parsed content of a known_hosts file. The file is parsed again only when its modification time or
+     * its size changed, for example after a new host key was added to it.
+     *
+     * @param knownHostsPath The known_hosts file.
+     * @return the host keys repository, shared by all the sessions that use the file.
+     */
+    public static HostKeyRepository getKnownHosts(Path knownHostsPath) throws JSchException, IOException {
+        String key = knownHostsPath.toAbsolutePath().normalize().toString();
+        long lastModified = Files.exists(knownHostsPath) ? Files.getLastModifiedTime(knownHostsPath).toMillis() : -1;
+        long size = lastModified >= 0 ? Files.size(knownHostsPath) : -1;
+
+        KnownHostsEntry entry = KNOWN_HOSTS.get(key);
+        if (entry == null || entry.lastModified != lastModified || entry.size != size) {
+            JSch jsch = new JSch();
+            jsch.setKnownHosts(key);
+            entry = new KnownHostsEntry(jsch.getHostKeyRepository(), lastModified, size);
+            KNOWN_HOSTS.put(key, entry);
+        }
+        return entry.repository;
+    }
+
+    private static class KnownHostsEntry {
+        private final HostKeyRepository repository;
+        private final long lastModified;
+        private final long size;
+
+        private KnownHostsEntry(HostKeyRepository repository, long lastModified, long size) {
+            this.repository = repository;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
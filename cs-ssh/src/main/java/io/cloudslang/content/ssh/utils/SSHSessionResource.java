@@ -7,15 +7,23 @@ import io.cloudslang.content.ssh.entities.SSHConnection;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Wrapper class on SSH session.
+ * It also counts the cache hits, misses and evictions of the sessions it holds.
  *
  * @author octavian-h
  */
 public class SSHSessionResource extends SessionResource<Map<String, SSHConnection>> {
-    private Map<String, SSHConnection> sshConnectionMap;
+    private volatile Map<String, SSHConnection> sshConnectionMap;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
 
+    /**
+     * @param sshConnectionMap The sessions map, it should be a concurrent map because parallel branches share it.
+     */
     public SSHSessionResource(Map<String, SSHConnection> sshConnectionMap) {
         this.sshConnectionMap = sshConnectionMap;
     }
@@ -27,7 +35,12 @@ public class SSHSessionResource extends SessionResource<Map<String, SSHConnectio
 
     @Override
     public void release() {
-        final Collection<SSHConnection> sshConnections = sshConnectionMap.values();
+        Map<String, SSHConnection> connections = sshConnectionMap;
+        sshConnectionMap = null;
+        if (connections == null) {
+            return;
+        }
+        final Collection<SSHConnection> sshConnections = connections.values();
         for (SSHConnection sshConnection : sshConnections) {
             synchronized (sshConnection) {
                 Session session = sshConnection.getSession();
@@ -38,6 +51,30 @@ public class SSHSessionResource extends SessionResource<Map<String, SSHConnectio
                 }
             }
         }
-        sshConnectionMap = null;
+        connections.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
     }
-}
\ No newline at end of file
+}
@@ -24,10 +24,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
-import static org.junit.Assert.assertTrue;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 
@@ -44,30 +42,6 @@ public class SSHShellAbstractTest {
     @Mock
     private GlobalSessionObject<Map<String, SSHConnection>> sshGlobalSessionObjectMock;
 
-    @Test
-    public void testAddSecurityProvider() {
-        SSHShellAbstract sshShellAbstract = new SSHShellAbstract() {
-        };
-        boolean securityProviderAdded = sshShellAbstract.addSecurityProvider();
-        assertTrue(securityProviderAdded);
-        sshShellAbstract.addSecurityProvider();
-        securityProviderAdded = sshShellAbstract.addSecurityProvider();
-        assertFalse(securityProviderAdded);
-        sshShellAbstract.removeSecurityProvider();
-    }
-
-    @Test
-    public void testRemoveSecurityProvider() {
-        SSHShellAbstract sshShellAbstract = new SSHShellAbstract() {
-        };
-        boolean securityProviderAdded = sshShellAbstract.addSecurityProvider();
-        assertTrue(securityProviderAdded);
-        sshShellAbstract.removeSecurityProvider();
-        securityProviderAdded = sshShellAbstract.addSecurityProvider();
-        assertTrue(securityProviderAdded);
-        sshShellAbstract.removeSecurityProvider();
-    }
-
     @Test
     public void testGetKeyFile() {
         final String myPrivateKeyFileName = "myPrivateKeyFile";
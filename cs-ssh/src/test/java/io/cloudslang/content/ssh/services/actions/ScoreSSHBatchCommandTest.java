@@ -0,0 +1,214 @@
+package io.cloudslang.content.ssh.services.actions;
+
+import io.cloudslang.content.constants.OutputNames;
+import io.cloudslang.content.constants.ReturnCodes;
+import io.cloudslang.content.ssh.entities.SSHShellInputs;
+import io.cloudslang.content.ssh.utils.Constants;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ScoreSSHBatchCommandTest {
+
+    @Test
+    public void buildHostCommands() {
+        Map<String, String> hostCommands = ScoreSSHBatchCommand.buildHostCommands("host1, host2,", "host2=uname -a\nhost3 = ls a=b\n", null);
+
+        assertEquals(Arrays.asList("host1", "host2", "host3"), Arrays.asList(hostCommands.keySet().toArray()));
+        assertNull(hostCommands.get("host1"));
+        assertEquals("uname -a", hostCommands.get("host2"));
+        assertEquals("ls a=b", hostCommands.get("host3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildHostCommandsWithoutHosts() {
+        ScoreSSHBatchCommand.buildHostCommands("", " ", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidParallelism() {
+        new ScoreSSHBatchCommand().setParallelism("0");
+    }
+
+    @Test
+    public void executeInParallel() {
+        final CountDownLatch allStarted = new CountDownLatch(3);
+        ScoreSSHBatchCommand batchCommand = new ScoreSSHBatchCommand() {
+            @Override
+            protected ScoreSSHShellCommand.StartedCommand startCommand(final SSHShellInputs sshShellInputs) {
+                allStarted.countDown();
+                if (sshShellInputs.getHost().equals("host3")) {
+                    throw new IllegalStateException("Auth fail");
+                }
+                //the commands only finish once they were all started, so they run at the same time
+                return new FakeCommand(allStarted, sshShellInputs.getHost() + ":" + sshShellInputs.getPort() + " " + sshShellInputs.getCommand());
+            }
+        };
+        SSHShellInputs sshShellInputs = new SSHShellInputs();
+        sshShellInputs.setCommand("ls");
+        sshShellInputs.setPort("22");
+        Map<String, String> hostCommands = new LinkedHashMap<>();
+        hostCommands.put("host1", null);
+        hostCommands.put("host2:2222", "uname");
+        hostCommands.put("host3", null);
+
+        List<Map<String, String>> results = batchCommand.setParallelism("3").execute(sshShellInputs, hostCommands);
+
+        assertEquals(3, results.size());
+        assertEquals("host1:22 ls", results.get(0).get(Constants.STDOUT));
+        assertEquals("host2:2222 uname", results.get(1).get(Constants.STDOUT));
+        assertEquals("Auth fail", results.get(2).get(OutputNames.RETURN_RESULT));
+        assertEquals(2, ScoreSSHBatchCommand.countSuccesses(results));
+        assertEquals("ls", sshShellInputs.getCommand());
+    }
+
+    @Test
+    public void executeConnectsHostsInParallel() {
+        final int hosts = 8;
+        final CountDownLatch allConnecting = new CountDownLatch(hosts);
+        ScoreSSHBatchCommand batchCommand = new ScoreSSHBatchCommand() {
+            @Override
+            protected ScoreSSHShellCommand.StartedCommand startCommand(SSHShellInputs sshShellInputs) {
+                //a connection only completes once all the hosts are connecting, it fails if the connections are serialized
+                allConnecting.countDown();
+                try {
+                    if (!allConnecting.await(5, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("connect timeout");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new FakeCommand(new CountDownLatch(0), sshShellInputs.getHost());
+            }
+        };
+        SSHShellInputs sshShellInputs = new SSHShellInputs();
+        sshShellInputs.setCommand("ls");
+        Map<String, String> hostCommands = new LinkedHashMap<>();
+        for (int i = 0; i < hosts; i++) {
+            hostCommands.put("host" + i, null);
+        }
+
+        List<Map<String, String>> results = batchCommand.setParallelism(String.valueOf(hosts)).execute(sshShellInputs, hostCommands);
+
+        assertEquals(hosts, ScoreSSHBatchCommand.countSuccesses(results));
+    }
+
+    @Test
+    public void executeFinishesTimedOutCommands() {
+        final FakeCommand command = new FakeCommand(new CountDownLatch(1), "partial");
+        ScoreSSHBatchCommand batchCommand = new ScoreSSHBatchCommand() {
+            @Override
+            protected ScoreSSHShellCommand.StartedCommand startCommand(SSHShellInputs sshShellInputs) {
+                return command;
+            }
+        };
+        SSHShellInputs sshShellInputs = new SSHShellInputs();
+        sshShellInputs.setCommand("sleep 60");
+        sshShellInputs.setTimeout("50");
+
+        List<Map<String, String>> results = batchCommand.execute(sshShellInputs, Collections.<String, String>singletonMap("host1", null));
+
+        assertEquals(ReturnCodes.FAILURE, results.get(0).get(OutputNames.RETURN_CODE));
+        assertEquals(1, command.finishCount.get());
+    }
+
+    @Test
+    public void toJson() {
+        Map<String, String> success = new HashMap<>();
+        success.put(Constants.STDOUT, "a \"b\"\n");
+        success.put(Constants.STDERR, "");
+        success.put(Constants.EXIT_STATUS, "1");
+        success.put(OutputNames.RETURN_CODE, ReturnCodes.SUCCESS);
+        Map<String, String> failure = new HashMap<>();
+        failure.put(OutputNames.RETURN_RESULT, "Auth fail");
+        failure.put(OutputNames.RETURN_CODE, ReturnCodes.FAILURE);
+
+        String json = ScoreSSHBatchCommand.toJson(Arrays.asList("host1", "host2"), Arrays.asList(success, failure));
+
+        assertEquals("[{\"host\":\"host1\",\"returnCode\":0,\"exitStatus\":1,\"stdout\":\"a \\\"b\\\"\\n\",\"stderr\":\"\"},"
+                + "{\"host\":\"host2\",\"returnCode\":-1,\"exception\":\"Auth fail\"}]", json);
+        assertEquals(0, ScoreSSHBatchCommand.countSuccesses(Arrays.asList(success, failure)));
+    }
+
+    @Test
+    public void toJsonWithoutMessage() {
+        Map<String, String> failure = new HashMap<>();
+        failure.put(OutputNames.RETURN_CODE, ReturnCodes.FAILURE);
+
+        assertEquals("[{\"host\":\"host1\",\"returnCode\":-1,\"exception\":null}]",
+                ScoreSSHBatchCommand.toJson(Collections.singletonList("host1"), Collections.singletonList(failure)));
+    }
+
+    @Test
+    public void executeReportsExceptionWithoutMessage() {
+        ScoreSSHBatchCommand batchCommand = new ScoreSSHBatchCommand() {
+            @Override
+            protected ScoreSSHShellCommand.StartedCommand startCommand(SSHShellInputs sshShellInputs) {
+                throw new NullPointerException();
+            }
+        };
+        SSHShellInputs sshShellInputs = new SSHShellInputs();
+        sshShellInputs.setCommand("ls");
+
+        List<Map<String, String>> results = batchCommand.execute(sshShellInputs, Collections.<String, String>singletonMap("host1", null));
+
+        assertEquals(NullPointerException.class.getName(), results.get(0).get(OutputNames.RETURN_RESULT));
+        assertEquals("[{\"host\":\"host1\",\"returnCode\":-1,\"exception\":\"java.lang.NullPointerException\"}]",
+                ScoreSSHBatchCommand.toJson(Collections.singletonList("host1"), results));
+    }
+
+    /**
+     * Completes on its own thread once the latch is released, a command that did not complete is finished as timed out.
+     */
+    private static class FakeCommand implements ScoreSSHShellCommand.StartedCommand {
+        private final CountDownLatch latch;
+        private final String stdout;
+        private final AtomicInteger finishCount = new AtomicInteger();
+
+        FakeCommand(CountDownLatch latch, String stdout) {
+            this.latch = latch;
+            this.stdout = stdout;
+        }
+
+        @Override
+        public void onCompletion(final Runnable listener) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (latch.await(5, TimeUnit.SECONDS)) {
+                            listener.run();
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            }).start();
+        }
+
+        @Override
+        public Map<String, String> finish() {
+            finishCount.incrementAndGet();
+            Map<String, String> result = new HashMap<>();
+            if (latch.getCount() == 0) {
+                result.put(Constants.STDOUT, stdout);
+                result.put(Constants.EXIT_STATUS, "0");
+                result.put(OutputNames.RETURN_CODE, ReturnCodes.SUCCESS);
+            } else {
+                result.put(OutputNames.RETURN_RESULT, "timed out: " + stdout);
+                result.put(OutputNames.RETURN_CODE, ReturnCodes.FAILURE);
+            }
+            return result;
+        }
+    }
+}
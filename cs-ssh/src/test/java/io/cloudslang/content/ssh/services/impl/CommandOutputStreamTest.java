@@ -0,0 +1,63 @@
+package io.cloudslang.content.ssh.services.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class CommandOutputStreamTest {
+    private static final String CHARSET = "UTF-8";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsTheWholeOutputWithoutLimits() throws IOException {
+        CommandOutputStream out = new CommandOutputStream(null, 0, 0);
+        out.write("line1\nline2\n".getBytes(CHARSET));
+
+        assertEquals("line1\nline2\n", out.toString(CHARSET));
+        assertEquals(12, out.getSize());
+    }
+
+    @Test
+    public void keepsTheLastBytes() throws IOException {
+        CommandOutputStream out = new CommandOutputStream(null, 5, 0);
+        out.write("abc".getBytes(CHARSET));
+        assertEquals("abc", out.toString(CHARSET));
+        out.write("defg".getBytes(CHARSET));
+        assertEquals("cdefg", out.toString(CHARSET));
+        out.write("0123456789".getBytes(CHARSET), 2, 7);
+        assertEquals("45678", out.toString(CHARSET));
+        out.write('9');
+        assertEquals("56789", out.toString(CHARSET));
+        assertEquals(15, out.getSize());
+    }
+
+    @Test
+    public void keepsTheLastLines() throws IOException {
+        CommandOutputStream out = new CommandOutputStream(null, 100, 2);
+        out.write("line1\nline2\nline3\n".getBytes(CHARSET));
+        assertEquals("line2\nline3\n", out.toString(CHARSET));
+        out.write("line4".getBytes(CHARSET));
+        assertEquals("line3\nline4", out.toString(CHARSET));
+    }
+
+    @Test
+    public void writesTheOutputToFile() throws IOException {
+        File file = new File(folder.getRoot(), "stdout.txt");
+        CommandOutputStream out = new CommandOutputStream(file.toPath(), 4, 0);
+        out.write("0123456789".getBytes(CHARSET));
+        out.close();
+        out.checkError();
+
+        assertEquals("0123456789", new String(Files.readAllBytes(file.toPath()), CHARSET));
+        assertEquals("6789", out.toString(CHARSET));
+        assertEquals(10, out.getSize());
+    }
+}
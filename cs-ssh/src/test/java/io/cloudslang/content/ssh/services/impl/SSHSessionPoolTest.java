@@ -0,0 +1,127 @@
+package io.cloudslang.content.ssh.services.impl;
+
+import com.jcraft.jsch.Session;
+import io.cloudslang.content.ssh.exceptions.SSHException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SSHSessionPoolTest {
+    private static final String KEY = SSHSessionPool.buildKey("host", 22, "user", "password");
+    private static final long MAX_IDLE_TIME = 60000;
+    private static final long WAIT_TIMEOUT = 100;
+
+    private SSHSessionPool sessionPool;
+    private MockSessionFactory sessionFactory;
+
+    @Before
+    public void setUp() {
+        sessionPool = new SSHSessionPool(2);
+        sessionFactory = new MockSessionFactory();
+    }
+
+    @Test
+    public void buildKeyDependsOnCredentials() {
+        assertEquals(KEY, SSHSessionPool.buildKey("host", 22, "user", "password"));
+        assertFalse(KEY.equals(SSHSessionPool.buildKey("host", 22, "user", "password2")));
+        assertFalse(SSHSessionPool.buildKey("host", 22, "user", "a", null).equals(SSHSessionPool.buildKey("host", 22, "user", null, "a")));
+    }
+
+    @Test
+    public void leaseReusesReleasedSession() throws SSHException {
+        SSHSessionPool.PooledSession pooledSession = sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        sessionPool.release(pooledSession);
+        SSHSessionPool.PooledSession pooledSession2 = sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+
+        assertSame(pooledSession.getSession(), pooledSession2.getSession());
+        assertEquals(1, sessionFactory.sessions.size());
+    }
+
+    @Test
+    public void leaseSharesSessionBetweenChannels() throws SSHException {
+        SSHSessionPool.PooledSession pooledSession = sessionPool.lease(KEY, 2, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        SSHSessionPool.PooledSession pooledSession2 = sessionPool.lease(KEY, 2, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        SSHSessionPool.PooledSession pooledSession3 = sessionPool.lease(KEY, 2, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+
+        assertSame(pooledSession.getSession(), pooledSession2.getSession());
+        assertNotSame(pooledSession.getSession(), pooledSession3.getSession());
+        assertEquals(2, sessionPool.size());
+    }
+
+    @Test
+    public void leaseWaitsWhenAllSessionsAreBusy() throws SSHException {
+        sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        try {
+            sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+            fail("the pool has only one session with two channels");
+        } catch (SSHException e) {
+            assertEquals("Timed out waiting for a pooled SSH session for host:22:user", e.getMessage());
+        }
+        assertEquals(1, sessionFactory.sessions.size());
+    }
+
+    @Test
+    public void releaseRemovesDisconnectedSession() throws SSHException {
+        SSHSessionPool.PooledSession pooledSession = sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        when(pooledSession.getSession().isConnected()).thenReturn(false);
+        sessionPool.release(pooledSession);
+
+        assertEquals(0, sessionPool.size());
+        assertNotSame(pooledSession.getSession(), sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory).getSession());
+    }
+
+    @Test
+    public void evictIdle() throws SSHException, InterruptedException {
+        SSHSessionPool.PooledSession pooledSession = sessionPool.lease(KEY, 2, 1, WAIT_TIMEOUT, sessionFactory);
+        SSHSessionPool.PooledSession busySession = sessionPool.lease(KEY, 2, 1, WAIT_TIMEOUT, sessionFactory);
+        sessionPool.lease(KEY, 2, 1, WAIT_TIMEOUT, sessionFactory);
+        sessionPool.release(pooledSession);
+        sessionPool.release(busySession);
+        Thread.sleep(10);
+
+        assertEquals(1, sessionPool.evictIdle());
+        assertEquals(1, sessionPool.size());
+        verify(pooledSession.getSession()).disconnect();
+    }
+
+    @Test
+    public void leaseReleasesSlotWhenConnectFails() throws SSHException {
+        try {
+            sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, new SSHSessionPool.SessionFactory() {
+                @Override
+                public Session createSession() throws SSHException {
+                    throw new SSHException("Auth fail");
+                }
+            });
+            fail("the session could not be created");
+        } catch (SSHException e) {
+            assertEquals("Auth fail", e.getMessage());
+        }
+        sessionPool.lease(KEY, 1, MAX_IDLE_TIME, WAIT_TIMEOUT, sessionFactory);
+        assertEquals(1, sessionPool.size());
+    }
+
+    private static class MockSessionFactory implements SSHSessionPool.SessionFactory {
+        private final List<Session> sessions = new ArrayList<>();
+
+        @Override
+        public Session createSession() {
+            Session session = mock(Session.class);
+            when(session.isConnected()).thenReturn(true);
+            sessions.add(session);
+            return session;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.cloudslang.content.ssh.services.impl;
+
+import com.jcraft.jsch.ChannelExec;
+import io.cloudslang.content.ssh.entities.CommandOutputOptions;
+import io.cloudslang.content.ssh.entities.CommandResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShellCommandExecutionTest {
+    private ChannelExec channel;
+    private ShellCommandExecution execution;
+    private OutputStream out;
+    private OutputStream err;
+
+    @Before
+    public void setUp() throws IOException {
+        channel = mock(ChannelExec.class);
+        execution = new ShellCommandExecution(channel, "UTF-8", false, CommandOutputOptions.DEFAULT);
+        ArgumentCaptor<OutputStream> outCaptor = ArgumentCaptor.forClass(OutputStream.class);
+        verify(channel).setOutputStream(outCaptor.capture());
+        out = outCaptor.getValue();
+        ArgumentCaptor<OutputStream> errCaptor = ArgumentCaptor.forClass(OutputStream.class);
+        verify(channel).setErrStream(errCaptor.capture());
+        err = errCaptor.getValue();
+    }
+
+    @Test
+    public void awaitReturnsWhenTheChannelIsClosed() throws Exception {
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    out.write("output".getBytes("UTF-8"));
+                    out.close();
+                    err.close();
+                } catch (Exception ignore) {
+                }
+            }
+        }.start();
+
+        assertTrue(execution.await(5000));
+        assertTrue(execution.isDone());
+        when(channel.getExitStatus()).thenReturn(0);
+        CommandResult result = execution.getResult();
+        assertEquals("output", result.getStandardOutput());
+        assertEquals("", result.getStandardError());
+        assertEquals(6, result.getStandardOutputSize());
+        verify(channel).disconnect();
+    }
+
+    @Test
+    public void awaitTimesOut() throws Exception {
+        assertFalse(execution.await(10));
+        assertFalse(execution.isDone());
+    }
+
+    @Test
+    public void onCompletionIsCalledOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                calls.incrementAndGet();
+            }
+        };
+        execution.onCompletion(listener);
+        assertEquals(0, calls.get());
+
+        err.close();
+        err.close();
+        assertEquals(1, calls.get());
+
+        execution.onCompletion(listener);
+        assertEquals(2, calls.get());
+    }
+}
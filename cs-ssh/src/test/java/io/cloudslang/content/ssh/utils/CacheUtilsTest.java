@@ -82,6 +82,7 @@ public class CacheUtilsTest {
         when(mapMock.get(sessionId)).thenReturn(sshConnectionMock);
         when(sshConnectionMock.getSession()).thenReturn(sessionMock);
         when(sessionMock.isConnected()).thenReturn(true);
+        when(sshConnectionMock.lease()).thenReturn(true);
         SSHService fromCache = CacheUtils.getFromCache(sessionResourceMock, sessionId);
         assertNotNull(fromCache);
         assertEquals(fromCache.getSSHSession(), sessionMock);
@@ -90,4 +91,117 @@ public class CacheUtilsTest {
         fromCache = CacheUtils.getFromCache(null, null);
         assertNull(fromCache);
     }
+
+    @Test
+    public void testCacheStatistics() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        when(sessionMock.isConnected()).thenReturn(true);
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+        SSHSessionResource resource = (SSHSessionResource) sessionObject.getResource();
+
+        assertNotNull(CacheUtils.getFromCache(resource, sessionId));
+        assertNull(CacheUtils.getFromCache(resource, "otherSessionId"));
+        when(sessionMock.isConnected()).thenReturn(false);
+        assertNull(CacheUtils.getFromCache(resource, sessionId));
+
+        assertEquals(1, resource.getHits());
+        assertEquals(2, resource.getMisses());
+        assertEquals(1, resource.getEvictions());
+        assertTrue(resource.get().isEmpty());
+        verify(sessionMock).disconnect();
+    }
+
+    @Test
+    public void testSaveKeepsTheResource() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+        SessionResource<Map<String, SSHConnection>> resource = sessionObject.getResource();
+        CacheUtils.saveSshSessionAndChannel(sessionMock, channelShellMock, sessionObject, "otherSessionId");
+
+        assertSame(resource, sessionObject.getResource());
+        assertEquals(2, resource.get().size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSessionIsEvicted() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        for (int i = 0; i < CacheUtils.MAX_CACHED_SESSIONS; i++) {
+            CacheUtils.saveSshSessionAndChannel(Mockito.mock(Session.class), null, sessionObject, sessionId + i);
+            sessionObject.get().get(sessionId + i).setLastUsed(i);
+        }
+        Session leastRecentlyUsed = sessionObject.get().get(sessionId + 0).getSession();
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+
+        assertEquals(CacheUtils.MAX_CACHED_SESSIONS, sessionObject.get().size());
+        assertFalse(sessionObject.get().containsKey(sessionId + 0));
+        assertTrue(sessionObject.get().containsKey(sessionId));
+        verify(leastRecentlyUsed).disconnect();
+    }
+
+    @Test
+    public void testLeasedSessionIsNotEvicted() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        for (int i = 0; i < CacheUtils.MAX_CACHED_SESSIONS; i++) {
+            Session session = Mockito.mock(Session.class);
+            when(session.isConnected()).thenReturn(true);
+            CacheUtils.saveSshSessionAndChannel(session, null, sessionObject, sessionId + i);
+            sessionObject.get().get(sessionId + i).setLastUsed(System.currentTimeMillis() - CacheUtils.MAX_CACHED_SESSIONS + i);
+        }
+        Session leased = sessionObject.get().get(sessionId + 0).getSession();
+        Session leastRecentlyUsed = sessionObject.get().get(sessionId + 1).getSession();
+        SSHService service = CacheUtils.getFromCache(sessionObject.getResource(), sessionId + 0);
+        sessionObject.get().get(sessionId + 0).setLastUsed(0);
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+
+        assertTrue(sessionObject.get().containsKey(sessionId + 0));
+        assertFalse(sessionObject.get().containsKey(sessionId + 1));
+        verify(leased, Mockito.never()).disconnect();
+        verify(leastRecentlyUsed).disconnect();
+
+        service.releaseFromCache();
+        sessionObject.get().get(sessionId + 0).setLastUsed(0);
+        CacheUtils.saveSshSessionAndChannel(Mockito.mock(Session.class), null, sessionObject, "otherSessionId");
+
+        assertFalse(sessionObject.get().containsKey(sessionId + 0));
+        verify(leased).disconnect();
+    }
+
+    @Test
+    public void testSaveUnderSameIdDisconnectsReplacedSession() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        Session replacedSession = Mockito.mock(Session.class);
+        CacheUtils.saveSshSessionAndChannel(replacedSession, null, sessionObject, sessionId);
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+
+        assertSame(sessionMock, sessionObject.get().get(sessionId).getSession());
+        verify(replacedSession).disconnect();
+        verify(sessionMock, Mockito.never()).disconnect();
+    }
+
+    @Test
+    public void testSaveUnderSameIdDisconnectsLeasedSessionOnRelease() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        Session leasedSession = Mockito.mock(Session.class);
+        when(leasedSession.isConnected()).thenReturn(true);
+        CacheUtils.saveSshSessionAndChannel(leasedSession, null, sessionObject, sessionId);
+        SSHService service = CacheUtils.getFromCache(sessionObject.getResource(), sessionId);
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+
+        verify(leasedSession, Mockito.never()).disconnect();
+        service.releaseFromCache();
+        verify(leasedSession).disconnect();
+    }
+
+    @Test
+    public void testReapDeadSessions() {
+        GlobalSessionObject<Map<String, SSHConnection>> sessionObject = new GlobalSessionObject<>();
+        Session deadSession = Mockito.mock(Session.class);
+        when(sessionMock.isConnected()).thenReturn(true);
+        CacheUtils.saveSshSessionAndChannel(sessionMock, null, sessionObject, sessionId);
+        CacheUtils.saveSshSessionAndChannel(deadSession, null, sessionObject, "deadSessionId");
+
+        assertTrue(CacheUtils.reapDeadSessions() >= 1);
+        assertEquals(1, sessionObject.get().size());
+        assertTrue(sessionObject.get().containsKey(sessionId));
+    }
 }
@@ -0,0 +1,61 @@
+package io.cloudslang.content.ssh.utils;
+
+import com.jcraft.jsch.HostKeyRepository;
+import com.jcraft.jsch.Session;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Hashtable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class SSHConfigUtilsTest {
+    private static final String KNOWN_HOST = "host1 ssh-rsa AAAAB3NzaC1yc2EAAAABIwAAAQEAq2A7hRGmdnm9tUDbO9IDSwBK6TbQa+PXYPCPy6rbTrTtw7PHkccKrpp0yVhp5HdEIcKr6pLlVDBfOLX9QUsyCOV0wzfjIJNlGEYsdlLJizHhbn2mUjvSAHQqZETYP81eFzLQNnPHt4EVVUh7VfDESU84KezmD5QlWpXLmvU31/yMf+Se8xhHTvKSCZIFImWwoG6mbUoWf9nzpIoaSjB+weqqUUmpaaasXVal72J+UX2B+2RPW3RcT0eOzQgqlJL3RKrTJvdsjE3JEAvGq3lGHSZXy28G3skua2SmVi/w4yCE6gbODqnTWlg7+wC604ydGXA8VJiS5ap43JXiUFFAaQ==";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void applySessionConfig() {
+        Session session = mock(Session.class);
+        SSHConfigUtils.applySessionConfig(session, "aes256-ctr");
+
+        ArgumentCaptor<Hashtable> config = ArgumentCaptor.forClass(Hashtable.class);
+        verify(session).setConfig(config.capture());
+        assertEquals("aes256-ctr", config.getValue().get("cipher.s2c"));
+        assertEquals("aes256-ctr", config.getValue().get("cipher.c2s"));
+    }
+
+    @Test
+    public void applyDefaultSessionConfig() {
+        Session session = mock(Session.class);
+        SSHConfigUtils.applySessionConfig(session, " ");
+
+        ArgumentCaptor<Hashtable> config = ArgumentCaptor.forClass(Hashtable.class);
+        verify(session).setConfig(config.capture());
+        assertEquals(SSHConfigUtils.DEFAULT_ALLOWED_CIPHERS, config.getValue().get("cipher.c2s"));
+    }
+
+    @Test
+    public void knownHostsAreParsedAgainOnlyWhenChanged() throws Exception {
+        Path knownHosts = folder.newFile("known_hosts").toPath();
+        HostKeyRepository repository = SSHConfigUtils.getKnownHosts(knownHosts);
+        assertSame(repository, SSHConfigUtils.getKnownHosts(knownHosts));
+        assertNull(repository.getHostKey());
+
+        Files.write(knownHosts, (KNOWN_HOST + "\n").getBytes(Charset.forName("UTF-8")));
+        HostKeyRepository changedRepository = SSHConfigUtils.getKnownHosts(knownHosts);
+        assertNotSame(repository, changedRepository);
+        assertEquals(1, changedRepository.getHostKey().length);
+    }
+}